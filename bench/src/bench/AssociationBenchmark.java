@@ -0,0 +1,73 @@
+package bench;
+
+import model.Part;
+import model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** This class is responsible for measuring Product.addAssociatedPart and Product.deleteAssociatedPart on a
+ *  product that already has a number of associated parts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+@State(Scope.Benchmark)
+public class AssociationBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int associated;
+
+    private Product product;
+    private List<Part> parts;
+    private List<Part> extra;
+    private int[] picks;
+    private int next;
+
+    /** This method builds the product and the parts that will be added to and removed from it. */
+    @Setup(Level.Trial)
+    public void fill() {
+        product = InventoryData.products(1000, 1, InventoryData.SEED).get(0);
+        parts = InventoryData.parts(1, associated, 0.5, InventoryData.SEED);
+        for (Part part : parts) {
+            product.addAssociatedPart(part);
+        }
+        extra = InventoryData.parts(associated + 1, 1 << 10, 0.5, InventoryData.SEED + 1);
+        picks = InventoryData.ids(0, associated, 1 << 16, InventoryData.SEED + 2);
+    }
+
+    /** This method adds a part and removes it again, which is what pressing Add then Remove in a form does.
+     *  @return boolean value for whether the part was removed
+     */
+    @Benchmark
+    public boolean addThenDeleteAssociatedPart() {
+        Part part = extra.get(next++ & (extra.size() - 1));
+        product.addAssociatedPart(part);
+        return product.deleteAssociatedPart(part);
+    }
+
+    /** This method removes a part from somewhere in the bill of materials and adds it back.
+     *  The parts are not in the catalog, so they are picked from the list they were made from.
+     *  @return boolean value for whether the part was removed
+     */
+    @Benchmark
+    public boolean deleteThenAddAssociatedPart() {
+        Part part = parts.get(picks[next++ & (picks.length - 1)]);
+        boolean deleted = product.deleteAssociatedPart(part);
+        product.addAssociatedPart(part);
+        return deleted;
+    }
+}
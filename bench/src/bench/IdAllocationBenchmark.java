@@ -0,0 +1,71 @@
+package bench;
+
+import model.IdBlock;
+import model.Inventory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** This class is responsible for measuring how fast part ids are handed out, one at a time and in blocks, on one
+ *  thread and on several threads that share the counter.
+ *  <p>Handing out blocks is fast enough to use up every int id in under a second, so the counter is reset before
+ *  each iteration and whenever the block benchmark gets close to the end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdAllocationBenchmark {
+    private static final int BLOCK = 1024;
+    private static final int RESET_AT = Integer.MAX_VALUE / 2;
+
+    /** This method starts the part ids from 1 again. */
+    @Setup(Level.Iteration)
+    public void reset() {
+        Inventory.setPartId(1);
+    }
+
+    /** @return new part id */
+    @Benchmark
+    public int incrementPartId() {
+        return Inventory.incrementPartId();
+    }
+
+    /** @return new part id */
+    @Benchmark
+    @Threads(4)
+    public int incrementPartIdContended() {
+        return Inventory.incrementPartId();
+    }
+
+    /** This method reserves a block and hands out every id in it, reported per id.
+     *  @param blackhole consumes the ids
+     */
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BLOCK)
+    public void reservePartIdsContended(Blackhole blackhole) {
+        if (Inventory.getPartId() > RESET_AT) {
+            Inventory.setPartId(1);
+        }
+        IdBlock block = Inventory.reservePartIds(BLOCK);
+        while (block.hasNext()) {
+            blackhole.consume(block.next());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package bench;
+
+import model.InHouse;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** This class is responsible for generating the same parts, products and queries on every run.
+ *  <p>Everything comes from a SplittableRandom with a fixed seed, so two runs of a benchmark, or a run before and
+ *  after a change to the model, work on identical data.  Names are built from a small vocabulary plus a number,
+ *  which gives the trigram index the mix of very common and rare trigrams that real part names have.
+ */
+public final class InventoryData {
+    /** Seed used by every benchmark unless it asks for another one. */
+    public static final long SEED = 482L;
+
+    private static final String[] WORDS = {
+        "brake", "pad", "wheel", "spoke", "chain", "gear", "pedal", "seat", "frame", "fork", "tire", "tube",
+        "bell", "light", "handle", "bar", "grip", "cable", "bolt", "nut", "washer", "crank", "hub", "rim"
+    };
+    private static final String[] COMPANIES = {
+        "Huffy", "Shimano", "SRAM", "Campagnolo", "Bontrager", "Continental", "Schwalbe", "Brooks"
+    };
+
+    private InventoryData() { }
+
+    /** This method generates parts with ids first, first + 1 and so on.
+     *  @param first int id of the first part
+     *  @param count int number of parts
+     *  @param inHouseShare fraction of the parts that are InHouse, from 0 to 1; the rest are Outsourced
+     *  @param seed seed of the random values
+     *  @return list of parts in id order
+     */
+    public static List<Part> parts(int first, int count, double inHouseShare, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Part> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(part(first + i, inHouseShare, random));
+        }
+        return parts;
+    }
+
+    /** This method generates one part.
+     *  @param id int id of the part
+     *  @param inHouseShare fraction of the parts that are InHouse, from 0 to 1
+     *  @param random source of the random values
+     *  @return new part
+     */
+    public static Part part(int id, double inHouseShare, SplittableRandom random) {
+        String name = name(random);
+        double price = random.nextInt(1, 100_000) / 100.0;
+        int min = random.nextInt(0, 10);
+        int max = min + random.nextInt(1, 100);
+        int stock = random.nextInt(min, max + 1);
+        if (random.nextDouble() < inHouseShare) {
+            return new InHouse(id, name, price, stock, min, max, random.nextInt(1, 1000));
+        }
+        return new Outsourced(id, name, price, stock, min, max, COMPANIES[random.nextInt(COMPANIES.length)]);
+    }
+
+    /** This method generates products with ids first, first + 1 and so on, without associated parts.
+     *  @param first int id of the first product
+     *  @param count int number of products
+     *  @param seed seed of the random values
+     *  @return list of products in id order
+     */
+    public static List<Product> products(int first, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int min = random.nextInt(0, 5);
+            int max = min + random.nextInt(1, 20);
+            products.add(new Product(first + i, name(random), random.nextInt(1, 1_000_000) / 100.0,
+                    random.nextInt(min, max + 1), min, max));
+        }
+        return products;
+    }
+
+    /** This method generates name searches that match some of the generated names: single words, the end of one
+     *  word and the start of the next, and a word followed by part of a number.
+     *  @param count int number of queries
+     *  @param seed seed of the random values
+     *  @return array of queries
+     */
+    public static String[] queries(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            switch (random.nextInt(3)) {
+                case 0:
+                    queries[i] = word;
+                    break;
+                case 1:
+                    String next = WORDS[random.nextInt(WORDS.length)];
+                    queries[i] = word.substring(word.length() / 2) + " " + next.substring(0, 2);
+                    break;
+                default:
+                    queries[i] = word + " " + random.nextInt(1, 100);
+                    break;
+            }
+        }
+        return queries;
+    }
+
+    /** This method generates ids to look up, spread evenly over a range.
+     *  @param first int smallest id
+     *  @param count int number of ids in the range
+     *  @param samples int number of ids to generate
+     *  @param seed seed of the random values
+     *  @return array of ids
+     */
+    public static int[] ids(int first, int count, int samples, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] ids = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            ids[i] = first + random.nextInt(count);
+        }
+        return ids;
+    }
+
+    /** @param random source of the random values
+     *  @return a name such as "Brake Pad 417"
+     */
+    private static String name(SplittableRandom random) {
+        String first = WORDS[random.nextInt(WORDS.length)];
+        String second = WORDS[random.nextInt(WORDS.length)];
+        return Character.toUpperCase(first.charAt(0)) + first.substring(1) + " "
+                + Character.toUpperCase(second.charAt(0)) + second.substring(1) + " " + random.nextInt(1, 10_000);
+    }
+}
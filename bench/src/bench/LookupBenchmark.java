@@ -0,0 +1,60 @@
+package bench;
+
+import javafx.collections.ObservableList;
+import model.Inventory;
+import model.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** This class is responsible for measuring Inventory.lookupPart by id and by name.
+ *  <p>Each catalog size runs in its own fork, so the static inventory starts empty and is filled once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"0.5"})
+    public double inHouseShare;
+
+    private int[] ids;
+    private String[] queries;
+    private int next;
+
+    /** This method fills the inventory and generates the ids and names to look up. */
+    @Setup(Level.Trial)
+    public void fill() {
+        Inventory.addParts(InventoryData.parts(1, size, inHouseShare, InventoryData.SEED));
+        ids = InventoryData.ids(1, size, 1 << 16, InventoryData.SEED + 1);
+        queries = InventoryData.queries(1 << 8, InventoryData.SEED + 2);
+    }
+
+    /** @return the part found */
+    @Benchmark
+    public Part lookupPartById() {
+        return Inventory.lookupPart(ids[next++ & (ids.length - 1)]);
+    }
+
+    /** @return the parts found, which also measures copying them into an ObservableList */
+    @Benchmark
+    public ObservableList<Part> lookupPartByName() {
+        return Inventory.lookupPart(queries[next++ & (queries.length - 1)]);
+    }
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import model.Inventory;
+import model.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** This class is responsible for measuring Inventory.updatePart and Inventory.deletePart.
+ *  <p>A deleted part is added straight back so the catalog keeps its size for the whole trial; addPart only
+ *  appends, so the difference from a bare delete is small and the same before and after a change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"0.5"})
+    public double inHouseShare;
+
+    private int[] ids;
+    private int next;
+
+    /** This method fills the inventory and generates the ids to change. */
+    @Setup(Level.Trial)
+    public void fill() {
+        Inventory.addParts(InventoryData.parts(1, size, inHouseShare, InventoryData.SEED));
+        ids = InventoryData.ids(1, size, 1 << 16, InventoryData.SEED + 1);
+    }
+
+    /** This method saves a part without renaming it, as the Modify Part form does most of the time.
+     *  @return the part that was saved
+     */
+    @Benchmark
+    public Part updatePart() {
+        int id = ids[next++ & (ids.length - 1)];
+        Part part = Inventory.lookupPart(id);
+        part.setStock(part.getStock());
+        Inventory.updatePart(id, part);
+        return part;
+    }
+
+    /** This method renames a part, which also updates the trigram index and the other catalog listeners.
+     *  @return the part that was saved
+     */
+    @Benchmark
+    public Part renamePart() {
+        int id = ids[next++ & (ids.length - 1)];
+        Part part = Inventory.lookupPart(id);
+        String name = part.getName();
+        part.setName(name.endsWith("*") ? name.substring(0, name.length() - 1) : name + "*");
+        return part;
+    }
+
+    /** @return boolean value for whether the part was deleted */
+    @Benchmark
+    public boolean deletePart() {
+        Part part = Inventory.lookupPart(ids[next++ & (ids.length - 1)]);
+        boolean deleted = Inventory.deletePart(part);
+        Inventory.addPart(part);
+        return deleted;
+    }
+}
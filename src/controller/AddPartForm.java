@@ -16,7 +16,7 @@ import java.util.ResourceBundle;
 import static controller.MainForm.addPartId;
 
 /** This class is responsible for the functionality of the "Add Part" form. */
-public class AddPartForm implements Initializable {
+public class AddPartForm implements Initializable, ResettableForm {
     @FXML
     private RadioButton inHouseRBtn;
     @FXML
@@ -34,9 +34,6 @@ public class AddPartForm implements Initializable {
     @FXML
     private TextField priceTxt;
 
-    // This boolean is used to determine if the addPartId had already been incremented but not yet saved.
-    boolean didIncrementId = false;
-
     /** This method activates when the scene starts.
      *  @param url for initialization
      *  @param resourceBundle for initialization
@@ -47,6 +44,19 @@ public class AddPartForm implements Initializable {
         inHouseRBtn.setSelected(true);
     }
 
+    /** This method empties the text fields and selects In-House again when the form is shown again. */
+    @Override
+    public void reset() {
+        nameTxt.clear();
+        invTxt.clear();
+        priceTxt.clear();
+        maxTxt.clear();
+        minTxt.clear();
+        machComTxt.clear();
+        inHouseRBtn.setSelected(true);
+        machComLbl.setText("Machine ID");
+    }
+
     /** This method activates when the In-House radio button is clicked. Will set the label to "Machine ID"
      *  @param actionEvent object to trigger actions
      */
@@ -66,16 +76,12 @@ public class AddPartForm implements Initializable {
     /** This method activates when the Save button is clicked.
      *  The input in the text boxes will be validated and then saved to a new part.
      *  The part will be saved in the Main Form's TableView
+     *  The part id is only taken once every field is valid, so a failed save does not use up an id.
      *  @param actionEvent object to trigger actions
      *  @throws IOException If an input or output exception occurred
      */
     @FXML
     private void onActionSave(ActionEvent actionEvent) throws IOException {
-        if (!didIncrementId) {
-            addPartId = Inventory.incrementPartId();
-            didIncrementId = true;
-        }
-
         String name = validateString(nameTxt, "Name");
         int stock = validateInteger(invTxt, "Inv");
         double price = validateDouble(priceTxt, "Price");
@@ -93,6 +99,7 @@ public class AddPartForm implements Initializable {
         if (inHouseRBtn.isSelected()) {
             try {
                 int machComInt = Integer.parseInt(machComTxt.getText());
+                addPartId = Inventory.incrementPartId();
                 Inventory.addPart(new InHouse(addPartId, name, price, stock, min, max, machComInt));
             } catch (NumberFormatException e) {
                 MainForm.alertBox("Error Dialog", "Please enter a valid integer value for the Machine ID field.");
@@ -101,13 +108,14 @@ public class AddPartForm implements Initializable {
         } else {
             String machComString = machComTxt.getText();
             if (machComString.isBlank()) {
+                addPartId = Inventory.incrementPartId();
                 Inventory.addPart(new Outsourced(addPartId, name, price, stock, min, max, machComString));
             } else {
                 MainForm.alertBox("Error Dialog", "Please enter a valid name for the Company Name.");
                 return;
             }
         }
-        MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+        MainForm.returnWhenSaved(actionEvent);
     }
 
     /** This method activates when the Cancel button is clicked.
@@ -122,7 +130,7 @@ public class AddPartForm implements Initializable {
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
             System.out.println("Cancel button clicked");
-            MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+            MainForm.buttonAction(FormCache.MAIN_FORM, "Main Form", actionEvent);
         }
     }
 
@@ -1,11 +1,12 @@
 package controller;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import model.*;
 
 import java.io.IOException;
@@ -18,7 +19,7 @@ import static controller.MainForm.addProdId;
 import static model.Inventory.lookupPart;
 
 /** This class is responsible for the functionality of the "Add Product" form. */
-public class AddProductForm implements Initializable {
+public class AddProductForm implements Initializable, ResettableForm {
     @FXML
     private TextField invTxt;
     @FXML
@@ -36,21 +37,23 @@ public class AddProductForm implements Initializable {
     @FXML
     private TableColumn<Part, Integer> topPartIdCol;
     @FXML
-    private TableColumn<Part, Integer> topPartNameCol;
+    private TableColumn<Part, String> topPartNameCol;
     @FXML
     private TableColumn<Part, Integer> topInvLevCol;
     @FXML
-    private TableColumn<Part, Integer> topPriceCol;
+    private TableColumn<Part, Double> topPriceCol;
     @FXML
     private TableView<Part> btmPartTblView;
     @FXML
     private TableColumn<Part, Integer> btmPartIdCol;
     @FXML
-    private TableColumn<Part, Integer> btmPartNameCol;
+    private TableColumn<Part, String> btmPartNameCol;
     @FXML
     private TableColumn<Part, Integer> btmInvLevCol;
     @FXML
-    private TableColumn<Part, Integer> btmPriceCol;
+    private TableColumn<Part, Double> btmPriceCol;
+    @FXML
+    private TableColumn<Part, Integer> btmQtyCol;
 
     // These are temporary variables to assign the product to while associating parts to it.
     // After everything is done the product will be saved to the allProducts array.
@@ -72,15 +75,44 @@ public class AddProductForm implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         topPartTblView.setItems(Inventory.getAllParts());
-        topPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        topPartNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        topInvLevCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        topPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
-
-        btmPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        btmPartNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        btmInvLevCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        btmPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        topPartIdCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        topPartNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        topInvLevCol.setCellValueFactory(cell -> cell.getValue().stockProperty());
+        topPriceCol.setCellValueFactory(cell -> cell.getValue().priceProperty());
+        InventoryIndexes indexes = InventoryStore.indexes();
+        new IndexedSort<>(topPartTblView, Inventory::getAllParts)
+                .by(topPartIdCol, indexes.partsById())
+                .by(topPartNameCol, indexes.partsByName())
+                .by(topInvLevCol, indexes.partsByStock())
+                .by(topPriceCol, indexes.partsByPrice());
+
+        btmPartIdCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        btmPartNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        btmInvLevCol.setCellValueFactory(cell -> cell.getValue().stockProperty());
+        btmPriceCol.setCellValueFactory(cell -> cell.getValue().priceProperty());
+        btmQtyCol.setCellValueFactory(cell ->
+                new ReadOnlyObjectWrapper<>(newProduct.getAssociatedPartQuantity(cell.getValue().getId())));
+    }
+
+    /** This method forgets the product being built and empties the fields and tables when the form is shown again.
+     *  The product id has already been saved with the product or given back by Cancel, so it is not released here.
+     */
+    @Override
+    public void reset() {
+        newProduct = null;
+        wasNewProductMade = false;
+        didIncrementId = false;
+        nameTxt.clear();
+        invTxt.clear();
+        priceTxt.clear();
+        maxTxt.clear();
+        minTxt.clear();
+        if (!searchTxt.getText().isEmpty()) {
+            searchTxt.clear();
+            topPartTblView.setItems(Inventory.getAllParts());
+        }
+        topPartTblView.getSelectionModel().clearSelection();
+        btmPartTblView.setItems(FXCollections.observableArrayList());
     }
 
     /** This method will use user input to search for a part.
@@ -136,10 +168,6 @@ public class AddProductForm implements Initializable {
             return;
         }
 
-        if (!didIncrementId) {
-            addProdId = Inventory.incrementProductId();
-            didIncrementId = true;
-        }
         getFields();
         // Checks return values for each field to ensure they are valid
         if (name == null || stock == -1 || price == -1 || min == -1 || max == -1) {
@@ -148,6 +176,7 @@ public class AddProductForm implements Initializable {
         if (!MainForm.isLogical(min, max, stock)) {
             return;
         }
+        takeProductId();
 
         newProduct = new Product(addProdId, name, price, stock, min, max);
         wasNewProductMade = true;
@@ -205,10 +234,6 @@ public class AddProductForm implements Initializable {
             newProduct.setMin(min);
 
         } else {
-            if (!didIncrementId) {
-                addProdId = Inventory.incrementProductId();
-                didIncrementId = true;
-            }
             getFields();
             // Checks return values for each field to ensure they are valid
             if (name == null || stock == -1 || price == -1 || min == -1 || max == -1) {
@@ -217,14 +242,16 @@ public class AddProductForm implements Initializable {
             if (!MainForm.isLogical(min, max, stock)) {
                 return;
             }
+            takeProductId();
             newProduct = new Product(addProdId, name, price, stock, min, max);
         }
         Inventory.addProduct(newProduct);
-        MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+        MainForm.returnWhenSaved(actionEvent);
     }
 
     /** This method activates when the Cancel button is clicked.
      *  This will clear all text fields and go back to the Main Form.
+     *  The product id taken for the unsaved product is given back so it can be used by the next product.
      *  @param actionEvent object to trigger actions
      *  @throws IOException If an input or output exception occurred
      */
@@ -235,14 +262,26 @@ public class AddProductForm implements Initializable {
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
             System.out.println("Cancel button clicked");
-            MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+            if (didIncrementId) {
+                Inventory.releaseProductId(addProdId);
+                didIncrementId = false;
+            }
+            MainForm.buttonAction(FormCache.MAIN_FORM, "Main Form", actionEvent);
         }
     }
 
-    /** This method will assign all the valid text box data into the variables.
+    /** This method takes the id for the new product the first time the fields are all valid.
      *  The if statement ensures that the addProdId value doesn't increase each time the
      *  action button is clicked and the fields don't save because there is an invalid value.
      */
+    private void takeProductId() {
+        if (!didIncrementId) {
+            addProdId = Inventory.incrementProductId();
+            didIncrementId = true;
+        }
+    }
+
+    /** This method will assign all the valid text box data into the variables. */
     private void getFields() {
         name = AddPartForm.validateString(nameTxt, "Name");
         stock = AddPartForm.validateInteger(invTxt, "Inv");
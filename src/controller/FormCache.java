@@ -0,0 +1,150 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/** This class is responsible for loading each form once and showing the same scene every time it is asked for.
+ *  <p>Loading a form parses its FXML, makes its controller by reflection, and builds and skins its controls, which
+ *  takes far longer than putting a finished scene back on the stage.  Every form is loaded the first time it is
+ *  shown, or earlier by warmUp(), and keeps its root, Scene and controller from then on.  Because a cached form
+ *  still holds whatever the user left in it, its controller is asked to reset() every time it is shown.
+ *  <p>Each switch prints how long it took to reset the form and put its scene on the stage, and how long until that
+ *  scene had been laid out by the next pulse, along with the slowest switch to the form so far.
+ */
+public final class FormCache {
+    public static final String MAIN_FORM = "/view/MainForm.fxml";
+    public static final String ADD_PART_FORM = "/view/AddPartForm.fxml";
+    public static final String MODIFY_PART_FORM = "/view/ModifyPartForm.fxml";
+    public static final String ADD_PRODUCT_FORM = "/view/AddProductForm.fxml";
+    public static final String MODIFY_PRODUCT_FORM = "/view/ModifyProductForm.fxml";
+
+    private static final String[] FORMS = {
+            MAIN_FORM, ADD_PART_FORM, MODIFY_PART_FORM, ADD_PRODUCT_FORM, MODIFY_PRODUCT_FORM
+    };
+
+    // Only touched on the FX thread.
+    private static final Map<String, Form> forms = new HashMap<>();
+
+    private FormCache() { }
+
+    /** This method loads a form with a scene of a given size, if it has not been loaded yet.
+     *  @param fileName name of the FXML file of the form
+     *  @param width double width of the scene, or -1 for the preferred width of the form
+     *  @param height double height of the scene, or -1 for the preferred height of the form
+     *  @throws IOException If the FXML file could not be loaded
+     */
+    public static void preload(String fileName, double width, double height) throws IOException {
+        if (!forms.containsKey(fileName)) {
+            forms.put(fileName, load(fileName, width, height));
+        }
+    }
+
+    /** This method loads every form that has not been loaded yet, one per turn of the FX thread so the form on screen
+     *  keeps answering the user in between.  A form that fails to load is left to be loaded when it is shown.
+     */
+    public static void warmUp() {
+        for (String fileName : FORMS) {
+            Platform.runLater(() -> {
+                try {
+                    preload(fileName, -1, -1);
+                } catch (IOException e) {
+                    System.out.println("Could not preload " + fileName + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /** This method resets a form, lets the caller fill it in, and puts it on the stage.
+     *  @param stage stage to show the form on
+     *  @param fileName name of the FXML file of the form
+     *  @param title title of the stage while the form is shown
+     *  @param setUp fills in the controller after it has been reset
+     *  @param <C> type of the controller of the form
+     *  @return the controller of the form
+     *  @throws IOException If the form was not loaded yet and its FXML file could not be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> C show(Stage stage, String fileName, String title, Consumer<? super C> setUp)
+            throws IOException {
+        long start = System.nanoTime();
+        Form form = forms.get(fileName);
+        boolean loaded = form == null;
+        if (loaded) {
+            form = load(fileName, -1, -1);
+            forms.put(fileName, form);
+        }
+        C controller = (C) form.controller;
+        if (controller instanceof ResettableForm) {
+            ((ResettableForm) controller).reset();
+        }
+        setUp.accept(controller);
+        stage.setTitle(title);
+        if (stage.getScene() != form.scene) {
+            stage.setScene(form.scene);
+        }
+        stage.show();
+        form.switched(title, start, System.nanoTime(), loaded);
+        return controller;
+    }
+
+    /** @param fileName name of the FXML file of the form
+     *  @param width double width of the scene, or -1 for the preferred width of the form
+     *  @param height double height of the scene, or -1 for the preferred height of the form
+     *  @return the loaded form, with its controls already skinned
+     *  @throws IOException If the FXML file could not be loaded
+     */
+    private static Form load(String fileName, double width, double height) throws IOException {
+        FXMLLoader loader = new FXMLLoader(FormCache.class.getResource(fileName));
+        Parent root = loader.load();
+        Scene scene = new Scene(root, width, height);
+        // Skins are made when CSS is first applied, so doing it now keeps that work out of the first switch.
+        root.applyCss();
+        root.layout();
+        return new Form(scene, loader.getController());
+    }
+
+    /** This class is responsible for one loaded form and the switch times measured for it. */
+    private static final class Form {
+        private final Scene scene;
+        private final Object controller;
+        private int switches;
+        private long maxNanos;
+
+        /** @param scene scene of the form
+         *  @param controller controller of the form
+         */
+        Form(Scene scene, Object controller) {
+            this.scene = scene;
+            this.controller = controller;
+        }
+
+        /** This method reports a switch to the form, once the scene has been laid out by the next pulse.
+         *  @param title String title the form was shown with
+         *  @param start long System.nanoTime() when the switch was asked for
+         *  @param shown long System.nanoTime() when the scene was on the stage
+         *  @param loaded boolean value for whether the form had to be loaded first
+         */
+        void switched(String title, long start, long shown, boolean loaded) {
+            switches++;
+            maxNanos = Math.max(maxNanos, shown - start);
+            int count = switches;
+            long max = maxNanos;
+            Runnable[] laidOut = new Runnable[1];
+            laidOut[0] = () -> {
+                scene.removePostLayoutPulseListener(laidOut[0]);
+                System.out.printf("%s shown in %.2f ms%s, laid out after %.2f ms (switch %d, slowest %.2f ms)%n",
+                        title, (shown - start) / 1e6, loaded ? " including loading" : "",
+                        (System.nanoTime() - start) / 1e6, count, max / 1e6);
+            };
+            scene.addPostLayoutPulseListener(laidOut[0]);
+        }
+    }
+}
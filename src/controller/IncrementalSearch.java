@@ -0,0 +1,158 @@
+package controller;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+import model.TrigramIndex;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/** This class is responsible for the functionality of searching a TableView while the user types.
+ *  <p>Each keystroke restarts a short pause, and only when the user stops typing is the search sent to a background
+ *  thread, so the FX thread never runs a lookup.  A newer search cancels the one that is still running and any
+ *  result from an older search is thrown away.  When the new text only adds characters to the end of the last
+ *  name search, the last results are filtered instead of searching the whole inventory again.
+ *  @param <T> type of the items in the TableView, Part or Product
+ */
+public class IncrementalSearch<T> {
+    private static final Duration DEBOUNCE = Duration.millis(250);
+
+    // One daemon thread is shared by every search box so that old searches queue behind new ones instead of piling up.
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TableView<T> tableView;
+    private final Supplier<ObservableList<T>> allItems;
+    private final IntFunction<T> lookupById;
+    private final Function<String, ObservableList<T>> lookupByName;
+    private final BiPredicate<T, String> nameContains;
+    private final PauseTransition pause = new PauseTransition(DEBOUNCE);
+
+    // Any change to the inventory makes the last results out of date, so they can no longer be narrowed.
+    private final ListChangeListener<T> inventoryChanged = change -> lastQuery = null;
+
+    private String pendingText = "";
+    private long generation;
+    private Future<?> running;
+    private String lastQuery;
+    private List<T> lastResults;
+
+    /** This constructor connects the search to a text field and the TableView that shows its results.
+     *  @param textField field the user types in
+     *  @param tableView TableView to fill with results
+     *  @param allItems supplies the full list shown when the field is blank
+     *  @param lookupById finds an item by id, or returns null
+     *  @param lookupByName finds every item whose name contains a String
+     *  @param nameContains checks if the name of an item contains an already normalized query
+     */
+    public IncrementalSearch(TextField textField, TableView<T> tableView, Supplier<ObservableList<T>> allItems,
+                             IntFunction<T> lookupById, Function<String, ObservableList<T>> lookupByName,
+                             BiPredicate<T, String> nameContains) {
+        this.tableView = tableView;
+        this.allItems = allItems;
+        this.lookupById = lookupById;
+        this.lookupByName = lookupByName;
+        this.nameContains = nameContains;
+
+        allItems.get().addListener(new WeakListChangeListener<>(inventoryChanged));
+        pause.setOnFinished(event -> search(pendingText));
+        textField.textProperty().addListener((observable, oldText, newText) -> {
+            pendingText = newText;
+            pause.playFromStart();
+        });
+    }
+
+    /** This method stops any search that is waiting or running.
+     *  The Enter key handlers call this before searching right away so an older result can not replace theirs.
+     */
+    public void cancel() {
+        pause.stop();
+        generation++;
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /** This method starts a search for the text in the field.
+     *  @param text String entered by the user
+     */
+    private void search(String text) {
+        cancel();
+        if (text.isBlank()) {
+            lastQuery = null;
+            tableView.setItems(allItems.get());
+            return;
+        }
+
+        long searchGeneration = generation;
+        String query = TrigramIndex.normalize(text);
+        boolean narrow = lastQuery != null && query.startsWith(lastQuery);
+        List<T> previous = lastResults;
+
+        running = executor.submit(() -> {
+            T byId = findById(text);
+            if (byId != null) {
+                Platform.runLater(() -> {
+                    if (searchGeneration == generation) {
+                        tableView.getSelectionModel().select(byId);
+                    }
+                });
+                return;
+            }
+
+            ObservableList<T> results;
+            if (narrow) {
+                results = FXCollections.observableArrayList();
+                for (T item : previous) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    if (nameContains.test(item, query)) {
+                        results.add(item);
+                    }
+                }
+            } else {
+                results = lookupByName.apply(text);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            Platform.runLater(() -> {
+                if (searchGeneration == generation) {
+                    running = null;
+                    lastQuery = query;
+                    lastResults = results;
+                    tableView.setItems(results);
+                }
+            });
+        });
+    }
+
+    /** @param text String entered by the user
+     *  @return the item with that id, or null if the text is not an id or no item has it
+     */
+    private T findById(String text) {
+        try {
+            return lookupById.apply(Integer.parseInt(text));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package controller;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import model.SortedIndex;
+import model.SortedView;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/** This class is responsible for sorting a TableView by walking a SortedIndex instead of sorting its items.
+ *  <p>While the table shows the whole inventory and a column with an index is sorted, the table is given a
+ *  SortedView of that index in ascending or descending order.  The view reads its rows from the index a page at a
+ *  time and follows every change to the order, so nothing is copied and no comparison sort is done, and the
+ *  inventory list itself is never reordered, which matters because it must keep the order of its catalog.
+ *  Clearing the sort puts the inventory list back.
+ *  <p>Search results are small copies, so they are still sorted the usual way.  A column without an index can not
+ *  be sorted while the whole inventory is shown.
+ *  @param <T> type of the items in the TableView, Part or Product
+ */
+public class IndexedSort<T> {
+    private final TableView<T> tableView;
+    private final Supplier<ObservableList<T>> allItems;
+    private final Map<TableColumn<T, ?>, SortedIndex<T, ?>> indexes = new HashMap<>();
+
+    // The view last made, and the column and direction it was made for; null while none is needed.
+    private SortedView<T> view;
+    private TableColumn<T, ?> viewColumn;
+    private boolean viewDescending;
+
+    /** This constructor takes over the sorting of a TableView.
+     *  @param tableView TableView to sort
+     *  @param allItems supplies the full list shown when nothing is searched for
+     */
+    public IndexedSort(TableView<T> tableView, Supplier<ObservableList<T>> allItems) {
+        this.tableView = tableView;
+        this.allItems = allItems;
+        tableView.setSortPolicy(table -> sort());
+        // A search that is cleared puts the inventory list back, which has to be sorted again.
+        tableView.itemsProperty().addListener((observable, oldItems, newItems) -> {
+            if (newItems == allItems.get() && !tableView.getSortOrder().isEmpty()) {
+                tableView.sort();
+            }
+        });
+    }
+
+    /** @param column column of the TableView
+     *  @param index index that orders the items the way the column does
+     *  @return this IndexedSort, to add more columns
+     */
+    public IndexedSort<T> by(TableColumn<T, ?> column, SortedIndex<T, ?> index) {
+        indexes.put(column, index);
+        return this;
+    }
+
+    /** @return boolean value for whether the table was sorted */
+    private boolean sort() {
+        ObservableList<T> items = tableView.getItems();
+        boolean showingView = view != null && items == view.list();
+        if (items != allItems.get() && !showingView) {
+            closeView();
+            return TableView.DEFAULT_SORT_POLICY.call(tableView);
+        }
+        if (tableView.getSortOrder().isEmpty()) {
+            if (showingView) {
+                tableView.setItems(allItems.get());
+            }
+            closeView();
+            return true;
+        }
+        TableColumn<T, ?> column = tableView.getSortOrder().get(0);
+        SortedIndex<T, ?> index = indexes.get(column);
+        if (index == null) {
+            return false;
+        }
+        boolean descending = column.getSortType() == TableColumn.SortType.DESCENDING;
+        if (view == null || viewColumn != column || viewDescending != descending) {
+            closeView();
+            view = new SortedView<>(index, descending);
+            viewColumn = column;
+            viewDescending = descending;
+        }
+        if (items != view.list()) {
+            tableView.setItems(view.list());
+        }
+        return true;
+    }
+
+    /** This method stops the view from following its index once the table no longer needs it. */
+    private void closeView() {
+        if (view != null) {
+            view.close();
+            view = null;
+            viewColumn = null;
+        }
+    }
+}
@@ -1,28 +1,32 @@
 package controller;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import model.Inventory;
+import model.InventoryIndexes;
+import model.InventoryStore;
 import model.Part;
 import model.Product;
+import persistence.Persistence;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static model.Inventory.*;
 
 /** This class is responsible for the functionality of the "Main" form. */
-public class MainForm implements Initializable {
+public class MainForm implements Initializable, ResettableForm {
     @FXML
     private TextField partIdNameTxt;
     @FXML
@@ -47,6 +51,8 @@ public class MainForm implements Initializable {
     private TableColumn<Product, Integer> prodInvLevCol;
     @FXML
     private TableColumn<Product, Double> prodPriceCol;
+    @FXML
+    private TableColumn<Product, Integer> prodBuildableCol;
 
     // In order to promote code reuse, this MainForm class will be home to many static variables and methods.
     public static Stage stage;
@@ -55,6 +61,28 @@ public class MainForm implements Initializable {
     public static int addPartId;
     public static int addProdId;
 
+    private IncrementalSearch<Part> partSearch;
+    private IncrementalSearch<Product> prodSearch;
+
+    // The products table on screen, refreshed when the buildable units of products change.  Refreshes asked for
+    // while one is already queued on the FX thread are folded into it, so stock churn repaints the table once.
+    private static volatile TableView<Product> liveProducts;
+    private static final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    static {
+        InventoryStore.buildability().addListener(productIds -> {
+            if (liveProducts != null && refreshQueued.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    refreshQueued.set(false);
+                    TableView<Product> table = liveProducts;
+                    if (table != null) {
+                        table.refresh();
+                    }
+                });
+            }
+        });
+    }
+
     /** This method activates when the scene starts.
      *  @param url for initialization
      *  @param resourceBundle for initialization
@@ -63,24 +91,66 @@ public class MainForm implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
         System.out.println("MainForm is initialized!");
         partTblView.setItems(Inventory.getAllParts());
-        partPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        partPartNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        partInvLevCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        partPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        partPartIdCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        partPartNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        partInvLevCol.setCellValueFactory(cell -> cell.getValue().stockProperty());
+        partPriceCol.setCellValueFactory(cell -> cell.getValue().priceProperty());
 
         prodTblView.setItems(Inventory.getAllProducts());
-        prodProdIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        prodProdNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        prodInvLevCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        prodPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        prodProdIdCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        prodProdNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        prodInvLevCol.setCellValueFactory(cell -> cell.getValue().stockProperty());
+        prodPriceCol.setCellValueFactory(cell -> cell.getValue().priceProperty());
+        prodBuildableCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(
+                InventoryStore.buildability().getBuildableUnits(cell.getValue().getId())));
+        liveProducts = prodTblView;
+
+        partSearch = new IncrementalSearch<>(partIdNameTxt, partTblView, Inventory::getAllParts,
+                Inventory::lookupPart, Inventory::lookupPart, Inventory::partNameContains);
+        prodSearch = new IncrementalSearch<>(prodIdNameTxt, prodTblView, Inventory::getAllProducts,
+                Inventory::lookupProduct, Inventory::lookupProduct, Inventory::productNameContains);
+
+        InventoryIndexes indexes = InventoryStore.indexes();
+        new IndexedSort<>(partTblView, Inventory::getAllParts)
+                .by(partPartIdCol, indexes.partsById())
+                .by(partPartNameCol, indexes.partsByName())
+                .by(partInvLevCol, indexes.partsByStock())
+                .by(partPriceCol, indexes.partsByPrice());
+        new IndexedSort<>(prodTblView, Inventory::getAllProducts)
+                .by(prodProdIdCol, indexes.productsById())
+                .by(prodProdNameCol, indexes.productsByName())
+                .by(prodInvLevCol, indexes.productsByStock())
+                .by(prodPriceCol, indexes.productsByPrice());
+        prodBuildableCol.setSortable(false);
+    }
+
+    /** This method clears both searches and selections when the form is shown again.
+     *  The sort order is kept, and the cells are already up to date because they are bound to the item properties.
+     */
+    @Override
+    public void reset() {
+        if (!partIdNameTxt.getText().isEmpty()) {
+            partIdNameTxt.clear();
+            partTblView.setItems(Inventory.getAllParts());
+        }
+        if (!prodIdNameTxt.getText().isEmpty()) {
+            prodIdNameTxt.clear();
+            prodTblView.setItems(Inventory.getAllProducts());
+        }
+        partSearch.cancel();
+        prodSearch.cancel();
+        partTblView.getSelectionModel().clearSelection();
+        prodTblView.getSelectionModel().clearSelection();
     }
 
     /** This method will use user input to search for a part.
      *  If the part is found, it will appear in the left TableView.
+     *  The table already follows the text as it is typed; pressing Enter searches right away and reports a miss.
      *  @param actionEvent object to trigger actions
      */
     @FXML
     private void onActionPartsSearch(ActionEvent actionEvent) {
+        partSearch.cancel();
         String searchPartStr = partIdNameTxt.getText();
         if (!searchPartStr.isBlank()) {
             try {
@@ -107,10 +177,12 @@ public class MainForm implements Initializable {
 
     /** This method will use user input to search for a product.
      *  If the product is found, it will appear in the right TableView.
+     *  The table already follows the text as it is typed; pressing Enter searches right away and reports a miss.
      *  @param actionEvent object to trigger actions
      */
     @FXML
     private void onActionProductSearch(ActionEvent actionEvent) {
+        prodSearch.cancel();
         String searchProductStr = prodIdNameTxt.getText();
         if (!searchProductStr.isBlank()) {
             try {
@@ -142,7 +214,7 @@ public class MainForm implements Initializable {
     @FXML
     private void onActionPartsAdd(ActionEvent actionEvent) throws IOException {
         System.out.println("Parts add button clicked");
-        buttonAction("/view/AddPartForm.fxml", "Add Parts Form", actionEvent);
+        buttonAction(FormCache.ADD_PART_FORM, "Add Parts Form", actionEvent);
     }
 
     /** This method will take you to the Modify Part Form.
@@ -153,23 +225,15 @@ public class MainForm implements Initializable {
     @FXML
     private void onActionPartsModify(ActionEvent actionEvent) throws IOException {
         System.out.println("Parts modify button clicked");
-        FXMLLoader loader = new FXMLLoader();
-
-        loader.setLocation(getClass().getResource("/view/ModifyPartForm.fxml"));
-        loader.load();
-
-        ModifyPartForm MPFController = loader.getController();
-
-        if (partTblView.getSelectionModel().getSelectedItem() == null) {
+        Part selectedPart = partTblView.getSelectionModel().getSelectedItem();
+        if (selectedPart == null) {
             System.out.println("Selected part was null.");
             alertBox("Error Dialog", "Please select a part to modify.");
             return;
         }
-        MPFController.sendPart(partTblView.getSelectionModel().getSelectedItem());
         stage = (Stage)((Button)actionEvent.getSource()).getScene().getWindow();
-        Parent scene = loader.getRoot();
-        stage.setScene(new Scene(scene));
-        stage.show();
+        FormCache.show(stage, FormCache.MODIFY_PART_FORM, "Modify Part Form",
+                (ModifyPartForm form) -> form.sendPart(selectedPart));
     }
 
     /** This method will delete the selected part.
@@ -178,19 +242,27 @@ public class MainForm implements Initializable {
      */
     @FXML
     private void onActionPartsDelete(ActionEvent actionEvent) {
+        System.out.println("Parts delete button clicked");
+        Part selectedPart = partTblView.getSelectionModel().getSelectedItem();
+        if (selectedPart == null) {
+            alertBox("Error Dialog", "Please select the part that you want to delete.");
+            return;
+        }
+        if (Inventory.isPartUsed(selectedPart)) {
+            int users = Inventory.lookupProductsUsing(selectedPart).size();
+            alertBox("Error Dialog", "You may not delete a part that is associated with "
+                    + (users == 1 ? "a product." : users + " products."));
+            return;
+        }
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "This will delete the selected part, do you want to continue?");
         Optional<ButtonType> result = alert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            System.out.println("Parts delete button clicked");
-            Part selectedPart = partTblView.getSelectionModel().getSelectedItem();
-
-            if (selectedPart == null) {
-                alertBox("Error Dialog", "Please select the part that you want to delete.");
-                return;
+            if (!deletePart(selectedPart) && Inventory.isPartUsed(selectedPart)) {
+                alertBox("Error Dialog", "You may not delete a part that is associated with a product.");
             }
-            deletePart(selectedPart);
             partTblView.setItems(Inventory.getAllParts());
+            whenSaved(() -> { });
         }
     }
 
@@ -201,7 +273,7 @@ public class MainForm implements Initializable {
     @FXML
     private void onActionProdAdd(ActionEvent actionEvent) throws IOException {
         System.out.println("Prod add button clicked");
-        buttonAction("/view/AddProductForm.fxml", "Add Product Form", actionEvent);
+        buttonAction(FormCache.ADD_PRODUCT_FORM, "Add Product Form", actionEvent);
     }
 
     /** This method will take you to the Modify Product Form.
@@ -212,23 +284,15 @@ public class MainForm implements Initializable {
     @FXML
     private void onActionProdModify(ActionEvent actionEvent) throws IOException {
         System.out.println("Prod mod button clicked");
-
-        FXMLLoader loader = new FXMLLoader();
-        loader.setLocation(getClass().getResource("/view/ModifyProductForm.fxml"));
-        loader.load();
-
-        ModifyProductForm MProdFController = loader.getController();
-        if (prodTblView.getSelectionModel().getSelectedItem() == null) {
+        Product selectedProd = prodTblView.getSelectionModel().getSelectedItem();
+        if (selectedProd == null) {
             System.out.println("Selected product was null.");
             alertBox("Error Dialog", "Please select a product to modify.");
             return;
         }
-
-        MProdFController.sendProduct(prodTblView.getSelectionModel().getSelectedItem());
         stage = (Stage)((Button)actionEvent.getSource()).getScene().getWindow();
-        Parent scene = loader.getRoot();
-        stage.setScene(new Scene(scene));
-        stage.show();
+        FormCache.show(stage, FormCache.MODIFY_PRODUCT_FORM, "Modify Product Form",
+                (ModifyProductForm form) -> form.sendProduct(selectedProd));
     }
 
     /** This method will delete the selected product.
@@ -243,16 +307,23 @@ public class MainForm implements Initializable {
             alertBox("Error Dialog", "Please select the product that you want to delete.");
             return;
         }
-        if (selectedProd.getAllAssociatedParts().size() > 0) {
-            alertBox("Error Dialog", "You may not delete a product with any associated parts.");
+        if (selectedProd.getAssociatedPartCount() > 0 || selectedProd.getComponentCount() > 0) {
+            alertBox("Error Dialog", "You may not delete a product with any associated parts or components.");
+            return;
+        }
+        if (Inventory.isProductUsed(selectedProd)) {
+            alertBox("Error Dialog", "You may not delete a product that is a component of another product.");
             return;
         }
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "This will delete the selected product, do you want to continue?");
         Optional<ButtonType> result = alert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            deleteProduct(selectedProd);
+            if (!deleteProduct(selectedProd) && Inventory.isProductUsed(selectedProd)) {
+                alertBox("Error Dialog", "You may not delete a product that is a component of another product.");
+            }
             prodTblView.setItems(Inventory.getAllProducts());
+            whenSaved(() -> { });
         }
     }
 
@@ -273,6 +344,7 @@ public class MainForm implements Initializable {
     }
 
     /** Static method that will allow user to change scenes with the click of a button.
+     *  The form comes from FormCache, so it is only loaded the first time and is reset every time after that.
      *  @param fileName name of the file to change the scene
      *  @param formName name of the form to place as the title
      *  @param actionEvent object to trigger actions
@@ -280,10 +352,41 @@ public class MainForm implements Initializable {
      */
     public static void buttonAction(String fileName, String formName, ActionEvent actionEvent) throws IOException {
         stage = (Stage)((Button)actionEvent.getSource()).getScene().getWindow();
-        scene = FXMLLoader.load(MainForm.class.getResource(fileName));
-        stage.setTitle(formName);
-        stage.setScene(new Scene(scene));
-        stage.show();
+        FormCache.show(stage, fileName, formName, form -> { });
+        scene = stage.getScene().getRoot();
+    }
+
+    /** Static method that goes back to the Main Form once the changes just saved are on disk, so the user only
+     *  sees them as saved once they would survive a crash.  The FX thread does not wait for the disk: the form
+     *  is disabled until the changes are written, then the Main Form is shown.  If they could not be written the
+     *  user is told; they stay in the inventory until the program closes.
+     *  @param actionEvent object to trigger actions, from the Save button of the form
+     */
+    public static void returnWhenSaved(ActionEvent actionEvent) {
+        Parent form = ((Button) actionEvent.getSource()).getScene().getRoot();
+        form.setDisable(true);
+        whenSaved(() -> {
+            form.setDisable(false);
+            try {
+                buttonAction(FormCache.MAIN_FORM, "Main Form", actionEvent);
+            } catch (IOException e) {
+                alertBox("Error Dialog", "The Main Form could not be shown: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Static method that runs a step on the FX thread once the changes this thread has made are on disk,
+     *  telling the user first if they could not be written.
+     *  @param next step to run either way
+     */
+    private static void whenSaved(Runnable next) {
+        Persistence.durable().whenComplete((saved, failure) -> Platform.runLater(() -> {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                alertBox("Error Dialog", "The changes could not be saved: " + cause.getMessage());
+            }
+            next.run();
+        }));
     }
 
     /** Static method that will allow user to check if the values in min, max, and stock are logical.
@@ -15,7 +15,7 @@ import java.util.Optional;
 import java.util.ResourceBundle;
 
 /** This class is responsible for the functionality of the "Modify Part" form. */
-public class ModifyPartForm implements Initializable {
+public class ModifyPartForm implements Initializable, ResettableForm {
     @FXML
     private TextField idTxt;
     @FXML
@@ -44,6 +44,18 @@ public class ModifyPartForm implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) { }
 
+    /** This method empties the text fields when the form is shown again, before sendPart() fills them in. */
+    @Override
+    public void reset() {
+        idTxt.clear();
+        nameTxt.clear();
+        invTxt.clear();
+        priceTxt.clear();
+        maxTxt.clear();
+        minTxt.clear();
+        machComTxt.clear();
+    }
+
     /** This method allows user to send data from MainForm controller to the ModifyPart controller.
      *  @param part selected from TableView
      */
@@ -118,7 +130,7 @@ public class ModifyPartForm implements Initializable {
             Outsourced newOPart = new Outsourced(id, name, price, stock, min, max, machComString);
             Inventory.updatePart(id, newOPart);
         }
-        MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+        MainForm.returnWhenSaved(actionEvent);
     }
 
     /** This method activates when the Cancel button is clicked.
@@ -133,7 +145,7 @@ public class ModifyPartForm implements Initializable {
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
             System.out.println("Cancel button clicked");
-            MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+            MainForm.buttonAction(FormCache.MAIN_FORM, "Main Form", actionEvent);
         }
     }
 }
@@ -1,11 +1,12 @@
 package controller;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import model.*;
 
 import java.io.IOException;
@@ -17,7 +18,7 @@ import static model.Inventory.lookupPart;
 import static model.Inventory.updateProduct;
 
 /** This class is responsible for the functionality of the "Modify Product" form. */
-public class ModifyProductForm implements Initializable {
+public class ModifyProductForm implements Initializable, ResettableForm {
     @FXML
     private TableColumn<Part, Integer> btmInvLevCol;
     @FXML
@@ -29,6 +30,8 @@ public class ModifyProductForm implements Initializable {
     @FXML
     private TableColumn<Part, Double> btmPriceCol;
     @FXML
+    private TableColumn<Part, Integer> btmQtyCol;
+    @FXML
     private TextField idTxt;
     @FXML
     private TextField invTxt;
@@ -62,15 +65,37 @@ public class ModifyProductForm implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         topPartTblView.setItems(Inventory.getAllParts());
-        topPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        topPartNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        topInvLevCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        topPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
-
-        btmPartIdCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        btmPartNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        btmInvLevCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        btmPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        topPartIdCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        topPartNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        topInvLevCol.setCellValueFactory(cell -> cell.getValue().stockProperty());
+        topPriceCol.setCellValueFactory(cell -> cell.getValue().priceProperty());
+        InventoryIndexes indexes = InventoryStore.indexes();
+        new IndexedSort<>(topPartTblView, Inventory::getAllParts)
+                .by(topPartIdCol, indexes.partsById())
+                .by(topPartNameCol, indexes.partsByName())
+                .by(topInvLevCol, indexes.partsByStock())
+                .by(topPriceCol, indexes.partsByPrice());
+
+        btmPartIdCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        btmPartNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        btmInvLevCol.setCellValueFactory(cell -> cell.getValue().stockProperty());
+        btmPriceCol.setCellValueFactory(cell -> cell.getValue().priceProperty());
+        btmQtyCol.setCellValueFactory(cell ->
+                new ReadOnlyObjectWrapper<>(productToModify.getAssociatedPartQuantity(cell.getValue().getId())));
+    }
+
+    /** This method forgets the last product and empties the search and tables when the form is shown again,
+     *  before sendProduct() fills it in.
+     */
+    @Override
+    public void reset() {
+        productToModify = null;
+        if (!searchTxt.getText().isEmpty()) {
+            searchTxt.clear();
+            topPartTblView.setItems(Inventory.getAllParts());
+        }
+        topPartTblView.getSelectionModel().clearSelection();
+        btmPartTblView.setItems(FXCollections.observableArrayList());
     }
 
     /** This method allows user to send data from MainForm controller to the ModifyProduct controller.
@@ -191,7 +216,7 @@ public class ModifyProductForm implements Initializable {
             productToModify.setMax(max);
 
             updateProduct(id, productToModify);
-            MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+            MainForm.returnWhenSaved(actionEvent);
         } catch (NumberFormatException e) {
             MainForm.alertBox("Error Dialog", "Please enter a valid value for each text field.");
         }
@@ -209,7 +234,7 @@ public class ModifyProductForm implements Initializable {
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
             System.out.println("Cancel button clicked");
-            MainForm.buttonAction("/view/MainForm.fxml", "Main Form", actionEvent);
+            MainForm.buttonAction(FormCache.MAIN_FORM, "Main Form", actionEvent);
         }
     }
 }
@@ -0,0 +1,11 @@
+package controller;
+
+/** This interface is implemented by the controllers of forms that FormCache shows again and again.
+ *  <p>A cached form keeps the text, selection and temporary state the user left in it, so reset() must put the
+ *  form back the way a fresh load of its FXML would show it.
+ */
+public interface ResettableForm {
+
+    /** This method puts the form back the way it looks when it is first loaded. */
+    void reset();
+}
@@ -0,0 +1,243 @@
+package main;
+
+import model.InventoryStore;
+import model.Part;
+import model.Product;
+import model.StockLedger;
+import model.StockLimitException;
+import model.StockMovement;
+import persistence.CsvExporter;
+import persistence.CsvImporter;
+import persistence.Persistence;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/** This class is the starting point for running one inventory job from a script, without the forms.
+ *  <p>Nothing here touches JavaFX, so the FX toolkit is never loaded and a run costs little more than reading the
+ *  saved inventory.  The inventory is kept in the folder named by the inventory.data system property, as it is
+ *  for the forms, and a change made by a run is on disk before the run reports it.
+ *  <pre>
+ *  import FILE|-                          add the parts and products of a CSV file, or of standard input
+ *  export FILE|-                          write every part and product as CSV
+ *  query part|product ID|NAME            print the item with an id, or the items whose name contains NAME
+ *  stock part|product ID receive|issue|adjust QUANTITY
+ *  </pre>
+ *  The CSV format is the one CsvImporter reads.  The exit status is 0 on success, 1 for a command that is not
+ *  understood and 2 for a command that could not be done, such as a movement past the min or max.
+ */
+public class InventoryCli {
+    private static final int OK = 0;
+    private static final int USAGE = 1;
+    private static final int FAILED = 2;
+
+    private InventoryCli() { }
+
+    /** This method runs the command named by the arguments and exits with its status.
+     *  @param args an array of String arguments: the command and its operands
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /** @param args the command and its operands
+     *  @param out where results are printed
+     *  @param err where errors are printed
+     *  @return int exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            return usage(err, "No command given");
+        }
+        try {
+            switch (args[0]) {
+                case "import":
+                    return args.length == 2 ? importCsv(args[1], out, err) : usage(err, "import takes one file");
+                case "export":
+                    return args.length == 2 ? exportCsv(args[1], out, err) : usage(err, "export takes one file");
+                case "query":
+                    return args.length == 3 ? query(args[1], args[2], out, err)
+                            : usage(err, "query takes part or product and an id or name");
+                case "stock":
+                    return args.length == 5 ? stock(args[1], args[2], args[3], args[4], out, err)
+                            : usage(err, "stock takes part or product, an id, a movement and a quantity");
+                default:
+                    return usage(err, "Unknown command \"" + args[0] + "\"");
+            }
+        } catch (IOException e) {
+            err.println("Could not run " + args[0] + ": " + e.getMessage());
+            return FAILED;
+        }
+    }
+
+    /** @param file String file to read, or - for standard input
+     *  @param out where results are printed
+     *  @param err where errors are printed
+     *  @return int exit status
+     *  @throws IOException If the file could not be read or the inventory could not be loaded
+     */
+    private static int importCsv(String file, PrintStream out, PrintStream err) throws IOException {
+        open();
+        CsvImporter importer = new CsvImporter();
+        CsvImporter.Result result = file.equals("-")
+                ? importer.importFrom(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : importer.importFile(Paths.get(file));
+        Persistence.awaitDurable();
+        out.println(result);
+        for (String error : result.getErrors()) {
+            err.println(error);
+        }
+        return OK;
+    }
+
+    /** @param file String file to write, or - for standard output
+     *  @param out where results are printed
+     *  @param err where errors are printed
+     *  @return int exit status
+     *  @throws IOException If the file could not be written or the inventory could not be loaded
+     */
+    private static int exportCsv(String file, PrintStream out, PrintStream err) throws IOException {
+        open();
+        CsvExporter exporter = new CsvExporter();
+        if (file.equals("-")) {
+            exporter.exportTo(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        } else {
+            err.println(exporter.exportFile(Paths.get(file)) + " lines written to " + file);
+        }
+        return OK;
+    }
+
+    /** @param kind String part or product
+     *  @param key String id, or text the names must contain
+     *  @param out where results are printed
+     *  @param err where errors are printed
+     *  @return int exit status
+     *  @throws IOException If the inventory could not be loaded
+     */
+    private static int query(String kind, String key, PrintStream out, PrintStream err) throws IOException {
+        boolean part = isPart(kind);
+        if (!part && !kind.equals("product")) {
+            return usage(err, "Expected part or product but found \"" + kind + "\"");
+        }
+        open();
+        Integer id = parseInt(key);
+        List<?> found;
+        if (part) {
+            Part match = id == null ? null : InventoryStore.parts().lookup(id);
+            found = id == null ? InventoryStore.parts().lookup(key)
+                    : match == null ? Collections.emptyList() : Collections.singletonList(match);
+        } else {
+            Product match = id == null ? null : InventoryStore.products().lookup(id);
+            found = id == null ? InventoryStore.products().lookup(key)
+                    : match == null ? Collections.emptyList() : Collections.singletonList(match);
+        }
+        for (Object item : found) {
+            out.println(part ? CsvExporter.line((Part) item) : CsvExporter.line((Product) item));
+        }
+        if (found.isEmpty()) {
+            err.println("No " + kind + " matches \"" + key + "\"");
+            return FAILED;
+        }
+        return OK;
+    }
+
+    /** @param kind String part or product
+     *  @param idText String id of the item
+     *  @param movement String receive, issue or adjust
+     *  @param quantityText String quantity, which may be negative for adjust
+     *  @param out where results are printed
+     *  @param err where errors are printed
+     *  @return int exit status
+     *  @throws IOException If the inventory could not be loaded
+     */
+    private static int stock(String kind, String idText, String movement, String quantityText, PrintStream out,
+                             PrintStream err) throws IOException {
+        boolean part = isPart(kind);
+        Integer id = parseInt(idText);
+        Integer quantity = parseInt(quantityText);
+        if (!part && !kind.equals("product") || id == null || quantity == null) {
+            return usage(err, "Expected part or product, an integer id and an integer quantity");
+        }
+        StockMovement.Type type;
+        try {
+            type = StockMovement.Type.valueOf(movement.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return usage(err, "Expected receive, issue or adjust but found \"" + movement + "\"");
+        }
+        open();
+        StockLedger ledger = InventoryStore.ledger();
+        try {
+            StockMovement done;
+            if (part) {
+                Part item = InventoryStore.parts().lookup(id);
+                if (item == null) {
+                    err.println("There is no part with id " + id);
+                    return FAILED;
+                }
+                done = type == StockMovement.Type.RECEIVE ? ledger.receive(item, quantity)
+                        : type == StockMovement.Type.ISSUE ? ledger.issue(item, quantity)
+                        : ledger.adjust(item, quantity);
+            } else {
+                Product item = InventoryStore.products().lookup(id);
+                if (item == null) {
+                    err.println("There is no product with id " + id);
+                    return FAILED;
+                }
+                done = type == StockMovement.Type.RECEIVE ? ledger.receive(item, quantity)
+                        : type == StockMovement.Type.ISSUE ? ledger.issue(item, quantity)
+                        : ledger.adjust(item, quantity);
+            }
+            Persistence.awaitDurable();
+            out.println(kind + " " + id + " stock " + done.getOldStock() + " -> " + done.getNewStock());
+            return OK;
+        } catch (StockLimitException | IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return FAILED;
+        }
+    }
+
+    /** This method loads the saved inventory.  Persistence saves whatever the command changes when the program
+     *  exits.
+     *  @throws IOException If the saved inventory could not be loaded
+     */
+    private static void open() throws IOException {
+        Persistence.open(Paths.get(System.getProperty("inventory.data", "inventory-data")));
+    }
+
+    /** @param kind String word naming the catalog
+     *  @return boolean value for whether it names the parts
+     */
+    private static boolean isPart(String kind) {
+        return kind.equals("part");
+    }
+
+    /** @param text String to read
+     *  @return the integer it holds, or null if it is not one
+     */
+    private static Integer parseInt(String text) {
+        try {
+            return Integer.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** @param err where the message goes
+     *  @param message String what was wrong with the command
+     *  @return int exit status for a command that was not understood
+     */
+    private static int usage(PrintStream err, String message) {
+        err.println(message);
+        err.println("Usage: InventoryCli import FILE|- | export FILE|- | query part|product ID|NAME"
+                + " | stock part|product ID receive|issue|adjust QUANTITY");
+        return USAGE;
+    }
+}
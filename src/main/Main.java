@@ -6,15 +6,18 @@
 
 package main;
 
+import controller.FormCache;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import model.InHouse;
 import model.Inventory;
 import model.Outsourced;
+import model.InventoryStore;
 import model.Product;
+import persistence.Persistence;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /** This class is the starting point for the entire inventory program.
  *  <p>FUTURE ENHANCEMENTS - If I were to update this inventory application, I would change a few different things.
@@ -27,20 +30,34 @@ import model.Product;
  */
 public class Main extends Application {
 
-    /** This method loads the initial stage and "Main Form", the first scene for the inventory program. */
+    /** This method loads the initial stage and "Main Form", the first scene for the inventory program.
+     *  The other forms are loaded right after the Main Form is shown, so the first switch to each is as quick as the rest.
+     */
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-        stage.setTitle("Main Form");
-        stage.setScene(new Scene(root, 950, 320));
-        stage.show();
+        Inventory.bindToFxThread();
+        FormCache.preload(FormCache.MAIN_FORM, 950, 320);
+        FormCache.show(stage, FormCache.MAIN_FORM, "Main Form", form -> { });
+        FormCache.warmUp();
     }
 
     /** This method is the main method that will instantiate all the initial sample data.
      *  The Javadoc folder is located in the C:\Users\chhie\Desktop\WGU\C482 - Software 1\Javadoc. 
+     *  The saved inventory is loaded from the folder named by the inventory.data system property (inventory-data
+     *  by default), and the sample data is only created the first time, when nothing has been saved yet.
      *  @param args an array of String arguments
+     *  @throws IOException If the saved inventory could not be loaded
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        Persistence.open(Paths.get(System.getProperty("inventory.data", "inventory-data")));
+        if (InventoryStore.parts().size() == 0 && InventoryStore.products().size() == 0) {
+            loadSampleData();
+        }
+        launch(args);
+    }
+
+    /** This method creates the sample parts and products. */
+    private static void loadSampleData() {
         InHouse brakes = new InHouse(Inventory.incrementPartId(), "Brakes", 14.99, 10, 1, 50, 111);
         InHouse wheel = new InHouse(Inventory.incrementPartId(), "Wheel", 10.99, 16, 1, 50, 112);
         InHouse seat = new InHouse(Inventory.incrementPartId(), "Seat", 14.99, 10, 1, 50, 113);
@@ -70,7 +87,5 @@ public class Main extends Application {
         mountainBike.addAssociatedPart(wheel);
         mountainBike.addAssociatedPart(seat);
         mountainBike.addAssociatedPart(handleBars);
-
-        launch(args);
     }
 }
@@ -0,0 +1,143 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** This class is responsible for an indexed binary heap of alerts, the one with the largest gap on top.
+ *  <p>Besides the heap array it keeps the slot of every alert by source and id, so the alert of one item can be
+ *  replaced or removed in O(log n) without searching for it.  Ties in the gap go to parts before products and then
+ *  to the lower id, so the order does not depend on the order of the changes.
+ *  <p>The class is not thread-safe; StockAlerts guards its heaps with its own monitor.
+ */
+final class AlertHeap {
+    /** Order of the heap: most urgent first. */
+    static final Comparator<StockAlert> URGENCY = Comparator.comparingLong(StockAlert::getGap).reversed()
+            .thenComparing(StockAlert::getSource)
+            .thenComparingInt(StockAlert::getId);
+
+    private StockAlert[] heap = new StockAlert[16];
+    private int size;
+    private final IntIntMap partSlots = new IntIntMap();
+    private final IntIntMap productSlots = new IntIntMap();
+
+    /** @return int number of alerts */
+    int size() {
+        return size;
+    }
+
+    /** @return the most urgent alert, or null if there are none */
+    StockAlert peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /** @param source catalog of the item
+     *  @param id int id of the item
+     *  @return the alert of the item, or null if it has none here
+     */
+    StockAlert get(StockAlert.Source source, int id) {
+        int slot = slots(source).get(id);
+        return slot == IntIntMap.NO_VALUE ? null : heap[slot];
+    }
+
+    /** This method adds the alert of an item, or replaces the one it had.
+     *  @param alert new alert
+     *  @return the alert it replaced, or null
+     */
+    StockAlert put(StockAlert alert) {
+        int slot = slots(alert.getSource()).get(alert.getId());
+        if (slot == IntIntMap.NO_VALUE) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            heap[size] = alert;
+            siftUp(size++);
+            return null;
+        }
+        StockAlert old = heap[slot];
+        heap[slot] = alert;
+        if (URGENCY.compare(alert, old) < 0) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+        return old;
+    }
+
+    /** @param source catalog of the item
+     *  @param id int id of the item
+     *  @return the alert that was removed, or null if the item had none here
+     */
+    StockAlert remove(StockAlert.Source source, int id) {
+        int slot = slots(source).remove(id);
+        if (slot == IntIntMap.NO_VALUE) {
+            return null;
+        }
+        StockAlert old = heap[slot];
+        StockAlert last = heap[--size];
+        heap[size] = null;
+        if (slot < size) {
+            heap[slot] = last;
+            slots(last.getSource()).put(last.getId(), slot);
+            if (URGENCY.compare(last, old) < 0) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+        }
+        return old;
+    }
+
+    /** @return copy of the alerts, most urgent first */
+    StockAlert[] toSortedArray() {
+        StockAlert[] alerts = Arrays.copyOf(heap, size);
+        Arrays.sort(alerts, URGENCY);
+        return alerts;
+    }
+
+    /** @param source catalog of the items
+     *  @return the map from id to slot for the catalog
+     */
+    private IntIntMap slots(StockAlert.Source source) {
+        return source == StockAlert.Source.PART ? partSlots : productSlots;
+    }
+
+    /** @param slot int slot of an alert that may be more urgent than its parent */
+    private void siftUp(int slot) {
+        StockAlert alert = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (URGENCY.compare(alert, heap[parent]) >= 0) {
+                break;
+            }
+            place(heap[parent], slot);
+            slot = parent;
+        }
+        place(alert, slot);
+    }
+
+    /** @param slot int slot of an alert that may be less urgent than its children */
+    private void siftDown(int slot) {
+        StockAlert alert = heap[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = slot * 2 + 1;
+            if (child + 1 < size && URGENCY.compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (URGENCY.compare(alert, heap[child]) <= 0) {
+                break;
+            }
+            place(heap[child], slot);
+            slot = child;
+        }
+        place(alert, slot);
+    }
+
+    /** @param alert alert to put in a slot
+     *  @param slot int slot to put it in
+     */
+    private void place(StockAlert alert, int slot) {
+        heap[slot] = alert;
+        slots(alert.getSource()).put(alert.getId(), slot);
+    }
+}
@@ -0,0 +1,77 @@
+package model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/** This class is responsible for the ObservableList of the associated parts of a product that the forms show.
+ *  <p>It is kept out of Product so that Product itself does not refer to JavaFX: a product only makes one when
+ *  getAllAssociatedParts() is first called, and code that never calls it, such as InventoryCli, runs without the
+ *  JavaFX classes.  Every method is called under the monitor of the product.
+ */
+final class AssociatedPartsView {
+    private final ObservableList<Part> items = FXCollections.observableArrayList();
+    private final ObservableList<Part> view = FXCollections.unmodifiableObservableList(items);
+
+    /** This constructor fills the list from the parts catalog of InventoryStore.
+     *  @param lines bill of materials of the product, or null for none
+     */
+    AssociatedPartsView(BomLines lines) {
+        for (int line = 0; lines != null && line < lines.size(); line++) {
+            Part part = InventoryStore.parts().lookup(lines.id(line));
+            if (part != null) {
+                items.add(part);
+            }
+        }
+    }
+
+    /** @return the list, which can not be changed directly */
+    ObservableList<Part> list() {
+        return view;
+    }
+
+    /** This method empties the list before the bill of materials is replaced. */
+    void clear() {
+        items.clear();
+    }
+
+    /** This method keeps the list in step with a change to the quantity of a part.
+     *  @param partId int id of the part
+     *  @param old int quantity before
+     *  @param quantity int quantity now, 0 if the line was dropped
+     *  @param part the Part object if the caller has it, otherwise it is looked up
+     */
+    void quantityChanged(int partId, int old, int quantity, Part part) {
+        if (old == quantity) {
+            return;
+        }
+        if (old == 0) {
+            part = part != null ? part : InventoryStore.parts().lookup(partId);
+            if (part != null) {
+                items.add(part);
+            }
+            return;
+        }
+        int row = row(partId);
+        if (row < 0) {
+            return;
+        }
+        if (quantity == 0) {
+            items.remove(row);
+        } else {
+            // Replacing the row with itself tells a TableView showing the quantity to redraw it.
+            items.set(row, items.get(row));
+        }
+    }
+
+    /** @param partId int id of the part
+     *  @return int index of the part in the list, or -1 if it is not in it
+     */
+    private int row(int partId) {
+        for (int row = 0; row < items.size(); row++) {
+            if (items.get(row).getId() == partId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,29 @@
+package model;
+
+/** This interface is responsible for receiving the changes made to the associated parts of any Product.
+ *  <p>Listeners are registered with Product.addAssociationListener and are called on the thread that changed the
+ *  product, right after the change and before the next change to the same product can be made, so the calls for
+ *  one product come in the order of its changes.  They must not change the parts, components, stock, limits or
+ *  price of another item.
+ */
+public interface AssociationListener {
+
+    /** This method is called after the quantity of a part on a product's bill of materials changed.
+     *  An old quantity of 0 means the part was just associated, a new quantity of 0 that it was removed.
+     *  @param product Product whose associated parts changed
+     *  @param partId int id of the part
+     *  @param oldQuantity int quantity before the change
+     *  @param newQuantity int quantity after the change
+     */
+    void associationChanged(Product product, int partId, int oldQuantity, int newQuantity);
+
+    /** This method is called after the quantity of a component product in a product changed.
+     *  By default it does nothing, for listeners that only follow parts.
+     *  @param product Product whose components changed
+     *  @param componentId int id of the component product
+     *  @param oldQuantity int quantity before the change
+     *  @param newQuantity int quantity after the change
+     */
+    default void componentChanged(Product product, int componentId, int oldQuantity, int newQuantity) {
+    }
+}
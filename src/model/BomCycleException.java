@@ -0,0 +1,30 @@
+package model;
+
+import java.util.Arrays;
+
+/** This class is responsible for reporting a product that, through its components, contains itself.
+ *  Such a product can not be exploded into parts, as it would need infinitely many of them.
+ */
+public class BomCycleException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] cycle;
+
+    /** @param cycle ids of the products on the cycle, starting and ending with the same id */
+    public BomCycleException(int[] cycle) {
+        super("Product " + cycle[0] + " contains itself: " + path(cycle));
+        this.cycle = cycle.clone();
+    }
+
+    /** @return ids of the products on the cycle, starting and ending with the same id */
+    public int[] getCycle() {
+        return cycle.clone();
+    }
+
+    /** @param cycle ids of the products on the cycle
+     *  @return the ids joined by arrows
+     */
+    private static String path(int[] cycle) {
+        return Arrays.toString(cycle).replace(", ", " -> ").replace("[", "").replace("]", "");
+    }
+}
@@ -0,0 +1,441 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** This class is responsible for exploding a product with components into the parts it needs in the end.
+ *  <p>An explosion runs in two passes.  The first walks the components from the product down, without recursion
+ *  so deep trees can not overflow the stack.  It copies the lines of every product it meets once, stops with a
+ *  BomCycleException if a product is met again on its own path, and numbers the products by height: a product
+ *  with no components has height 0, and every other product sits one above its highest component.
+ *  <p>The second pass computes the parts needed for one unit of each product, lowest height first, and keeps the
+ *  result.  A sub-assembly shared by many products is worked out only once, and a product only adds up results
+ *  that are already there.  Products of the same height do not depend on each other, so each height is run as
+ *  fork/join tasks on the pool.  A product with more than SPLIT_COMPONENTS components is split further, so a very
+ *  wide product is also summed on several cores.
+ *  <p>Each product's lines are copied in one step, but the products are read one after another, so an explosion
+ *  that runs while products are being edited may mix the state from before and after an edit.  Components that
+ *  are no longer in the catalog count as nothing and are reported by Requirements.getMissingProductIds().
+ */
+public final class BomExplosion {
+    /** Components of one product that are summed in one task rather than split. */
+    static final int SPLIT_COMPONENTS = 64;
+    /** Products of the same height that are worked out in one task rather than split. */
+    static final int SPLIT_PRODUCTS = 4;
+
+    private static final int VISITING = -2;
+    private static final int MISSING = -3;
+
+    private final Catalog<Product> products;
+    private final ForkJoinPool pool;
+
+    /** This constructor creates an engine that runs its tasks on the common fork/join pool.
+     *  @param products catalog to find the products and their components in
+     */
+    public BomExplosion(Catalog<Product> products) {
+        this(products, ForkJoinPool.commonPool());
+    }
+
+    /** @param products catalog to find the products and their components in
+     *  @param pool pool to run the tasks on
+     */
+    public BomExplosion(Catalog<Product> products, ForkJoinPool pool) {
+        this.products = products;
+        this.pool = pool;
+    }
+
+    /** This method works out the parts needed to build a number of units of a product.
+     *  @param productId int id of the product
+     *  @param units long number of units to build
+     *  @return the parts needed, in increasing part id order
+     *  @throws IllegalArgumentException if there is no product with that id or units is negative
+     *  @throws BomCycleException if the product contains itself through its components
+     *  @throws ArithmeticException if a quantity does not fit in a long
+     */
+    public Requirements explode(int productId, long units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("Units must not be negative: " + units);
+        }
+        Graph graph = new Graph();
+        int root = graph.walk(productId);
+        if (root < 0) {
+            throw new IllegalArgumentException("No product with id " + productId);
+        }
+        Requirements[] unit = new Requirements[graph.count];
+        int[][] levels = graph.levels();
+        for (int[] level : levels) {
+            if (level.length == 1 && graph.components[level[0]].length <= SPLIT_COMPONENTS * 2) {
+                unit[level[0]] = perUnit(graph, unit, level[0]);
+            } else {
+                pool.invoke(new LevelTask(graph, unit, level, 0, level.length));
+            }
+        }
+        Requirements result = unit[root].times(units);
+        return new Requirements(result.partIds, result.quantities, graph.missing());
+    }
+
+    /** This method adds up the parts needed for one unit of a product whose components are already done.
+     *  @param graph products of the explosion
+     *  @param unit per-unit results, filled for every lower height
+     *  @param node int number of the product in the graph
+     *  @return the parts needed for one unit
+     */
+    private static Requirements perUnit(Graph graph, Requirements[] unit, int node) {
+        Requirements own = Requirements.of(graph.parts[node]);
+        int[] components = graph.components[node];
+        if (components.length == 0) {
+            return own;
+        }
+        Requirements sum = components.length / 2 > SPLIT_COMPONENTS
+                ? new ComponentSum(unit, components, 0, components.length / 2).invoke()
+                : sum(unit, components, 0, components.length / 2);
+        return own.plus(sum, 1);
+    }
+
+    /** @param unit per-unit results of the components
+     *  @param components pairs of component node and quantity
+     *  @param from int first pair to add
+     *  @param to int pair after the last one to add
+     *  @return the parts needed for the components in the range
+     */
+    private static Requirements sum(Requirements[] unit, int[] components, int from, int to) {
+        Requirements sum = Requirements.EMPTY;
+        for (int i = from; i < to; i++) {
+            int node = components[i * 2];
+            if (node >= 0) {
+                sum = sum.plus(unit[node], components[i * 2 + 1]);
+            }
+        }
+        return sum;
+    }
+
+    /** This class is responsible for the parts needed to build some number of a product.
+     *  <p>The parts are kept in increasing id order in two parallel arrays, so results can be merged in one pass.
+     */
+    public static final class Requirements {
+        static final int[] NONE = new int[0];
+        static final Requirements EMPTY = new Requirements(NONE, new long[0], NONE);
+
+        private final int[] partIds;
+        private final long[] quantities;
+        private final int[] missingProductIds;
+
+        /** @param partIds ids of the parts, in increasing order
+         *  @param quantities quantity of each part
+         *  @param missingProductIds ids of components that were not in the catalog
+         */
+        private Requirements(int[] partIds, long[] quantities, int[] missingProductIds) {
+            this.partIds = partIds;
+            this.quantities = quantities;
+            this.missingProductIds = missingProductIds;
+        }
+
+        /** @return int number of different parts needed */
+        public int size() {
+            return partIds.length;
+        }
+
+        /** @param index int position from 0 to size() - 1
+         *  @return int id of the part at that position
+         */
+        public int getPartId(int index) {
+            return partIds[index];
+        }
+
+        /** @param index int position from 0 to size() - 1
+         *  @return long quantity of the part at that position
+         */
+        public long getQuantity(int index) {
+            return quantities[index];
+        }
+
+        /** @param partId int id of a part
+         *  @return long quantity needed of the part, 0 if it is not needed
+         */
+        public long quantityOf(int partId) {
+            int index = Arrays.binarySearch(partIds, partId);
+            return index < 0 ? 0 : quantities[index];
+        }
+
+        /** @return ids of the components that were not in the catalog and so were counted as nothing */
+        public int[] getMissingProductIds() {
+            return missingProductIds.clone();
+        }
+
+        /** @param pairs pairs of part id and quantity in any order
+         *  @return the parts of the pairs, with the quantities of a part listed twice added up
+         */
+        static Requirements of(int[] pairs) {
+            if (pairs.length == 0) {
+                return EMPTY;
+            }
+            long[] keys = new long[pairs.length / 2];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (long) pairs[i * 2] << 32 | (pairs[i * 2 + 1] & 0xFFFFFFFFL);
+            }
+            Arrays.sort(keys);
+            int[] ids = new int[keys.length];
+            long[] quantities = new long[keys.length];
+            int size = 0;
+            for (long key : keys) {
+                int id = (int) (key >> 32);
+                if (size > 0 && ids[size - 1] == id) {
+                    quantities[size - 1] += key & 0xFFFFFFFFL;
+                } else {
+                    ids[size] = id;
+                    quantities[size++] = key & 0xFFFFFFFFL;
+                }
+            }
+            return new Requirements(Arrays.copyOf(ids, size), Arrays.copyOf(quantities, size), NONE);
+        }
+
+        /** @param other parts to add
+         *  @param times long number of times to add them
+         *  @return these parts plus other times times
+         */
+        Requirements plus(Requirements other, long times) {
+            if (times == 0 || other.partIds.length == 0) {
+                return this;
+            }
+            int[] ids = new int[partIds.length + other.partIds.length];
+            long[] sums = new long[ids.length];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < partIds.length || j < other.partIds.length) {
+                if (j == other.partIds.length || i < partIds.length && partIds[i] < other.partIds[j]) {
+                    ids[size] = partIds[i];
+                    sums[size++] = quantities[i++];
+                } else if (i == partIds.length || other.partIds[j] < partIds[i]) {
+                    ids[size] = other.partIds[j];
+                    sums[size++] = Math.multiplyExact(other.quantities[j++], times);
+                } else {
+                    ids[size] = partIds[i];
+                    sums[size++] = Math.addExact(quantities[i++], Math.multiplyExact(other.quantities[j++], times));
+                }
+            }
+            return new Requirements(size == ids.length ? ids : Arrays.copyOf(ids, size),
+                    size == sums.length ? sums : Arrays.copyOf(sums, size), NONE);
+        }
+
+        /** @param units long number of units
+         *  @return these parts for that many units
+         */
+        Requirements times(long units) {
+            if (units == 1) {
+                return this;
+            }
+            if (units == 0) {
+                return EMPTY;
+            }
+            long[] product = new long[quantities.length];
+            for (int i = 0; i < product.length; i++) {
+                product[i] = Math.multiplyExact(quantities[i], units);
+            }
+            return new Requirements(partIds, product, NONE);
+        }
+    }
+
+    /** This class is responsible for working out the products of one height, split over the pool. */
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private static final class LevelTask extends RecursiveAction {
+        private final Graph graph;
+        private final Requirements[] unit;
+        private final int[] level;
+        private final int from;
+        private final int to;
+
+        LevelTask(Graph graph, Requirements[] unit, int[] level, int from, int to) {
+            this.graph = graph;
+            this.unit = unit;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_PRODUCTS) {
+                for (int i = from; i < to; i++) {
+                    unit[level[i]] = perUnit(graph, unit, level[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LevelTask(graph, unit, level, from, middle), new LevelTask(graph, unit, level, middle, to));
+        }
+    }
+
+    /** This class is responsible for adding up the components of one wide product, split over the pool. */
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private static final class ComponentSum extends RecursiveTask<Requirements> {
+        private final Requirements[] unit;
+        private final int[] components;
+        private final int from;
+        private final int to;
+
+        ComponentSum(Requirements[] unit, int[] components, int from, int to) {
+            this.unit = unit;
+            this.components = components;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Requirements compute() {
+            if (to - from <= SPLIT_COMPONENTS) {
+                return sum(unit, components, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ComponentSum left = new ComponentSum(unit, components, from, middle);
+            left.fork();
+            Requirements right = new ComponentSum(unit, components, middle, to).compute();
+            return left.join().plus(right, 1);
+        }
+    }
+
+    /** This class is responsible for the products met by one explosion and the order to work them out in. */
+    private final class Graph {
+        // Product id to its node once it is done, VISITING while it is on the current path, or MISSING.
+        private final IntIntMap nodes = new IntIntMap();
+        private int[] ids = new int[16];
+        private int[][] parts = new int[16][];
+        // Component lines, with each product id replaced by its node, or by MISSING, once the product is done.
+        private int[][] components = new int[16][];
+        private int[] heights = new int[16];
+        private int count;
+        private int[] missingIds = Requirements.NONE;
+        private int missingCount;
+
+        /** This method walks the components below a product, depth first, and numbers every product it meets.
+         *  @param rootId int id of the product to start at
+         *  @return int node of the product, or MISSING if it is not in the catalog
+         *  @throws BomCycleException if a product is met again on its own path
+         */
+        int walk(int rootId) {
+            int[] path = new int[16];
+            int[] next = new int[16];
+            int depth = 0;
+            if (enter(rootId)) {
+                path[depth++] = count - 1;
+            }
+            while (depth > 0) {
+                int node = path[depth - 1];
+                int[] lines = components[node];
+                if (next[depth - 1] < lines.length) {
+                    int childId = lines[next[depth - 1]];
+                    next[depth - 1] += 2;
+                    int state = nodes.get(childId);
+                    if (state == VISITING) {
+                        throw new BomCycleException(cycle(path, depth, childId));
+                    }
+                    if (state == IntIntMap.NO_VALUE && enter(childId)) {
+                        if (depth == path.length) {
+                            path = Arrays.copyOf(path, depth * 2);
+                            next = Arrays.copyOf(next, depth * 2);
+                        }
+                        path[depth] = count - 1;
+                        next[depth++] = 0;
+                    }
+                } else {
+                    leave(node);
+                    depth--;
+                }
+            }
+            return nodes.get(rootId);
+        }
+
+        /** This method starts on a product, giving it the next node and copying its lines, or marks it missing.
+         *  @param id int id of the product
+         *  @return boolean value for whether the product was found
+         */
+        private boolean enter(int id) {
+            Product product = products.lookup(id);
+            if (product == null) {
+                nodes.put(id, MISSING);
+                if (missingCount == missingIds.length) {
+                    missingIds = Arrays.copyOf(missingIds, Math.max(4, missingCount * 2));
+                }
+                missingIds[missingCount++] = id;
+                return false;
+            }
+            if (count == parts.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                parts = Arrays.copyOf(parts, count * 2);
+                components = Arrays.copyOf(components, count * 2);
+                heights = Arrays.copyOf(heights, count * 2);
+            }
+            nodes.put(id, VISITING);
+            ids[count] = id;
+            parts[count] = product.getBillOfMaterials();
+            components[count] = product.getComponents();
+            count++;
+            return true;
+        }
+
+        /** This method finishes a product once all its components are done, giving it its height.
+         *  @param node int node of the product
+         */
+        private void leave(int node) {
+            int[] lines = components[node];
+            int height = 0;
+            for (int i = 0; i < lines.length; i += 2) {
+                int child = nodes.get(lines[i]);
+                lines[i] = child;
+                if (child >= 0) {
+                    height = Math.max(height, heights[child] + 1);
+                }
+            }
+            heights[node] = height;
+            nodes.put(ids[node], node);
+        }
+
+        /** @param path nodes on the current path, from the root down
+         *  @param depth int number of nodes on the path
+         *  @param repeatedId int id of the product that was met again
+         *  @return ids of the products from the first visit of repeatedId down to it again
+         */
+        private int[] cycle(int[] path, int depth, int repeatedId) {
+            int start = depth - 1;
+            while (ids[path[start]] != repeatedId) {
+                start--;
+            }
+            int[] cycle = new int[depth - start + 1];
+            for (int i = start; i < depth; i++) {
+                cycle[i - start] = ids[path[i]];
+            }
+            cycle[cycle.length - 1] = repeatedId;
+            return cycle;
+        }
+
+        /** @return the nodes grouped by height, lowest first */
+        int[][] levels() {
+            int top = 0;
+            for (int node = 0; node < count; node++) {
+                top = Math.max(top, heights[node]);
+            }
+            int[] sizes = new int[top + 1];
+            for (int node = 0; node < count; node++) {
+                sizes[heights[node]]++;
+            }
+            int[][] levels = new int[top + 1][];
+            for (int height = 0; height <= top; height++) {
+                levels[height] = new int[sizes[height]];
+                sizes[height] = 0;
+            }
+            for (int node = 0; node < count; node++) {
+                levels[heights[node]][sizes[heights[node]]++] = node;
+            }
+            return levels;
+        }
+
+        /** @return ids of the components that were not in the catalog, in increasing order */
+        int[] missing() {
+            int[] ids = Arrays.copyOf(missingIds, missingCount);
+            Arrays.sort(ids);
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package model;
+
+import java.util.Arrays;
+
+/** This class is responsible for the lines of a bill of materials: an id and the quantity needed of it.
+ *  <p>The lines are packed in pairs into one int array.  Small bills are searched in order; once there are more
+ *  than INDEXED_LINES lines an IntIntMap from id to line is kept as well, so even a bill with millions of lines
+ *  finds a line in constant time.  A line that drops to 0 is filled with the last line, so no other line moves.
+ *  <p>The class is not thread-safe; Product guards its lines with its own monitor.
+ */
+final class BomLines {
+    /** Lines a bill may have before its ids get an IntIntMap instead of being scanned. */
+    static final int INDEXED_LINES = 16;
+
+    private int[] pairs = new int[4];
+    private int lines;
+    private IntIntMap lineOf;
+
+    /** @return int number of lines */
+    int size() {
+        return lines;
+    }
+
+    /** @param line int line number, from 0 to size() - 1
+     *  @return int id on the line
+     */
+    int id(int line) {
+        return pairs[line * 2];
+    }
+
+    /** @param id int id to look for
+     *  @return int quantity of the id, 0 if it has no line
+     */
+    int quantityOf(int id) {
+        int line = lineOf(id);
+        return line < 0 ? 0 : pairs[line * 2 + 1];
+    }
+
+    /** This method sets the quantity of an id, adding a line for it or dropping its line as needed.
+     *  @param id int id to change
+     *  @param quantity int new quantity, 0 to drop the line
+     */
+    void set(int id, int quantity) {
+        int line = lineOf(id);
+        if (line < 0) {
+            if (quantity == 0) {
+                return;
+            }
+            if (lines * 2 == pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            line = lines++;
+            pairs[line * 2] = id;
+            if (lineOf != null) {
+                lineOf.put(id, line);
+            } else if (lines > INDEXED_LINES) {
+                lineOf = new IntIntMap(lines * 2);
+                for (int i = 0; i < lines; i++) {
+                    lineOf.put(pairs[i * 2], i);
+                }
+            }
+        } else if (quantity == 0) {
+            int last = --lines;
+            pairs[line * 2] = pairs[last * 2];
+            pairs[line * 2 + 1] = pairs[last * 2 + 1];
+            if (lineOf != null) {
+                lineOf.remove(id);
+                if (line != last) {
+                    lineOf.put(pairs[line * 2], line);
+                }
+            }
+            return;
+        }
+        pairs[line * 2 + 1] = quantity;
+    }
+
+    /** @return copy of the lines as pairs: id, quantity, id, quantity and so on */
+    int[] toArray() {
+        return Arrays.copyOf(pairs, lines * 2);
+    }
+
+    /** @param id int id to look for
+     *  @return int line of the id, or -1
+     */
+    private int lineOf(int id) {
+        if (lineOf != null) {
+            return lineOf.get(id);
+        }
+        for (int line = 0; line < lines; line++) {
+            if (pairs[line * 2] == id) {
+                return line;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,318 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** This class is responsible for knowing how many units of each product the parts in stock are enough to build.
+ *  <p>The buildable units of a product are the smallest, over the parts it needs in the end, of the stock of the
+ *  part divided by the quantity one unit needs.  Parts come from BomExplosion, so components count with all their
+ *  parts.  A product that needs no parts, or that contains itself, has 0 buildable units.
+ *  <p>The figures are kept up to date rather than worked out when asked.  Stock changes, catalog changes and bill
+ *  of materials changes only note the id of what changed, which is cheap enough for the thread making the change.
+ *  A single worker thread then takes all the ids noted so far at once and recomputes only the products they
+ *  affect: a changed product and every product that has it as a component are exploded again, and a part whose
+ *  stock changed only recomputes the products that need it, found through an IntListMap from part to product.
+ *  When stock churns, many changes to the same part are handled by one recompute.
+ *  <p>The listeners of the catalogs and of Part and Product, registered by InventoryStore, never take a lock that
+ *  the worker holds while it reads the catalogs, so the worker can not deadlock with a catalog change.
+ */
+public final class Buildability {
+    private final Catalog<Part> parts;
+    private final Catalog<Product> products;
+    private final BomExplosion explosion;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-buildability");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<BuildableListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Ids noted since the worker last ran, guarded by the monitor of pending.
+    private final Object pending = new Object();
+    private IntIntMap dirtyParts = new IntIntMap();
+    private IntIntMap dirtyProducts = new IntIntMap();
+    private boolean scheduled;
+
+    // Only used by the worker.
+    private final IntMap<BomExplosion.Requirements> requirements = new IntMap<>();
+    private final IntListMap users = new IntListMap();
+    private final IntListMap parents = new IntListMap();
+    private final IntMap<int[]> componentsOf = new IntMap<>();
+
+    // Product id to buildable units, written by the worker and guarded by its own monitor.
+    private final IntIntMap buildable = new IntIntMap();
+
+    /** @param parts catalog of the parts whose stock is used
+     *  @param products catalog of the products to keep figures for
+     *  @param explosion engine that turns a product into the parts it needs
+     */
+    Buildability(Catalog<Part> parts, Catalog<Product> products, BomExplosion explosion) {
+        this.parts = parts;
+        this.products = products;
+        this.explosion = explosion;
+    }
+
+    /** @param productId int id of a product
+     *  @return int number of units the parts in stock can build, as of the last time the worker ran; 0 for a
+     *          product that is not in the catalog
+     */
+    public int getBuildableUnits(int productId) {
+        synchronized (buildable) {
+            int units = buildable.get(productId);
+            return units == IntIntMap.NO_VALUE ? 0 : units;
+        }
+    }
+
+    /** This method waits until every change noted so far is reflected in getBuildableUnits.
+     *  @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public void sync() throws InterruptedException {
+        try {
+            worker.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** @param listener listener to tell about products whose buildable units changed */
+    public void addListener(BuildableListener listener) {
+        listeners.add(listener);
+    }
+
+    /** @param listener listener to stop telling */
+    public void removeListener(BuildableListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** @return listener that notes the parts added to, replaced in and removed from the parts catalog */
+    CatalogListener<Part> partListener() {
+        return new CatalogListener<Part>() {
+            @Override
+            public void added(int slot, Part item) {
+                partChanged(item.getId());
+            }
+
+            @Override
+            public void replaced(int slot, Part oldItem, Part newItem) {
+                partChanged(newItem.getId());
+            }
+
+            @Override
+            public void removed(int slot, Part item) {
+                partChanged(item.getId());
+            }
+        };
+    }
+
+    /** @return listener that notes the products added to, replaced in and removed from the products catalog */
+    CatalogListener<Product> productListener() {
+        return new CatalogListener<Product>() {
+            @Override
+            public void added(int slot, Product item) {
+                productChanged(item.getId());
+            }
+
+            @Override
+            public void replaced(int slot, Product oldItem, Product newItem) {
+                // A product edited in place reports its part and component changes itself.
+                if (oldItem != newItem) {
+                    productChanged(newItem.getId());
+                }
+            }
+
+            @Override
+            public void removed(int slot, Product item) {
+                productChanged(item.getId());
+            }
+        };
+    }
+
+    /** @return listener that notes the stock changes of parts */
+    StockListener stockListener() {
+        return (part, oldStock, newStock) -> partChanged(part.getId());
+    }
+
+    /** @return listener that notes the products whose parts or components changed */
+    AssociationListener associationListener() {
+        return new AssociationListener() {
+            @Override
+            public void associationChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+                productChanged(product.getId());
+            }
+
+            @Override
+            public void componentChanged(Product product, int componentId, int oldQuantity, int newQuantity) {
+                productChanged(product.getId());
+            }
+        };
+    }
+
+    /** @param partId int id of a part whose stock, or whose place in the catalog, changed */
+    private void partChanged(int partId) {
+        synchronized (pending) {
+            dirtyParts.put(partId, partId);
+            schedule();
+        }
+    }
+
+    /** @param productId int id of a product whose bill of materials, or whose place in the catalog, changed */
+    private void productChanged(int productId) {
+        synchronized (pending) {
+            dirtyProducts.put(productId, productId);
+            schedule();
+        }
+    }
+
+    /** This method starts the worker unless it is already due to run; the caller holds the monitor of pending. */
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            worker.execute(this::recompute);
+        }
+    }
+
+    /** This method takes every id noted so far and brings the figures of the products they affect up to date. */
+    private void recompute() {
+        int[] changedParts;
+        int[] changedProducts;
+        synchronized (pending) {
+            changedParts = dirtyParts.keys();
+            changedProducts = dirtyProducts.keys();
+            dirtyParts = new IntIntMap();
+            dirtyProducts = new IntIntMap();
+            scheduled = false;
+        }
+        for (int productId : changedProducts) {
+            relink(productId);
+        }
+        IntIntMap affected = new IntIntMap();
+        for (int productId : withAncestors(changedProducts)) {
+            explode(productId);
+            affected.put(productId, productId);
+        }
+        for (int partId : changedParts) {
+            for (int productId : users.get(partId)) {
+                affected.put(productId, productId);
+            }
+        }
+        publish(affected.keys());
+    }
+
+    /** This method brings the component links of one product up to date.
+     *  @param productId int id of the product
+     */
+    private void relink(int productId) {
+        int[] old = componentsOf.remove(productId);
+        if (old != null) {
+            for (int i = 0; i < old.length; i += 2) {
+                parents.remove(old[i], productId);
+            }
+        }
+        Product product = products.lookup(productId);
+        int[] now = product == null ? null : product.getComponents();
+        if (now != null && now.length > 0) {
+            componentsOf.put(productId, now);
+            for (int i = 0; i < now.length; i += 2) {
+                parents.add(now[i], productId);
+            }
+        }
+    }
+
+    /** @param productIds ids of changed products
+     *  @return the ids and the ids of every product that contains one of them, each once
+     */
+    private int[] withAncestors(int[] productIds) {
+        IntIntMap seen = new IntIntMap(productIds.length);
+        int[] stack = productIds.clone();
+        int top = stack.length;
+        while (top > 0) {
+            int productId = stack[--top];
+            if (seen.put(productId, productId) != IntIntMap.NO_VALUE) {
+                continue;
+            }
+            for (int parentId : parents.get(productId)) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2 + 1);
+                }
+                stack[top++] = parentId;
+            }
+        }
+        return seen.keys();
+    }
+
+    /** This method works out the parts one unit of a product needs and files the product under each of them.
+     *  @param productId int id of the product
+     */
+    private void explode(int productId) {
+        BomExplosion.Requirements old = requirements.remove(productId);
+        if (old != null) {
+            for (int i = 0; i < old.size(); i++) {
+                users.remove(old.getPartId(i), productId);
+            }
+        }
+        if (products.lookup(productId) == null) {
+            return;
+        }
+        BomExplosion.Requirements now;
+        try {
+            now = explosion.explode(productId, 1);
+        } catch (BomCycleException e) {
+            now = BomExplosion.Requirements.EMPTY;
+        } catch (IllegalArgumentException e) {
+            // The product was deleted after the lookup above.
+            return;
+        }
+        requirements.put(productId, now);
+        for (int i = 0; i < now.size(); i++) {
+            users.add(now.getPartId(i), productId);
+        }
+    }
+
+    /** This method works out the buildable units of some products and tells the listeners about those that moved.
+     *  @param productIds ids of the products to work out
+     */
+    private void publish(int[] productIds) {
+        int[] units = new int[productIds.length];
+        for (int i = 0; i < productIds.length; i++) {
+            BomExplosion.Requirements needed = requirements.get(productIds[i]);
+            units[i] = needed == null ? IntIntMap.NO_VALUE : units(needed);
+        }
+        int[] changed = new int[productIds.length];
+        int count = 0;
+        synchronized (buildable) {
+            for (int i = 0; i < productIds.length; i++) {
+                int old = units[i] == IntIntMap.NO_VALUE
+                        ? buildable.remove(productIds[i]) : buildable.put(productIds[i], units[i]);
+                if (old != units[i]) {
+                    changed[count++] = productIds[i];
+                }
+            }
+        }
+        if (count > 0) {
+            int[] ids = Arrays.copyOf(changed, count);
+            for (BuildableListener listener : listeners) {
+                listener.buildableChanged(ids);
+            }
+        }
+    }
+
+    /** @param needed parts one unit of a product needs
+     *  @return int number of units the stock of those parts can build
+     */
+    private int units(BomExplosion.Requirements needed) {
+        if (needed.size() == 0) {
+            return 0;
+        }
+        long units = Integer.MAX_VALUE;
+        for (int i = 0; i < needed.size() && units > 0; i++) {
+            Part part = parts.lookup(needed.getPartId(i));
+            long stock = part == null ? 0 : Math.max(0, part.getStock());
+            units = Math.min(units, stock / needed.getQuantity(i));
+        }
+        return (int) units;
+    }
+}
@@ -0,0 +1,13 @@
+package model;
+
+/** This interface is responsible for receiving the products whose buildable units changed.
+ *  <p>Listeners are registered with Buildability.addListener and are called on its worker thread, once per batch
+ *  of changes, so a listener that updates a form must hand the work over to the FX thread.
+ */
+public interface BuildableListener {
+
+    /** This method is called after the buildable units of some products changed.
+     *  @param productIds ids of the products whose figure changed
+     */
+    void buildableChanged(int[] productIds);
+}
@@ -0,0 +1,568 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/** This class is responsible for the functionality of a thread-safe store of parts or products.
+ *  <p>It keeps the items in order along with the id index, the id-to-slot mapping and the trigram name index.
+ *  Each catalog has its own read-write lock, so writers of parts never wait on writers of products, and lookups
+ *  from many threads can run at the same time.  Readers that want to walk every item take an immutable snapshot,
+ *  which is built once after a change and then shared without any locking.  Nothing in this class uses JavaFX;
+ *  Inventory copies the changes onto its ObservableLists through a CatalogListener.
+ *  @param <T> type of the items in the catalog
+ */
+public class Catalog<T> {
+    private final ToIntFunction<T> idOf;
+    private final Function<T, String> nameOf;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<CatalogListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    private final ArrayList<T> items = new ArrayList<>();
+    private final IntMap<T> byId = new IntMap<>();
+    private final TrigramIndex names = new TrigramIndex(this::currentName);
+
+    // A delete shifts every later item down by one, so instead of fixing those slots right away the catalog keeps a
+    // mark of how far the slots are still known to be correct and fixes the rest the next time one is needed.
+    private final IntIntMap slots = new IntIntMap();
+    private int slotsValid = 0;
+
+    // The snapshot is dropped by every change and rebuilt by the first reader that asks for it afterwards.
+    private volatile List<T> snapshot = Collections.emptyList();
+
+    /** This constructor creates an empty catalog.
+     *  @param idOf returns the id of an item
+     *  @param nameOf returns the name of an item
+     */
+    public Catalog(ToIntFunction<T> idOf, Function<T, String> nameOf) {
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+    }
+
+    /** This method adds an item to the end of the catalog.
+     *  @param item item to add
+     *  @throws IllegalArgumentException if an item with the same id is already in the catalog
+     */
+    public void add(T item) {
+        lock.writeLock().lock();
+        try {
+            int id = idOf.applyAsInt(item);
+            if (byId.containsKey(id)) {
+                throw new IllegalArgumentException("Id " + id + " is already in the catalog");
+            }
+            int slot = items.size();
+            append(item);
+            snapshot = null;
+            for (CatalogListener<T> listener : listeners) {
+                listener.added(slot, item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method adds a batch of items to the end of the catalog under one lock.
+     *  Listeners are told about the whole batch at once, so a bound TableView sees a single change.
+     *  @param batch items to add, in order
+     *  @throws IllegalArgumentException if an id is already in the catalog or appears twice in the batch, in which
+     *  case nothing is added
+     */
+    public void addAll(Collection<? extends T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<T> added = Collections.unmodifiableList(new ArrayList<>(batch));
+        lock.writeLock().lock();
+        try {
+            IntMap<T> batchIds = new IntMap<>();
+            for (T item : added) {
+                int id = idOf.applyAsInt(item);
+                if (byId.containsKey(id) || batchIds.containsKey(id)) {
+                    throw new IllegalArgumentException("Id " + id + " is already in the catalog");
+                }
+                batchIds.put(id, item);
+            }
+            int firstSlot = items.size();
+            items.ensureCapacity(firstSlot + added.size());
+            for (T item : added) {
+                append(item);
+            }
+            snapshot = null;
+            for (CatalogListener<T> listener : listeners) {
+                listener.addedAll(firstSlot, added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method replaces the items whose id is already in the catalog and adds the rest to the end, under one
+     *  lock, so no other writer can add the same id between the lookup and the insert.  An id that appears twice
+     *  in the batch is added by its first item and replaced by the second.  The items added in a row reach the
+     *  listeners as one addedAll().
+     *  @param batch items to put, in order
+     *  @return int number of items added rather than replaced
+     */
+    public int upsertAll(Collection<? extends T> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            int added = 0;
+            int firstSlot = items.size();
+            List<T> pending = new ArrayList<>();
+            for (T item : batch) {
+                int id = idOf.applyAsInt(item);
+                int slot = byId.containsKey(id) ? slotOf(id) : IntIntMap.NO_VALUE;
+                if (slot == IntIntMap.NO_VALUE) {
+                    append(item);
+                    pending.add(item);
+                    added++;
+                    continue;
+                }
+                // Listeners have to hear about the items added so far before one of them may be replaced.
+                firstSlot = tellAdded(firstSlot, pending);
+                T oldItem = items.set(slot, item);
+                byId.put(id, item);
+                names.update(id, nameOf.apply(oldItem), nameOf.apply(item));
+                snapshot = null;
+                for (CatalogListener<T> listener : listeners) {
+                    listener.replaced(slot, oldItem, item);
+                }
+            }
+            tellAdded(firstSlot, pending);
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method replaces the item with the same id as the one given, or adds it if there is none.
+     *  @param item item to put
+     *  @return boolean value for whether the item was added rather than replaced
+     */
+    public boolean upsert(T item) {
+        return upsertAll(Collections.singletonList(item)) == 1;
+    }
+
+    /** This method puts an item in the slot after the last one and indexes it.  The caller holds the write lock.
+     *  @param item item to add
+     */
+    private void append(T item) {
+        int id = idOf.applyAsInt(item);
+        int slot = items.size();
+        items.add(item);
+        byId.put(id, item);
+        slots.put(id, slot);
+        if (slotsValid == slot) {
+            slotsValid++;
+        }
+        names.add(id, nameOf.apply(item));
+    }
+
+    /** This method tells the listeners about the items upsertAll() appended since it last told them, then clears
+     *  them.  The caller holds the write lock.
+     *  @param firstSlot int slot of the first of those items
+     *  @param pending items appended, in order
+     *  @return int slot the next item appended will take
+     */
+    private int tellAdded(int firstSlot, List<T> pending) {
+        if (!pending.isEmpty()) {
+            snapshot = null;
+            List<T> added = Collections.unmodifiableList(new ArrayList<>(pending));
+            for (CatalogListener<T> listener : listeners) {
+                listener.addedAll(firstSlot, added);
+            }
+            pending.clear();
+        }
+        return items.size();
+    }
+
+    /** This method replaces the item that has an id.
+     *  The slot of the item is found from its id, so nothing is scanned unless a delete has moved it.
+     *  @param id int id of the item to replace
+     *  @param item new item, which may be the same object after its fields were changed
+     *  @return boolean value for whether an item with that id was found
+     */
+    public boolean update(int id, T item) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(id);
+            if (slot == IntIntMap.NO_VALUE) {
+                return false;
+            }
+            T oldItem = items.set(slot, item);
+            byId.put(id, item);
+            names.update(id, nameOf.apply(oldItem), nameOf.apply(item));
+            snapshot = null;
+            for (CatalogListener<T> listener : listeners) {
+                listener.replaced(slot, oldItem, item);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method tells the listeners that an item in the catalog was changed in place, by one of its setters.
+     *  Nothing happens if the item is not in the catalog.
+     *  @param item item that changed, keeping its name
+     *  @return boolean value for whether the item is in the catalog
+     */
+    public boolean changed(T item) {
+        return renamed(item, nameOf.apply(item));
+    }
+
+    /** This method tells the listeners that an item in the catalog was renamed in place, by one of its setters,
+     *  and indexes its new name.  Nothing happens if the item is not in the catalog.
+     *  @param item item that changed
+     *  @param oldName String name the item had before
+     *  @return boolean value for whether the item is in the catalog
+     */
+    public boolean renamed(T item, String oldName) {
+        lock.writeLock().lock();
+        try {
+            int id = idOf.applyAsInt(item);
+            if (byId.get(id) != item) {
+                return false;
+            }
+            int slot = slotOf(id);
+            names.update(id, oldName, nameOf.apply(item));
+            for (CatalogListener<T> listener : listeners) {
+                listener.replaced(slot, item, item);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method removes an item from the catalog.
+     *  @param item item to remove
+     *  @return boolean value for whether the item was removed or not
+     */
+    public boolean delete(T item) {
+        return deleteIf(item, any -> true);
+    }
+
+    /** This method removes an item from the catalog if a check allows it, checking and removing under one hold of
+     *  the write lock.  The check runs like a listener, so it may take the locks the listeners take but must not
+     *  change the catalog.
+     *  @param item item to remove
+     *  @param allowed returns whether the item may be removed
+     *  @return boolean value for whether the item was removed or not
+     */
+    public boolean deleteIf(T item, Predicate<? super T> allowed) {
+        lock.writeLock().lock();
+        try {
+            int id = idOf.applyAsInt(item);
+            int slot = slotOf(id);
+            if (slot == IntIntMap.NO_VALUE || items.get(slot) != item || !allowed.test(item)) {
+                return false;
+            }
+            items.remove(slot);
+            byId.remove(id);
+            slots.remove(id);
+            slotsValid = Math.min(slotsValid, slot);
+            names.remove(id, nameOf.apply(item));
+            snapshot = null;
+            for (CatalogListener<T> listener : listeners) {
+                listener.removed(slot, item);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method removes a batch of items under one lock.
+     *  The remaining items are moved down in a single pass, so removing many items costs about the same as
+     *  removing one.  Items that are not in the catalog are ignored.
+     *  @param batch items to remove
+     *  @return int number of items removed
+     */
+    public int removeAll(Collection<? extends T> batch) {
+        return removeAllIf(batch, any -> true);
+    }
+
+    /** This method removes the items of a batch that a check allows, checking and removing under one hold of the
+     *  write lock, as deleteIf does for one item.  Items the check refuses stay where they are.
+     *  @param batch items to remove
+     *  @param allowed returns whether an item may be removed
+     *  @return int number of items removed
+     */
+    public int removeAllIf(Collection<? extends T> batch, Predicate<? super T> allowed) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            IntMap<T> doomed = new IntMap<>();
+            for (T item : batch) {
+                int id = idOf.applyAsInt(item);
+                if (byId.get(id) == item && allowed.test(item)) {
+                    doomed.put(id, item);
+                }
+            }
+            if (doomed.isEmpty()) {
+                return 0;
+            }
+            int[] removedSlots = new int[doomed.size()];
+            List<T> removed = new ArrayList<>(doomed.size());
+            int write = 0;
+            for (int read = 0; read < items.size(); read++) {
+                T item = items.get(read);
+                int id = idOf.applyAsInt(item);
+                if (doomed.get(id) == item) {
+                    removedSlots[removed.size()] = read;
+                    removed.add(item);
+                    byId.remove(id);
+                    slots.remove(id);
+                } else {
+                    items.set(write++, item);
+                }
+            }
+            items.subList(write, items.size()).clear();
+            int[] removedIds = new int[removed.size()];
+            String[] removedNames = new String[removed.size()];
+            for (int i = 0; i < removedIds.length; i++) {
+                removedIds[i] = idOf.applyAsInt(removed.get(i));
+                removedNames[i] = nameOf.apply(removed.get(i));
+            }
+            names.removeAll(removedIds, removedNames);
+            slotsValid = Math.min(slotsValid, removedSlots[0]);
+            snapshot = null;
+            List<T> unmodifiable = Collections.unmodifiableList(removed);
+            for (CatalogListener<T> listener : listeners) {
+                listener.removedAll(removedSlots, unmodifiable);
+            }
+            return removed.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method finds an item by id.
+     *  @param id int id of the item
+     *  @return the item or null if there is no item with that id
+     */
+    public T lookup(int id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** This method finds every item whose name contains a String, ignoring case.
+     *  Only the items that share every trigram of the search are looked at.  Searches shorter than three
+     *  characters still scan every item and compare against its name.  Either way
+     *  the items come back in catalog order: the ones the index finds are sorted by their slots.
+     *  @param name String to search for
+     *  @return list of matching items
+     */
+    public List<T> lookup(String name) {
+        String query = TrigramIndex.normalize(name);
+        lock.readLock().lock();
+        try {
+            int[] ids = names.search(query);
+            if (ids == null) {
+                return scan(query);
+            }
+            if (slotsValid == items.size()) {
+                return inSlotOrder(ids);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // A delete has left slots to fix, which needs the write lock.
+        lock.writeLock().lock();
+        try {
+            int[] ids = names.search(query);
+            if (ids == null) {
+                return scan(query);
+            }
+            fixSlots();
+            return inSlotOrder(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method compares the search against the name of every item.  The caller must hold a lock.
+     *  @param query search already passed through TrigramIndex.normalize()
+     *  @return list of matching items, in catalog order
+     */
+    private List<T> scan(String query) {
+        List<T> result = new ArrayList<>();
+        for (T item : items) {
+            if (names.matches(idOf.applyAsInt(item), query)) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /** The caller must hold a lock, and every slot must be correct.
+     *  @param ids ids of items in the catalog
+     *  @return list of the items, in catalog order
+     */
+    private List<T> inSlotOrder(int[] ids) {
+        int[] found = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            found[i] = slots.get(ids[i]);
+        }
+        Arrays.sort(found);
+        List<T> result = new ArrayList<>(found.length);
+        for (int slot : found) {
+            result.add(items.get(slot));
+        }
+        return result;
+    }
+
+    /** This method checks if the name of an item contains a search.
+     *  @param item item to check
+     *  @param normalizedQuery search already passed through TrigramIndex.normalize()
+     *  @return boolean value for whether the name contains the search
+     */
+    public boolean nameContains(T item, String normalizedQuery) {
+        return TrigramIndex.normalize(nameOf.apply(item)).contains(normalizedQuery);
+    }
+
+    /** The caller must hold a lock.
+     *  @param id int id of an item
+     *  @return the name of the item with that id, or null if there is none; TrigramIndex reads the names here
+     */
+    private String currentName(int id) {
+        T item = byId.get(id);
+        return item == null ? null : nameOf.apply(item);
+    }
+
+    /** This method returns every item in the catalog as it was at one moment.
+     *  The list can not be changed and is never touched by later writes, so it is safe to read on any thread.
+     *  @return immutable list of the items
+     */
+    public List<T> snapshot() {
+        List<T> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        lock.readLock().lock();
+        try {
+            current = snapshot;
+            if (current == null) {
+                current = Collections.unmodifiableList(new ArrayList<>(items));
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the number of items in the catalog */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** This method registers a listener and returns the items it should start from.
+     *  Both happen under the write lock, so the listener sees every change made after the snapshot and no other.
+     *  @param listener listener to register
+     *  @return immutable list of the items at the moment the listener was added
+     */
+    public List<T> subscribe(CatalogListener<T> listener) {
+        lock.writeLock().lock();
+        try {
+            listeners.add(listener);
+            return snapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method registers a listener without handing it a snapshot, for listeners that read items a few at a
+     *  time through slice() instead of keeping their own copy.
+     *  @param listener listener to register
+     *  @return int number of items at the moment the listener was added
+     */
+    public int listen(CatalogListener<T> listener) {
+        lock.writeLock().lock();
+        try {
+            listeners.add(listener);
+            return items.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** This method copies the items in a range of slots.
+     *  @param from int first slot
+     *  @param to int slot after the last, which may be past the end
+     *  @return list of the items from slot from up to slot to, shorter if the catalog ends first
+     */
+    public List<T> slice(int from, int to) {
+        lock.readLock().lock();
+        try {
+            int end = Math.min(to, items.size());
+            return from >= end ? Collections.emptyList() : new ArrayList<>(items.subList(from, end));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** This method finds the slot of an item from its id, so nothing is scanned unless a delete has moved it.
+     *  It takes the write lock because slots moved by a delete are fixed as they are found.
+     *  @param item item to look for
+     *  @return int slot of the item, or -1 if it is not in the catalog
+     */
+    public int indexOf(T item) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(idOf.applyAsInt(item));
+            return slot == IntIntMap.NO_VALUE || items.get(slot) != item ? -1 : slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** @param listener listener to stop sending changes to */
+    public void unsubscribe(CatalogListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /** This method finds the position of an item, fixing the slots past the mark in one pass if needed.
+     *  The caller must hold the write lock.
+     *  @param id int id of the item
+     *  @return int slot of the item or IntIntMap.NO_VALUE if there is no item with that id
+     */
+    private int slotOf(int id) {
+        int slot = slots.get(id);
+        if (slot >= slotsValid) {
+            fixSlots();
+            slot = slots.get(id);
+        }
+        return slot;
+    }
+
+    /** This method fixes the slots past the mark in one pass.  The caller must hold the write lock. */
+    private void fixSlots() {
+        for (int i = slotsValid; i < items.size(); i++) {
+            slots.put(idOf.applyAsInt(items.get(i)), i);
+        }
+        slotsValid = items.size();
+    }
+}
@@ -0,0 +1,53 @@
+package model;
+
+import java.util.List;
+
+/** This interface is responsible for receiving the changes made to a Catalog.
+ *  <p>The methods are called while the catalog still holds its write lock, in the same order the changes were
+ *  made, so a listener that replays them on its own list ends up with the same items in the same order.
+ *  Listeners must be quick and must not call back into the catalog to change it.
+ *  @param <T> type of the items in the catalog
+ */
+public interface CatalogListener<T> {
+
+    /** This method is called after an item is added to the end of the catalog.
+     *  @param slot int position the item was added at
+     *  @param item item that was added
+     */
+    void added(int slot, T item);
+
+    /** This method is called after a batch of items is added to the end of the catalog in one step.
+     *  By default it reports each item to added(), in order.
+     *  @param firstSlot int position the first item was added at
+     *  @param items items that were added, which must not be changed
+     */
+    default void addedAll(int firstSlot, List<T> items) {
+        for (int i = 0; i < items.size(); i++) {
+            added(firstSlot + i, items.get(i));
+        }
+    }
+
+    /** This method is called after an item is replaced by a new item with the same id.
+     *  @param slot int position of the item
+     *  @param oldItem item that was replaced
+     *  @param newItem item that took its place
+     */
+    void replaced(int slot, T oldItem, T newItem);
+
+    /** This method is called after an item is removed from the catalog.
+     *  @param slot int position the item was removed from
+     *  @param item item that was removed
+     */
+    void removed(int slot, T item);
+
+    /** This method is called after a batch of items is removed from the catalog in one step.
+     *  By default it reports each item to removed(), with each slot moved down by the items removed before it.
+     *  @param slots int positions the items had before the batch, in increasing order, which must not be changed
+     *  @param items items that were removed, in the same order, which must not be changed
+     */
+    default void removedAll(int[] slots, List<T> items) {
+        for (int i = 0; i < slots.length; i++) {
+            removed(slots[i] - i, items.get(i));
+        }
+    }
+}
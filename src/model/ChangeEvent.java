@@ -0,0 +1,120 @@
+package model;
+
+/** This class is responsible for describing one change to the inventory published by the ChangeStream.
+ *  <p>ADDED, UPDATED and DELETED say a part or product entered the inventory, was replaced or had its price, min or
+ *  max set, or left it.  LINK_CHANGED says the quantity of a part, or of a component product, on the bill of
+ *  materials of a product changed: an old quantity of 0 means it was just linked, a new quantity of 0 that it was
+ *  unlinked.  STOCK_CHANGED says the stock of a part or product moved, by a movement of the StockLedger or by
+ *  setStock().
+ *  <p>The numbers in an event are values taken when the change was made, but the Part or Product it carries is the
+ *  live object, which may have changed again by the time the event is read.
+ */
+public final class ChangeEvent {
+
+    /** What changed: an item came, went or was updated, a link of a product changed, or the stock of an item moved. */
+    public enum Type { ADDED, UPDATED, DELETED, LINK_CHANGED, STOCK_CHANGED }
+
+    private final long sequence;
+    private final long time;
+    private final Type type;
+    private final StockAlert.Source source;
+    private final int id;
+    private final Object item;
+    private final StockAlert.Source linkedSource;
+    private final int linkedId;
+    private final int oldQuantity;
+    private final int newQuantity;
+
+    /** @param sequence long place of the event in the stream
+     *  @param type what changed
+     *  @param source catalog of the item that changed
+     *  @param id int id of the item
+     *  @param item the Part or Product
+     *  @param linkedSource catalog of the linked item for LINK_CHANGED, otherwise null
+     *  @param linkedId int id of the linked item for LINK_CHANGED, otherwise 0
+     *  @param oldQuantity int link quantity or stock before the change, otherwise 0
+     *  @param newQuantity int link quantity or stock after the change, otherwise 0
+     */
+    ChangeEvent(long sequence, Type type, StockAlert.Source source, int id, Object item,
+                StockAlert.Source linkedSource, int linkedId, int oldQuantity, int newQuantity) {
+        this.sequence = sequence;
+        this.time = System.currentTimeMillis();
+        this.type = type;
+        this.source = source;
+        this.id = id;
+        this.item = item;
+        this.linkedSource = linkedSource;
+        this.linkedId = linkedId;
+        this.oldQuantity = oldQuantity;
+        this.newQuantity = newQuantity;
+    }
+
+    /** @return long place of the event in the stream, counting from 1 */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** @return long time the change was made, in milliseconds since the epoch */
+    public long getTime() {
+        return time;
+    }
+
+    /** @return what changed */
+    public Type getType() {
+        return type;
+    }
+
+    /** @return catalog of the item that changed; always PRODUCT for LINK_CHANGED */
+    public StockAlert.Source getSource() {
+        return source;
+    }
+
+    /** @return int id of the part or product that changed */
+    public int getId() {
+        return id;
+    }
+
+    /** @return the part that changed, or null if a product changed */
+    public Part getPart() {
+        return item instanceof Part ? (Part) item : null;
+    }
+
+    /** @return the product that changed, or null if a part changed */
+    public Product getProduct() {
+        return item instanceof Product ? (Product) item : null;
+    }
+
+    /** @return catalog of the part or component linked for LINK_CHANGED, otherwise null */
+    public StockAlert.Source getLinkedSource() {
+        return linkedSource;
+    }
+
+    /** @return int id of the part or component linked for LINK_CHANGED, otherwise 0 */
+    public int getLinkedId() {
+        return linkedId;
+    }
+
+    /** @return int quantity on the bill of materials for LINK_CHANGED, or stock for STOCK_CHANGED, before the change */
+    public int getOldQuantity() {
+        return oldQuantity;
+    }
+
+    /** @return int quantity on the bill of materials for LINK_CHANGED, or stock for STOCK_CHANGED, after the change */
+    public int getNewQuantity() {
+        return newQuantity;
+    }
+
+    /** @return int change to the link quantity or stock, negative for a decrease */
+    public int getDelta() {
+        return newQuantity - oldQuantity;
+    }
+
+    @Override
+    public String toString() {
+        String text = "#" + sequence + " " + type + " " + source + " " + id;
+        if (type == Type.LINK_CHANGED) {
+            return text + " " + linkedSource + " " + linkedId + " " + oldQuantity + " -> " + newQuantity;
+        }
+        return type == Type.STOCK_CHANGED ? text + " " + oldQuantity + " -> " + newQuantity : text;
+    }
+}
@@ -0,0 +1,25 @@
+package model;
+
+/** This class is responsible for telling a subscriber of the ChangeStream that it fell so far behind that its buffer
+ *  filled up and later events were dropped.  It is passed to onError() once every event that did fit in the buffer
+ *  has been delivered, so the subscriber knows the exact event after which it missed changes and can read the
+ *  inventory again before subscribing anew.
+ */
+public class ChangeOverflowException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final long lastSequence;
+
+    /** @param lastSequence long sequence of the last event delivered, 0 if none was
+     *  @param bufferSize int number of events the buffer of the subscriber could hold
+     */
+    public ChangeOverflowException(long lastSequence, int bufferSize) {
+        super("More than " + bufferSize + " changes were waiting; changes after #" + lastSequence + " were dropped");
+        this.lastSequence = lastSequence;
+    }
+
+    /** @return long sequence of the last event delivered before the changes that were dropped, 0 if none was */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
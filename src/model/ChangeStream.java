@@ -0,0 +1,402 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** This class is responsible for publishing every change to the inventory to the code that keeps a copy of it, such
+ *  as caches, search indexes, reports and replicas.
+ *  <p>It follows the catalogs, the bills of materials and the stock of the items in the catalogs, and is a
+ *  Flow.Publisher of batches of ChangeEvents.  Each subscriber has a buffer of its own that holds at most a fixed
+ *  number of events, and a thread from the pool of the stream hands it batches of up to a fixed number of events,
+ *  one batch for each one it has asked for with request().  The thread that made a change only adds the event to
+ *  the buffers and never waits for a subscriber, so a slow subscriber can not hold up the inventory.  A subscriber
+ *  that falls so far behind that its buffer fills up loses the events that do not fit: it is still handed what its
+ *  buffer holds, then gets a ChangeOverflowException and is unsubscribed.
+ *  <p>Every subscriber sees the events in the order of their sequence, starting with the first change made after
+ *  it subscribed.  While there are no subscribers, changes cost no more than a check of the subscriber list.
+ */
+public final class ChangeStream implements Flow.Publisher<List<ChangeEvent>> {
+    public static final int DEFAULT_BUFFER_SIZE = 16384;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final Catalog<Part> parts;
+    private final Catalog<Product> products;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Only changed while holding the monitor of the stream, so the buffers get their events in sequence order.
+    private long lastSequence;
+
+    private final ExecutorService deliverer = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** @param parts catalog of the parts
+     *  @param products catalog of the products
+     */
+    ChangeStream(Catalog<Part> parts, Catalog<Product> products) {
+        this.parts = parts;
+        this.products = products;
+    }
+
+    /** This method subscribes with a buffer of DEFAULT_BUFFER_SIZE events and batches of up to DEFAULT_MAX_BATCH.
+     *  @param subscriber subscriber to hand the batches to
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<ChangeEvent>> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BATCH);
+    }
+
+    /** This method subscribes to every change made from now on.
+     *  onSubscribe() is called on a thread of the stream, as are all the other methods of the subscriber.
+     *  @param subscriber subscriber to hand the batches to
+     *  @param bufferSize int most events that may wait for the subscriber
+     *  @param maxBatch int most events handed over in one call to onNext()
+     *  @throws IllegalArgumentException If bufferSize or maxBatch is less than 1
+     */
+    public void subscribe(Flow.Subscriber<? super List<ChangeEvent>> subscriber, int bufferSize, int maxBatch) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if (bufferSize < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("The buffer size and batch size must be at least 1");
+        }
+        Subscription subscription = new Subscription(subscriber, bufferSize, maxBatch);
+        synchronized (this) {
+            subscriptions.add(subscription);
+        }
+        subscription.signal();
+    }
+
+    /** @return long sequence of the last change published, 0 if there has been none */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /** @return int number of subscribers */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /** @return listener that publishes the parts added to, replaced in and removed from the catalog */
+    CatalogListener<Part> partListener() {
+        return new CatalogListener<Part>() {
+            @Override
+            public void added(int slot, Part item) {
+                item(ChangeEvent.Type.ADDED, StockAlert.Source.PART, item.getId(), item);
+            }
+
+            @Override
+            public void replaced(int slot, Part oldItem, Part newItem) {
+                item(ChangeEvent.Type.UPDATED, StockAlert.Source.PART, newItem.getId(), newItem);
+            }
+
+            @Override
+            public void removed(int slot, Part item) {
+                item(ChangeEvent.Type.DELETED, StockAlert.Source.PART, item.getId(), item);
+            }
+        };
+    }
+
+    /** @return listener that publishes the products added to, replaced in and removed from the catalog */
+    CatalogListener<Product> productListener() {
+        return new CatalogListener<Product>() {
+            @Override
+            public void added(int slot, Product item) {
+                item(ChangeEvent.Type.ADDED, StockAlert.Source.PRODUCT, item.getId(), item);
+            }
+
+            @Override
+            public void replaced(int slot, Product oldItem, Product newItem) {
+                item(ChangeEvent.Type.UPDATED, StockAlert.Source.PRODUCT, newItem.getId(), newItem);
+            }
+
+            @Override
+            public void removed(int slot, Product item) {
+                item(ChangeEvent.Type.DELETED, StockAlert.Source.PRODUCT, item.getId(), item);
+            }
+        };
+    }
+
+    /** @return listener that publishes the changes to the bills of materials of the products in the catalog */
+    AssociationListener associationListener() {
+        return new AssociationListener() {
+            @Override
+            public void associationChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+                link(product, StockAlert.Source.PART, partId, oldQuantity, newQuantity);
+            }
+
+            @Override
+            public void componentChanged(Product product, int componentId, int oldQuantity, int newQuantity) {
+                link(product, StockAlert.Source.PRODUCT, componentId, oldQuantity, newQuantity);
+            }
+        };
+    }
+
+    /** @return listener that publishes the stock moves and the other field changes of the items in the catalogs */
+    StockListener stockListener() {
+        return new StockListener() {
+            @Override
+            public void stockChanged(Part part, int oldStock, int newStock) {
+                if (!subscriptions.isEmpty() && parts.lookup(part.getId()) == part) {
+                    publish(ChangeEvent.Type.STOCK_CHANGED, StockAlert.Source.PART, part.getId(), part,
+                            null, 0, oldStock, newStock);
+                }
+            }
+
+            @Override
+            public void limitsChanged(Part part) {
+                updated(part);
+            }
+
+            @Override
+            public void priceChanged(Part part) {
+                updated(part);
+            }
+
+            @Override
+            public void stockChanged(Product product, int oldStock, int newStock) {
+                if (!subscriptions.isEmpty() && products.lookup(product.getId()) == product) {
+                    publish(ChangeEvent.Type.STOCK_CHANGED, StockAlert.Source.PRODUCT, product.getId(), product,
+                            null, 0, oldStock, newStock);
+                }
+            }
+
+            @Override
+            public void limitsChanged(Product product) {
+                updated(product);
+            }
+
+            @Override
+            public void priceChanged(Product product) {
+                updated(product);
+            }
+
+            /** @param part part whose fields changed; ignored unless it is the one in the catalog */
+            private void updated(Part part) {
+                if (!subscriptions.isEmpty() && parts.lookup(part.getId()) == part) {
+                    item(ChangeEvent.Type.UPDATED, StockAlert.Source.PART, part.getId(), part);
+                }
+            }
+
+            /** @param product product whose fields changed; ignored unless it is the one in the catalog */
+            private void updated(Product product) {
+                if (!subscriptions.isEmpty() && products.lookup(product.getId()) == product) {
+                    item(ChangeEvent.Type.UPDATED, StockAlert.Source.PRODUCT, product.getId(), product);
+                }
+            }
+        };
+    }
+
+    /** @param type ADDED, UPDATED or DELETED
+     *  @param source catalog of the item
+     *  @param id int id of the item
+     *  @param item the Part or Product
+     */
+    private void item(ChangeEvent.Type type, StockAlert.Source source, int id, Object item) {
+        if (!subscriptions.isEmpty()) {
+            publish(type, source, id, item, null, 0, 0, 0);
+        }
+    }
+
+    /** @param product product whose bill of materials changed; ignored unless it is the one in the catalog
+     *  @param linkedSource PART for a part, PRODUCT for a component
+     *  @param linkedId int id of the part or component
+     *  @param oldQuantity int quantity before the change
+     *  @param newQuantity int quantity after the change
+     */
+    private void link(Product product, StockAlert.Source linkedSource, int linkedId, int oldQuantity,
+                      int newQuantity) {
+        if (!subscriptions.isEmpty() && products.lookup(product.getId()) == product) {
+            publish(ChangeEvent.Type.LINK_CHANGED, StockAlert.Source.PRODUCT, product.getId(), product,
+                    linkedSource, linkedId, oldQuantity, newQuantity);
+        }
+    }
+
+    /** This method numbers an event and adds it to the buffer of every subscriber.  It never waits on a subscriber.
+     *  @param type what changed
+     *  @param source catalog of the item that changed
+     *  @param id int id of the item
+     *  @param item the Part or Product
+     *  @param linkedSource catalog of the linked item for LINK_CHANGED, otherwise null
+     *  @param linkedId int id of the linked item for LINK_CHANGED, otherwise 0
+     *  @param oldQuantity int link quantity or stock before the change, otherwise 0
+     *  @param newQuantity int link quantity or stock after the change, otherwise 0
+     */
+    private synchronized void publish(ChangeEvent.Type type, StockAlert.Source source, int id, Object item,
+                                      StockAlert.Source linkedSource, int linkedId, int oldQuantity,
+                                      int newQuantity) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ChangeEvent event = new ChangeEvent(++lastSequence, type, source, id, item, linkedSource, linkedId,
+                oldQuantity, newQuantity);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /** This class is responsible for the buffer and demand of one subscriber, and for handing it its events.
+     *  <p>Writers add to the buffer without locking.  Handing over is done by at most one thread of the stream at a
+     *  time: whoever makes work for it, by adding an event while there is demand, by request() or by cancel(), counts
+     *  up `work`, and only the call that finds it at 0 starts a thread, which keeps going until it has caught up
+     *  with all the work counted.
+     */
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<ChangeEvent>> subscriber;
+        private final int bufferSize;
+        private final int maxBatch;
+        private final Queue<ChangeEvent> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean overflowed;
+        private volatile IllegalArgumentException badRequest;
+        // Only used by the thread handing over events.
+        private boolean started;
+        private long lastDelivered;
+
+        /** @param subscriber subscriber to hand the batches to
+         *  @param bufferSize int most events that may wait
+         *  @param maxBatch int most events in one batch
+         */
+        Subscription(Flow.Subscriber<? super List<ChangeEvent>> subscriber, int bufferSize, int maxBatch) {
+            this.subscriber = subscriber;
+            this.bufferSize = bufferSize;
+            this.maxBatch = maxBatch;
+        }
+
+        /** This method adds an event to the buffer, or marks the subscriber as overflowed if the buffer is full.
+         *  @param event event to add
+         */
+        void offer(ChangeEvent event) {
+            if (cancelled || overflowed) {
+                return;
+            }
+            if (buffered.incrementAndGet() > bufferSize) {
+                buffered.decrementAndGet();
+                overflowed = true;
+                signal();
+                return;
+            }
+            buffer.add(event);
+            // Without demand the subscriber would not be handed anything; request() signals when it asks again.
+            if (requested.get() > 0) {
+                signal();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("The number of batches requested must be positive, not " + n);
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                subscriptions.remove(this);
+                signal();
+            }
+        }
+
+        /** This method makes sure a thread of the stream will look at the buffer and demand again. */
+        void signal() {
+            if (work.getAndIncrement() == 0) {
+                deliverer.execute(this::deliver);
+            }
+        }
+
+        /** This method hands over as many batches as there is demand and events for, until no more work was counted. */
+        private void deliver() {
+            int missed = 1;
+            do {
+                if (!started) {
+                    started = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (Throwable t) {
+                        fail(t);
+                        return;
+                    }
+                }
+                if (cancelled) {
+                    buffer.clear();
+                    return;
+                }
+                if (badRequest != null) {
+                    fail(badRequest);
+                    return;
+                }
+                long demand = requested.get();
+                long sent = 0;
+                while (sent < demand && !cancelled) {
+                    List<ChangeEvent> batch = take();
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    lastDelivered = batch.get(batch.size() - 1).getSequence();
+                    try {
+                        subscriber.onNext(batch);
+                    } catch (Throwable t) {
+                        fail(t);
+                        return;
+                    }
+                    sent++;
+                }
+                if (sent > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-sent);
+                }
+                if (overflowed && !cancelled && buffer.isEmpty()) {
+                    fail(new ChangeOverflowException(lastDelivered, bufferSize));
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /** @return up to maxBatch events taken from the buffer, in order */
+        private List<ChangeEvent> take() {
+            List<ChangeEvent> batch = new ArrayList<>(Math.min(maxBatch, Math.max(1, buffered.get())));
+            ChangeEvent event;
+            while (batch.size() < maxBatch && (event = buffer.poll()) != null) {
+                batch.add(event);
+            }
+            buffered.addAndGet(-batch.size());
+            return batch;
+        }
+
+        /** This method unsubscribes and tells the subscriber why.  Nothing is handed to it afterwards.
+         *  @param error reason
+         */
+        private void fail(Throwable error) {
+            cancelled = true;
+            subscriptions.remove(this);
+            buffer.clear();
+            try {
+                subscriber.onError(error);
+            } catch (Throwable ignored) {
+                // The subscriber is gone either way; its failure must not reach the thread pool.
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package model;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** This class is responsible for showing a Catalog, or a SortedIndex of one, on the FX thread without copying it.
+ *  <p>The list made here only keeps the pages of PAGE_SIZE items that a TableView has asked for lately, at most
+ *  MAX_PAGES of them: a miss reads its page from the catalog with Catalog.slice(), along with PREFETCH_PAGES pages
+ *  either side so scrolling rarely waits on the catalog lock.  However large the catalog, the list holds a bounded
+ *  number of references, and a TableView only asks for the rows it shows, so a catalog of tens of millions of items
+ *  opens as fast as one of ten.
+ *  <p>A change made on a background thread is only queued, and at most one Platform.runLater is waiting at any
+ *  time to report everything queued since, so a writer never waits for the UI.  A change made on the FX thread, or
+ *  before FxThread is bound, is reported at once, and between beginUpdate() and endUpdate() nothing is reported at
+ *  all.  Each drain is reported as one change that gives the exact slots so the TableView keeps its selection and
+ *  scroll position.  Every drain drops the cached pages.  Between a change to the catalog and the drain that
+ *  reports it, rows read from the list already show the catalog as it is, which is at most one pulse ahead.
+ *  <p>The list can not be changed through the List methods.  indexOf() asks the catalog for the slot of the item
+ *  from its id instead of scanning.
+ *  <p>A list made from a SortedIndex reads its pages with SortedIndex.slice() instead, in ascending or descending
+ *  order.  The index only says that its order changed, not where, so every drain with such a change reports the
+ *  whole list as replaced; the TableView still only reads the rows it shows.  close() stops following the index.
+ *  @param <T> type of the items in the list
+ */
+class FxListPager<T> implements CatalogListener<T> {
+    static final int PAGE_SIZE = 256;
+    static final int PREFETCH_PAGES = 1;
+    static final int MAX_PAGES = 64;
+
+    private final PagedList<T> list;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicInteger holds = new AtomicInteger();
+    private final SortedIndex<T, ?> index;
+    private final Runnable reorder;
+    private final AtomicBoolean reorderQueued = new AtomicBoolean();
+
+    /** This constructor creates the list and starts following a catalog.
+     *  @param catalog catalog to show
+     */
+    FxListPager(Catalog<T> catalog) {
+        list = new PagedList<>(new Source<T>() {
+            @Override
+            public List<T> slice(int from, int to) {
+                return catalog.slice(from, to);
+            }
+
+            @Override
+            public int indexOf(T item) {
+                return catalog.indexOf(item);
+            }
+        });
+        index = null;
+        reorder = null;
+        list.size = catalog.listen(this);
+    }
+
+    /** This constructor creates the list and starts following a sorted index.
+     *  @param index index to show
+     *  @param descending boolean value for whether the highest key comes first
+     */
+    FxListPager(SortedIndex<T, ?> index, boolean descending) {
+        list = new PagedList<>(new Source<T>() {
+            @Override
+            public List<T> slice(int from, int to) {
+                return index.slice(from, to, descending);
+            }
+
+            @Override
+            public int indexOf(T item) {
+                return index.indexOf(item, descending);
+            }
+        });
+        this.index = index;
+        // However many times the order changes before a drain, the list is only reported as replaced once.
+        reorder = () -> {
+            if (reorderQueued.compareAndSet(false, true)) {
+                handOff(() -> {
+                    reorderQueued.set(false);
+                    list.reset(index.size());
+                });
+            }
+        };
+        index.listen(reorder);
+        list.size = index.size();
+    }
+
+    /** @return the list that shows the catalog, to be read on the FX thread */
+    ObservableList<T> list() {
+        return list;
+    }
+
+    /** This method stops following the sorted index the list was made from.  The list keeps the size it had. */
+    void close() {
+        if (index != null) {
+            index.unlisten(reorder);
+        }
+    }
+
+    /** This method holds back every change until the matching endUpdate(). Calls may be nested. */
+    void beginUpdate() {
+        holds.incrementAndGet();
+    }
+
+    /** This method ends an update scope, reporting everything held back as one change once the outermost one ends. */
+    void endUpdate() {
+        if (holds.decrementAndGet() == 0) {
+            flush();
+        }
+    }
+
+    @Override
+    public void added(int slot, T item) {
+        handOff(() -> list.added(slot, 1));
+    }
+
+    @Override
+    public void addedAll(int firstSlot, List<T> items) {
+        int count = items.size();
+        handOff(() -> list.added(firstSlot, count));
+    }
+
+    @Override
+    public void replaced(int slot, T oldItem, T newItem) {
+        handOff(() -> list.replaced(slot, oldItem));
+    }
+
+    @Override
+    public void removed(int slot, T item) {
+        handOff(() -> list.removed(slot, item));
+    }
+
+    @Override
+    public void removedAll(int[] slots, List<T> items) {
+        handOff(() -> {
+            for (int i = 0; i < slots.length; i++) {
+                list.removed(slots[i] - i, items.get(i));
+            }
+        });
+    }
+
+    /** This method queues one change and makes sure it will be reported on the right thread.
+     *  @param change change to the list
+     */
+    private void handOff(Runnable change) {
+        pending.add(change);
+        if (holds.get() == 0) {
+            flush();
+        }
+    }
+
+    /** This method reports the queued changes now if this is the FX thread, or asks the FX thread to. */
+    private void flush() {
+        if (FxThread.isFxThread()) {
+            drain();
+        } else if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                scheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    /** This method reports every queued change in the order the catalog made them, as one change to the list. */
+    private synchronized void drain() {
+        if (holds.get() > 0 || pending.isEmpty()) {
+            return;
+        }
+        list.change(() -> {
+            Runnable change;
+            while ((change = pending.poll()) != null) {
+                change.run();
+            }
+        });
+    }
+
+    /** This interface is responsible for reading the items of the list from where they are kept.
+     *  @param <T> type of the items in the list
+     */
+    private interface Source<T> {
+
+        /** @param from int first position
+         *  @param to int position after the last one
+         *  @return the items at those positions, fewer if there are not that many
+         */
+        List<T> slice(int from, int to);
+
+        /** @param item item to find
+         *  @return int position of the item, or -1 if it is not there
+         */
+        int indexOf(T item);
+    }
+
+    /** This class is responsible for the ObservableList itself, which reads its items from its source a page at a
+     *  time and keeps only the pages read most recently.
+     *  @param <T> type of the items in the list
+     */
+    private static final class PagedList<T> extends ObservableListBase<T> {
+        private final Source<T> source;
+        // Size as of the last change reported, which is what the listeners of the list have been told.
+        private int size;
+        private final Map<Integer, List<T>> pages = new LinkedHashMap<Integer, List<T>>(MAX_PAGES * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+
+        /** @param source where the items are read from */
+        PagedList(Source<T> source) {
+            this.source = source;
+        }
+
+        /** This method runs a set of changes and reports them as a single change, dropping the cached pages.
+         *  @param changes changes to report
+         */
+        void change(Runnable changes) {
+            beginChange();
+            try {
+                changes.run();
+                pages.clear();
+            } finally {
+                endChange();
+            }
+        }
+
+        /** @param slot int first slot added
+         *  @param count int number of items added
+         */
+        void added(int slot, int count) {
+            size += count;
+            nextAdd(slot, slot + count);
+        }
+
+        /** @param slot int slot replaced
+         *  @param oldItem item that was there
+         */
+        void replaced(int slot, T oldItem) {
+            nextSet(slot, oldItem);
+        }
+
+        /** @param slot int slot removed
+         *  @param item item that was there
+         */
+        void removed(int slot, T item) {
+            size--;
+            nextRemove(slot, item);
+        }
+
+        /** This method reports every row as replaced.  The items that were there are no longer known, so they are
+         *  given as nulls, without making a list of them.
+         *  @param newSize int number of items there are now
+         */
+        void reset(int newSize) {
+            int oldSize = size;
+            size = newSize;
+            if (oldSize > 0 || newSize > 0) {
+                nextReplace(0, newSize, Collections.nCopies(oldSize, null));
+            }
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            int page = index / PAGE_SIZE;
+            List<T> items = pages.get(page);
+            if (items == null) {
+                items = fetch(page);
+            }
+            int offset = index - page * PAGE_SIZE;
+            // The catalog may already have lost items that the next drain will report.
+            return offset < items.size() ? items.get(offset) : null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int indexOf(Object o) {
+            if (o == null) {
+                return -1;
+            }
+            try {
+                int slot = source.indexOf((T) o);
+                return slot < size ? slot : -1;
+            } catch (ClassCastException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        /** This method reads a page from the catalog along with the pages around it.
+         *  @param page int page that was asked for
+         *  @return the items of the page
+         */
+        private List<T> fetch(int page) {
+            int first = Math.max(0, page - PREFETCH_PAGES);
+            int last = page + PREFETCH_PAGES;
+            List<T> items = source.slice(first * PAGE_SIZE, (last + 1) * PAGE_SIZE);
+            List<T> wanted = null;
+            for (int p = first; p <= last; p++) {
+                int from = Math.min((p - first) * PAGE_SIZE, items.size());
+                int to = Math.min(from + PAGE_SIZE, items.size());
+                List<T> pageItems = items.subList(from, to);
+                if (p == page) {
+                    wanted = pageItems;
+                } else if (!pages.containsKey(p)) {
+                    pages.put(p, pageItems);
+                }
+            }
+            pages.put(page, wanted);
+            return wanted;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package model;
+
+import javafx.application.Platform;
+
+/** This class is responsible for knowing which thread is the FX thread, so changes to FX lists and properties made
+ *  on other threads can be handed to it.
+ *  <p>Until Main.start binds the FX thread, as while Main.main loads the sample data or when there is no toolkit at
+ *  all, every thread counts as the FX thread and changes are applied on the calling thread.  The FX thread is
+ *  recorded instead of asked for because Platform.isFxApplicationThread() would start the toolkit.
+ */
+final class FxThread {
+    private static volatile Thread fxThread;
+
+    private FxThread() { }
+
+    /** This method records the FX thread so that later changes from other threads are handed to it.
+     *  It must be called on the FX thread once the toolkit is running.
+     */
+    static void bindToFxThread() {
+        fxThread = Thread.currentThread();
+    }
+
+    /** This method runs a change to an FX list or property right away on the FX thread, or before the FX thread is
+     *  bound, and through Platform.runLater from any other thread.
+     *  @param change change to run
+     */
+    static void runOnFxThread(Runnable change) {
+        if (isFxThread()) {
+            change.run();
+        } else {
+            Platform.runLater(change);
+        }
+    }
+
+    /** @return boolean value for whether changes may be applied on this thread right away: it is the FX thread, or
+     *          no FX thread has been bound yet
+     */
+    static boolean isFxThread() {
+        Thread boundThread = fxThread;
+        return boundThread == null || boundThread == Thread.currentThread();
+    }
+}
@@ -0,0 +1,101 @@
+package model;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** This class is responsible for handing out unique part or product ids from any number of threads.
+ *  <p>Single ids come from one atomic counter, which is all the forms need.  Bulk loaders instead reserve a whole
+ *  IdBlock with one atomic step and hand the ids out themselves, so importing millions of parts on several
+ *  threads touches the shared counter once per block rather than once per part.  Ids that were reserved but not
+ *  used, such as the id of a form that was cancelled or the end of a loader's last block, can be released.  If
+ *  they were the most recent reservation the counter simply moves back, otherwise they are kept and handed out
+ *  again before any new id.
+ */
+public class IdAllocator {
+    private final AtomicInteger next;
+    private final Queue<IdBlock> released = new ConcurrentLinkedQueue<>();
+
+    /** This constructor creates an allocator whose first id is first.
+     *  @param first first id to hand out
+     */
+    public IdAllocator(int first) {
+        next = new AtomicInteger(first);
+    }
+
+    /** This method hands out one id, reusing a released id if there is one.
+     *  @return int unique id
+     */
+    public int next() {
+        IdBlock block = released.poll();
+        if (block != null) {
+            int id = block.next();
+            if (block.hasNext()) {
+                released.add(block);
+            }
+            return id;
+        }
+        return reserve(1).next();
+    }
+
+    /** This method reserves a contiguous block of new ids.
+     *  @param count number of ids in the block
+     *  @return IdBlock holding the ids
+     *  @throws IllegalStateException if the ids would run past Integer.MAX_VALUE
+     */
+    public IdBlock reserve(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Can not reserve " + count + " ids");
+        }
+        while (true) {
+            int first = next.get();
+            if (first > Integer.MAX_VALUE - count) {
+                throw new IllegalStateException("There are no ids left to reserve");
+            }
+            if (next.compareAndSet(first, first + count)) {
+                return new IdBlock(first, first + count);
+            }
+        }
+    }
+
+    /** This method gives back the ids left in a block so they can be handed out again.
+     *  @param block block whose remaining ids were not used
+     */
+    public void release(IdBlock block) {
+        if (!block.hasNext()) {
+            return;
+        }
+        // Moving the counter back keeps ids contiguous when nothing was reserved after this block.
+        if (!next.compareAndSet(block.end(), block.peek())) {
+            released.add(new IdBlock(block.peek(), block.end()));
+        }
+    }
+
+    /** This method gives back a single id that was handed out but never used.
+     *  @param id int id to release
+     */
+    public void release(int id) {
+        release(new IdBlock(id, id + 1));
+    }
+
+    /** This method makes sure no id up to and including id will be handed out as a new id.
+     *  It is used when records with ids that were given out elsewhere are loaded.
+     *  @param id int id that is already in use
+     */
+    public void advancePast(int id) {
+        next.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /** @return the next new id, not counting any released ids */
+    public int peek() {
+        return next.get();
+    }
+
+    /** This method starts handing out new ids from a value and forgets any released ids.
+     *  @param first next id to hand out
+     */
+    public void reset(int first) {
+        released.clear();
+        next.set(first);
+    }
+}
@@ -0,0 +1,54 @@
+package model;
+
+/** This class is responsible for holding a contiguous range of ids reserved from an IdAllocator.
+ *  <p>A bulk loader reserves a block once and then takes ids from it with no further coordination with other
+ *  threads, so a block must only be used by one thread at a time.  Whatever is left when the loader is done
+ *  should be given back with IdAllocator.release so the ids are not lost.
+ */
+public final class IdBlock {
+    private int next;
+    private final int end;
+
+    /** This constructor creates a block covering the ids from first up to but not including end.
+     *  @param first first id in the block
+     *  @param end one past the last id in the block
+     */
+    public IdBlock(int first, int end) {
+        if (end < first) {
+            throw new IllegalArgumentException("Block end " + end + " is before its start " + first);
+        }
+        this.next = first;
+        this.end = end;
+    }
+
+    /** @return boolean value for whether the block still has ids left */
+    public boolean hasNext() {
+        return next < end;
+    }
+
+    /** This method takes the next id from the block.
+     *  @return int id
+     *  @throws IllegalStateException if the block is used up
+     */
+    public int next() {
+        if (next >= end) {
+            throw new IllegalStateException("The id block is used up");
+        }
+        return next++;
+    }
+
+    /** @return the next id that would be handed out */
+    public int peek() {
+        return next;
+    }
+
+    /** @return one past the last id in the block */
+    public int end() {
+        return end;
+    }
+
+    /** @return the number of ids left in the block */
+    public int remaining() {
+        return end - next;
+    }
+}
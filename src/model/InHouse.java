@@ -2,7 +2,6 @@ package model;
 
 /** This class is responsible for the functionality of the InHouse class which is a subclass of "Part". */
 public class InHouse extends Part{
-    private int machineId;
 
     /** This constructor uses a super method to initialize the fields from its super class "Part".
      *  @param id to set id
@@ -15,20 +14,24 @@ public class InHouse extends Part{
      */
     public InHouse(int id, String name, double price, int stock, int min, int max, int machineId) {
         super(id, name, price,stock, min, max);
-        this.machineId = machineId;
+        detached.ints[PartTable.MACHINE_ID] = machineId;
     }
 
     /**
      * @return the machineId
      */
     public int getMachineId() {
-        return machineId;
+        return PartTable.get().getInt(this, PartTable.MACHINE_ID);
     }
 
     /**
      * @param machineId the machineId to set
      */
     public void setMachineId(int machineId) {
-        this.machineId = machineId;
+        synchronized (ItemLocks.of(this)) {
+            if (PartTable.get().setInt(this, PartTable.MACHINE_ID, machineId) != machineId) {
+                InventoryStore.parts().changed(this);
+            }
+        }
     }
 }
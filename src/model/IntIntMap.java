@@ -0,0 +1,174 @@
+package model;
+
+import java.util.Arrays;
+
+/** This class is responsible for the functionality of a hash map from primitive int keys to primitive int values.
+ *  <p>It works the same way as IntMap but keeps the values in an int array, so Inventory can remember which
+ *  slot of an ObservableList holds each id without creating an Integer for every entry.
+ */
+public class IntIntMap {
+    /** Value returned by get and remove when a key is not in the map. */
+    public static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /** This constructor creates an empty map with the default capacity. */
+    public IntIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /** This constructor creates an empty map that can hold the expected number of entries without resizing.
+     *  @param expectedSize number of entries the map should hold before it has to grow
+     */
+    public IntIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /** This method returns the value stored for a key.
+     *  @param key int key to search for
+     *  @return the value or NO_VALUE if the key is not in the map
+     */
+    public int get(int key) {
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /** This method stores a value for a key, replacing any value that was already there.
+     *  @param key int key to store
+     *  @param value int value to store
+     *  @return the previous value or NO_VALUE if there was none
+     */
+    public int put(int key, int value) {
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    /** This method removes a key from the map.
+     *  @param key int key to remove
+     *  @return the removed value or NO_VALUE if the key was not in the map
+     */
+    public int remove(int key) {
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /** This method removes every entry from the map. */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /** @return the number of entries in the map */
+    public int size() {
+        return size;
+    }
+
+    /** @return the keys of the map, in no particular order */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /** This method closes the gap left by a removed entry so later lookups do not stop early.
+     *  @param gap index of the slot that was just emptied
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) {
+                break;
+            }
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+    }
+
+    /** This method rehashes every entry into new arrays.
+     *  @param capacity new length of the arrays, always a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (oldUsed[j]) {
+                int i = hash(oldKeys[j]) & mask;
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                used[i] = true;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** @param capacity length of the new arrays */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /** This method spreads the bits of a key so that sequential ids do not cluster in the table.
+     *  @param key int key to hash
+     *  @return mixed hash value
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
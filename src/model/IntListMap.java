@@ -0,0 +1,67 @@
+package model;
+
+import java.util.Arrays;
+
+/** This class is responsible for mapping int keys to short lists of int values, such as a part id to the ids of
+ *  the products that use it.
+ *  <p>Each key keeps one int array whose first element is the number of values, followed by the values in no
+ *  particular order, so a key with a handful of values costs one small array rather than a collection of boxed
+ *  Integers.  A value is removed by moving the last value into its place.  The class is not thread-safe.
+ */
+final class IntListMap {
+    private static final int[] NONE = new int[0];
+
+    private final IntMap<int[]> lists = new IntMap<>();
+
+    /** @param key int key to add to
+     *  @param value int value to add; a value added twice is listed twice
+     */
+    void add(int key, int value) {
+        int[] list = lists.get(key);
+        if (list == null) {
+            list = new int[4];
+            lists.put(key, list);
+        } else if (list[0] + 1 == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            lists.put(key, list);
+        }
+        list[++list[0]] = value;
+    }
+
+    /** This method removes one copy of a value, dropping the key when it has none left.
+     *  @param key int key to remove from
+     *  @param value int value to remove
+     */
+    void remove(int key, int value) {
+        int[] list = lists.get(key);
+        if (list == null) {
+            return;
+        }
+        int count = list[0];
+        for (int i = 1; i <= count; i++) {
+            if (list[i] == value) {
+                list[i] = list[count];
+                if (--list[0] == 0) {
+                    lists.remove(key);
+                }
+                return;
+            }
+        }
+    }
+
+    /** @param key int key to look up
+     *  @return int number of values of the key
+     */
+    int count(int key) {
+        int[] list = lists.get(key);
+        return list == null ? 0 : list[0];
+    }
+
+    /** @param key int key to look up
+     *  @return copy of the values of the key, in no particular order
+     */
+    int[] get(int key) {
+        int[] list = lists.get(key);
+        return list == null ? NONE : Arrays.copyOfRange(list, 1, list[0] + 1);
+    }
+}
@@ -0,0 +1,188 @@
+package model;
+
+import java.util.Arrays;
+
+/** This class is responsible for the functionality of a hash map keyed by primitive int values.
+ *  <p>It is used by Inventory to find parts and products by id without walking the whole list and without
+ *  boxing every id into an Integer.  The keys and values are kept in two parallel arrays using open addressing
+ *  with linear probing, so a lookup is a couple of array reads and never allocates.  A null value marks an
+ *  empty slot, which means null can not be stored as a value.
+ *  @param <V> type of the values in the map
+ */
+public class IntMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /** This constructor creates an empty map with the default capacity. */
+    public IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /** This constructor creates an empty map that can hold the expected number of entries without resizing.
+     *  @param expectedSize number of entries the map should hold before it has to grow
+     */
+    public IntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /** This method returns the value stored for a key.
+     *  @param key int key to search for
+     *  @return the value or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = hash(key) & mask;
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /** This method checks if a key is in the map.
+     *  @param key int key to search for
+     *  @return boolean value for whether the key was found
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /** This method stores a value for a key, replacing any value that was already there.
+     *  @param key int key to store
+     *  @param value value to store, must not be null
+     *  @return the previous value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntMap does not store null values");
+        }
+        int i = hash(key) & mask;
+        Object current;
+        while ((current = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) current;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) {
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    /** This method removes a key from the map.
+     *  The entries that follow it in the probe sequence are shifted back so that no tombstones are left behind.
+     *  @param key int key to remove
+     *  @return the removed value or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = hash(key) & mask;
+        Object current;
+        while ((current = values[i]) != null) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return (V) current;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /** This method removes every entry from the map. */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /** @return the number of entries in the map */
+    public int size() {
+        return size;
+    }
+
+    /** @return boolean value for whether the map has no entries */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** @return the keys of the map, in no particular order */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /** This method closes the gap left by a removed entry so later lookups do not stop early.
+     *  @param gap index of the slot that was just emptied
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+            int home = hash(keys[i]) & mask;
+            // The entry can only move into the gap if the gap lies between its home slot and where it sits now.
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /** This method rehashes every entry into new arrays.
+     *  @param capacity new length of the arrays, always a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** This method spreads the bits of a key so that sequential ids do not cluster in the table.
+     *  @param key int key to hash
+     *  @return mixed hash value
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
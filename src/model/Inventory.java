@@ -3,161 +3,327 @@ package model;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /** This class is responsible for the functionality of the Inventory class which is the super class for all other
  *  classes in this package.  Its function is to instantiate the ObservableLists to hold all the parts and products
  *  created by its subclasses. It also has the implementation details for a variety of different methods used by
  *  its subclasses.
+ *  <p>The parts and products themselves are kept in the thread-safe catalogs of InventoryStore, so these methods
+ *  may be called from any thread.  The ObservableLists only ever change on the FX thread: changes made on other
+ *  threads are handed over in batches with Platform.runLater.
  */
 public class Inventory {
-    private static ObservableList<Part> allParts = FXCollections.observableArrayList();
-    private static ObservableList<Product> allProducts = FXCollections.observableArrayList();
+    private static final Catalog<Part> parts = InventoryStore.parts();
+    private static final Catalog<Product> products = InventoryStore.products();
+
+    // The lists read their rows from the catalogs a page at a time instead of holding a copy of every item.
+    private static final FxListPager<Part> partPager = new FxListPager<>(parts);
+    private static final FxListPager<Product> productPager = new FxListPager<>(products);
+
+    private static ObservableList<Part> allParts = partPager.list();
+    private static ObservableList<Product> allProducts = productPager.list();
+
+    // The shortages of StockAlerts, copied onto the FX thread at most once per pulse however many arrive.
+    private static final ObservableList<StockAlert> reorderNeeded = FXCollections.observableArrayList();
+    private static final AtomicBoolean reorderQueued = new AtomicBoolean();
+
+    static {
+        InventoryStore.stockAlerts().addListener((oldAlert, newAlert) -> {
+            if (isShortage(oldAlert) || isShortage(newAlert)) {
+                refreshReorderNeeded();
+            }
+        });
+        refreshReorderNeeded();
+    }
 
-    private static int partId = 1;
-    private static int productId = 1000;
+    /** This method hands the ObservableLists over to the FX thread.
+     *  From now on changes made on other threads reach allParts and allProducts through Platform.runLater.
+     *  It must be called on the FX thread, which Main.start does before showing the first form.
+     */
+    public static void bindToFxThread() {
+        FxThread.bindToFxThread();
+    }
 
     /**
      * @return the partId
      */
     public static int getPartId() {
-        return partId;
+        return InventoryStore.partIds().peek();
     }
 
     /**
      * @param partId the partId to set
      */
     public static void setPartId(int partId) {
-        Inventory.partId = partId;
+        InventoryStore.partIds().reset(partId);
     }
 
     /**
      * @return the productId
      */
     public static int getProductId() {
-        return productId;
+        return InventoryStore.productIds().peek();
     }
 
     /**
      * @param productId the productId to set
      */
     public static void setProductId(int productId) {
-        Inventory.productId = productId;
+        InventoryStore.productIds().reset(productId);
     }
 
     /** This method increments the partId field.
+     *  It is safe to call from any thread, and an id given back with releasePartId is handed out first.
      *  @return int value of partID
      */
     public static int incrementPartId() {
-        return partId++;
+        return InventoryStore.partIds().next();
     }
 
     /** This method increments the productId field.
+     *  It is safe to call from any thread, and an id given back with releaseProductId is handed out first.
      *  @return int value of productID
      */
     public static int incrementProductId() {
-        return productId++;
+        return InventoryStore.productIds().next();
+    }
+
+    /** This method reserves a block of contiguous part ids for a bulk loader.
+     *  @param count number of ids to reserve
+     *  @return IdBlock holding the ids, whose unused ids should be given back with releasePartIds
+     */
+    public static IdBlock reservePartIds(int count) {
+        return InventoryStore.partIds().reserve(count);
+    }
+
+    /** This method reserves a block of contiguous product ids for a bulk loader.
+     *  @param count number of ids to reserve
+     *  @return IdBlock holding the ids, whose unused ids should be given back with releaseProductIds
+     */
+    public static IdBlock reserveProductIds(int count) {
+        return InventoryStore.productIds().reserve(count);
+    }
+
+    /** This method gives back a part id that was handed out but never saved.
+     *  @param partId int id to give back
+     */
+    public static void releasePartId(int partId) {
+        InventoryStore.partIds().release(partId);
+    }
+
+    /** This method gives back a product id that was handed out but never saved.
+     *  @param productId int id to give back
+     */
+    public static void releaseProductId(int productId) {
+        InventoryStore.productIds().release(productId);
+    }
+
+    /** This method gives back the part ids left over in a reserved block.
+     *  @param block block returned by reservePartIds
+     */
+    public static void releasePartIds(IdBlock block) {
+        InventoryStore.partIds().release(block);
+    }
+
+    /** This method gives back the product ids left over in a reserved block.
+     *  @param block block returned by reserveProductIds
+     */
+    public static void releaseProductIds(IdBlock block) {
+        InventoryStore.productIds().release(block);
     }
 
     /** This method a Part object to the ObservableList allParts.
      * @param newPart Part object selected in the TableView object
      */
-    public static void addPart(Part newPart) { allParts.add(newPart); }
+    public static void addPart(Part newPart) {
+        parts.add(newPart);
+    }
 
     /** This method a Product object to the ObservableList allProducts.
      * @param newProduct Product object selected in the TableView object
      */
-    public static void addProduct(Product newProduct) { allProducts.add(newProduct); }
+    public static void addProduct(Product newProduct) {
+        products.add(newProduct);
+    }
+
+    /** This method adds a batch of parts to the end of allParts.
+     *  The parts are added under one lock and reach allParts as a single change.
+     *  @param newParts parts to add, in order
+     */
+    public static void addParts(Collection<? extends Part> newParts) {
+        parts.addAll(newParts);
+    }
+
+    /** This method adds a batch of products to the end of allProducts.
+     *  The products are added under one lock and reach allProducts as a single change.
+     *  @param newProducts products to add, in order
+     */
+    public static void addProducts(Collection<? extends Product> newProducts) {
+        products.addAll(newProducts);
+    }
 
     /** This method searches for and returns a part object from allParts.
+     *  The id index is used so the lookup takes the same time no matter how many parts there are.
      * @param partId int id of part
-     *  @return Part object that was found
+     *  @return Part object that was found or null if there is no part with that id
      */
     public static Part lookupPart(int partId) {
-        for (Part part: allParts) {
-            if (part.getId() == partId) {
-                return part;
-            }
-        }
-        System.out.println("Did not find part (ID)");
-        return null;
+        return parts.lookup(partId);
     }
 
     /** This method searches for and returns a product object from allProducts.
+     *  The id index is used so the lookup takes the same time no matter how many products there are.
      * @param productId int id of product
-     *  @return Product object that was found
+     *  @return Product object that was found or null if there is no product with that id
      */
     public static Product lookupProduct(int productId) {
-        for (Product product: allProducts) {
-            if (product.getId() == productId) {
-                return product;
-            }
-        }
-        System.out.println("Did not find product (ID)");
-        return null;
+        return products.lookup(productId);
     }
 
     /** This method searches for parts that contain the substring partName and returns an ObservableList
+     *  The search is case-insensitive and uses the trigram index, so only the parts that share every trigram
+     *  of partName are looked at.  Searches shorter than three characters still scan allParts.
      *  @param partName String name of part
      *  @return ObservableList of parts that contain the String partName
      */
     public static ObservableList<Part> lookupPart(String partName) {
-        ObservableList<Part> tempParts = FXCollections.observableArrayList();
-        for (Part part: allParts) {
-            if (part.getName().toLowerCase().contains(partName.toLowerCase())) {
-                tempParts.add(part);
-            }
-        }
-        return tempParts;
+        return FXCollections.observableArrayList(parts.lookup(partName));
     }
 
     /** This method searches for products that contain the substring productName and returns an ObservableList
+     *  The search is case-insensitive and uses the trigram index, so only the products that share every trigram
+     *  of productName are looked at.  Searches shorter than three characters still scan allProducts.
      *  @param productName String name of product
      *  @return ObservableList of products that contain the String productName
      */
     public static ObservableList<Product> lookupProduct(String productName) {
-        ObservableList<Product> tempProducts = FXCollections.observableArrayList();
-        for (Product product: allProducts) {
-            if (product.getName().toLowerCase().contains(productName.toLowerCase())) {
-                tempProducts.add(product);
-            }
-        }
-        return tempProducts;
+        return FXCollections.observableArrayList(products.lookup(productName));
+    }
+
+    /** This method finds the products that have a part among their associated parts.
+     *  The answer comes from the where-used index of InventoryStore, so no product list is scanned.
+     *  @param part Part object to search for
+     *  @return ObservableList of products that use the part, in id order
+     */
+    public static ObservableList<Product> lookupProductsUsing(Part part) {
+        return FXCollections.observableArrayList(InventoryStore.whereUsed().products(part.getId()));
+    }
+
+    /** This method checks if any product still has a part among its associated parts.
+     *  Forms call it before asking to delete a part, to say how many products use it; deletePart checks again.
+     *  @param part Part object to check
+     *  @return boolean value for whether any product uses the part
+     */
+    public static boolean isPartUsed(Part part) {
+        return InventoryStore.whereUsed().isUsed(part.getId());
+    }
+
+    /** This method checks if any product is built from a product, as one of its components.
+     *  Forms call it before asking to delete a product; deleteProduct checks again.
+     *  @param product Product object to check
+     *  @return boolean value for whether another product has it as a component
+     */
+    public static boolean isProductUsed(Product product) {
+        return InventoryStore.whereUsed().isComponent(product.getId());
+    }
+
+    /** This method checks if the name of a part contains a search, using the lower-case name kept in the index.
+     *  It lets a search that only grew by a few characters filter its last results without lower-casing names.
+     *  @param part Part to check
+     *  @param normalizedQuery search already passed through TrigramIndex.normalize()
+     *  @return boolean value for whether the name contains the search
+     */
+    public static boolean partNameContains(Part part, String normalizedQuery) {
+        return parts.nameContains(part, normalizedQuery);
+    }
+
+    /** This method checks if the name of a product contains a search, using the lower-case name kept in the index.
+     *  @param product Product to check
+     *  @param normalizedQuery search already passed through TrigramIndex.normalize()
+     *  @return boolean value for whether the name contains the search
+     */
+    public static boolean productNameContains(Product product, String normalizedQuery) {
+        return products.nameContains(product, normalizedQuery);
     }
 
     /** This method updates a part in the allParts ObservableList
+     *  The slot of the part is found from its id, so nothing is scanned unless a delete has moved it.
      *  @param index id of part
      *  @param selectedPart Part to update
      */
     public static void updatePart(int index, Part selectedPart) {
-        for (Part part: allParts) {
-            if (part.getId() == index) {
-                allParts.set(index - 1, selectedPart);
-            }
-        }
+        parts.update(index, selectedPart);
     }
 
     /** This method updates a product in the allProducts ObservableList
+     *  The slot of the product is found from its id, so nothing is scanned unless a delete has moved it.
      *  @param index id of product
      *  @param selectedProduct Product to update
      */
     public static void updateProduct(int index, Product selectedProduct) {
-        for (Product product: allProducts) {
-            if (product.getId() == index) {
-                allProducts.set(index - 1000, selectedProduct);
-            }
-        }
+        products.update(index, selectedProduct);
     }
 
-    public static boolean deletePart(Part selectedPart) { return allParts.remove(selectedPart); }
+    /** This method deletes a part in the allParts ObservableList
+     *  A part that any product uses is not deleted; the check and the delete are one step, see
+     *  WhereUsedIndex.deleteIfUnused.
+     *  @param selectedPart Part object to delete
+     *  @return boolean value for whether the part was removed or not
+     */
+    public static boolean deletePart(Part selectedPart) {
+        return InventoryStore.whereUsed().deleteIfUnused(selectedPart);
+    }
 
     /** This method deletes a product in the allProducts ObservableList
+     *  A product that another product has as a component is not deleted; the check and the delete are one step.
      *  @param selectedProduct Product object to delete
-     *  @return selectedProduct Product to update
+     *  @return boolean value for whether the product was removed or not
      */
     public static boolean deleteProduct(Product selectedProduct) {
-        return allProducts.remove(selectedProduct);
+        return InventoryStore.whereUsed().deleteIfUnused(selectedProduct);
+    }
+
+    /** This method deletes a batch of parts from allParts.
+     *  The remaining parts are moved down once, and allParts sees a single change.  Parts that any product uses
+     *  are not deleted, as with deletePart.
+     *  @param selectedParts parts to delete; any that are not in the inventory are ignored
+     *  @return int number of parts removed
+     */
+    public static int removeParts(Collection<? extends Part> selectedParts) {
+        return InventoryStore.whereUsed().removeUnusedParts(selectedParts);
+    }
+
+    /** This method deletes a batch of products from allProducts.
+     *  The remaining products are moved down once, and allProducts sees a single change.  Products that another
+     *  product has as a component are not deleted, as with deleteProduct.
+     *  @param selectedProducts products to delete; any that are not in the inventory are ignored
+     *  @return int number of products removed
+     */
+    public static int removeProducts(Collection<? extends Product> selectedProducts) {
+        return InventoryStore.whereUsed().removeUnusedProducts(selectedProducts);
+    }
+
+    /** This method starts an update scope.  Until the matching endUpdate(), changes to the inventory still take
+     *  effect at once, but allParts and allProducts are left alone; endUpdate() then applies everything as one
+     *  change to each list.  Scopes may be nested, and endUpdate() should be called in a finally block.
+     */
+    public static void beginUpdate() {
+        partPager.beginUpdate();
+        productPager.beginUpdate();
+    }
+
+    /** This method ends an update scope started by beginUpdate(). */
+    public static void endUpdate() {
+        partPager.endUpdate();
+        productPager.endUpdate();
     }
 
     /** This method returns an ObservableList called allParts
+     *  The list is meant for the FX thread.  Other threads should read partsSnapshot() instead.
+     *  It only holds the pages of parts read lately, so it can not be changed or sorted in place.
      *  @return allParts ObservableList of parts
      */
     public static ObservableList<Part> getAllParts() {
@@ -165,9 +331,50 @@ public class Inventory {
     }
 
     /** This method returns an ObservableList called allProducts
+     *  The list is meant for the FX thread.  Other threads should read productsSnapshot() instead.
+     *  It only holds the pages of products read lately, so it can not be changed or sorted in place.
      *  @return allProducts ObservableList of products
      */
     public static ObservableList<Product> getAllProducts() {
         return allProducts;
     }
+
+    /** This method returns the parts and products whose stock is below their min, the largest shortage first.
+     *  The list follows StockAlerts and, like allParts, only changes on the FX thread.
+     *  @return unmodifiable ObservableList of shortages
+     */
+    public static ObservableList<StockAlert> getReorderNeeded() {
+        return FXCollections.unmodifiableObservableList(reorderNeeded);
+    }
+
+    /** @param alert alert to check, or null
+     *  @return boolean value for whether the alert is a shortage
+     */
+    private static boolean isShortage(StockAlert alert) {
+        return alert != null && alert.getLevel() == StockAlert.Level.SHORTAGE;
+    }
+
+    /** This method copies the shortages onto reorderNeeded unless a copy is already waiting to run. */
+    private static void refreshReorderNeeded() {
+        if (reorderQueued.compareAndSet(false, true)) {
+            FxThread.runOnFxThread(() -> {
+                reorderQueued.set(false);
+                reorderNeeded.setAll(InventoryStore.stockAlerts().reorderNeeded());
+            });
+        }
+    }
+
+    /** This method returns every part as it was at one moment, safe to read on any thread.
+     *  @return immutable list of parts
+     */
+    public static List<Part> partsSnapshot() {
+        return parts.snapshot();
+    }
+
+    /** This method returns every product as it was at one moment, safe to read on any thread.
+     *  @return immutable list of products
+     */
+    public static List<Product> productsSnapshot() {
+        return products.snapshot();
+    }
 }
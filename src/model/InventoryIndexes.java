@@ -0,0 +1,152 @@
+package model;
+
+import java.util.Locale;
+
+/** This class is responsible for the sorted indexes of the parts and products catalogs.
+ *  <p>There is an index by id, name, price, stock, min slack and max slack for each catalog.  Min slack is the stock
+ *  above min and max slack is the room left below max, so the items closest to running out, or to overflowing,
+ *  come first.  Names are ordered without regard to case.  Each SortedIndex is only built the first time it is
+ *  read, so the indexes nobody uses cost nothing.
+ */
+public final class InventoryIndexes {
+    private final SortedIndex<Part, Integer> partsById;
+    private final SortedIndex<Part, String> partsByName;
+    private final SortedIndex<Part, Double> partsByPrice;
+    private final SortedIndex<Part, Integer> partsByStock;
+    private final SortedIndex<Part, Long> partsByMinSlack;
+    private final SortedIndex<Part, Long> partsByMaxSlack;
+    private final SortedIndex<Product, Integer> productsById;
+    private final SortedIndex<Product, String> productsByName;
+    private final SortedIndex<Product, Double> productsByPrice;
+    private final SortedIndex<Product, Integer> productsByStock;
+    private final SortedIndex<Product, Long> productsByMinSlack;
+    private final SortedIndex<Product, Long> productsByMaxSlack;
+
+    /** @param parts catalog of the parts
+     *  @param products catalog of the products
+     */
+    InventoryIndexes(Catalog<Part> parts, Catalog<Product> products) {
+        partsById = new SortedIndex<>(parts, Part::getId, Part::getId);
+        partsByName = new SortedIndex<>(parts, Part::getId, part -> sortName(part.getName()));
+        partsByPrice = new SortedIndex<>(parts, Part::getId, Part::getPrice);
+        partsByStock = new SortedIndex<>(parts, Part::getId, Part::getStock);
+        partsByMinSlack = new SortedIndex<>(parts, Part::getId, part -> (long) part.getStock() - part.getMin());
+        partsByMaxSlack = new SortedIndex<>(parts, Part::getId, part -> (long) part.getMax() - part.getStock());
+        productsById = new SortedIndex<>(products, Product::getId, Product::getId);
+        productsByName = new SortedIndex<>(products, Product::getId, product -> sortName(product.getName()));
+        productsByPrice = new SortedIndex<>(products, Product::getId, Product::getPrice);
+        productsByStock = new SortedIndex<>(products, Product::getId, Product::getStock);
+        productsByMinSlack = new SortedIndex<>(products, Product::getId,
+                product -> (long) product.getStock() - product.getMin());
+        productsByMaxSlack = new SortedIndex<>(products, Product::getId,
+                product -> (long) product.getMax() - product.getStock());
+    }
+
+    /** @return parts by id */
+    public SortedIndex<Part, Integer> partsById() {
+        return partsById;
+    }
+
+    /** @return parts by name, ignoring case */
+    public SortedIndex<Part, String> partsByName() {
+        return partsByName;
+    }
+
+    /** @return parts by price */
+    public SortedIndex<Part, Double> partsByPrice() {
+        return partsByPrice;
+    }
+
+    /** @return parts by stock */
+    public SortedIndex<Part, Integer> partsByStock() {
+        return partsByStock;
+    }
+
+    /** @return parts by stock minus min */
+    public SortedIndex<Part, Long> partsByMinSlack() {
+        return partsByMinSlack;
+    }
+
+    /** @return parts by max minus stock */
+    public SortedIndex<Part, Long> partsByMaxSlack() {
+        return partsByMaxSlack;
+    }
+
+    /** @return products by id */
+    public SortedIndex<Product, Integer> productsById() {
+        return productsById;
+    }
+
+    /** @return products by name, ignoring case */
+    public SortedIndex<Product, String> productsByName() {
+        return productsByName;
+    }
+
+    /** @return products by price */
+    public SortedIndex<Product, Double> productsByPrice() {
+        return productsByPrice;
+    }
+
+    /** @return products by stock */
+    public SortedIndex<Product, Integer> productsByStock() {
+        return productsByStock;
+    }
+
+    /** @return products by stock minus min */
+    public SortedIndex<Product, Long> productsByMinSlack() {
+        return productsByMinSlack;
+    }
+
+    /** @return products by max minus stock */
+    public SortedIndex<Product, Long> productsByMaxSlack() {
+        return productsByMaxSlack;
+    }
+
+    /** @return listener that moves parts and products in the indexes when their stock, limits or price change */
+    StockListener stockListener() {
+        return new StockListener() {
+            @Override
+            public void stockChanged(Part part, int oldStock, int newStock) {
+                partsByStock.changed(part);
+                partsByMinSlack.changed(part);
+                partsByMaxSlack.changed(part);
+            }
+
+            @Override
+            public void limitsChanged(Part part) {
+                partsByMinSlack.changed(part);
+                partsByMaxSlack.changed(part);
+            }
+
+            @Override
+            public void priceChanged(Part part) {
+                partsByPrice.changed(part);
+            }
+
+            @Override
+            public void stockChanged(Product product, int oldStock, int newStock) {
+                productsByStock.changed(product);
+                productsByMinSlack.changed(product);
+                productsByMaxSlack.changed(product);
+            }
+
+            @Override
+            public void limitsChanged(Product product) {
+                productsByMinSlack.changed(product);
+                productsByMaxSlack.changed(product);
+            }
+
+            @Override
+            public void priceChanged(Product product) {
+                productsByPrice.changed(product);
+            }
+        };
+    }
+
+    /** @param name String name of a part or product, may be null
+     *  @return the name as it is ordered
+     */
+    private static String sortName(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+}
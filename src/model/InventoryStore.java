@@ -0,0 +1,128 @@
+package model;
+
+/** This class is responsible for holding the one set of catalogs that every part of the program shares.
+ *  <p>It is the thread-safe core behind Inventory.  Unlike Inventory it does not touch JavaFX, so code that runs
+ *  without the FX toolkit, or on its own threads, can read and write the inventory through it directly.  Any
+ *  change made here still reaches the TableViews once Inventory has been loaded.
+ *  <p>The fields of the parts in the parts catalog are kept in the columns of PartTable rather than in the Part
+ *  objects, which are only small handles.  WhereUsedIndex follows the products catalog so the products that use
+ *  a part can be found without scanning them all, and Buildability keeps the units of each product the stock can
+ *  build up to date on its own thread.  StockAlerts keeps the parts and products whose stock is outside their min
+ *  and max, InventoryValuation keeps the value of the inventory and InventoryIndexes keeps the items sorted by
+ *  each of their fields.  StockLedger moves stock in and out without losing concurrent movements and keeps a ledger
+ *  of them.  ChangeStream publishes every change to subscribers of their own, on threads of its own.
+ */
+public final class InventoryStore {
+    private static final Catalog<Part> parts = new Catalog<>(Part::getId, Part::getName);
+    private static final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+
+    private static final IdAllocator partIds = new IdAllocator(1);
+    private static final IdAllocator productIds = new IdAllocator(1000);
+
+    private static final WhereUsedIndex whereUsed = new WhereUsedIndex(parts, products);
+    private static final BomExplosion explosion = new BomExplosion(products);
+    private static final Buildability buildability = new Buildability(parts, products, explosion);
+    private static final StockAlerts stockAlerts = new StockAlerts();
+    private static final InventoryValuation valuation = new InventoryValuation();
+    private static final InventoryIndexes indexes = new InventoryIndexes(parts, products);
+    private static final StockLedger ledger = new StockLedger();
+    private static final ChangeStream changes = new ChangeStream(parts, products);
+
+    static {
+        // Subscribed first, so the parts are already in their columns when any other listener sees them.
+        parts.subscribe(PartTable.get().attacher());
+        products.subscribe(whereUsed.catalogListener());
+        Product.addAssociationListener(whereUsed.associationListener());
+        parts.subscribe(buildability.partListener());
+        products.subscribe(buildability.productListener());
+        Product.addAssociationListener(buildability.associationListener());
+        Part.addStockListener(buildability.stockListener());
+        parts.subscribe(stockAlerts.partListener());
+        products.subscribe(stockAlerts.productListener());
+        Part.addStockListener(stockAlerts.stockListener());
+        Product.addStockListener(stockAlerts.stockListener());
+        products.subscribe(valuation.productListener());
+        Product.addStockListener(valuation.stockListener());
+        Part.addStockListener(indexes.stockListener());
+        Product.addStockListener(indexes.stockListener());
+        parts.subscribe(changes.partListener());
+        products.subscribe(changes.productListener());
+        Product.addAssociationListener(changes.associationListener());
+        Part.addStockListener(changes.stockListener());
+        Product.addStockListener(changes.stockListener());
+    }
+
+    private InventoryStore() { }
+
+    /** This method makes several changes to one part or product as one.  No stock movement, and no other change
+     *  to its stock, price, limits or bill of materials, can come between them, so changes checked against the
+     *  values read inside it are never made against values that have since changed.
+     *  @param item part or product to change
+     *  @param changes reads and changes of the item
+     */
+    public static void edit(Object item, Runnable changes) {
+        synchronized (ItemLocks.of(item)) {
+            changes.run();
+        }
+    }
+
+    /** @return the catalog of all parts */
+    public static Catalog<Part> parts() {
+        return parts;
+    }
+
+    /** @return the catalog of all products */
+    public static Catalog<Product> products() {
+        return products;
+    }
+
+    /** @return the index of which products use each part */
+    public static WhereUsedIndex whereUsed() {
+        return whereUsed;
+    }
+
+    /** @return the engine that explodes products with components into their parts */
+    public static BomExplosion explosion() {
+        return explosion;
+    }
+
+    /** @return the figures of how many units of each product the parts in stock can build */
+    public static Buildability buildability() {
+        return buildability;
+    }
+
+    /** @return the parts and products whose stock is below their min or above their max */
+    public static StockAlerts stockAlerts() {
+        return stockAlerts;
+    }
+
+    /** @return the running value of the parts and products */
+    public static InventoryValuation valuation() {
+        return valuation;
+    }
+
+    /** @return the sorted indexes of the parts and products */
+    public static InventoryIndexes indexes() {
+        return indexes;
+    }
+
+    /** @return the stock movements and the ledger that records them */
+    public static StockLedger ledger() {
+        return ledger;
+    }
+
+    /** @return the stream of every change made to the inventory */
+    public static ChangeStream changes() {
+        return changes;
+    }
+
+    /** @return the allocator that hands out part ids */
+    public static IdAllocator partIds() {
+        return partIds;
+    }
+
+    /** @return the allocator that hands out product ids */
+    public static IdAllocator productIds() {
+        return productIds;
+    }
+}
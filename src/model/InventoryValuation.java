@@ -0,0 +1,161 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** This class is responsible for the value of the inventory, price times stock, kept up to date as it changes.
+ *  <p>Nothing here walks the parts or products.  The value of the parts is kept by PartTable in the same step as
+ *  each change to a price, stock, machine id or company name; the value of the products is kept here from the
+ *  products catalog and the setters of Product, through listeners registered by InventoryStore.  Every total is
+ *  therefore read in O(1), and the breakdowns by machine and company cost one entry per group.
+ *  <p>Values are summed in whole cents, each item at its price rounded to the cent, and returned in dollars.
+ */
+public final class InventoryValuation {
+    private final IntMap<Counted> products = new IntMap<>();
+    private long productCents;
+
+    InventoryValuation() { }
+
+    /** @return double value of every part and product */
+    public double getTotalValue() {
+        return dollars(PartTable.get().valueCents(-1) + productCents());
+    }
+
+    /** @return double value of every part */
+    public double getPartsValue() {
+        return dollars(PartTable.get().valueCents(-1));
+    }
+
+    /** @return double value of every product */
+    public double getProductsValue() {
+        return dollars(productCents());
+    }
+
+    /** @return double value of the InHouse parts */
+    public double getInHouseValue() {
+        return dollars(PartTable.get().valueCents(ValueTotals.IN_HOUSE));
+    }
+
+    /** @return double value of the Outsourced parts */
+    public double getOutsourcedValue() {
+        return dollars(PartTable.get().valueCents(ValueTotals.OUTSOURCED));
+    }
+
+    /** @param machineId int machine id
+     *  @return double value of the InHouse parts made on the machine
+     */
+    public double getMachineValue(int machineId) {
+        return dollars(PartTable.get().machineValueCents(machineId));
+    }
+
+    /** @param companyName String company name
+     *  @return double value of the Outsourced parts from the company
+     */
+    public double getCompanyValue(String companyName) {
+        return dollars(PartTable.get().companyValueCents(companyName));
+    }
+
+    /** @return value of the InHouse parts of every machine id that has any, in machine id order */
+    public Map<Integer, Double> getValueByMachine() {
+        Map<Integer, Double> values = new LinkedHashMap<>();
+        PartTable.get().machineValuesCents().forEach((machineId, cents) -> values.put(machineId, dollars(cents)));
+        return values;
+    }
+
+    /** @return value of the Outsourced parts of every company that has any, in company name order */
+    public Map<String, Double> getValueByCompany() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        PartTable.get().companyValuesCents().forEach((company, cents) -> values.put(company, dollars(cents)));
+        return values;
+    }
+
+    /** @return listener that counts the products entering and leaving the products catalog */
+    CatalogListener<Product> productListener() {
+        return new CatalogListener<Product>() {
+            @Override
+            public void added(int slot, Product item) {
+                count(item, true);
+            }
+
+            @Override
+            public void replaced(int slot, Product oldItem, Product newItem) {
+                count(newItem, true);
+            }
+
+            @Override
+            public void removed(int slot, Product item) {
+                count(item, false);
+            }
+        };
+    }
+
+    /** @return listener that counts again the products whose stock or price changed */
+    StockListener stockListener() {
+        return new StockListener() {
+            @Override
+            public void stockChanged(Part part, int oldStock, int newStock) {
+                // Parts are valued by PartTable.
+            }
+
+            @Override
+            public void stockChanged(Product product, int oldStock, int newStock) {
+                recount(product);
+            }
+
+            @Override
+            public void priceChanged(Product product) {
+                recount(product);
+            }
+        };
+    }
+
+    /** @return long value of every product, in cents */
+    private synchronized long productCents() {
+        return productCents;
+    }
+
+    /** @param product product that entered or left the catalog, or took the place of one with its id
+     *  @param inCatalog boolean value for whether the product is now in the catalog
+     */
+    private synchronized void count(Product product, boolean inCatalog) {
+        Counted old = products.remove(product.getId());
+        if (old != null) {
+            productCents -= old.cents;
+        }
+        if (inCatalog) {
+            Counted now = new Counted(product);
+            products.put(product.getId(), now);
+            productCents += now.cents;
+        }
+    }
+
+    /** @param product product whose stock or price changed; ignored unless it is the one in the catalog */
+    private synchronized void recount(Product product) {
+        Counted counted = products.get(product.getId());
+        if (counted == null || counted.product != product) {
+            return;
+        }
+        long cents = ValueTotals.cents(product.getPrice(), product.getStock());
+        productCents += cents - counted.cents;
+        counted.cents = cents;
+    }
+
+    /** @param cents long amount in cents
+     *  @return double amount in dollars
+     */
+    private static double dollars(long cents) {
+        return cents / 100.0;
+    }
+
+    /** This class is responsible for remembering the value a product was last counted at. */
+    private static final class Counted {
+        final Product product;
+        long cents;
+
+        /** @param product product to count at its value now */
+        Counted(Product product) {
+            this.product = product;
+            this.cents = ValueTotals.cents(product.getPrice(), product.getStock());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package model;
+
+import java.util.function.Supplier;
+
+/** This class is responsible for the locks that keep the changes to the stock, price, limits, name and bill of
+ *  materials of one part or product in order.
+ *  <p>A setter or StockLedger movement changes the field and tells the stock listeners while holding the lock of
+ *  its item, a new name reaches the catalog listeners the same way, and a change to the parts or components of a
+ *  product tells the association listeners the same way, so listeners hear the changes to an item in the order they
+ *  were made and a value they pass on can not be overtaken by an older one.  Keeping a lock in every item would
+ *  cost a field per part, so the items share a fixed set of locks picked by identity.  The monitor of the item
+ *  itself is not used because the catalogs read the bill of materials of a product under it while holding their
+ *  write lock, and the listeners look items up in the catalogs.  A thread never holds two of these locks at once,
+ *  except inside holdingAll, which takes them all in one fixed order; since nobody holding one lock waits for
+ *  another, that can not deadlock.
+ */
+final class ItemLocks {
+    private static final int STRIPES = 256;
+    private static final Object[] LOCKS = new Object[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private ItemLocks() { }
+
+    /** @param item part or product about to change
+     *  @return the lock to hold while changing it and telling its listeners
+     */
+    static Object of(Object item) {
+        return LOCKS[System.identityHashCode(item) & (STRIPES - 1)];
+    }
+
+    /** This method runs a check and a change while no stock, price, limits or bill of materials of any item can
+     *  change and no listener is still being told of such a change.  It waits for every lock, so it is only for
+     *  rare changes such as deletes.
+     *  @param action check and change to run
+     *  @param <R> type of the result
+     *  @return the result of the action
+     */
+    static <R> R holdingAll(Supplier<R> action) {
+        return holdingFrom(0, action);
+    }
+
+    /** @param stripe int first lock not held yet
+     *  @param action action to run once every lock is held
+     *  @param <R> type of the result
+     *  @return the result of the action
+     */
+    private static <R> R holdingFrom(int stripe, Supplier<R> action) {
+        if (stripe == STRIPES) {
+            return action.get();
+        }
+        synchronized (LOCKS[stripe]) {
+            return holdingFrom(stripe + 1, action);
+        }
+    }
+}
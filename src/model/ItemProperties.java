@@ -0,0 +1,96 @@
+package model;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/** This class is responsible for the JavaFX properties of a part or product that the TableViews bind their cells to.
+ *  <p>A part or product only makes its ItemProperties the first time a cell asks for one of them, so items that are
+ *  never shown cost nothing, and like AssociatedPartsView it is kept out of Part and Product so that they can be
+ *  used without JavaFX.  The item calls changed() whenever its id, name, stock or price is set, on whatever thread
+ *  set it.  The properties are read again from the item on the FX thread, at once if that is the thread, otherwise
+ *  in one Platform.runLater() however many changes came in before it ran.  Only a property whose value really
+ *  changed tells its listeners, so the one cell showing it is redrawn and nothing else.
+ */
+final class ItemProperties {
+    private final IntSupplier id;
+    private final Supplier<String> name;
+    private final IntSupplier stock;
+    private final DoubleSupplier price;
+    private final ReadOnlyObjectWrapper<Integer> idProperty = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyObjectWrapper<String> nameProperty = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyObjectWrapper<Integer> stockProperty = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyObjectWrapper<Double> priceProperty = new ReadOnlyObjectWrapper<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** This constructor makes the properties and reads their values from the item.
+     *  @param id reads the id of the item
+     *  @param name reads the name of the item
+     *  @param stock reads the stock of the item
+     *  @param price reads the price of the item
+     */
+    ItemProperties(IntSupplier id, Supplier<String> name, IntSupplier stock, DoubleSupplier price) {
+        this.id = id;
+        this.name = name;
+        this.stock = stock;
+        this.price = price;
+        update();
+    }
+
+    /** @return the id of the item as a property */
+    ReadOnlyObjectProperty<Integer> id() {
+        return idProperty.getReadOnlyProperty();
+    }
+
+    /** @return the name of the item as a property */
+    ReadOnlyObjectProperty<String> name() {
+        return nameProperty.getReadOnlyProperty();
+    }
+
+    /** @return the stock of the item as a property */
+    ReadOnlyObjectProperty<Integer> stock() {
+        return stockProperty.getReadOnlyProperty();
+    }
+
+    /** @return the price of the item as a property */
+    ReadOnlyObjectProperty<Double> price() {
+        return priceProperty.getReadOnlyProperty();
+    }
+
+    /** This method makes sure the properties are read from the item again on the FX thread. */
+    void changed() {
+        if (FxThread.isFxThread()) {
+            update();
+        } else if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                scheduled.set(false);
+                update();
+            });
+        }
+    }
+
+    /** This method reads every property from the item, setting only the ones whose value changed. */
+    private void update() {
+        set(idProperty, id.getAsInt());
+        set(nameProperty, name.get());
+        set(stockProperty, stock.getAsInt());
+        set(priceProperty, price.getAsDouble());
+    }
+
+    /** @param property property to set
+     *  @param value value to set it to, unless it already holds an equal one
+     *  @param <V> type of the value
+     */
+    private static <V> void set(ReadOnlyObjectWrapper<V> property, V value) {
+        // ObjectProperty compares by reference, and boxing makes a new object for most numbers.
+        if (!Objects.equals(property.get(), value)) {
+            property.set(value);
+        }
+    }
+}
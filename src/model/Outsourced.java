@@ -2,7 +2,6 @@ package model;
 
 /** This class is responsible for the functionality of the Outsourced class which is a subclass of "Part". */
 public class Outsourced extends Part{
-    private String companyName;
 
     /** This constructor uses a super method to initialize the fields from its super class "Part".
      *   @param id to set id
@@ -15,21 +14,26 @@ public class Outsourced extends Part{
      */
     public Outsourced(int id, String name, double price, int stock, int min, int max, String companyName) {
         super(id, name, price,stock, min, max);
-        this.companyName = companyName;
+        detached.companyName = companyName;
     }
 
     /**
      * @return the machineId
      */
     public String getCompanyName() {
-        return companyName;
+        return PartTable.get().getString(this, true);
     }
 
     /**
      * @param companyName the companyName to set
      */
     public void setCompanyName(String companyName) {
-        this.companyName = companyName;
+        synchronized (ItemLocks.of(this)) {
+            if (!companyName.equals(getCompanyName())) {
+                PartTable.get().setString(this, true, companyName);
+                InventoryStore.parts().changed(this);
+            }
+        }
     }
 
 }
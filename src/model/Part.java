@@ -1,4 +1,10 @@
 package model;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Supplied class Part.java
  */
@@ -8,19 +14,26 @@ package model;
  * @author Place Your Name Here
  */
 public abstract class Part {
+    // While the part is in the inventory its fields live in row `row` of PartTable; otherwise they are in
+    // `detached`.  Both are only changed under the lock of PartTable.  The id is also kept here, where it fits in
+    // the padding of the object, because the catalogs read it far more often than any other field.
+    int row = PartTable.DETACHED;
+    Detached detached;
     private int id;
-    private String name;
-    private double price;
-    private int stock;
-    private int min;
-    private int max;
+    // Made by the first cell that shows the part; see ItemProperties.
+    private volatile ItemProperties properties;
+
+    private static final List<StockListener> stockListeners = new CopyOnWriteArrayList<>();
+
     public Part(int id, String name, double price, int stock, int min, int max) {
         this.id = id;
-        this.name = name;
-        this.price = price;
-        this.stock = stock;
-        this.min = min;
-        this.max = max;
+        detached = new Detached();
+        detached.ints[PartTable.ID] = id;
+        detached.name = name;
+        detached.price = price;
+        detached.ints[PartTable.STOCK] = stock;
+        detached.ints[PartTable.MIN] = min;
+        detached.ints[PartTable.MAX] = max;
     }
 
     /**
@@ -32,79 +45,199 @@ public abstract class Part {
 
     /**
      * @param id the id to set
+     * @throws IllegalStateException if the part is in the inventory, which keeps it by its id
      */
     public void setId(int id) {
+        if (id != this.id && InventoryStore.parts().lookup(this.id) == this) {
+            throw new IllegalStateException("Part " + this.id + " is in the inventory, so its id can not change");
+        }
         this.id = id;
+        PartTable.get().setInt(this, PartTable.ID, id);
+        propertiesChanged();
     }
 
     /**
      * @return the name
      */
     public String getName() {
-        return name;
+        return PartTable.get().getString(this, false);
     }
 
     /**
      * @param name the name to set
      */
     public void setName(String name) {
-        this.name = name;
+        synchronized (ItemLocks.of(this)) {
+            String oldName = getName();
+            if (!name.equals(oldName)) {
+                PartTable.get().setString(this, false, name);
+                propertiesChanged();
+                InventoryStore.parts().renamed(this, oldName);
+            }
+        }
     }
 
     /**
      * @return the price
      */
     public double getPrice() {
-        return price;
+        return PartTable.get().getPrice(this);
     }
 
     /**
      * @param price the price to set
      */
     public void setPrice(double price) {
-        this.price = price;
+        synchronized (ItemLocks.of(this)) {
+            if (PartTable.get().setPrice(this, price) != price) {
+                propertiesChanged();
+                for (StockListener listener : stockListeners) {
+                    listener.priceChanged(this);
+                }
+            }
+        }
     }
 
     /**
      * @return the stock
      */
     public int getStock() {
-        return stock;
+        return PartTable.get().getInt(this, PartTable.STOCK);
     }
 
     /**
      * @param stock the stock to set
      */
     public void setStock(int stock) {
-        this.stock = stock;
+        synchronized (ItemLocks.of(this)) {
+            int old = PartTable.get().setInt(this, PartTable.STOCK, stock);
+            if (old != stock) {
+                propertiesChanged();
+                for (StockListener listener : stockListeners) {
+                    listener.stockChanged(this, old, stock);
+                }
+            }
+        }
+    }
+
+    /** This method adds to the stock in one step, checked against the min and max.  StockLedger calls it.
+     *  @param quantity int amount to add, negative to take away
+     *  @return int stock before the change
+     *  @throws StockLimitException If the stock would leave the min and max, in which case nothing changes
+     */
+    int addStock(int quantity) {
+        synchronized (ItemLocks.of(this)) {
+            int old = PartTable.get().addStock(this, quantity);
+            if (quantity != 0) {
+                propertiesChanged();
+                for (StockListener listener : stockListeners) {
+                    listener.stockChanged(this, old, old + quantity);
+                }
+            }
+            return old;
+        }
     }
 
     /**
      * @return the min
      */
     public int getMin() {
-        return min;
+        return PartTable.get().getInt(this, PartTable.MIN);
     }
 
     /**
      * @param min the min to set
      */
     public void setMin(int min) {
-        this.min = min;
+        synchronized (ItemLocks.of(this)) {
+            if (PartTable.get().setInt(this, PartTable.MIN, min) != min) {
+                limitsChanged();
+            }
+        }
     }
 
     /**
      * @return the max
      */
     public int getMax() {
-        return max;
+        return PartTable.get().getInt(this, PartTable.MAX);
     }
 
     /**
      * @param max the max to set
      */
     public void setMax(int max) {
-        this.max = max;
+        synchronized (ItemLocks.of(this)) {
+            if (PartTable.get().setInt(this, PartTable.MAX, max) != max) {
+                limitsChanged();
+            }
+        }
+    }
+
+    /** This method tells the stock listeners that the min or max of this part changed. */
+    private void limitsChanged() {
+        for (StockListener listener : stockListeners) {
+            listener.limitsChanged(this);
+        }
+    }
+
+    /** @return the id as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<Integer> idProperty() {
+        return properties().id();
+    }
+
+    /** @return the name as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<String> nameProperty() {
+        return properties().name();
     }
 
-}
\ No newline at end of file
+    /** @return the stock as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<Integer> stockProperty() {
+        return properties().stock();
+    }
+
+    /** @return the price as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<Double> priceProperty() {
+        return properties().price();
+    }
+
+    /** @return the properties of the part, made the first time they are asked for */
+    private ItemProperties properties() {
+        ItemProperties made = properties;
+        if (made == null) {
+            made = new ItemProperties(this::getId, this::getName, this::getStock, this::getPrice);
+            properties = made;
+        }
+        return made;
+    }
+
+    /** This method has the properties read again if any have been made. */
+    private void propertiesChanged() {
+        ItemProperties made = properties;
+        if (made != null) {
+            made.changed();
+        }
+    }
+
+    /** This method registers a listener that is told every time setStock, setMin, setMax or setPrice changes any
+     *  part.
+     *  Parts that are replaced in the catalog are reported through the catalog instead.
+     *  @param listener listener to register
+     */
+    public static void addStockListener(StockListener listener) {
+        stockListeners.add(listener);
+    }
+
+    /** @param listener listener to stop telling about stock changes */
+    public static void removeStockListener(StockListener listener) {
+        stockListeners.remove(listener);
+    }
+
+    /** This class is responsible for holding the fields of a part that is not in PartTable. */
+    static final class Detached {
+        final int[] ints = new int[PartTable.INT_COLUMNS];
+        double price;
+        String name;
+        String companyName;
+    }
+}
@@ -0,0 +1,499 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+
+/** This class is responsible for keeping the fields of the parts in the inventory in columns.
+ *  <p>Every part in the parts catalog of InventoryStore owns one row: its id, price, stock, min, max and machine id
+ *  sit in primitive arrays, and its name and company name are codes into a StringDictionary.  The Part object
+ *  itself only remembers its row, so a part costs a small handle plus its share of the columns instead of a full
+ *  object and a String, and a pass over one column reads memory in order instead of following a pointer per part.
+ *  <p>A part that is not in the catalog, such as one a form has just built or one that was deleted, keeps its
+ *  fields in a Part.Detached holder instead.  The catalog moves parts in and out of the table through the
+ *  CatalogListener returned by attacher(), so callers never see the difference.
+ *  <p>ValueTotals keeps the value of the parts in the table, in total and by kind, machine and company.  It is
+ *  changed in the same step as the price, stock, machine id or company name that moved it, so it never needs a
+ *  pass over the rows.
+ *  <p>Changes take the write lock of a StampedLock.  Reads are optimistic: they read the columns without locking
+ *  and only take the read lock if a change happened at the same time, so getters on the FX thread never wait on
+ *  a writer that is not touching the table right then.
+ */
+final class PartTable {
+    /** Row of a part that keeps its own fields. */
+    static final int DETACHED = -1;
+
+    static final int ID = 0;
+    static final int STOCK = 1;
+    static final int MIN = 2;
+    static final int MAX = 3;
+    static final int MACHINE_ID = 4;
+    static final int INT_COLUMNS = 5;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final PartTable TABLE = new PartTable();
+
+    private final StampedLock lock = new StampedLock();
+    private final StringDictionary strings = new StringDictionary();
+    private final ValueTotals totals = new ValueTotals();
+    private int[][] ints = new int[INT_COLUMNS][MIN_CAPACITY];
+    private double[] prices = new double[MIN_CAPACITY];
+    private int[] names = new int[MIN_CAPACITY];
+    private int[] companyNames = new int[MIN_CAPACITY];
+    private int rows;
+    private int[] freeRows = new int[MIN_CAPACITY];
+    private int freeCount;
+
+    private PartTable() { }
+
+    /** @return the table that holds the parts of the inventory */
+    static PartTable get() {
+        return TABLE;
+    }
+
+    /** @return listener that moves the parts of a catalog into the table and back out */
+    CatalogListener<Part> attacher() {
+        return new Attacher();
+    }
+
+    /** @param part part to read
+     *  @param column ID, STOCK, MIN, MAX or MACHINE_ID
+     *  @return int value of the field
+     */
+    int getInt(Part part, int column) {
+        long stamp = lock.tryOptimisticRead();
+        int value = readInt(part, column);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = readInt(part, column);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /** @param part part to read
+     *  @return double price of the part
+     */
+    double getPrice(Part part) {
+        long stamp = lock.tryOptimisticRead();
+        double value = readPrice(part);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = readPrice(part);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /** @param part part to read
+     *  @param company true for the company name, false for the name
+     *  @return String value of the field
+     */
+    String getString(Part part, boolean company) {
+        long stamp = lock.tryOptimisticRead();
+        String value = readString(part, company);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = readString(part, company);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /** @param part part to change
+     *  @param column ID, STOCK, MIN, MAX or MACHINE_ID
+     *  @param value int new value of the field
+     *  @return int value the field had before
+     */
+    int setInt(Part part, int column, int value) {
+        long stamp = lock.writeLock();
+        try {
+            int row = part.row;
+            if (row == DETACHED) {
+                int old = part.detached.ints[column];
+                part.detached.ints[column] = value;
+                return old;
+            }
+            boolean valued = column == STOCK || column == MACHINE_ID;
+            if (valued) {
+                count(part, row, -1);
+            }
+            int old = ints[column][row];
+            ints[column][row] = value;
+            if (valued) {
+                count(part, row, 1);
+            }
+            return old;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** This method adds to the stock of a part in one step, so movements made at the same time are all kept.
+     *  @param part part to change
+     *  @param quantity int amount to add, negative to take away
+     *  @return int stock the part had before
+     *  @throws StockLimitException If the new stock would be below the min or above the max of the part
+     */
+    int addStock(Part part, int quantity) {
+        long stamp = lock.writeLock();
+        try {
+            int row = part.row;
+            int[] fields = row == DETACHED ? part.detached.ints : null;
+            int old = fields != null ? fields[STOCK] : ints[STOCK][row];
+            int min = fields != null ? fields[MIN] : ints[MIN][row];
+            int max = fields != null ? fields[MAX] : ints[MAX][row];
+            long stock = (long) old + quantity;
+            if (stock < min || stock > max) {
+                throw new StockLimitException("Part " + part.getId(), old, quantity, min, max);
+            }
+            if (fields != null) {
+                fields[STOCK] = (int) stock;
+            } else {
+                count(part, row, -1);
+                ints[STOCK][row] = (int) stock;
+                count(part, row, 1);
+            }
+            return old;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @param part part to change
+     *  @param value double new price
+     *  @return double price the part had before
+     */
+    double setPrice(Part part, double value) {
+        long stamp = lock.writeLock();
+        try {
+            double old;
+            if (part.row == DETACHED) {
+                old = part.detached.price;
+                part.detached.price = value;
+            } else {
+                old = prices[part.row];
+                count(part, part.row, -1);
+                prices[part.row] = value;
+                count(part, part.row, 1);
+            }
+            return old;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @param part part to change
+     *  @param company true for the company name, false for the name
+     *  @param value String new value of the field
+     */
+    void setString(Part part, boolean company, String value) {
+        long stamp = lock.writeLock();
+        try {
+            if (part.row == DETACHED) {
+                if (company) {
+                    part.detached.companyName = value;
+                } else {
+                    part.detached.name = value;
+                }
+            } else {
+                int[] column = company ? companyNames : names;
+                if (company) {
+                    count(part, part.row, -1);
+                }
+                int code = strings.encode(value);
+                strings.release(column[part.row]);
+                column[part.row] = code;
+                if (company) {
+                    count(part, part.row, 1);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @param kind int ValueTotals.IN_HOUSE, OUTSOURCED or OTHER, or -1 for every part
+     *  @return long value of the parts, in cents
+     */
+    long valueCents(int kind) {
+        long stamp = lock.readLock();
+        try {
+            return kind < 0 ? totals.total() : totals.kind(kind);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** @param machineId int machine id
+     *  @return long value of the InHouse parts made on the machine, in cents
+     */
+    long machineValueCents(int machineId) {
+        long stamp = lock.readLock();
+        try {
+            return totals.machine(machineId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** @param companyName String company name
+     *  @return long value of the Outsourced parts from the company, in cents
+     */
+    long companyValueCents(String companyName) {
+        long stamp = lock.readLock();
+        try {
+            return totals.company(strings.find(companyName));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** @return value in cents of the InHouse parts of each machine id that has any, by machine id */
+    Map<Integer, Long> machineValuesCents() {
+        Map<Integer, Long> values = new TreeMap<>();
+        long stamp = lock.readLock();
+        try {
+            for (int machineId : totals.machines()) {
+                values.put(machineId, totals.machine(machineId));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return values;
+    }
+
+    /** @return value in cents of the Outsourced parts of each company that has any, by company name */
+    Map<String, Long> companyValuesCents() {
+        Map<String, Long> values = new TreeMap<>();
+        long stamp = lock.readLock();
+        try {
+            for (int code : totals.companies()) {
+                values.put(strings.decode(code), totals.company(code));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return values;
+    }
+
+    /** @return the number of rows in use */
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return rows - freeCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** This method moves a part into the table.  Nothing happens if it is already there.
+     *  @param part part that was added to the catalog
+     */
+    private void attach(Part part) {
+        long stamp = lock.writeLock();
+        try {
+            attachLocked(part);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @param parts parts that were added to the catalog together */
+    private void attachAll(List<Part> parts) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(rows + parts.size() - freeCount);
+            for (Part part : parts) {
+                attachLocked(part);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** This method moves a part out of the table, giving it back its own copy of its fields.
+     *  @param part part that left the catalog
+     */
+    private void detach(Part part) {
+        long stamp = lock.writeLock();
+        try {
+            detachLocked(part);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @param parts parts that left the catalog together */
+    private void detachAll(List<Part> parts) {
+        long stamp = lock.writeLock();
+        try {
+            for (Part part : parts) {
+                detachLocked(part);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @param part part to move into a free row; the caller holds the write lock */
+    private void attachLocked(Part part) {
+        if (part.row != DETACHED) {
+            return;
+        }
+        Part.Detached fields = part.detached;
+        int row;
+        if (freeCount > 0) {
+            row = freeRows[--freeCount];
+        } else {
+            ensureCapacity(rows + 1);
+            row = rows++;
+        }
+        for (int column = 0; column < INT_COLUMNS; column++) {
+            ints[column][row] = fields.ints[column];
+        }
+        prices[row] = fields.price;
+        names[row] = strings.encode(fields.name);
+        companyNames[row] = strings.encode(fields.companyName);
+        part.row = row;
+        part.detached = null;
+        count(part, row, 1);
+    }
+
+    /** @param part part to move out of its row; the caller holds the write lock */
+    private void detachLocked(Part part) {
+        int row = part.row;
+        if (row == DETACHED) {
+            return;
+        }
+        count(part, row, -1);
+        Part.Detached fields = new Part.Detached();
+        for (int column = 0; column < INT_COLUMNS; column++) {
+            fields.ints[column] = ints[column][row];
+        }
+        fields.price = prices[row];
+        fields.name = strings.decode(names[row]);
+        fields.companyName = strings.decode(companyNames[row]);
+        strings.release(names[row]);
+        strings.release(companyNames[row]);
+        part.detached = fields;
+        part.row = DETACHED;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    /** This method counts the value of a row in or out of the totals; the caller holds the write lock.
+     *  @param part part that owns the row
+     *  @param row int row of the part
+     *  @param sign int 1 to count it in, -1 to count it out
+     */
+    private void count(Part part, int row, int sign) {
+        int kind = ValueTotals.kindOf(part);
+        int group = kind == ValueTotals.IN_HOUSE ? ints[MACHINE_ID][row] : companyNames[row];
+        totals.add(kind, group, ValueTotals.cents(prices[row], ints[STOCK][row]), sign);
+    }
+
+    /** @param capacity number of rows the columns must be able to hold */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= prices.length) {
+            return;
+        }
+        int length = Math.max(capacity, prices.length + (prices.length >> 1));
+        int[][] grown = new int[INT_COLUMNS][];
+        for (int column = 0; column < INT_COLUMNS; column++) {
+            grown[column] = Arrays.copyOf(ints[column], length);
+        }
+        ints = grown;
+        prices = Arrays.copyOf(prices, length);
+        names = Arrays.copyOf(names, length);
+        companyNames = Arrays.copyOf(companyNames, length);
+    }
+
+    // The read methods below also run inside optimistic reads, where a writer may be halfway through a change.
+    // They must not throw on a half-made change; whatever they return is thrown away if validate() fails.
+
+    /** @param part part to read
+     *  @param column ID, STOCK, MIN, MAX or MACHINE_ID
+     *  @return int value, or 0 if the read was torn
+     */
+    private int readInt(Part part, int column) {
+        int row = part.row;
+        if (row == DETACHED) {
+            Part.Detached fields = part.detached;
+            return fields == null ? 0 : fields.ints[column];
+        }
+        int[] values = ints[column];
+        return row >= 0 && row < values.length ? values[row] : 0;
+    }
+
+    /** @param part part to read
+     *  @return double price, or 0 if the read was torn
+     */
+    private double readPrice(Part part) {
+        int row = part.row;
+        if (row == DETACHED) {
+            Part.Detached fields = part.detached;
+            return fields == null ? 0 : fields.price;
+        }
+        double[] values = prices;
+        return row >= 0 && row < values.length ? values[row] : 0;
+    }
+
+    /** @param part part to read
+     *  @param company true for the company name, false for the name
+     *  @return String value, or null if the read was torn
+     */
+    private String readString(Part part, boolean company) {
+        int row = part.row;
+        if (row == DETACHED) {
+            Part.Detached fields = part.detached;
+            return fields == null ? null : company ? fields.companyName : fields.name;
+        }
+        int[] codes = company ? companyNames : names;
+        return row >= 0 && row < codes.length ? strings.decode(codes[row]) : null;
+    }
+
+    /** This class is responsible for keeping the table in step with the parts catalog. */
+    private final class Attacher implements CatalogListener<Part> {
+        @Override
+        public void added(int slot, Part item) {
+            attach(item);
+        }
+
+        @Override
+        public void addedAll(int firstSlot, List<Part> items) {
+            attachAll(items);
+        }
+
+        @Override
+        public void replaced(int slot, Part oldItem, Part newItem) {
+            if (oldItem != newItem) {
+                detach(oldItem);
+                attach(newItem);
+            }
+        }
+
+        @Override
+        public void removed(int slot, Part item) {
+            detach(item);
+        }
+
+        @Override
+        public void removedAll(int[] slots, List<Part> items) {
+            detachAll(items);
+        }
+    }
+}
@@ -1,17 +1,43 @@
 package model;
 
-import javafx.collections.FXCollections;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.collections.ObservableList;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /** This class is responsible for the functionality of the Product class which has an ObservableList of
  *  objects from the Parts class and its subclasses InHouse and Outsourced.
+ *  <p>The associated parts are kept as a bill of materials: one line per part holding its id and the quantity the
+ *  product needs, packed in pairs by BomLines.  A product with no parts has no BomLines at all, and a part added
+ *  twice is one line with a quantity of 2 rather than a second reference.  The ObservableList is only built when
+ *  a form asks for it through getAllAssociatedParts(), and lives in AssociatedPartsView so that Product can be
+ *  used without JavaFX.  The properties the TableViews bind to are made the same way, in ItemProperties.
+ *  <p>A product may also be built from other products, its components, which are kept by id and quantity in the
+ *  same way.  BomExplosion turns a product with components into the parts it needs in the end.
+ *  <p>The bill of materials is guarded by the product's monitor, so persistence and the where-used index can copy
+ *  it from their own threads.  A change to it also holds the ItemLocks lock of the product until the association
+ *  listeners have been told, so they hear the changes to one product in the order they were made; the monitor is
+ *  let go first, because the catalogs take it under their write lock.  Once built, the ObservableList is only safe
+ *  to use on the thread that changes it.
+ *  <p>A new name reaches the listeners of the products catalog of InventoryStore through Catalog.renamed, and a
+ *  product in that catalog can not change its id.
  */
 public class Product {
-    private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private static final List<AssociationListener> associationListeners = new CopyOnWriteArrayList<>();
+    private static final List<StockListener> stockListeners = new CopyOnWriteArrayList<>();
+    private static final int[] NO_LINES = new int[0];
+
+    private BomLines parts;
+    private BomLines components;
+    private AssociatedPartsView view;
+    // Made by the first cell that shows the product; see ItemProperties.
+    private volatile ItemProperties properties;
     private int id;
     private String name;
     private double price;
-    private int stock;
+    // Only changed under ItemLocks, so concurrent movements are never lost.
+    private volatile int stock;
     private int min;
     private int max;
 
@@ -39,8 +65,15 @@ public class Product {
 
     /**
      * @param id the id to set
+     * @throws IllegalStateException if the product is in the inventory, which keeps it by its id
      */
-    public void setId(int id) { this.id = id; }
+    public void setId(int id) {
+        if (id != this.id && InventoryStore.products().lookup(this.id) == this) {
+            throw new IllegalStateException("Product " + this.id + " is in the inventory, so its id can not change");
+        }
+        this.id = id;
+        propertiesChanged();
+    }
 
     /**
      * @return the name
@@ -50,7 +83,16 @@ public class Product {
     /**
      * @param name the name to set
      */
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) {
+        synchronized (ItemLocks.of(this)) {
+            String oldName = this.name;
+            if (!name.equals(oldName)) {
+                this.name = name;
+                propertiesChanged();
+                InventoryStore.products().renamed(this, oldName);
+            }
+        }
+    }
 
     /**
      * @return the price
@@ -60,7 +102,17 @@ public class Product {
     /**
      * @param price the price to set
      */
-    public void setPrice(double price) { this.price = price; }
+    public void setPrice(double price) {
+        synchronized (ItemLocks.of(this)) {
+            if (this.price != price) {
+                this.price = price;
+                propertiesChanged();
+                for (StockListener listener : stockListeners) {
+                    listener.priceChanged(this);
+                }
+            }
+        }
+    }
 
     /**
      * @return the stock
@@ -70,7 +122,41 @@ public class Product {
     /**
      * @param stock the stock to set
      */
-    public void setStock(int stock) { this.stock = stock; }
+    public void setStock(int stock) {
+        synchronized (ItemLocks.of(this)) {
+            int old = this.stock;
+            this.stock = stock;
+            if (old != stock) {
+                propertiesChanged();
+                for (StockListener listener : stockListeners) {
+                    listener.stockChanged(this, old, stock);
+                }
+            }
+        }
+    }
+
+    /** This method adds to the stock in one step, checked against the min and max.  StockLedger calls it.
+     *  @param quantity int amount to add, negative to take away
+     *  @return int stock before the change
+     *  @throws StockLimitException If the stock would leave the min and max, in which case nothing changes
+     */
+    int addStock(int quantity) {
+        synchronized (ItemLocks.of(this)) {
+            int old = this.stock;
+            long stock = (long) old + quantity;
+            if (stock < min || stock > max) {
+                throw new StockLimitException("Product " + id, old, quantity, min, max);
+            }
+            this.stock = (int) stock;
+            if (quantity != 0) {
+                propertiesChanged();
+                for (StockListener listener : stockListeners) {
+                    listener.stockChanged(this, old, (int) stock);
+                }
+            }
+            return old;
+        }
+    }
 
     /**
      * @return the min
@@ -80,7 +166,14 @@ public class Product {
     /**
      * @param min the min to set
      */
-    public void setMin(int min) { this.min = min; }
+    public void setMin(int min) {
+        synchronized (ItemLocks.of(this)) {
+            if (this.min != min) {
+                this.min = min;
+                limitsChanged();
+            }
+        }
+    }
 
     /**
      * @return the max
@@ -91,31 +184,408 @@ public class Product {
      * @param max the max to set
      */
     public void setMax(int max) {
-        this.max = max;
+        synchronized (ItemLocks.of(this)) {
+            if (this.max != max) {
+                this.max = max;
+                limitsChanged();
+            }
+        }
     }
 
-    /** This method adds a Part object to the ObservableList associatedParts.
-     *  @param part Part object to add to associatedParts Observable List
+    /** This method adds one of a part to the bill of materials, adding a line for it if it has none.
+     *  @param part Part object to add to the associated parts
      */
     public void addAssociatedPart(Part part) {
-        associatedParts.add(part);
+        int partId = part.getId();
+        synchronized (ItemLocks.of(this)) {
+            int quantity;
+            synchronized (this) {
+                quantity = quantityOf(parts, partId);
+                setPartQuantity(partId, quantity + 1, part);
+            }
+            notifyListeners(false, partId, quantity, quantity + 1);
+        }
     }
 
-    /** This method deletes a Part object from the ObservableList associatedParts.
-     * @param selectedAssociatedPart Part object selected in the TableView object
+    /** This method takes one of a part off the bill of materials, dropping its line when none are left.
+     *  @param selectedAssociatedPart Part object selected in the TableView object
      *  @return boolean value for whether part was removed or not
      */
     public boolean deleteAssociatedPart(Part selectedAssociatedPart) {
-        return associatedParts.remove(selectedAssociatedPart);
+        int partId = selectedAssociatedPart.getId();
+        synchronized (ItemLocks.of(this)) {
+            int quantity;
+            synchronized (this) {
+                quantity = quantityOf(parts, partId);
+                if (quantity == 0) {
+                    return false;
+                }
+                setPartQuantity(partId, quantity - 1, selectedAssociatedPart);
+            }
+            notifyListeners(false, partId, quantity, quantity - 1);
+            return true;
+        }
+    }
+
+    /** This method sets how many of a part the product needs.
+     *  @param partId int id of the part
+     *  @param quantity int new quantity; 0 takes the part off the bill of materials
+     *  @throws IllegalArgumentException if quantity is negative
+     */
+    public void setAssociatedPartQuantity(int partId, int quantity) {
+        checkQuantity(quantity);
+        synchronized (ItemLocks.of(this)) {
+            int old;
+            synchronized (this) {
+                old = quantityOf(parts, partId);
+                if (old == quantity) {
+                    return;
+                }
+                setPartQuantity(partId, quantity, null);
+            }
+            notifyListeners(false, partId, old, quantity);
+        }
+    }
+
+    /** @param partId int id of the part
+     *  @return int number of the part the product needs, 0 if it is not on the bill of materials
+     */
+    public synchronized int getAssociatedPartQuantity(int partId) {
+        return quantityOf(parts, partId);
+    }
+
+    /** @return int number of different parts on the bill of materials */
+    public synchronized int getAssociatedPartCount() {
+        return parts == null ? 0 : parts.size();
+    }
+
+    /** This method copies the parts on the bill of materials in one step, so they can be read while another
+     *  thread changes them.
+     *  @return pairs of part id and quantity: id, quantity, id, quantity and so on
+     */
+    public synchronized int[] getBillOfMaterials() {
+        return parts == null ? NO_LINES : parts.toArray();
+    }
+
+    /** This method replaces all the parts on the bill of materials.
+     *  Association listeners are told about every part whose quantity changed.
+     *  @param pairs pairs of part id and quantity as returned by getBillOfMaterials; a part listed more than once
+     *               gets the sum of its quantities
+     *  @throws IllegalArgumentException if pairs has an odd length or a quantity is negative
+     */
+    public void setBillOfMaterials(int[] pairs) {
+        checkPairs(pairs);
+        synchronized (ItemLocks.of(this)) {
+            int[] old;
+            int[] now;
+            synchronized (this) {
+                old = getBillOfMaterials();
+                parts = null;
+                if (view != null) {
+                    view.clear();
+                }
+                for (int i = 0; i < pairs.length; i += 2) {
+                    if (pairs[i + 1] > 0) {
+                        setPartQuantity(pairs[i], quantityOf(parts, pairs[i]) + pairs[i + 1], null);
+                    }
+                }
+                now = getBillOfMaterials();
+            }
+            notifyChanges(false, old, now);
+        }
+    }
+
+    /** This method adds one of another product to this product as a sub-assembly.
+     *  Components are kept by id, like parts, and are exploded into their parts by BomExplosion.
+     *  @param component Product to add as a component
+     *  @throws IllegalArgumentException if component is this product
+     */
+    public void addComponent(Product component) {
+        int componentId = component.getId();
+        if (component == this || componentId == id) {
+            throw new IllegalArgumentException("A product can not be a component of itself");
+        }
+        synchronized (ItemLocks.of(this)) {
+            int quantity;
+            synchronized (this) {
+                quantity = quantityOf(components, componentId);
+                components = set(components, componentId, quantity + 1);
+            }
+            notifyListeners(true, componentId, quantity, quantity + 1);
+        }
+    }
+
+    /** This method takes one of a component off this product, dropping its line when none are left.
+     *  @param component Product to remove
+     *  @return boolean value for whether the component was removed or not
+     */
+    public boolean deleteComponent(Product component) {
+        int componentId = component.getId();
+        synchronized (ItemLocks.of(this)) {
+            int quantity;
+            synchronized (this) {
+                quantity = quantityOf(components, componentId);
+                if (quantity == 0) {
+                    return false;
+                }
+                components = set(components, componentId, quantity - 1);
+            }
+            notifyListeners(true, componentId, quantity, quantity - 1);
+            return true;
+        }
+    }
+
+    /** This method sets how many of another product this product needs.
+     *  @param componentId int id of the component product
+     *  @param quantity int new quantity; 0 removes the component
+     *  @throws IllegalArgumentException if quantity is negative or componentId is the id of this product
+     */
+    public void setComponentQuantity(int componentId, int quantity) {
+        checkQuantity(quantity);
+        if (componentId == id && quantity > 0) {
+            throw new IllegalArgumentException("A product can not be a component of itself");
+        }
+        synchronized (ItemLocks.of(this)) {
+            int old;
+            synchronized (this) {
+                old = quantityOf(components, componentId);
+                if (old == quantity) {
+                    return;
+                }
+                components = set(components, componentId, quantity);
+            }
+            notifyListeners(true, componentId, old, quantity);
+        }
     }
 
-    /** This method returns the ObservableList associatedParts.
-     * @return associatedParts
+    /** @param componentId int id of the component product
+     *  @return int number of the component this product needs, 0 if it is not a component
      */
-    public ObservableList<Part> getAllAssociatedParts() {
-        return associatedParts;
+    public synchronized int getComponentQuantity(int componentId) {
+        return quantityOf(components, componentId);
     }
 
+    /** @return int number of different products this product is built from */
+    public synchronized int getComponentCount() {
+        return components == null ? 0 : components.size();
+    }
 
+    /** @return pairs of component product id and quantity, copied in one step */
+    public synchronized int[] getComponents() {
+        return components == null ? NO_LINES : components.toArray();
+    }
 
+    /** This method replaces all the components of this product.
+     *  Association listeners are told about every component whose quantity changed.
+     *  @param pairs pairs of product id and quantity as returned by getComponents
+     *  @throws IllegalArgumentException if pairs has an odd length, a quantity is negative or it lists this product
+     */
+    public void setComponents(int[] pairs) {
+        checkPairs(pairs);
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i] == id && pairs[i + 1] > 0) {
+                throw new IllegalArgumentException("A product can not be a component of itself");
+            }
+        }
+        synchronized (ItemLocks.of(this)) {
+            int[] old;
+            int[] now;
+            synchronized (this) {
+                old = getComponents();
+                components = null;
+                for (int i = 0; i < pairs.length; i += 2) {
+                    if (pairs[i + 1] > 0) {
+                        components = set(components, pairs[i], quantityOf(components, pairs[i]) + pairs[i + 1]);
+                    }
+                }
+                now = getComponents();
+            }
+            notifyChanges(true, old, now);
+        }
+    }
+
+    /** This method returns the associated parts as an ObservableList, with each part once whatever its quantity.
+     *  The list is built the first time it is asked for, from the parts catalog of InventoryStore, and is kept up
+     *  to date from then on; ids on the bill of materials that are not in the catalog are left out.  It can not be
+     *  changed directly: use addAssociatedPart, deleteAssociatedPart and setAssociatedPartQuantity.
+     *  @return associatedParts
+     */
+    public synchronized ObservableList<Part> getAllAssociatedParts() {
+        if (view == null) {
+            view = new AssociatedPartsView(parts);
+        }
+        return view.list();
+    }
+
+    /** @return the id as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<Integer> idProperty() {
+        return properties().id();
+    }
+
+    /** @return the name as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<String> nameProperty() {
+        return properties().name();
+    }
+
+    /** @return the stock as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<Integer> stockProperty() {
+        return properties().stock();
+    }
+
+    /** @return the price as a property, for the TableViews to bind to on the FX thread */
+    public ReadOnlyObjectProperty<Double> priceProperty() {
+        return properties().price();
+    }
+
+    /** @return the properties of the product, made the first time they are asked for */
+    private ItemProperties properties() {
+        ItemProperties made = properties;
+        if (made == null) {
+            made = new ItemProperties(this::getId, this::getName, this::getStock, this::getPrice);
+            properties = made;
+        }
+        return made;
+    }
+
+    /** This method has the properties read again if any have been made. */
+    private void propertiesChanged() {
+        ItemProperties made = properties;
+        if (made != null) {
+            made.changed();
+        }
+    }
+
+    /** This method registers a listener that is told about every change to the quantity of a part or component on
+     *  the bill of materials of any product.
+     *  @param listener listener to register
+     */
+    public static void addAssociationListener(AssociationListener listener) {
+        associationListeners.add(listener);
+    }
+
+    /** @param listener listener to stop telling about associated part changes */
+    public static void removeAssociationListener(AssociationListener listener) {
+        associationListeners.remove(listener);
+    }
+
+    /** This method registers a listener that is told every time setStock, setMin, setMax or setPrice changes any
+     *  product.
+     *  Products that are replaced in the catalog are reported through the catalog instead.
+     *  @param listener listener to register
+     */
+    public static void addStockListener(StockListener listener) {
+        stockListeners.add(listener);
+    }
+
+    /** @param listener listener to stop telling about stock changes */
+    public static void removeStockListener(StockListener listener) {
+        stockListeners.remove(listener);
+    }
+
+    /** This method tells the stock listeners that the min or max of this product changed. */
+    private void limitsChanged() {
+        for (StockListener listener : stockListeners) {
+            listener.limitsChanged(this);
+        }
+    }
+
+    /** @param lines lines to read, or null for none
+     *  @param id int id to look for
+     *  @return int quantity of the id
+     */
+    private static int quantityOf(BomLines lines, int id) {
+        return lines == null ? 0 : lines.quantityOf(id);
+    }
+
+    /** @param lines lines to change, or null for none yet
+     *  @param id int id to change
+     *  @param quantity int new quantity
+     *  @return the lines, made if there were none
+     */
+    private static BomLines set(BomLines lines, int id, int quantity) {
+        if (lines == null) {
+            if (quantity == 0) {
+                return null;
+            }
+            lines = new BomLines();
+        }
+        lines.set(id, quantity);
+        return lines;
+    }
+
+    /** @param quantity int quantity to check
+     *  @throws IllegalArgumentException if it is negative
+     */
+    private static void checkQuantity(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative: " + quantity);
+        }
+    }
+
+    /** @param pairs pairs of id and quantity to check
+     *  @throws IllegalArgumentException if there is an odd number of values or a quantity is negative
+     */
+    private static void checkPairs(int[] pairs) {
+        if ((pairs.length & 1) != 0) {
+            throw new IllegalArgumentException("Bill of materials must hold pairs of id and quantity");
+        }
+        for (int i = 1; i < pairs.length; i += 2) {
+            checkQuantity(pairs[i]);
+        }
+    }
+
+    /** This method changes the quantity of a part and keeps the view in step.
+     *  @param partId int id of the part
+     *  @param quantity int new quantity, 0 to drop the line
+     *  @param part the Part object if the caller has it, otherwise it is looked up when the view needs it
+     */
+    private void setPartQuantity(int partId, int quantity, Part part) {
+        int old = quantityOf(parts, partId);
+        parts = set(parts, partId, quantity);
+        if (view != null) {
+            view.quantityChanged(partId, old, quantity, part);
+        }
+    }
+
+    /** This method tells the listeners about every id whose quantity differs between two copies of the lines.
+     *  @param component true for components, false for parts
+     *  @param old pairs before the change
+     *  @param now pairs after the change
+     */
+    private void notifyChanges(boolean component, int[] old, int[] now) {
+        if (associationListeners.isEmpty()) {
+            return;
+        }
+        IntIntMap before = new IntIntMap(old.length / 2);
+        for (int i = 0; i < old.length; i += 2) {
+            before.put(old[i], old[i + 1]);
+        }
+        for (int i = 0; i < now.length; i += 2) {
+            int was = before.remove(now[i]);
+            was = was == IntIntMap.NO_VALUE ? 0 : was;
+            if (was != now[i + 1]) {
+                notifyListeners(component, now[i], was, now[i + 1]);
+            }
+        }
+        for (int i = 0; i < old.length; i += 2) {
+            if (before.get(old[i]) != IntIntMap.NO_VALUE) {
+                notifyListeners(component, old[i], old[i + 1], 0);
+            }
+        }
+    }
+
+    /** @param component true if a component changed, false if a part did
+     *  @param lineId int id of the part or component product whose quantity changed
+     *  @param oldQuantity int quantity before the change
+     *  @param newQuantity int quantity after the change
+     */
+    private void notifyListeners(boolean component, int lineId, int oldQuantity, int newQuantity) {
+        for (AssociationListener listener : associationListeners) {
+            if (component) {
+                listener.componentChanged(this, lineId, oldQuantity, newQuantity);
+            } else {
+                listener.associationChanged(this, lineId, oldQuantity, newQuantity);
+            }
+        }
+    }
 }
@@ -0,0 +1,377 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/** This class is responsible for keeping the items of a catalog in order of one key, such as price or stock.
+ *  <p>The items sit in a ConcurrentSkipListSet ordered by key and then by id, so walking them in order, in either
+ *  direction, and finding every item with a key in a range take time in the number of items returned rather than
+ *  a sort of the whole catalog.  Readers never lock; they may miss an item whose key is being changed right then.
+ *  <p>An index costs a skip list entry per item, so it is only built the first time it is read: it then
+ *  subscribes to its catalog, indexes the catalog's snapshot and follows each later change.  Key changes that do
+ *  not go through the catalog reach it through the StockListener that InventoryIndexes registers with Part and
+ *  Product.  A new name reaches it as a replacement of the item by itself, which the setters send through
+ *  Catalog.renamed.
+ *  <p>slice() reads a window of the items by position, which is how FxListPager shows an index a page at a time.
+ *  The skip list has no positions, so a window is found by walking to it from the nearer end, or from where the
+ *  last window started if nothing has changed since, which keeps scrolling through a large index cheap.
+ *  @param <T> type of the items, Part or Product
+ *  @param <K> type of the key
+ */
+public final class SortedIndex<T, K extends Comparable<? super K>> {
+    private final Catalog<T> catalog;
+    private final ToIntFunction<T> idOf;
+    private final Function<T, K> keyOf;
+    private final NavigableSet<Entry<T, K>> entries = new ConcurrentSkipListSet<>();
+    // Entry of each indexed item by id, changed under the monitor of the index.
+    private final IntMap<Entry<T, K>> current = new IntMap<>();
+    // Told whenever an item enters, leaves or moves in the order.
+    private final List<Runnable> orderListeners = new CopyOnWriteArrayList<>();
+    // Number of entries, kept here because counting a ConcurrentSkipListSet walks it.
+    private volatile int size;
+    // Counts the changes to the entries, so a position remembered by slice() is only used while it is still right.
+    private volatile int version;
+    // Where the last window read by slice() starts, so reading the next one near it does not walk from an end.
+    private volatile Anchor<T, K> anchor;
+    // Set as the build starts, so key changes made while the snapshot is indexed are applied after it.
+    private volatile boolean following;
+    private volatile boolean built;
+
+    /** @param catalog catalog whose items are indexed
+     *  @param idOf returns the id of an item
+     *  @param keyOf returns the key of an item as it is now
+     */
+    SortedIndex(Catalog<T> catalog, ToIntFunction<T> idOf, Function<T, K> keyOf) {
+        this.catalog = catalog;
+        this.idOf = idOf;
+        this.keyOf = keyOf;
+    }
+
+    /** @return every item, lowest key first */
+    public List<T> ascending() {
+        return items(entries(), null);
+    }
+
+    /** @return every item, highest key first */
+    public List<T> descending() {
+        return items(entries().descendingSet(), null);
+    }
+
+    /** @return int number of items in the index */
+    public int size() {
+        entries();
+        return size;
+    }
+
+    /** @param from lowest key, or null for no lower bound
+     *  @param fromInclusive boolean value for whether an item with key from is included
+     *  @param to highest key, or null for no upper bound
+     *  @param toInclusive boolean value for whether an item with key to is included
+     *  @return the items with a key in the range, lowest key first
+     */
+    public List<T> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        return range(from, fromInclusive, to, toInclusive, null);
+    }
+
+    /** This method finds the items with a key in a range that also pass a test, such as parts priced from 10 to 50
+     *  with a stock below 5.  Only the items in the range are tested, so the range should be on the more selective
+     *  key of the two.
+     *  @param from lowest key, or null for no lower bound
+     *  @param fromInclusive boolean value for whether an item with key from is included
+     *  @param to highest key, or null for no upper bound
+     *  @param toInclusive boolean value for whether an item with key to is included
+     *  @param filter test the items must pass, or null for none
+     *  @return the items with a key in the range that pass the test, lowest key first
+     */
+    public List<T> range(K from, boolean fromInclusive, K to, boolean toInclusive, Predicate<? super T> filter) {
+        NavigableSet<Entry<T, K>> set = entries();
+        if (from != null) {
+            set = set.tailSet(Entry.bound(from, fromInclusive ? -1 : 1), false);
+        }
+        if (to != null) {
+            set = set.headSet(Entry.bound(to, toInclusive ? 1 : -1), false);
+        }
+        return items(set, filter);
+    }
+
+    /** This method reads the items at a run of positions in the order.  Items that move while it walks may be
+     *  missed or read twice, as with any reader of the index.
+     *  @param from int first position, counting from 0
+     *  @param to int position after the last one
+     *  @param descending boolean value for whether positions count from the highest key instead of the lowest
+     *  @return the items at those positions, fewer if the index is shorter
+     */
+    List<T> slice(int from, int to, boolean descending) {
+        NavigableSet<Entry<T, K>> set = entries();
+        int seen = version;
+        int total = size;
+        int count = Math.min(to, total) - from;
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        // Positions from here on count from the lowest key.
+        int first = descending ? total - from - count : from;
+        int last = first + count;
+        Anchor<T, K> near = anchor;
+        Iterator<Entry<T, K>> walk;
+        int skip;
+        boolean backwards;
+        if (near != null && near.version == seen && near.position <= first
+                && first - near.position < Math.min(first, total - last)) {
+            walk = set.tailSet(near.entry, true).iterator();
+            skip = first - near.position;
+            backwards = false;
+        } else if (near != null && near.version == seen && near.position >= last
+                && near.position - last < Math.min(first, total - last)) {
+            walk = set.headSet(near.entry, false).descendingIterator();
+            skip = near.position - last;
+            backwards = true;
+        } else if (first <= total - last) {
+            walk = set.iterator();
+            skip = first;
+            backwards = false;
+        } else {
+            walk = set.descendingIterator();
+            skip = total - last;
+            backwards = true;
+        }
+        for (; skip > 0 && walk.hasNext(); skip--) {
+            walk.next();
+        }
+        List<Entry<T, K>> window = new ArrayList<>(count);
+        while (window.size() < count && walk.hasNext()) {
+            window.add(walk.next());
+        }
+        if (window.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (backwards != descending) {
+            Collections.reverse(window);
+        }
+        anchor = new Anchor<>(seen, first, window.get(descending ? window.size() - 1 : 0));
+        List<T> items = new ArrayList<>(window.size());
+        for (Entry<T, K> entry : window) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    /** @param item item to find
+     *  @param descending boolean value for whether positions count from the highest key instead of the lowest
+     *  @return int position of the item in the order, or -1 if it is not the one in the index
+     */
+    int indexOf(T item, boolean descending) {
+        Entry<T, K> entry;
+        synchronized (this) {
+            entry = current.get(idOf.applyAsInt(item));
+        }
+        if (entry == null || entry.item != item) {
+            return -1;
+        }
+        return (descending ? entries.tailSet(entry, false) : entries.headSet(entry, false)).size();
+    }
+
+    /** @param listener told, on the thread that made the change, whenever an item enters, leaves or moves in the
+     *  order; it must be quick and must not change the index
+     */
+    void listen(Runnable listener) {
+        orderListeners.add(listener);
+    }
+
+    /** @param listener listener to stop telling */
+    void unlisten(Runnable listener) {
+        orderListeners.remove(listener);
+    }
+
+    /** @return listener that follows the catalog once the index is built */
+    CatalogListener<T> catalogListener() {
+        return new CatalogListener<T>() {
+            @Override
+            public void added(int slot, T item) {
+                put(item);
+            }
+
+            @Override
+            public void replaced(int slot, T oldItem, T newItem) {
+                put(newItem);
+            }
+
+            @Override
+            public void removed(int slot, T item) {
+                remove(item);
+            }
+        };
+    }
+
+    /** This method indexes an item again after a change to its key outside the catalog.
+     *  Items that are not the ones in the index, such as a part a form is still building, are ignored.
+     *  @param item item whose key may have changed
+     */
+    void changed(T item) {
+        if (!following) {
+            return;
+        }
+        synchronized (this) {
+            Entry<T, K> entry = current.get(idOf.applyAsInt(item));
+            if (entry != null && entry.item == item) {
+                put(item);
+            }
+        }
+    }
+
+    /** @return the entries, building the index first if it has never been read */
+    private NavigableSet<Entry<T, K>> entries() {
+        if (!built) {
+            build();
+        }
+        return entries;
+    }
+
+    /** This method subscribes to the catalog and indexes what it holds.  Changes made meanwhile wait on the monitor
+     *  and are applied afterwards; the catalog can not be waiting on the monitor before the listener is registered.
+     */
+    private synchronized void build() {
+        if (built) {
+            return;
+        }
+        following = true;
+        for (T item : catalog.subscribe(catalogListener())) {
+            put(item);
+        }
+        built = true;
+    }
+
+    /** @param item item to index under its key as it is now */
+    private synchronized void put(T item) {
+        int id = idOf.applyAsInt(item);
+        K key = keyOf.apply(item);
+        Entry<T, K> old = current.get(id);
+        if (old != null) {
+            if (old.item == item && old.key.compareTo(key) == 0) {
+                return;
+            }
+            entries.remove(old);
+        } else {
+            size++;
+        }
+        Entry<T, K> entry = new Entry<>(item, id, key);
+        current.put(id, entry);
+        entries.add(entry);
+        version++;
+        orderChanged();
+    }
+
+    /** @param item item that left the catalog */
+    private synchronized void remove(T item) {
+        int id = idOf.applyAsInt(item);
+        Entry<T, K> old = current.get(id);
+        if (old != null && old.item == item) {
+            current.remove(id);
+            entries.remove(old);
+            size--;
+            version++;
+            orderChanged();
+        }
+    }
+
+    /** This method tells the order listeners that the order changed, unless the index is still being built. */
+    private void orderChanged() {
+        if (!built) {
+            return;
+        }
+        for (Runnable listener : orderListeners) {
+            listener.run();
+        }
+    }
+
+    /** @param set entries to read
+     *  @param filter test the items must pass, or null for none
+     *  @return the items of the entries that pass the test, in order
+     */
+    private static <T, K extends Comparable<? super K>> List<T> items(NavigableSet<Entry<T, K>> set,
+                                                                      Predicate<? super T> filter) {
+        List<T> items = new ArrayList<>();
+        for (Entry<T, K> entry : set) {
+            if (filter == null || filter.test(entry.item)) {
+                items.add(entry.item);
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    /** This class is responsible for remembering the position of one entry, counting from the lowest key.
+     *  @param <T> type of the item
+     *  @param <K> type of the key
+     */
+    private static final class Anchor<T, K extends Comparable<? super K>> {
+        final int version;
+        final int position;
+        final Entry<T, K> entry;
+
+        /** @param version int version of the index the position was read at
+         *  @param position int position of the entry
+         *  @param entry entry at that position
+         */
+        Anchor(int version, int position, Entry<T, K> entry) {
+            this.version = version;
+            this.position = position;
+            this.entry = entry;
+        }
+    }
+
+    /** This class is responsible for one item of the index, or for a bound just before or after every item with a
+     *  key when a range is looked up.
+     *  @param <T> type of the item
+     *  @param <K> type of the key
+     */
+    private static final class Entry<T, K extends Comparable<? super K>> implements Comparable<Entry<T, K>> {
+        final T item;
+        final int id;
+        final K key;
+        // -1 for a bound before every item with the key, 1 for one after them, 0 for an item.
+        final int side;
+
+        /** @param item item, or null for a bound
+         *  @param id int id of the item
+         *  @param key key of the item
+         */
+        Entry(T item, int id, K key) {
+            this(item, id, key, 0);
+        }
+
+        private Entry(T item, int id, K key, int side) {
+            this.item = item;
+            this.id = id;
+            this.key = key;
+            this.side = side;
+        }
+
+        /** @param key key of the bound
+         *  @param side int -1 for before the items with the key, 1 for after them
+         *  @return the bound
+         */
+        static <T, K extends Comparable<? super K>> Entry<T, K> bound(K key, int side) {
+            return new Entry<>(null, 0, key, side);
+        }
+
+        @Override
+        public int compareTo(Entry<T, K> other) {
+            int order = key.compareTo(other.key);
+            if (order != 0) {
+                return order;
+            }
+            if (side != other.side) {
+                return Integer.compare(side, other.side);
+            }
+            return Integer.compare(id, other.id);
+        }
+    }
+}
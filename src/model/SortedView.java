@@ -0,0 +1,30 @@
+package model;
+
+import javafx.collections.ObservableList;
+
+/** This class is responsible for showing the items of a SortedIndex in order on the FX thread.
+ *  <p>The list is an FxListPager over the index, so it only holds the pages a TableView has read lately and follows
+ *  every change to the order, including changes to the stock or price of an item, which do not go through the
+ *  catalog.  A view keeps following its index until it is closed.
+ *  @param <T> type of the items, Part or Product
+ */
+public final class SortedView<T> {
+    private final FxListPager<T> pager;
+
+    /** @param index index whose order the list shows
+     *  @param descending boolean value for whether the highest key comes first
+     */
+    public SortedView(SortedIndex<T, ?> index, boolean descending) {
+        pager = new FxListPager<>(index, descending);
+    }
+
+    /** @return the list of the items in order, to be read on the FX thread */
+    public ObservableList<T> list() {
+        return pager.list();
+    }
+
+    /** This method stops following the index. */
+    public void close() {
+        pager.close();
+    }
+}
@@ -0,0 +1,109 @@
+package model;
+
+/** This class is responsible for describing one part or product whose stock is outside its min and max.
+ *  <p>An alert is a value taken at one moment: it does not change when the stock does.  StockAlerts hands out a
+ *  new one every time the stock or limits of an item in alert change.
+ */
+public final class StockAlert {
+
+    /** Which side of its limits the stock is on. */
+    public enum Level { SHORTAGE, OVERSTOCK }
+
+    /** Which catalog the item is in. */
+    public enum Source { PART, PRODUCT }
+
+    private final Source source;
+    private final int id;
+    private final int stock;
+    private final int min;
+    private final int max;
+    private final Level level;
+
+    /** @param source catalog of the item
+     *  @param id int id of the item
+     *  @param stock int stock of the item
+     *  @param min int min of the item
+     *  @param max int max of the item
+     *  @param level side of the limits the stock is on
+     */
+    private StockAlert(Source source, int id, int stock, int min, int max, Level level) {
+        this.source = source;
+        this.id = id;
+        this.stock = stock;
+        this.min = min;
+        this.max = max;
+        this.level = level;
+    }
+
+    /** @param source catalog of the item
+     *  @param id int id of the item
+     *  @param stock int stock of the item
+     *  @param min int min of the item
+     *  @param max int max of the item
+     *  @return the alert for the item, or null if its stock is within its limits
+     */
+    static StockAlert of(Source source, int id, int stock, int min, int max) {
+        if (stock < min) {
+            return new StockAlert(source, id, stock, min, max, Level.SHORTAGE);
+        }
+        if (stock > max) {
+            return new StockAlert(source, id, stock, min, max, Level.OVERSTOCK);
+        }
+        return null;
+    }
+
+    /** @return catalog the item is in */
+    public Source getSource() {
+        return source;
+    }
+
+    /** @return int id of the part or product */
+    public int getId() {
+        return id;
+    }
+
+    /** @return int stock when the alert was made */
+    public int getStock() {
+        return stock;
+    }
+
+    /** @return int min when the alert was made */
+    public int getMin() {
+        return min;
+    }
+
+    /** @return int max when the alert was made */
+    public int getMax() {
+        return max;
+    }
+
+    /** @return side of the limits the stock is on */
+    public Level getLevel() {
+        return level;
+    }
+
+    /** @return long units the stock is below min or above max, always more than 0 */
+    public long getGap() {
+        return level == Level.SHORTAGE ? (long) min - stock : (long) stock - max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof StockAlert)) {
+            return false;
+        }
+        StockAlert other = (StockAlert) o;
+        return source == other.source && id == other.id && stock == other.stock && min == other.min
+                && max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((source.ordinal() * 31 + id) * 31 + stock) * 31 + min * 17 + max;
+    }
+
+    @Override
+    public String toString() {
+        return source + " " + id + " " + level + " stock=" + stock + " min=" + min + " max=" + max;
+    }
+}
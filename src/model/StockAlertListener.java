@@ -0,0 +1,14 @@
+package model;
+
+/** This interface is responsible for receiving the alerts raised, changed and cleared by StockAlerts.
+ *  <p>Listeners are called on the thread that made the change, after StockAlerts has released its monitor, so they
+ *  may read StockAlerts back.  They must be quick, as stock may change many times a second.
+ */
+public interface StockAlertListener {
+
+    /** This method is called after the alert of a part or product changed.
+     *  @param oldAlert alert before the change, or null if the item was not in alert
+     *  @param newAlert alert after the change, or null if the item is no longer in alert
+     */
+    void alertChanged(StockAlert oldAlert, StockAlert newAlert);
+}
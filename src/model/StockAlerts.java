@@ -0,0 +1,232 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** This class is responsible for knowing which parts and products have a stock below their min or above their max.
+ *  <p>Before, min and max were only checked by MainForm.isLogical when a form was saved.  Here every change to the
+ *  stock, min or max of an item in the catalogs is checked as it happens, and the items out of their limits sit in
+ *  two AlertHeaps, one for shortages and one for overstock, each with the largest gap on top.  A change costs
+ *  O(log n) in the number of alerts, the most urgent shortage is O(1), and the reorder list only sorts the items
+ *  that are short, so nothing ever scans the inventory.
+ *  <p>The catalogs are followed through CatalogListeners and the setters of Part and Product through a
+ *  StockListener, all registered by InventoryStore.  Only items that are in the catalogs are checked, so a part a
+ *  form is still building raises nothing until it is added.  The alerts are guarded by the monitor of this object,
+ *  and StockAlertListeners are told about each change once the monitor has been released.
+ */
+public final class StockAlerts {
+    private final AlertHeap shortages = new AlertHeap();
+    private final AlertHeap overstocks = new AlertHeap();
+    private final IntMap<Part> parts = new IntMap<>();
+    private final IntMap<Product> products = new IntMap<>();
+    private final List<StockAlertListener> listeners = new CopyOnWriteArrayList<>();
+
+    StockAlerts() { }
+
+    /** @return the parts and products whose stock is below their min, the largest shortage first */
+    public synchronized List<StockAlert> reorderNeeded() {
+        return Collections.unmodifiableList(Arrays.asList(shortages.toSortedArray()));
+    }
+
+    /** @return the parts and products whose stock is above their max, the largest excess first */
+    public synchronized List<StockAlert> overstocked() {
+        return Collections.unmodifiableList(Arrays.asList(overstocks.toSortedArray()));
+    }
+
+    /** @return the largest shortage, or null if nothing is below its min */
+    public synchronized StockAlert mostUrgent() {
+        return shortages.peek();
+    }
+
+    /** @return int number of parts and products below their min */
+    public synchronized int shortageCount() {
+        return shortages.size();
+    }
+
+    /** @return int number of parts and products above their max */
+    public synchronized int overstockCount() {
+        return overstocks.size();
+    }
+
+    /** @param source catalog of the item
+     *  @param id int id of the part or product
+     *  @return the alert of the item, or null if its stock is within its limits
+     */
+    public synchronized StockAlert alertFor(StockAlert.Source source, int id) {
+        StockAlert alert = shortages.get(source, id);
+        return alert != null ? alert : overstocks.get(source, id);
+    }
+
+    /** @param listener listener to tell about alerts raised, changed and cleared */
+    public void addListener(StockAlertListener listener) {
+        listeners.add(listener);
+    }
+
+    /** @param listener listener to stop telling */
+    public void removeListener(StockAlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** @return listener that follows the parts catalog */
+    CatalogListener<Part> partListener() {
+        return new CatalogListener<Part>() {
+            @Override
+            public void added(int slot, Part item) {
+                trackPart(item);
+            }
+
+            @Override
+            public void replaced(int slot, Part oldItem, Part newItem) {
+                trackPart(newItem);
+            }
+
+            @Override
+            public void removed(int slot, Part item) {
+                StockAlert old;
+                synchronized (StockAlerts.this) {
+                    parts.remove(item.getId());
+                    old = set(StockAlert.Source.PART, item.getId(), null);
+                }
+                fire(old, null);
+            }
+        };
+    }
+
+    /** @return listener that follows the products catalog */
+    CatalogListener<Product> productListener() {
+        return new CatalogListener<Product>() {
+            @Override
+            public void added(int slot, Product item) {
+                trackProduct(item);
+            }
+
+            @Override
+            public void replaced(int slot, Product oldItem, Product newItem) {
+                // Also called when a form saves a product it edited in place, so its limits are checked again.
+                trackProduct(newItem);
+            }
+
+            @Override
+            public void removed(int slot, Product item) {
+                StockAlert old;
+                synchronized (StockAlerts.this) {
+                    products.remove(item.getId());
+                    old = set(StockAlert.Source.PRODUCT, item.getId(), null);
+                }
+                fire(old, null);
+            }
+        };
+    }
+
+    /** @return listener that checks the parts and products whose stock, min or max changed */
+    StockListener stockListener() {
+        return new StockListener() {
+            @Override
+            public void stockChanged(Part part, int oldStock, int newStock) {
+                checkPart(part);
+            }
+
+            @Override
+            public void limitsChanged(Part part) {
+                checkPart(part);
+            }
+
+            @Override
+            public void stockChanged(Product product, int oldStock, int newStock) {
+                checkProduct(product);
+            }
+
+            @Override
+            public void limitsChanged(Product product) {
+                checkProduct(product);
+            }
+        };
+    }
+
+    /** @param part part that entered the catalog or took the place of one with its id */
+    private void trackPart(Part part) {
+        StockAlert old;
+        StockAlert now;
+        synchronized (this) {
+            parts.put(part.getId(), part);
+            now = StockAlert.of(StockAlert.Source.PART, part.getId(), part.getStock(), part.getMin(), part.getMax());
+            old = set(StockAlert.Source.PART, part.getId(), now);
+        }
+        fire(old, now);
+    }
+
+    /** @param product product that entered the catalog or took the place of one with its id */
+    private void trackProduct(Product product) {
+        StockAlert old;
+        StockAlert now;
+        synchronized (this) {
+            products.put(product.getId(), product);
+            now = StockAlert.of(StockAlert.Source.PRODUCT, product.getId(), product.getStock(), product.getMin(),
+                    product.getMax());
+            old = set(StockAlert.Source.PRODUCT, product.getId(), now);
+        }
+        fire(old, now);
+    }
+
+    /** @param part part whose stock, min or max changed; ignored unless it is the one in the catalog */
+    private void checkPart(Part part) {
+        StockAlert old;
+        StockAlert now;
+        synchronized (this) {
+            if (parts.get(part.getId()) != part) {
+                return;
+            }
+            // Read back rather than taken from the event, so the last of two racing changes always wins.
+            now = StockAlert.of(StockAlert.Source.PART, part.getId(), part.getStock(), part.getMin(), part.getMax());
+            old = set(StockAlert.Source.PART, part.getId(), now);
+        }
+        fire(old, now);
+    }
+
+    /** @param product product whose stock, min or max changed; ignored unless it is the one in the catalog */
+    private void checkProduct(Product product) {
+        StockAlert old;
+        StockAlert now;
+        synchronized (this) {
+            if (products.get(product.getId()) != product) {
+                return;
+            }
+            now = StockAlert.of(StockAlert.Source.PRODUCT, product.getId(), product.getStock(), product.getMin(),
+                    product.getMax());
+            old = set(StockAlert.Source.PRODUCT, product.getId(), now);
+        }
+        fire(old, now);
+    }
+
+    /** This method files the alert of an item in the right heap; the caller holds the monitor.
+     *  @param source catalog of the item
+     *  @param id int id of the item
+     *  @param alert new alert, or null if the item is within its limits
+     *  @return the alert the item had, or null
+     */
+    private StockAlert set(StockAlert.Source source, int id, StockAlert alert) {
+        if (alert == null) {
+            StockAlert old = shortages.remove(source, id);
+            return old != null ? old : overstocks.remove(source, id);
+        }
+        AlertHeap heap = alert.getLevel() == StockAlert.Level.SHORTAGE ? shortages : overstocks;
+        AlertHeap other = heap == shortages ? overstocks : shortages;
+        StockAlert old = other.remove(source, id);
+        StockAlert replaced = heap.put(alert);
+        return old != null ? old : replaced;
+    }
+
+    /** @param old alert before the change, or null
+     *  @param now alert after the change, or null
+     */
+    private void fire(StockAlert old, StockAlert now) {
+        if (old == null ? now == null : old.equals(now)) {
+            return;
+        }
+        for (StockAlertListener listener : listeners) {
+            listener.alertChanged(old, now);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** This class is responsible for moving stock in and out and keeping a ledger of every movement.
+ *  <p>setStock overwrites the stock, so two scanners that each read it, add to it and set it lose one of the two
+ *  changes.  The movements here add to the stock instead, in one atomic step that also checks the min and max,
+ *  made under the ItemLocks lock of the item; a part's stock is also changed inside a single hold of the
+ *  PartTable lock, as every other change to a part is.  A movement that would leave the limits throws
+ *  StockLimitException and changes nothing.  The stock listeners are told of each movement as they are of
+ *  setStock, before the lock is let go, so they hear the movements of one item in the order they were made.
+ *  <p>The ledger is a ring of the last CAPACITY movements.  Recording one takes a sequence number from an
+ *  AtomicLong and stores into its slot, so scanners never wait on one another to record.  A movement is numbered
+ *  after its stock has changed, which means two movements of the same item made at the same moment may be
+ *  numbered in the other order; their old and new stock still tell which came first.
+ */
+public final class StockLedger {
+    static final int CAPACITY = 1 << 18;
+
+    private final AtomicReferenceArray<StockMovement> ring = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    StockLedger() { }
+
+    /** @param part part that goods were received for
+     *  @param quantity int number received, more than 0
+     *  @return the movement recorded
+     *  @throws StockLimitException If the stock would go above the max of the part
+     */
+    public StockMovement receive(Part part, int quantity) {
+        return move(part, StockMovement.Type.RECEIVE, positive(quantity));
+    }
+
+    /** @param part part that goods were issued from
+     *  @param quantity int number issued, more than 0
+     *  @return the movement recorded
+     *  @throws StockLimitException If the stock would go below the min of the part
+     */
+    public StockMovement issue(Part part, int quantity) {
+        return move(part, StockMovement.Type.ISSUE, -positive(quantity));
+    }
+
+    /** @param part part whose stock is corrected
+     *  @param quantity int amount to add, negative to take away
+     *  @return the movement recorded
+     *  @throws StockLimitException If the stock would leave the min and max of the part
+     */
+    public StockMovement adjust(Part part, int quantity) {
+        return move(part, StockMovement.Type.ADJUST, quantity);
+    }
+
+    /** @param product product that goods were received for
+     *  @param quantity int number received, more than 0
+     *  @return the movement recorded
+     *  @throws StockLimitException If the stock would go above the max of the product
+     */
+    public StockMovement receive(Product product, int quantity) {
+        return move(product, StockMovement.Type.RECEIVE, positive(quantity));
+    }
+
+    /** @param product product that goods were issued from
+     *  @param quantity int number issued, more than 0
+     *  @return the movement recorded
+     *  @throws StockLimitException If the stock would go below the min of the product
+     */
+    public StockMovement issue(Product product, int quantity) {
+        return move(product, StockMovement.Type.ISSUE, -positive(quantity));
+    }
+
+    /** @param product product whose stock is corrected
+     *  @param quantity int amount to add, negative to take away
+     *  @return the movement recorded
+     *  @throws StockLimitException If the stock would leave the min and max of the product
+     */
+    public StockMovement adjust(Product product, int quantity) {
+        return move(product, StockMovement.Type.ADJUST, quantity);
+    }
+
+    /** @return long sequence number of the last movement, or 0 if there has been none */
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    /** This method reads the ledger from a point onwards, so a reader can follow it by passing the sequence number
+     *  of the last movement it has seen.  It stops before a movement that is still being recorded, and movements
+     *  older than the last CAPACITY are no longer held.
+     *  @param sequence long sequence number already seen, 0 for the start of the ledger
+     *  @return the movements held with a higher sequence number, in sequence order
+     */
+    public List<StockMovement> since(long sequence) {
+        long last = lastSequence.get();
+        long first = Math.max(sequence + 1, last - CAPACITY + 1);
+        List<StockMovement> movements = new ArrayList<>((int) Math.max(0, last - first + 1));
+        for (long next = first; next <= last; next++) {
+            StockMovement movement = ring.get(slot(next));
+            if (movement == null || movement.getSequence() < next) {
+                break;
+            }
+            if (movement.getSequence() == next) {
+                movements.add(movement);
+            }
+        }
+        return movements;
+    }
+
+    /** @param part part to move
+     *  @param type why the stock moved
+     *  @param quantity int amount to add, negative to take away
+     *  @return the movement recorded
+     */
+    private StockMovement move(Part part, StockMovement.Type type, int quantity) {
+        int old = part.addStock(quantity);
+        return record(type, StockAlert.Source.PART, part.getId(), old, old + quantity);
+    }
+
+    /** @param product product to move
+     *  @param type why the stock moved
+     *  @param quantity int amount to add, negative to take away
+     *  @return the movement recorded
+     */
+    private StockMovement move(Product product, StockMovement.Type type, int quantity) {
+        int old = product.addStock(quantity);
+        return record(type, StockAlert.Source.PRODUCT, product.getId(), old, old + quantity);
+    }
+
+    /** This method puts a movement in the next slot of the ring.
+     *  @param type why the stock moved
+     *  @param source catalog of the item
+     *  @param id int id of the item
+     *  @param oldStock int stock before the movement
+     *  @param newStock int stock after the movement
+     *  @return the movement recorded
+     */
+    private StockMovement record(StockMovement.Type type, StockAlert.Source source, int id, int oldStock,
+                                 int newStock) {
+        StockMovement movement = new StockMovement(lastSequence.incrementAndGet(), type, source, id, oldStock,
+                newStock);
+        ring.set(slot(movement.getSequence()), movement);
+        return movement;
+    }
+
+    /** @param sequence long sequence number
+     *  @return int slot of the ring it is stored in
+     */
+    private static int slot(long sequence) {
+        return (int) (sequence & (CAPACITY - 1));
+    }
+
+    /** @param quantity int quantity received or issued
+     *  @return the quantity
+     */
+    private static int positive(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be more than 0: " + quantity);
+        }
+        return quantity;
+    }
+}
@@ -0,0 +1,48 @@
+package model;
+
+/** This class is responsible for reporting a stock movement that would take an item below its min or above its
+ *  max.  Nothing is changed when it is thrown.
+ */
+public class StockLimitException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final int stock;
+    private final int quantity;
+    private final int min;
+    private final int max;
+
+    /** @param item String name of the item, such as "Part 5"
+     *  @param stock int stock of the item when the movement was tried
+     *  @param quantity int change to the stock that was asked for
+     *  @param min int min of the item
+     *  @param max int max of the item
+     */
+    public StockLimitException(String item, int stock, int quantity, int min, int max) {
+        super(item + " has " + stock + " in stock; moving " + quantity + " would leave it outside " + min + " to "
+                + max);
+        this.stock = stock;
+        this.quantity = quantity;
+        this.min = min;
+        this.max = max;
+    }
+
+    /** @return int stock of the item when the movement was tried */
+    public int getStock() {
+        return stock;
+    }
+
+    /** @return int change to the stock that was asked for */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /** @return int min of the item */
+    public int getMin() {
+        return min;
+    }
+
+    /** @return int max of the item */
+    public int getMax() {
+        return max;
+    }
+}
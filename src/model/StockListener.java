@@ -0,0 +1,46 @@
+package model;
+
+/** This interface is responsible for receiving the changes made to the stock, min, max or price of any Part or
+ *  Product.
+ *  <p>Listeners are registered with Part.addStockListener or Product.addStockListener and are called on the thread
+ *  that called the setter, right after the change and before the next change to the same item can be made, so the
+ *  calls for one item come in the order of its changes.  They must be quick, as stock may change many times a
+ *  second, and must not change the stock, limits or price of another item.
+ *  Only stockChanged for parts must be implemented; the other methods do nothing by default.
+ */
+public interface StockListener {
+
+    /** This method is called after the stock of a part changed.
+     *  @param part Part whose stock changed
+     *  @param oldStock int stock before the change
+     *  @param newStock int stock after the change
+     */
+    void stockChanged(Part part, int oldStock, int newStock);
+
+    /** This method is called after the min or max of a part changed.
+     *  @param part Part whose min or max changed
+     */
+    default void limitsChanged(Part part) { }
+
+    /** This method is called after the price of a part changed.
+     *  @param part Part whose price changed
+     */
+    default void priceChanged(Part part) { }
+
+    /** This method is called after the stock of a product changed.
+     *  @param product Product whose stock changed
+     *  @param oldStock int stock before the change
+     *  @param newStock int stock after the change
+     */
+    default void stockChanged(Product product, int oldStock, int newStock) { }
+
+    /** This method is called after the min or max of a product changed.
+     *  @param product Product whose min or max changed
+     */
+    default void limitsChanged(Product product) { }
+
+    /** This method is called after the price of a product changed.
+     *  @param product Product whose price changed
+     */
+    default void priceChanged(Product product) { }
+}
@@ -0,0 +1,81 @@
+package model;
+
+/** This class is responsible for describing one movement of stock recorded in the StockLedger.
+ *  <p>A movement is a value taken at one moment: it keeps the stock before and after, so the history of one item
+ *  can be followed through the ledger even where two movements of it were recorded out of order.
+ */
+public final class StockMovement {
+
+    /** Why the stock moved: goods received, goods issued, or a correction such as a stock count. */
+    public enum Type { RECEIVE, ISSUE, ADJUST }
+
+    private final long sequence;
+    private final long time;
+    private final Type type;
+    private final StockAlert.Source source;
+    private final int id;
+    private final int oldStock;
+    private final int newStock;
+
+    /** @param sequence long place of the movement in the ledger
+     *  @param type why the stock moved
+     *  @param source catalog of the item
+     *  @param id int id of the item
+     *  @param oldStock int stock before the movement
+     *  @param newStock int stock after the movement
+     */
+    StockMovement(long sequence, Type type, StockAlert.Source source, int id, int oldStock, int newStock) {
+        this.sequence = sequence;
+        this.time = System.currentTimeMillis();
+        this.type = type;
+        this.source = source;
+        this.id = id;
+        this.oldStock = oldStock;
+        this.newStock = newStock;
+    }
+
+    /** @return long place of the movement in the ledger, counting from 1 */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** @return long time the movement was recorded, in milliseconds since the epoch */
+    public long getTime() {
+        return time;
+    }
+
+    /** @return why the stock moved */
+    public Type getType() {
+        return type;
+    }
+
+    /** @return catalog the item is in */
+    public StockAlert.Source getSource() {
+        return source;
+    }
+
+    /** @return int id of the part or product */
+    public int getId() {
+        return id;
+    }
+
+    /** @return int stock before the movement */
+    public int getOldStock() {
+        return oldStock;
+    }
+
+    /** @return int stock after the movement */
+    public int getNewStock() {
+        return newStock;
+    }
+
+    /** @return int change to the stock, negative for an issue */
+    public int getQuantity() {
+        return newStock - oldStock;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + source + " " + id + " " + oldStock + " -> " + newStock;
+    }
+}
@@ -0,0 +1,224 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** This class is responsible for dictionary-encoding the names and company names of the parts in PartTable.
+ *  <p>Each distinct String is stored once, as UTF-8 bytes in one shared byte array, and is known by an int code.
+ *  Codes are reference counted, so a String that no part uses any more is dropped and its code reused; the byte
+ *  array is compacted once more than half of it is unused.  Compared with a String object per part this saves the
+ *  two object headers of every name, and parts that share a name or company share its bytes.
+ *  <p>The class is not thread-safe; PartTable guards it with its lock.  decode() never throws on a stale read, so
+ *  it can be used inside an optimistic read that is validated afterwards.
+ */
+final class StringDictionary {
+    /** Code used for a null String. */
+    static final int NULL = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private byte[] bytes = new byte[1 << 10];
+    private int used;
+    private int garbage;
+
+    private int[] offsets = new int[MIN_CAPACITY];
+    private int[] lengths = new int[MIN_CAPACITY];
+    private int[] hashes = new int[MIN_CAPACITY];
+    private int[] references = new int[MIN_CAPACITY];
+    private int codes;
+    private int[] freeCodes = new int[MIN_CAPACITY];
+    private int freeCount;
+
+    // Open addressing table of code + 1, with 0 marking an empty slot.
+    private int[] table = new int[MIN_CAPACITY * 2];
+    private int size;
+
+    /** This method finds or adds a String and counts one more reference to it.
+     *  @param text String to encode, may be null
+     *  @return int code of the String
+     */
+    int encode(String text) {
+        if (text == null) {
+            return NULL;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(utf8);
+        int i = probe(utf8, hash);
+        if (table[i] != 0) {
+            int code = table[i] - 1;
+            references[code]++;
+            return code;
+        }
+        int code = newCode();
+        if (used + utf8.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + utf8.length));
+        }
+        System.arraycopy(utf8, 0, bytes, used, utf8.length);
+        offsets[code] = used;
+        lengths[code] = utf8.length;
+        hashes[code] = hash;
+        references[code] = 1;
+        used += utf8.length;
+        table[i] = code + 1;
+        if (++size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return code;
+    }
+
+    /** This method returns the String of a code.
+     *  A new String is made every time, so callers that read the same name often should keep it.
+     *  @param code int code from encode()
+     *  @return the String, or null for NULL or a code that is out of range
+     */
+    String decode(int code) {
+        int[] currentOffsets = offsets;
+        int[] currentLengths = lengths;
+        byte[] currentBytes = bytes;
+        if (code < 0 || code >= currentOffsets.length || code >= currentLengths.length) {
+            return null;
+        }
+        int offset = currentOffsets[code];
+        int length = currentLengths[code];
+        if (offset < 0 || length < 0 || offset + length > currentBytes.length) {
+            return null;
+        }
+        return new String(currentBytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /** This method counts one reference less to a code, dropping the String when none are left.
+     *  @param code int code from encode(), or NULL
+     */
+    void release(int code) {
+        if (code == NULL || --references[code] > 0) {
+            return;
+        }
+        int mask = table.length - 1;
+        int i = hashes[code] & mask;
+        while (table[i] != code + 1) {
+            i = (i + 1) & mask;
+        }
+        shiftBack(i);
+        size--;
+        garbage += lengths[code];
+        lengths[code] = 0;
+        if (freeCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+        }
+        freeCodes[freeCount++] = code;
+        if (garbage > (1 << 16) && garbage * 2 > used) {
+            compact();
+        }
+    }
+
+    /** This method finds a String without adding it or counting a reference.
+     *  @param text String to look for, may be null
+     *  @return int code of the String, or NULL if it is not stored
+     */
+    int find(String text) {
+        if (text == null) {
+            return NULL;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        int i = probe(utf8, hash(utf8));
+        return table[i] - 1;
+    }
+
+    /** @return the number of distinct Strings stored */
+    int size() {
+        return size;
+    }
+
+    /** @param utf8 bytes of a String
+     *  @param hash int hash of the bytes
+     *  @return int slot of the table that holds the String, or the empty slot where it would go
+     */
+    private int probe(byte[] utf8, int hash) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != 0) {
+            int code = table[i] - 1;
+            if (hashes[code] == hash && Arrays.equals(bytes, offsets[code], offsets[code] + lengths[code],
+                    utf8, 0, utf8.length)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /** @return int code that is free, growing the per-code arrays if needed */
+    private int newCode() {
+        if (freeCount > 0) {
+            return freeCodes[--freeCount];
+        }
+        if (codes == offsets.length) {
+            int capacity = codes * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            references = Arrays.copyOf(references, capacity);
+        }
+        return codes++;
+    }
+
+    /** This method copies the bytes of every String still in use into a new array, dropping the gaps. */
+    private void compact() {
+        byte[] packed = new byte[Math.max(1 << 10, (used - garbage) * 3 / 2)];
+        int end = 0;
+        for (int code = 0; code < codes; code++) {
+            if (references[code] > 0) {
+                System.arraycopy(bytes, offsets[code], packed, end, lengths[code]);
+                offsets[code] = end;
+                end += lengths[code];
+            }
+        }
+        bytes = packed;
+        used = end;
+        garbage = 0;
+    }
+
+    /** This method closes the gap left by a removed code so later lookups do not stop early.
+     *  @param gap index of the slot that was just emptied
+     */
+    private void shiftBack(int gap) {
+        int mask = table.length - 1;
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (table[i] == 0) {
+                break;
+            }
+            int home = hashes[table[i] - 1] & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                table[gap] = table[i];
+                gap = i;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    /** @param capacity new length of the table, always a power of two */
+    private void rehash(int capacity) {
+        int[] old = table;
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry : old) {
+            if (entry != 0) {
+                int i = hashes[entry - 1] & mask;
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = entry;
+            }
+        }
+    }
+
+    /** @param utf8 bytes to hash
+     *  @return mixed hash of the bytes
+     */
+    private static int hash(byte[] utf8) {
+        int h = Arrays.hashCode(utf8) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,251 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/** This class is responsible for the functionality of an inverted index used to search names by substring.
+ *  <p>Every name is lower-cased when it is indexed and split into its three character pieces (trigrams).  For
+ *  each trigram the index keeps a sorted list of the ids whose names contain it.  A query is answered by
+ *  intersecting the lists for the trigrams of the query and then checking the few ids that are left against their
+ *  names.  The index keeps no names of its own: it reads them from its owner, which for the parts means the
+ *  columns of PartTable, so each name is stored once.  That is also why a change or removal is given the name
+ *  that was indexed.  Queries shorter than three characters have no trigrams, so for those the caller scans its
+ *  own list and uses matches().
+ */
+public class TrigramIndex {
+    private final IntFunction<String> nameOf;
+    private final HashMap<Long, Postings> postings = new HashMap<>();
+
+    /** This constructor creates an empty index.
+     *  @param nameOf returns the name an id has now, or null if there is nothing with that id
+     */
+    public TrigramIndex(IntFunction<String> nameOf) {
+        this.nameOf = nameOf;
+    }
+
+    /** This method converts a name or query into the form used for comparisons.
+     *  @param text String name or query
+     *  @return lower-case copy of the text
+     */
+    public static String normalize(String text) {
+        return text.toLowerCase();
+    }
+
+    /** This method adds a name to the index.
+     *  @param id int id of the part or product
+     *  @param name String name of the part or product
+     */
+    public void add(int id, String name) {
+        addPostings(id, normalize(name));
+    }
+
+    /** This method moves an id from the name it was indexed under to a new one.
+     *  Nothing is done if the name has not changed, so saving a form without renaming is cheap.
+     *  @param id int id of the part or product
+     *  @param oldName String name the id was indexed under
+     *  @param name String new name of the part or product
+     */
+    public void update(int id, String oldName, String name) {
+        String previous = normalize(oldName);
+        String normalized = normalize(name);
+        if (!normalized.equals(previous)) {
+            removePostings(id, previous);
+            addPostings(id, normalized);
+        }
+    }
+
+    /** This method removes an id from the index.
+     *  @param id int id of the part or product
+     *  @param name String name the id was indexed under
+     */
+    public void remove(int id, String name) {
+        removePostings(id, normalize(name));
+    }
+
+    /** This method removes many ids at once.
+     *  The ids are grouped by trigram first, so each posting list is compacted in one pass instead of being
+     *  shifted once for every id, which matters for the trigrams that almost every name shares.
+     *  @param ids int ids of the parts or products
+     *  @param names names the ids were indexed under, in the same order
+     */
+    public void removeAll(int[] ids, String[] names) {
+        // Each id with its position, sorted by id, so every doomed list is built by appending.
+        long[] order = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = (long) ids[i] << 32 | i;
+        }
+        Arrays.sort(order);
+        HashMap<Long, Postings> doomed = new HashMap<>();
+        for (long entry : order) {
+            int id = (int) (entry >> 32);
+            String previous = normalize(names[(int) entry]);
+            for (int i = 0; i + 3 <= previous.length(); i++) {
+                doomed.computeIfAbsent(trigram(previous, i), key -> new Postings()).add(id);
+            }
+        }
+        for (Map.Entry<Long, Postings> entry : doomed.entrySet()) {
+            Postings list = postings.get(entry.getKey());
+            if (list != null && list.removeAll(entry.getValue()) && list.size == 0) {
+                postings.remove(entry.getKey());
+            }
+        }
+    }
+
+    /** This method checks if the name an id has now contains a query.
+     *  @param id int id of the part or product
+     *  @param normalizedQuery query that was already passed through normalize()
+     *  @return boolean value for whether the name contains the query
+     */
+    public boolean matches(int id, String normalizedQuery) {
+        String name = nameOf.apply(id);
+        return name != null && normalize(name).contains(normalizedQuery);
+    }
+
+    /** This method finds every id whose name contains a query.
+     *  @param normalizedQuery query that was already passed through normalize()
+     *  @return sorted array of matching ids, or null if the query is too short to use the index
+     */
+    public int[] search(String normalizedQuery) {
+        int count = normalizedQuery.length() - 2;
+        if (count < 1) {
+            return null;
+        }
+        Postings[] lists = new Postings[count];
+        for (int i = 0; i < count; i++) {
+            Postings list = postings.get(trigram(normalizedQuery, i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists[i] = list;
+        }
+        // Starting from the shortest list keeps the intersection no bigger than the rarest trigram.
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int size = candidates.length;
+        for (int l = 1; l < lists.length && size > 0; l++) {
+            if (lists[l] == lists[l - 1]) {
+                continue;
+            }
+            int kept = 0;
+            for (int c = 0; c < size; c++) {
+                if (lists[l].indexOf(candidates[c]) >= 0) {
+                    candidates[kept++] = candidates[c];
+                }
+            }
+            size = kept;
+        }
+
+        // Having every trigram does not mean they are next to each other, so the real names are checked last.
+        int matched = 0;
+        for (int c = 0; c < size; c++) {
+            if (matches(candidates[c], normalizedQuery)) {
+                candidates[matched++] = candidates[c];
+            }
+        }
+        return Arrays.copyOf(candidates, matched);
+    }
+
+    /** @param id int id to add to the posting list of every trigram in the name
+     *  @param normalized lower-case name
+     */
+    private void addPostings(int id, String normalized) {
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            postings.computeIfAbsent(trigram(normalized, i), key -> new Postings()).add(id);
+        }
+    }
+
+    /** @param id int id to remove from the posting list of every trigram in the name
+     *  @param normalized lower-case name that was indexed for the id
+     */
+    private void removePostings(int id, String normalized) {
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            Long key = trigram(normalized, i);
+            Postings list = postings.get(key);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /** This method packs the three characters starting at an offset into one key.
+     *  The characters are spaced 21 bits apart so that Long.hashCode(), which folds the high half onto the low
+     *  half, does not lay the first character over the third and give thousands of trigrams the same hash.
+     *  @param text lower-case text
+     *  @param offset index of the first character
+     *  @return the trigram as a long
+     */
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 42) | ((long) text.charAt(offset + 1) << 21) | text.charAt(offset + 2);
+    }
+
+    /** This class holds one posting list as a sorted, growable array of ids. */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        /** @param id int id to insert, ignored if it is already in the list */
+        void add(int id) {
+            // New ids are almost always the largest, so check the end before searching.
+            int at;
+            if (size == 0 || ids[size - 1] < id) {
+                at = size;
+            } else {
+                at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                at = -at - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        /** @param id int id to remove
+         *  @return boolean value for whether the id was in the list
+         */
+        boolean remove(int id) {
+            int at = indexOf(id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        /** @param doomed sorted ids to remove
+         *  @return boolean value for whether any id was in the list
+         */
+        boolean removeAll(Postings doomed) {
+            int write = 0;
+            int d = 0;
+            for (int read = 0; read < size; read++) {
+                int id = ids[read];
+                while (d < doomed.size && doomed.ids[d] < id) {
+                    d++;
+                }
+                if (d < doomed.size && doomed.ids[d] == id) {
+                    continue;
+                }
+                ids[write++] = id;
+            }
+            boolean changed = write < size;
+            size = write;
+            return changed;
+        }
+
+        /** @param id int id to find
+         *  @return position of the id or a negative number if it is not in the list
+         */
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package model;
+
+/** This class is responsible for the running value, price times stock, of the parts in PartTable.
+ *  <p>Values are kept in whole cents in longs, with each part counted at its price rounded to the cent, so adding
+ *  and taking away the same part always cancels out exactly however many changes are made.  Besides the total by
+ *  kind of part there is a total per machine id of the InHouse parts and per company of the Outsourced parts,
+ *  each with the number of parts in it so a group is dropped once it is empty.
+ *  <p>The class is not thread-safe; PartTable changes it under its write lock, in the same step as the column
+ *  that moved the value, and reads it under its read lock.
+ */
+final class ValueTotals {
+    static final int IN_HOUSE = 0;
+    static final int OUTSOURCED = 1;
+    static final int OTHER = 2;
+
+    // Cents and number of parts in each group, packed as {cents, parts}.
+    private final long[] byKind = new long[3];
+    private final IntMap<long[]> byMachine = new IntMap<>();
+    private final IntMap<long[]> byCompany = new IntMap<>();
+
+    /** @param price double price of a part
+     *  @param stock int stock of the part
+     *  @return long value of the part in cents
+     */
+    static long cents(double price, int stock) {
+        return Math.round(price * 100) * stock;
+    }
+
+    /** @param part part to classify
+     *  @return int IN_HOUSE, OUTSOURCED or OTHER
+     */
+    static int kindOf(Part part) {
+        return part instanceof InHouse ? IN_HOUSE : part instanceof Outsourced ? OUTSOURCED : OTHER;
+    }
+
+    /** This method counts a part in, or back out of, the totals.
+     *  @param kind int IN_HOUSE, OUTSOURCED or OTHER
+     *  @param group int machine id of an InHouse part or company code of an Outsourced part
+     *  @param cents long value of the part
+     *  @param sign int 1 to count the part in, -1 to count it out
+     */
+    void add(int kind, int group, long cents, int sign) {
+        byKind[kind] += sign * cents;
+        if (kind == IN_HOUSE) {
+            addTo(byMachine, group, cents, sign);
+        } else if (kind == OUTSOURCED && group != StringDictionary.NULL) {
+            addTo(byCompany, group, cents, sign);
+        }
+    }
+
+    /** @param kind int IN_HOUSE, OUTSOURCED or OTHER
+     *  @return long value of the parts of that kind, in cents
+     */
+    long kind(int kind) {
+        return byKind[kind];
+    }
+
+    /** @return long value of every part, in cents */
+    long total() {
+        return byKind[IN_HOUSE] + byKind[OUTSOURCED] + byKind[OTHER];
+    }
+
+    /** @param machineId int machine id
+     *  @return long value of the InHouse parts made on the machine, in cents
+     */
+    long machine(int machineId) {
+        long[] group = byMachine.get(machineId);
+        return group == null ? 0 : group[0];
+    }
+
+    /** @param code int code of a company name
+     *  @return long value of the Outsourced parts from the company, in cents
+     */
+    long company(int code) {
+        long[] group = code == StringDictionary.NULL ? null : byCompany.get(code);
+        return group == null ? 0 : group[0];
+    }
+
+    /** @return machine ids that have at least one part */
+    int[] machines() {
+        return byMachine.keys();
+    }
+
+    /** @return codes of the company names that have at least one part */
+    int[] companies() {
+        return byCompany.keys();
+    }
+
+    /** @param groups groups to change
+     *  @param key int key of the group
+     *  @param cents long value of the part
+     *  @param sign int 1 or -1
+     */
+    private static void addTo(IntMap<long[]> groups, int key, long cents, int sign) {
+        long[] group = groups.get(key);
+        if (group == null) {
+            group = new long[2];
+            groups.put(key, group);
+        }
+        group[0] += sign * cents;
+        group[1] += sign;
+        if (group[1] == 0) {
+            groups.remove(key);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/** This class is responsible for knowing which products use each part, and which products are built from each
+ *  product.
+ *  <p>It maps a part id to the ids of the products in the products catalog that have the part among their
+ *  associated parts, so "is this part used?" and "how many products use it?" are one IntMap lookup instead of a
+ *  pass over every product's list.  Components are mapped the same way, from a product id to the ids of the
+ *  products that have it as a component.  The ids are kept in IntListMaps; the quantity a product needs does not
+ *  matter here.
+ *  <p>The index follows the products catalog through a CatalogListener and the associated parts and components of
+ *  products in the catalog through an AssociationListener, both registered by InventoryStore.  Products that are not in the
+ *  catalog, such as the one the Add Product form is building, are not counted until they are added.
+ *  <p>Every method is synchronized on the index.  The parts of one product are expected to be changed by one
+ *  thread at a time while it is being added to or removed from the catalog, or the change may be counted twice.
+ *  deleteIfUnused checks and deletes a part or product in one step, so it can not be deleted while a product is
+ *  being given it.
+ */
+public final class WhereUsedIndex {
+    private final Catalog<Part> parts;
+    private final Catalog<Product> products;
+    private final IntListMap uses = new IntListMap();
+    private final IntListMap parents = new IntListMap();
+
+    /** @param parts catalog the parts are deleted from
+     *  @param products catalog whose products are indexed
+     */
+    WhereUsedIndex(Catalog<Part> parts, Catalog<Product> products) {
+        this.parts = parts;
+        this.products = products;
+    }
+
+    /** @return listener that keeps the index in step with the products catalog */
+    CatalogListener<Product> catalogListener() {
+        return new ProductListener();
+    }
+
+    /** @return listener that keeps the index in step with the associated parts and components of products in the
+     *          catalog
+     */
+    AssociationListener associationListener() {
+        return new AssociationListener() {
+            @Override
+            public void associationChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+                lineChanged(uses, product, partId, oldQuantity, newQuantity);
+            }
+
+            @Override
+            public void componentChanged(Product product, int componentId, int oldQuantity, int newQuantity) {
+                lineChanged(parents, product, componentId, oldQuantity, newQuantity);
+            }
+        };
+    }
+
+    /** @param partId int id of the part
+     *  @return int number of products in the catalog that list the part
+     */
+    public synchronized int useCount(int partId) {
+        return uses.count(partId);
+    }
+
+    /** @param partId int id of the part
+     *  @return boolean value for whether any product in the catalog lists the part
+     */
+    public synchronized boolean isUsed(int partId) {
+        return uses.count(partId) > 0;
+    }
+
+    /** This method deletes a part from the parts catalog unless a product in the products catalog lists it.
+     *  The check and the delete are one step: every ItemLocks lock is held, so no bill of materials can change in
+     *  between, where a check with isUsed followed by a delete could remove a part a product was just given.  The
+     *  check runs under the write lock of the parts catalog and only then takes the monitor of the index, the order
+     *  in which the catalog listeners take them.
+     *  @param part part to delete
+     *  @return boolean value for whether the part was deleted; false if a product uses it or it is not in the catalog
+     */
+    public boolean deleteIfUnused(Part part) {
+        return ItemLocks.holdingAll(() -> parts.deleteIf(part, this::isUnused));
+    }
+
+    /** This method deletes the parts of a batch that no product in the products catalog lists, in one step as
+     *  deleteIfUnused does for one part.  The parts that are used are left in the catalog.
+     *  @param batch parts to delete
+     *  @return int number of parts deleted
+     */
+    public int removeUnusedParts(Collection<? extends Part> batch) {
+        return ItemLocks.holdingAll(() -> parts.removeAllIf(batch, this::isUnused));
+    }
+
+    /** @param part part about to be deleted; the caller holds the write lock of the parts catalog
+     *  @return boolean value for whether no product in the catalog lists it
+     */
+    private synchronized boolean isUnused(Part part) {
+        return uses.count(part.getId()) == 0;
+    }
+
+    /** @param productId int id of the product
+     *  @return boolean value for whether any product in the catalog has the product as a component
+     */
+    public synchronized boolean isComponent(int productId) {
+        return parents.count(productId) > 0;
+    }
+
+    /** This method deletes a product from the products catalog unless another product in it has the product as a
+     *  component, checking and deleting in one step as for parts.
+     *  @param product product to delete
+     *  @return boolean value for whether the product was deleted; false if another product is built from it or it
+     *          is not in the catalog
+     */
+    public boolean deleteIfUnused(Product product) {
+        return ItemLocks.holdingAll(() -> products.deleteIf(product, this::isUnused));
+    }
+
+    /** This method deletes the products of a batch that no other product in the catalog has as a component, in one
+     *  step as deleteIfUnused does for one product.  A product is kept even if the products built from it are in
+     *  the same batch; deleting those first frees it.
+     *  @param batch products to delete
+     *  @return int number of products deleted
+     */
+    public int removeUnusedProducts(Collection<? extends Product> batch) {
+        return ItemLocks.holdingAll(() -> products.removeAllIf(batch, this::isUnused));
+    }
+
+    /** @param product product about to be deleted; the caller holds the write lock of the products catalog
+     *  @return boolean value for whether no product in the catalog has it as a component
+     */
+    private synchronized boolean isUnused(Product product) {
+        return parents.count(product.getId()) == 0;
+    }
+
+    /** @param partId int id of the part
+     *  @return ids of the products that list the part, in increasing order
+     */
+    public synchronized int[] productIds(int partId) {
+        int[] ids = uses.get(partId);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /** @param partId int id of the part
+     *  @return the products that list the part, in increasing id order
+     */
+    public List<Product> products(int partId) {
+        int[] ids = productIds(partId);
+        List<Product> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Product product = products.lookup(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /** This method counts or stops counting a product under a part or component whose line was added or dropped.
+     *  @param index uses or parents
+     *  @param product product whose line changed
+     *  @param lineId int id of the part or component product
+     *  @param oldQuantity int quantity before the change
+     *  @param newQuantity int quantity after the change
+     */
+    private void lineChanged(IntListMap index, Product product, int lineId, int oldQuantity, int newQuantity) {
+        if ((oldQuantity == 0) == (newQuantity == 0) || products.lookup(product.getId()) != product) {
+            return;
+        }
+        synchronized (this) {
+            if (oldQuantity == 0) {
+                index.add(lineId, product.getId());
+            } else {
+                index.remove(lineId, product.getId());
+            }
+        }
+    }
+
+    /** @param product product whose associated parts and components are counted; the caller holds the monitor */
+    private void addProduct(Product product) {
+        int[] bom = product.getBillOfMaterials();
+        for (int i = 0; i < bom.length; i += 2) {
+            uses.add(bom[i], product.getId());
+        }
+        int[] components = product.getComponents();
+        for (int i = 0; i < components.length; i += 2) {
+            parents.add(components[i], product.getId());
+        }
+    }
+
+    /** @param product product whose associated parts and components are no longer counted; the caller holds the
+     *                 monitor
+     */
+    private void removeProduct(Product product) {
+        int[] bom = product.getBillOfMaterials();
+        for (int i = 0; i < bom.length; i += 2) {
+            uses.remove(bom[i], product.getId());
+        }
+        int[] components = product.getComponents();
+        for (int i = 0; i < components.length; i += 2) {
+            parents.remove(components[i], product.getId());
+        }
+    }
+
+    /** This class is responsible for counting the parts and components of products as they enter and leave the
+     *  catalog.
+     */
+    private final class ProductListener implements CatalogListener<Product> {
+        @Override
+        public void added(int slot, Product item) {
+            synchronized (WhereUsedIndex.this) {
+                addProduct(item);
+            }
+        }
+
+        @Override
+        public void addedAll(int firstSlot, List<Product> items) {
+            synchronized (WhereUsedIndex.this) {
+                for (Product item : items) {
+                    addProduct(item);
+                }
+            }
+        }
+
+        @Override
+        public void replaced(int slot, Product oldItem, Product newItem) {
+            // The same object was edited in place, and its changes were already counted as they happened.
+            if (oldItem != newItem) {
+                synchronized (WhereUsedIndex.this) {
+                    removeProduct(oldItem);
+                    addProduct(newItem);
+                }
+            }
+        }
+
+        @Override
+        public void removed(int slot, Product item) {
+            synchronized (WhereUsedIndex.this) {
+                removeProduct(item);
+            }
+        }
+
+        @Override
+        public void removedAll(int[] slots, List<Product> items) {
+            synchronized (WhereUsedIndex.this) {
+                for (Product item : items) {
+                    removeProduct(item);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package persistence;
+
+import model.InHouse;
+import model.InventoryStore;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** This class is responsible for writing the inventory as CSV in the format CsvImporter reads.
+ *  <p>The parts come first, so a file written here imports again with every product finding its parts.  The
+ *  associated parts of a product are written as their ids separated by semicolons, an id repeated once for each
+ *  of the part the product needs.  The format has no column for components, so they are not written.
+ */
+public class CsvExporter {
+    static final String HEADER = "type,id,name,price,stock,min,max,extra";
+
+    /** This method writes every part and product to a UTF-8 file.
+     *  @param file file to write, replaced if it exists
+     *  @return long number of lines written, not counting the header
+     *  @throws IOException If the file could not be written
+     */
+    public long exportFile(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return exportTo(writer);
+        }
+    }
+
+    /** This method writes every part and product, each catalog as it was at one moment.
+     *  @param writer where the CSV goes, which is flushed but not closed
+     *  @return long number of lines written, not counting the header
+     *  @throws IOException If the writer failed
+     */
+    public long exportTo(Writer writer) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+        out.write(HEADER);
+        out.newLine();
+        long lines = 0;
+        for (Part part : InventoryStore.parts().snapshot()) {
+            out.write(line(part));
+            out.newLine();
+            lines++;
+        }
+        for (Product product : InventoryStore.products().snapshot()) {
+            out.write(line(product));
+            out.newLine();
+            lines++;
+        }
+        out.flush();
+        return lines;
+    }
+
+    /** @param part part to write
+     *  @return the CSV line of the part
+     */
+    public static String line(Part part) {
+        String extra = part instanceof InHouse ? Integer.toString(((InHouse) part).getMachineId())
+                : part instanceof Outsourced ? ((Outsourced) part).getCompanyName() : "";
+        return line(part instanceof Outsourced ? "Outsourced" : "InHouse", part.getId(), part.getName(),
+                part.getPrice(), part.getStock(), part.getMin(), part.getMax(), extra);
+    }
+
+    /** @param product product to write
+     *  @return the CSV line of the product
+     */
+    public static String line(Product product) {
+        int[] pairs = product.getBillOfMaterials();
+        StringBuilder partIds = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            for (int n = 0; n < pairs[i + 1]; n++) {
+                if (partIds.length() > 0) {
+                    partIds.append(';');
+                }
+                partIds.append(pairs[i]);
+            }
+        }
+        return line("Product", product.getId(), product.getName(), product.getPrice(), product.getStock(),
+                product.getMin(), product.getMax(), partIds.toString());
+    }
+
+    /** @param type String InHouse, Outsourced or Product
+     *  @param id int id
+     *  @param name String name
+     *  @param price double price
+     *  @param stock int stock
+     *  @param min int min
+     *  @param max int max
+     *  @param extra String machine id, company name or part ids
+     *  @return the CSV line of the fields
+     */
+    private static String line(String type, int id, String name, double price, int stock, int min, int max,
+                               String extra) {
+        return type + ',' + id + ',' + quote(name) + ',' + price + ',' + stock + ',' + min + ',' + max + ','
+                + quote(extra);
+    }
+
+    /** @param field String field to write, may be null
+     *  @return the field, quoted if it holds a comma or a quote
+     */
+    private static String quote(String field) {
+        if (field == null) {
+            return "";
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,436 @@
+package persistence;
+
+import model.Catalog;
+import model.IdAllocator;
+import model.IdBlock;
+import model.InHouse;
+import model.InventoryStore;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/** This class is responsible for loading parts and products in bulk from a CSV file.
+ *  <p>Every line is one part or product:
+ *  <pre>
+ *  type,id,name,price,stock,min,max,extra
+ *  InHouse,1,Brakes,14.99,10,1,50,111
+ *  Outsourced,,Handle Bars,10.99,15,1,35,Huffy
+ *  Product,1000,Giant Bike,299.99,5,1,10,1;2;2;4
+ *  </pre>
+ *  The extra column is the machine id of an InHouse part, the company name of an Outsourced part, or the ids of the
+ *  associated parts of a product separated by semicolons.  A blank id gives the row a new id; an id that is already
+ *  in the inventory replaces that part or product.  Fields may be quoted, but a field can not span lines.  A header
+ *  line starting with "type" is skipped.  Products may only use parts from earlier lines or from the file already
+ *  in the inventory.
+ *  <p>The calling thread reads the file in chunks of lines and hands each chunk to a pool that parses and validates
+ *  it.  Only a fixed number of chunks are in flight at once, so memory does not grow with the size of the file.
+ *  Parsed chunks are added to InventoryStore in file order, one Catalog.upsertAll() per chunk, so a bound TableView
+ *  sees one change per chunk instead of one per row.
+ */
+public class CsvImporter {
+    private static final int CHUNK_LINES = 8192;
+    private static final int ID_BLOCK = 8192;
+    private static final int MAX_ERRORS = 100;
+
+    private final int threads;
+
+    /** This constructor creates an importer that parses on every available processor. */
+    public CsvImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** @param threads int number of threads to parse with */
+    public CsvImporter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /** This method imports a UTF-8 CSV file.
+     *  @param file file to read
+     *  @return counts of what was added and the lines that were skipped
+     *  @throws IOException If the file could not be read
+     */
+    public Result importFile(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader);
+        }
+    }
+
+    /** This method imports CSV lines until the end of a reader.
+     *  Lines that can not be parsed, fail validation or use a part that does not exist are skipped and reported
+     *  in the result; every other line is imported.
+     *  @param reader source of the CSV lines, which is not closed
+     *  @return counts of what was added and the lines that were skipped
+     *  @throws IOException If the reader failed
+     */
+    public Result importFrom(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "inventory-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Inserter inserter = new Inserter();
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long started = System.nanoTime();
+        try {
+            long lineNumber = 0;
+            while (true) {
+                List<String> lines = new ArrayList<>(CHUNK_LINES);
+                String line;
+                while (lines.size() < CHUNK_LINES && (line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+                if (lines.isEmpty()) {
+                    break;
+                }
+                long firstLine = lineNumber + 1;
+                lineNumber += lines.size();
+                inFlight.add(parsers.submit(() -> parse(firstLine, lines)));
+                if (inFlight.size() >= threads * 2) {
+                    inserter.insert(await(inFlight.poll()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                inserter.insert(await(inFlight.poll()));
+            }
+        } finally {
+            parsers.shutdownNow();
+            inserter.finish();
+        }
+        inserter.result.nanos = System.nanoTime() - started;
+        return inserter.result;
+    }
+
+    /** This method parses and validates one chunk of lines.  It runs on the parsing pool and touches no shared state.
+     *  @param firstLine line number of the first line, counting from 1
+     *  @param lines lines of the chunk
+     *  @return parsed rows and the errors of the lines that were skipped
+     */
+    private static Chunk parse(long firstLine, List<String> lines) {
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < lines.size(); i++) {
+            long lineNumber = firstLine + i;
+            String line = lines.get(i);
+            if (line.isBlank() || (lineNumber == 1 && line.regionMatches(true, 0, "type", 0, 4))) {
+                continue;
+            }
+            try {
+                List<String> fields = split(line);
+                if (fields.size() != 8) {
+                    throw new IllegalArgumentException("expected 8 fields but found " + fields.size());
+                }
+                String type = fields.get(0).trim();
+                int id = fields.get(1).isBlank() ? 0 : parseInt(fields.get(1), "id");
+                String name = fields.get(2);
+                if (name.isBlank()) {
+                    throw new IllegalArgumentException("the name is blank");
+                }
+                double price = parseDouble(fields.get(3), "price");
+                int stock = parseInt(fields.get(4), "stock");
+                int min = parseInt(fields.get(5), "min");
+                int max = parseInt(fields.get(6), "max");
+                if (id < 0 || price < 0 || stock < 0 || min < 0 || max < 0) {
+                    throw new IllegalArgumentException("negative values are not allowed");
+                }
+                if (min > max) {
+                    throw new IllegalArgumentException("min is greater than max");
+                }
+                if (stock > max || stock < min) {
+                    throw new IllegalArgumentException("stock is not between min and max");
+                }
+                String extra = fields.get(7);
+                if (type.equalsIgnoreCase("InHouse")) {
+                    chunk.parts.add(new InHouse(id, name, price, stock, min, max, parseInt(extra, "machine id")));
+                } else if (type.equalsIgnoreCase("Outsourced")) {
+                    if (extra.isBlank()) {
+                        throw new IllegalArgumentException("the company name is blank");
+                    }
+                    chunk.parts.add(new Outsourced(id, name, price, stock, min, max, extra));
+                } else if (type.equalsIgnoreCase("Product")) {
+                    chunk.products.add(new Product(id, name, price, stock, min, max));
+                    chunk.productParts.add(parsePartIds(extra));
+                    chunk.productLines.add(lineNumber);
+                } else {
+                    throw new IllegalArgumentException("unknown type \"" + type + "\"");
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add("line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    /** This method splits a CSV line into fields, removing the quotes around quoted fields.
+     *  @param line line to split
+     *  @return fields of the line
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("a quoted field is not closed");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /** @param text semicolon separated part ids, possibly blank
+     *  @return the ids in order
+     */
+    private static int[] parsePartIds(String text) {
+        if (text.isBlank()) {
+            return new int[0];
+        }
+        String[] values = text.split(";");
+        int[] ids = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ids[i] = parseInt(values[i], "part id");
+        }
+        return ids;
+    }
+
+    /** @param text field to parse
+     *  @param label name of the field for the error
+     *  @return int value of the field
+     */
+    private static int parseInt(String text, String label) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the " + label + " \"" + text + "\" is not an integer");
+        }
+    }
+
+    /** @param text field to parse
+     *  @param label name of the field for the error
+     *  @return double value of the field
+     */
+    private static double parseDouble(String text, String label) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the " + label + " \"" + text + "\" is not a number");
+        }
+    }
+
+    /** @param future future of a parsed chunk
+     *  @return the chunk
+     *  @throws IOException If parsing failed in a way that is not a bad line
+     */
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The import was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** This class is responsible for holding the parsed rows of one chunk of lines. */
+    private static final class Chunk {
+        final List<Part> parts = new ArrayList<>();
+        final List<Product> products = new ArrayList<>();
+        final List<int[]> productParts = new ArrayList<>();
+        final List<Long> productLines = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+
+    /** This class is responsible for adding parsed chunks to InventoryStore, in order, on the calling thread. */
+    private static final class Inserter {
+        final Result result = new Result();
+        final Ids partIds = new Ids(InventoryStore.partIds());
+        final Ids productIds = new Ids(InventoryStore.productIds());
+
+        /** @param chunk parsed chunk to add */
+        void insert(Chunk chunk) {
+            for (String error : chunk.errors) {
+                result.skip(error);
+            }
+            result.partsAdded += insertAll(InventoryStore.parts(), chunk.parts, partIds, Part::getId, Part::setId);
+
+            List<Product> products = new ArrayList<>(chunk.products.size());
+            for (int i = 0; i < chunk.products.size(); i++) {
+                Product product = chunk.products.get(i);
+                if (addParts(product, chunk.productParts.get(i))) {
+                    products.add(product);
+                } else {
+                    result.skip("line " + chunk.productLines.get(i) + ": an associated part does not exist");
+                }
+            }
+            result.productsAdded += insertAll(InventoryStore.products(), products, productIds, Product::getId,
+                    Product::setId);
+        }
+
+        /** This method gives new ids to the rows without one, then replaces the rows whose id is already in the
+         *  catalog and adds the rest with one upsertAll(), so the whole chunk goes in under a single write lock.
+         *  @param catalog catalog to add to
+         *  @param rows parsed rows
+         *  @param ids ids to give out
+         *  @param idOf returns the id of a row
+         *  @param setId changes the id of a row
+         *  @param <T> Part or Product
+         *  @return int number of rows added rather than replaced
+         */
+        private <T> int insertAll(Catalog<T> catalog, List<T> rows, Ids ids, ToIntFunction<T> idOf,
+                                  ObjIntConsumer<T> setId) {
+            for (T row : rows) {
+                int id = idOf.applyAsInt(row);
+                if (id == 0) {
+                    setId.accept(row, ids.next());
+                } else {
+                    ids.advancePast(id);
+                }
+            }
+            int added = catalog.upsertAll(rows);
+            result.replaced += rows.size() - added;
+            return added;
+        }
+
+        /** @param product product to give its associated parts
+         *  @param partIds ids of the associated parts
+         *  @return boolean value for whether every part was found
+         */
+        private boolean addParts(Product product, int[] partIds) {
+            List<Part> parts = new ArrayList<>(partIds.length);
+            for (int id : partIds) {
+                Part part = InventoryStore.parts().lookup(id);
+                if (part == null) {
+                    return false;
+                }
+                parts.add(part);
+            }
+            for (Part part : parts) {
+                product.addAssociatedPart(part);
+            }
+            return true;
+        }
+
+        /** This method gives back the ids that were reserved but not used. */
+        void finish() {
+            partIds.finish();
+            productIds.finish();
+        }
+    }
+
+    /** This class is responsible for handing out new ids from reserved blocks, so the shared counter is touched
+     *  once per block rather than once per row.
+     */
+    private static final class Ids {
+        final IdAllocator allocator;
+        IdBlock block;
+
+        /** @param allocator allocator to reserve blocks from */
+        Ids(IdAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        /** @return int new id */
+        int next() {
+            if (block == null || !block.hasNext()) {
+                block = allocator.reserve(ID_BLOCK);
+            }
+            return block.next();
+        }
+
+        /** This method makes sure an id from the file is never handed out again.
+         *  When the file id falls inside the current block, the ids of the block up to it are skipped.
+         *  @param id int id taken from the file
+         */
+        void advancePast(int id) {
+            if (block != null && block.hasNext() && id >= block.peek() && id < block.end()) {
+                block = new IdBlock(id + 1, block.end());
+            }
+            allocator.advancePast(id);
+        }
+
+        /** This method releases the unused end of the current block. */
+        void finish() {
+            if (block != null && block.hasNext()) {
+                allocator.release(block);
+            }
+            block = null;
+        }
+    }
+
+    /** This class is responsible for reporting what an import did. */
+    public static final class Result {
+        private long partsAdded;
+        private long productsAdded;
+        private long replaced;
+        private long skipped;
+        private long nanos;
+        private final List<String> errors = new ArrayList<>();
+
+        /** @param error description of a line that was skipped */
+        private void skip(String error) {
+            skipped++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        /** @return the number of new parts */
+        public long getPartsAdded() { return partsAdded; }
+
+        /** @return the number of new products */
+        public long getProductsAdded() { return productsAdded; }
+
+        /** @return the number of parts and products that replaced one with the same id */
+        public long getReplaced() { return replaced; }
+
+        /** @return the number of lines that were skipped */
+        public long getSkipped() { return skipped; }
+
+        /** @return the time the import took in milliseconds */
+        public long getMillis() { return nanos / 1_000_000; }
+
+        /** @return the errors of the first skipped lines */
+        public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+
+        @Override
+        public String toString() {
+            return partsAdded + " parts and " + productsAdded + " products added, " + replaced + " replaced, "
+                    + skipped + " lines skipped in " + getMillis() + " ms";
+        }
+    }
+}
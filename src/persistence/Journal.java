@@ -0,0 +1,401 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/** This class is responsible for the write-ahead journal that records every change to the inventory.
+ *  <p>Callers only encode their record and put it on a queue.  One writer thread takes everything that has queued
+ *  up, writes it with a single write call and forces it to disk once, so many changes share the cost of one
+ *  fsync (group commit).  Every record is framed as its length, a CRC32 and then its sequence number and body, so
+ *  a record torn by a crash is found and cut off when the journal is replayed.
+ *  <p>The journal is split into segment files named after the first sequence number they hold.  A new segment is
+ *  started whenever a snapshot is taken, which lets the segments the snapshot covers be deleted as a whole.
+ */
+class Journal implements Closeable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_HEADER = 8;
+    private static final int MAX_BATCH = 4096;
+
+    private final Path directory;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ByteBuffer seqBytes = ByteBuffer.allocate(8);
+    private FileChannel segment;
+    // Bytes of the current segment that are known to be on disk; a failed write is cut back to here.
+    private long written;
+    private long lastSeq;
+    private volatile boolean closed;
+
+    /** This constructor starts a new segment after the last record that was replayed and starts the writer.
+     *  @param directory folder holding the journal segments
+     *  @param lastSeq sequence number of the last record already in the journal
+     *  @throws IOException If the segment can not be created
+     */
+    Journal(Path directory, long lastSeq) throws IOException {
+        this.directory = directory;
+        this.lastSeq = lastSeq;
+        // Segments left empty by runs that changed nothing would otherwise pile up.
+        for (Path file : segments(directory)) {
+            if (Files.size(file) == 0) {
+                Files.delete(file);
+            }
+        }
+        segment = openSegment(lastSeq + 1);
+        written = segment.size();
+        writer = new Thread(this::writeLoop, "inventory-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** This method queues a record to be written.
+     *  The caller does not wait for the disk; the returned future completes once the record has been forced.
+     *  @param body type byte and fields of the record
+     *  @return future that completes when the record is durable
+     */
+    CompletableFuture<Void> append(byte[] body) {
+        Entry entry = new Entry(body, Entry.RECORD);
+        enqueue(entry);
+        return entry.done;
+    }
+
+    /** This method waits until every record queued before it is on disk.
+     *  @throws IOException If the journal could not be written
+     */
+    void sync() throws IOException {
+        Entry entry = new Entry(null, Entry.SYNC);
+        enqueue(entry);
+        await(entry.done);
+    }
+
+    /** This method starts a new segment and returns the last sequence number in the old ones.
+     *  Every record up to that number was queued before this call.
+     *  @return sequence number of the last record before the new segment
+     *  @throws IOException If the new segment could not be created
+     */
+    long roll() throws IOException {
+        Entry entry = new Entry(null, Entry.ROLL);
+        enqueue(entry);
+        await(entry.done);
+        return entry.seq;
+    }
+
+    /** This method deletes every segment whose records all have sequence numbers up to and including seq.
+     *  It must only be called with a value returned by roll(), since that is where a segment ends.
+     *  @param seq last sequence number covered by a snapshot
+     *  @throws IOException If a segment could not be deleted
+     */
+    void deleteSegmentsThrough(long seq) throws IOException {
+        for (Path file : segments(directory)) {
+            if (segmentStart(file) <= seq) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /** This method writes out everything still queued and stops the writer.
+     *  @throws IOException If the journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        Entry entry = new Entry(null, Entry.STOP);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            enqueue(entry);
+            closed = true;
+        }
+        try {
+            await(entry.done);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            segment.close();
+        }
+    }
+
+    /** This method reads every record after a sequence number, oldest first.
+     *  A record that is cut short or fails its CRC ends the replay, and the segment is truncated there so new
+     *  records are not written after garbage.
+     *  @param directory folder holding the journal segments
+     *  @param afterSeq records up to and including this sequence number are skipped
+     *  @param consumer receives each record
+     *  @return sequence number of the last record read, or afterSeq if there were none
+     *  @throws IOException If a segment could not be read
+     */
+    static long replay(Path directory, long afterSeq, RecordConsumer consumer) throws IOException {
+        long last = afterSeq;
+        CRC32 crc = new CRC32();
+        // Read into the heap rather than mapped: a mapping stays open until it is collected, and a file that is
+        // still mapped can not be truncated on every platform.
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        ByteBuffer frame = ByteBuffer.allocate(1 << 16);
+        for (Path file : segments(directory)) {
+            long validEnd = 0;
+            long size;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                size = channel.size();
+                while (size - validEnd >= FRAME_HEADER) {
+                    header.clear();
+                    readFully(channel, header, validEnd);
+                    int length = header.flip().getInt();
+                    int expected = header.getInt();
+                    if (length < 9 || length > size - validEnd - FRAME_HEADER) {
+                        break;
+                    }
+                    if (frame.capacity() < length) {
+                        frame = ByteBuffer.allocate(Math.max(length, frame.capacity() * 2));
+                    }
+                    frame.clear().limit(length);
+                    readFully(channel, frame, validEnd + FRAME_HEADER);
+                    frame.flip();
+                    crc.reset();
+                    crc.update(frame.duplicate());
+                    if ((int) crc.getValue() != expected) {
+                        break;
+                    }
+                    validEnd += FRAME_HEADER + length;
+                    long seq = frame.getLong();
+                    if (seq > last) {
+                        consumer.accept(seq, frame.get(), frame);
+                        last = seq;
+                    }
+                }
+            }
+            if (validEnd < size) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(validEnd);
+                }
+                break;
+            }
+        }
+        return last;
+    }
+
+    /** @param channel file to read
+     *  @param buffer buffer to fill up to its limit
+     *  @param position position in the file to read from
+     *  @throws IOException If the read failed or the file ended first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("The journal segment ended while it was read");
+            }
+            position += read;
+        }
+    }
+
+    /** This method is the body of the writer thread.
+     *  Each entry is completed as soon as the write it went out with is forced, so if a later write of the same
+     *  batch fails only the entries not yet on disk fail with it.
+     */
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        CRC32 crc = new CRC32();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH);
+            // Entries before this index are on disk and completed.
+            int durable = 0;
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    Entry entry = batch.get(i);
+                    if (entry.kind == Entry.RECORD) {
+                        int size = FRAME_HEADER + 8 + entry.body.length;
+                        if (buffer.remaining() < size) {
+                            flush(buffer);
+                            durable = complete(batch, durable, i);
+                            if (buffer.capacity() < size) {
+                                buffer = ByteBuffer.allocateDirect(size);
+                            }
+                        }
+                        frame(buffer, crc, entry);
+                    } else if (entry.kind == Entry.ROLL) {
+                        flush(buffer);
+                        durable = complete(batch, durable, i);
+                        segment.close();
+                        segment = openSegment(entry.seq + 1);
+                        written = 0;
+                    } else if (entry.kind == Entry.STOP) {
+                        stopping = true;
+                    }
+                }
+                flush(buffer);
+                complete(batch, durable, batch.size());
+            } catch (IOException | RuntimeException e) {
+                buffer.clear();
+                cutBack(e);
+                for (int i = durable; i < batch.size(); i++) {
+                    batch.get(i).done.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /** @param batch entries taken from the queue
+     *  @param from int first entry not yet completed
+     *  @param to int entry after the last one now on disk
+     *  @return to, the new first entry not yet completed
+     */
+    private static int complete(List<Entry> batch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            batch.get(i).done.complete(null);
+        }
+        return to;
+    }
+
+    /** This method adds the framed record to the write buffer, which must have room for it.
+     *  @param buffer buffer for the current batch
+     *  @param crc checksum to reuse
+     *  @param entry record to frame
+     */
+    private void frame(ByteBuffer buffer, CRC32 crc, Entry entry) {
+        crc.reset();
+        crc.update(seqBytes.clear().putLong(entry.seq).flip());
+        crc.update(entry.body);
+        buffer.putInt(8 + entry.body.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.putLong(entry.seq);
+        buffer.put(entry.body);
+    }
+
+    /** This method writes the buffer to the current segment and forces it to disk.
+     *  @param buffer buffer holding framed records; emptied once they are written
+     *  @throws IOException If the write failed
+     */
+    private void flush(ByteBuffer buffer) throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+            written = segment.size();
+            buffer.clear();
+        }
+    }
+
+    /** This method cuts off what a failed write may have left after the last forced record, so records written
+     *  later are not stranded behind a torn one when the journal is replayed.
+     *  @param failure the failure, which keeps any failure to cut back as a suppressed exception
+     */
+    private void cutBack(Exception failure) {
+        try {
+            if (segment.isOpen() && segment.size() > written) {
+                segment.truncate(written);
+            }
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /** This method gives a sequence number to an entry and queues it in one step, so the queue is always in
+     *  sequence order.
+     *  @param entry entry to queue
+     */
+    private synchronized void enqueue(Entry entry) {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        entry.seq = entry.kind == Entry.RECORD ? ++lastSeq : lastSeq;
+        queue.add(entry);
+    }
+
+    /** @param start first sequence number the segment will hold
+     *  @return channel open for appending
+     *  @throws IOException If the file could not be opened
+     */
+    private FileChannel openSegment(long start) throws IOException {
+        Path file = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /** @param directory folder holding the journal segments
+     *  @return segment files sorted by their first sequence number
+     *  @throws IOException If the folder could not be listed
+     */
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().forEach(segments::add);
+            return segments;
+        }
+    }
+
+    /** @param file segment file
+     *  @return the first sequence number in the file name
+     */
+    private static long segmentStart(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** @param future future of a queued entry
+     *  @throws IOException If the writer failed to write the entry
+     */
+    static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /** This interface is responsible for receiving the records read by replay. */
+    interface RecordConsumer {
+
+        /** @param seq sequence number of the record
+         *  @param type type byte of the record
+         *  @param body buffer positioned just after the type byte; it is reused for the next record
+         *  @throws IOException If the record can not be applied
+         */
+        void accept(long seq, byte type, ByteBuffer body) throws IOException;
+    }
+
+    /** This class is responsible for holding one queued record or control request. */
+    private static final class Entry {
+        static final int RECORD = 0;
+        static final int SYNC = 1;
+        static final int ROLL = 2;
+        static final int STOP = 3;
+
+        final byte[] body;
+        final int kind;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        long seq;
+
+        /** @param body encoded record, or null for a control request
+         *  @param kind RECORD, SYNC, ROLL or STOP
+         */
+        Entry(byte[] body, int kind) {
+            this.body = body;
+            this.kind = kind;
+        }
+    }
+}
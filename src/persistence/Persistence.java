@@ -0,0 +1,321 @@
+package persistence;
+
+import model.AssociationListener;
+import model.CatalogListener;
+import model.InventoryStore;
+import model.Part;
+import model.Product;
+import model.StockListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/** This class is responsible for keeping the inventory on disk between runs.
+ *  <p>open() loads the newest snapshot, replays only the journal records written after it, and then starts
+ *  recording every add, update and delete of a part or product, every change to the associated parts of a
+ *  product that is in the inventory, and every change made through the setters or StockLedger to the stock,
+ *  min, max or price of one.  After every SNAPSHOT_EVERY records a new snapshot is written on a background
+ *  thread and the journal segments it covers are deleted, so a restart never has to replay more than that.
+ *  A shutdown hook flushes the journal and writes a final snapshot when the program exits.
+ *  <p>Changes are recorded on the thread that made them, which does not wait for the disk.  Code that tells
+ *  someone a change was saved, such as a reply of the server, calls awaitDurable() first, which waits for the
+ *  group commit holding the last record that thread wrote.  A thread that must not wait, such as the FX thread,
+ *  takes the same future from durable() and reacts once it completes.
+ */
+public class Persistence implements Closeable {
+    private static final long SNAPSHOT_EVERY = 100_000;
+    // Future of the last record each thread handed to the journal, until the thread waits for it.
+    private static final ThreadLocal<CompletableFuture<Void>> lastRecord = new ThreadLocal<>();
+
+    private final Path directory;
+    private final Journal journal;
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong sinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotQueued = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final CatalogListener<Part> partListener = new PartListener();
+    private final CatalogListener<Product> productListener = new ProductListener();
+    private final AssociationListener associationListener = new BillListener();
+    private final StockListener stockListener = new FieldListener();
+
+    /** @param directory folder holding the journal and snapshots
+     *  @param journal journal opened after the last replayed record
+     */
+    private Persistence(Path directory, Journal journal) {
+        this.directory = directory;
+        this.journal = journal;
+    }
+
+    /** This method loads the saved inventory into InventoryStore and starts recording changes.
+     *  It must be called before anything else adds to the inventory.
+     *  @param directory folder holding the journal and snapshots, created if it does not exist
+     *  @return the running Persistence
+     *  @throws IOException If the saved inventory could not be read or the journal could not be opened
+     */
+    public static Persistence open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long seq = SnapshotFile.loadLatest(directory);
+        seq = Journal.replay(directory, seq, (recordSeq, type, body) -> RecordCodec.apply(type, body));
+
+        int maxPartId = 0;
+        for (Part part : InventoryStore.parts().snapshot()) {
+            maxPartId = Math.max(maxPartId, part.getId());
+        }
+        int maxProductId = 0;
+        for (Product product : InventoryStore.products().snapshot()) {
+            maxProductId = Math.max(maxProductId, product.getId());
+        }
+        if (maxPartId > 0) {
+            InventoryStore.partIds().advancePast(maxPartId);
+        }
+        if (maxProductId > 0) {
+            InventoryStore.productIds().advancePast(maxProductId);
+        }
+
+        Persistence persistence = new Persistence(directory, new Journal(directory, seq));
+        InventoryStore.parts().subscribe(persistence.partListener);
+        InventoryStore.products().subscribe(persistence.productListener);
+        Product.addAssociationListener(persistence.associationListener);
+        Part.addStockListener(persistence.stockListener);
+        Product.addStockListener(persistence.stockListener);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                persistence.close();
+            } catch (IOException e) {
+                System.out.println("Could not save the inventory: " + e.getMessage());
+            }
+        }, "inventory-persistence-shutdown"));
+        return persistence;
+    }
+
+    /** This method waits until every change made so far is on disk.
+     *  @throws IOException If the journal could not be written
+     */
+    public void sync() throws IOException {
+        journal.sync();
+    }
+
+    /** This method waits until every change the calling thread has made is on disk.  It returns at once if the
+     *  thread has made none since it last called this method.  Records are forced in order, so waiting for the last
+     *  one waits for all of them.
+     *  @throws IOException If the journal could not be written
+     */
+    public static void awaitDurable() throws IOException {
+        Journal.await(durable());
+    }
+
+    /** This method hands over the wait for the changes the calling thread has made, without waiting.
+     *  @return future that completes once every change the thread has made since it last asked is on disk, or
+     *          fails if the journal could not be written; already complete if there were none
+     */
+    public static CompletableFuture<Void> durable() {
+        CompletableFuture<Void> future = lastRecord.get();
+        if (future == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lastRecord.remove();
+        return future;
+    }
+
+    /** This method writes a snapshot now and deletes the journal segments it covers.
+     *  Changes may keep coming in while it runs; any that the snapshot misses are still in the journal.
+     *  @throws IOException If the snapshot could not be written
+     */
+    public synchronized void snapshot() throws IOException {
+        long written = sinceSnapshot.get();
+        long seq = journal.roll();
+        SnapshotFile.write(directory, seq, InventoryStore.parts().snapshot(), InventoryStore.products().snapshot());
+        journal.deleteSegmentsThrough(seq);
+        sinceSnapshot.addAndGet(-written);
+    }
+
+    /** This method stops recording, writes a final snapshot if anything changed and closes the journal.
+     *  @throws IOException If the journal or snapshot could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        InventoryStore.parts().unsubscribe(partListener);
+        InventoryStore.products().unsubscribe(productListener);
+        Product.removeAssociationListener(associationListener);
+        Part.removeStockListener(stockListener);
+        Product.removeStockListener(stockListener);
+        snapshotter.shutdown();
+        try {
+            if (sinceSnapshot.get() > 0) {
+                snapshot();
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    /** This method encodes one record and hands it to the journal.
+     *  @param type type byte of the record
+     *  @param body writes the fields of the record
+     */
+    private void record(byte type, Consumer<RecordCodec.Encoder> body) {
+        RecordCodec.Encoder encoder = new RecordCodec.Encoder();
+        encoder.putByte(type);
+        body.accept(encoder);
+        try {
+            lastRecord.set(journal.append(encoder.toByteArray()));
+        } catch (IllegalStateException e) {
+            // The journal was closed on the way out of the program; nothing after that is kept.
+            return;
+        }
+        if (sinceSnapshot.incrementAndGet() >= SNAPSHOT_EVERY && snapshotQueued.compareAndSet(false, true)) {
+            try {
+                snapshotter.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException e) {
+                        System.out.println("Could not write an inventory snapshot: " + e.getMessage());
+                    } finally {
+                        snapshotQueued.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // close() writes the last snapshot itself.
+                snapshotQueued.set(false);
+            }
+        }
+    }
+
+    /** This class is responsible for recording the changes to the part catalog. */
+    private final class PartListener implements CatalogListener<Part> {
+        @Override
+        public void added(int slot, Part item) {
+            record(RecordCodec.PART_PUT, out -> RecordCodec.writePart(out, item));
+        }
+
+        @Override
+        public void replaced(int slot, Part oldItem, Part newItem) {
+            record(RecordCodec.PART_PUT, out -> RecordCodec.writePart(out, newItem));
+        }
+
+        @Override
+        public void removed(int slot, Part item) {
+            record(RecordCodec.PART_DELETE, out -> out.putInt(item.getId()));
+        }
+    }
+
+    /** This class is responsible for recording the changes to the product catalog. */
+    private final class ProductListener implements CatalogListener<Product> {
+        @Override
+        public void added(int slot, Product item) {
+            record(RecordCodec.PRODUCT_PUT, out -> RecordCodec.writeProduct(out, item));
+        }
+
+        @Override
+        public void replaced(int slot, Product oldItem, Product newItem) {
+            record(RecordCodec.PRODUCT_PUT, out -> RecordCodec.writeProduct(out, newItem));
+        }
+
+        @Override
+        public void removed(int slot, Product item) {
+            record(RecordCodec.PRODUCT_DELETE, out -> out.putInt(item.getId()));
+        }
+    }
+
+    /** This class is responsible for recording the changes to the parts and components of products in the
+     *  inventory.  Products still being built in the Add Product form are saved whole when they are added.
+     */
+    private final class BillListener implements AssociationListener {
+        @Override
+        public void associationChanged(Product product, int partId, int oldQuantity, int newQuantity) {
+            if (InventoryStore.products().lookup(product.getId()) == product) {
+                record(RecordCodec.PRODUCT_PARTS, out -> {
+                    out.putInt(product.getId());
+                    RecordCodec.writeBillOfMaterials(out, product);
+                });
+            }
+        }
+
+        @Override
+        public void componentChanged(Product product, int componentId, int oldQuantity, int newQuantity) {
+            if (InventoryStore.products().lookup(product.getId()) == product) {
+                record(RecordCodec.PRODUCT_COMPONENTS, out -> {
+                    out.putInt(product.getId());
+                    RecordCodec.writePairs(out, product.getComponents());
+                });
+            }
+        }
+    }
+
+    /** This class is responsible for recording the changes to the stock, limits and price of the parts and products
+     *  in the inventory, which do not go through the catalogs.  A stock change is written as the new stock it was
+     *  given; a change to the limits or price writes the whole item again, as an update.  The item calls these
+     *  methods under its ItemLocks lock, so the journal numbers the changes to one item in the order they were made.
+     */
+    private final class FieldListener implements StockListener {
+        @Override
+        public void stockChanged(Part part, int oldStock, int newStock) {
+            if (InventoryStore.parts().lookup(part.getId()) == part) {
+                record(RecordCodec.PART_STOCK, out -> {
+                    out.putInt(part.getId());
+                    out.putInt(newStock);
+                });
+            }
+        }
+
+        @Override
+        public void limitsChanged(Part part) {
+            put(part);
+        }
+
+        @Override
+        public void priceChanged(Part part) {
+            put(part);
+        }
+
+        @Override
+        public void stockChanged(Product product, int oldStock, int newStock) {
+            if (InventoryStore.products().lookup(product.getId()) == product) {
+                record(RecordCodec.PRODUCT_STOCK, out -> {
+                    out.putInt(product.getId());
+                    out.putInt(newStock);
+                });
+            }
+        }
+
+        @Override
+        public void limitsChanged(Product product) {
+            put(product);
+        }
+
+        @Override
+        public void priceChanged(Product product) {
+            put(product);
+        }
+
+        /** @param part part that changed; ignored unless it is the one in the inventory */
+        private void put(Part part) {
+            if (InventoryStore.parts().lookup(part.getId()) == part) {
+                record(RecordCodec.PART_PUT, out -> RecordCodec.writePart(out, part));
+            }
+        }
+
+        /** @param product product that changed; ignored unless it is the one in the inventory */
+        private void put(Product product) {
+            if (InventoryStore.products().lookup(product.getId()) == product) {
+                record(RecordCodec.PRODUCT_PUT, out -> RecordCodec.writeProduct(out, product));
+            }
+        }
+    }
+}
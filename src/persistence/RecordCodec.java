@@ -0,0 +1,292 @@
+package persistence;
+
+import model.Catalog;
+import model.InHouse;
+import model.InventoryStore;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** This class is responsible for turning parts and products into bytes and back for the journal and snapshots.
+ *  <p>Every record holds the full state of what it describes rather than the change that was made, so applying a
+ *  record twice, or applying an older record before a newer one for the same id, still ends in the newest state.
+ *  That is what lets a snapshot be taken while the inventory keeps changing.  All numbers are big-endian.
+ */
+final class RecordCodec {
+    static final byte PART_PUT = 1;
+    static final byte PART_DELETE = 2;
+    static final byte PRODUCT_DELETE = 4;
+    static final byte PRODUCT_PARTS = 7;
+    static final byte PRODUCT_PUT = 8;
+    static final byte PRODUCT_COMPONENTS = 9;
+    static final byte PART_STOCK = 10;
+    static final byte PRODUCT_STOCK = 11;
+
+    private static final byte IN_HOUSE = 0;
+    private static final byte OUTSOURCED = 1;
+
+    private RecordCodec() { }
+
+    /** @param out encoder to write to
+     *  @param part Part whose full state is written
+     */
+    static void writePart(Encoder out, Part part) {
+        out.putInt(part.getId());
+        out.putString(part.getName());
+        out.putDouble(part.getPrice());
+        out.putInt(part.getStock());
+        out.putInt(part.getMin());
+        out.putInt(part.getMax());
+        if (part instanceof InHouse) {
+            out.putByte(IN_HOUSE);
+            out.putInt(((InHouse) part).getMachineId());
+        } else {
+            out.putByte(OUTSOURCED);
+            out.putString(((Outsourced) part).getCompanyName());
+        }
+    }
+
+    /** @param in buffer positioned at a part written by writePart
+     *  @return the Part that was read
+     */
+    static Part readPart(ByteBuffer in) {
+        int id = in.getInt();
+        String name = getString(in);
+        double price = in.getDouble();
+        int stock = in.getInt();
+        int min = in.getInt();
+        int max = in.getInt();
+        if (in.get() == IN_HOUSE) {
+            return new InHouse(id, name, price, stock, min, max, in.getInt());
+        }
+        return new Outsourced(id, name, price, stock, min, max, getString(in));
+    }
+
+    /** @param out encoder to write to
+     *  @param product Product whose full state, including its parts and components, is written
+     */
+    static void writeProduct(Encoder out, Product product) {
+        out.putInt(product.getId());
+        out.putString(product.getName());
+        out.putDouble(product.getPrice());
+        out.putInt(product.getStock());
+        out.putInt(product.getMin());
+        out.putInt(product.getMax());
+        writeBillOfMaterials(out, product);
+        writePairs(out, product.getComponents());
+    }
+
+    /** This method reads a product and links it to parts that are already in the part catalog.
+     *  Associated parts that no longer exist are left out.
+     *  Components are kept by id even if that product has not been read yet, as a snapshot may list it later.
+     *  @param in buffer positioned at a product written by writeProduct
+     *  @return the Product that was read
+     */
+    static Product readProduct(ByteBuffer in) {
+        Product product = new Product(in.getInt(), getString(in), in.getDouble(), in.getInt(), in.getInt(), in.getInt());
+        product.setBillOfMaterials(existingParts(readPairs(in)));
+        product.setComponents(readPairs(in));
+        return product;
+    }
+
+    /** @param out encoder to write to
+     *  @param product Product whose bill of materials is written as a count followed by id and quantity pairs
+     */
+    static void writeBillOfMaterials(Encoder out, Product product) {
+        // getBillOfMaterials copies in one step, so a product being edited on another thread can not break the loop.
+        writePairs(out, product.getBillOfMaterials());
+    }
+
+    /** @param out encoder to write to
+     *  @param pairs pairs of id and quantity, written as a count followed by the pairs
+     */
+    static void writePairs(Encoder out, int[] pairs) {
+        out.putInt(pairs.length / 2);
+        for (int value : pairs) {
+            out.putInt(value);
+        }
+    }
+
+    /** @param in buffer positioned at pairs written by writePairs
+     *  @return pairs of id and quantity
+     */
+    static int[] readPairs(ByteBuffer in) {
+        int[] pairs = new int[in.getInt() * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = in.getInt();
+        }
+        return pairs;
+    }
+
+    /** This method applies one journal record to the catalogs in InventoryStore.
+     *  @param type type of the record
+     *  @param in buffer positioned at the body of the record
+     *  @throws IOException if the type is not known
+     */
+    static void apply(byte type, ByteBuffer in) throws IOException {
+        Catalog<Part> parts = InventoryStore.parts();
+        Catalog<Product> products = InventoryStore.products();
+        switch (type) {
+            case PART_PUT: {
+                parts.upsert(readPart(in));
+                break;
+            }
+            case PART_DELETE: {
+                Part part = parts.lookup(in.getInt());
+                if (part != null) {
+                    parts.delete(part);
+                }
+                break;
+            }
+            case PRODUCT_PUT: {
+                products.upsert(readProduct(in));
+                break;
+            }
+            case PRODUCT_DELETE: {
+                Product product = products.lookup(in.getInt());
+                if (product != null) {
+                    products.delete(product);
+                }
+                break;
+            }
+            case PRODUCT_PARTS: {
+                Product product = products.lookup(in.getInt());
+                int[] bom = readPairs(in);
+                if (product != null) {
+                    product.setBillOfMaterials(existingParts(bom));
+                }
+                break;
+            }
+            case PART_STOCK: {
+                Part part = parts.lookup(in.getInt());
+                int stock = in.getInt();
+                if (part != null) {
+                    part.setStock(stock);
+                }
+                break;
+            }
+            case PRODUCT_STOCK: {
+                Product product = products.lookup(in.getInt());
+                int stock = in.getInt();
+                if (product != null) {
+                    product.setStock(stock);
+                }
+                break;
+            }
+            case PRODUCT_COMPONENTS: {
+                Product product = products.lookup(in.getInt());
+                int[] components = readPairs(in);
+                if (product != null) {
+                    product.setComponents(components);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /** @param bom pairs of part id and quantity
+     *  @return the pairs whose part is in the part catalog
+     */
+    private static int[] existingParts(int[] bom) {
+        int count = 0;
+        for (int i = 0; i < bom.length; i += 2) {
+            if (InventoryStore.parts().lookup(bom[i]) != null) {
+                bom[count++] = bom[i];
+                bom[count++] = bom[i + 1];
+            }
+        }
+        return count == bom.length ? bom : Arrays.copyOf(bom, count);
+    }
+
+    /** @param in buffer positioned at a String written by Encoder.putString
+     *  @return the String, which may be null
+     */
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** This class is responsible for building one record in a growable byte array. */
+    static final class Encoder {
+        private byte[] bytes = new byte[128];
+        private int size;
+
+        /** @param value byte to append */
+        void putByte(byte value) {
+            ensure(1);
+            bytes[size++] = value;
+        }
+
+        /** @param value int to append */
+        void putInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        /** @param value long to append */
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        /** @param value double to append */
+        void putDouble(double value) {
+            putLong(Double.doubleToLongBits(value));
+        }
+
+        /** @param value String to append as its UTF-8 length and bytes, or -1 for null */
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putInt(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        /** @return the bytes written so far */
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        /** @return the array holding the bytes, valid up to size() */
+        byte[] array() {
+            return bytes;
+        }
+
+        /** @return the number of bytes written */
+        int size() {
+            return size;
+        }
+
+        /** This method empties the encoder so it can be used for the next record. */
+        void reset() {
+            size = 0;
+        }
+
+        /** @param extra number of bytes about to be written */
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
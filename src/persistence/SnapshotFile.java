@@ -0,0 +1,150 @@
+package persistence;
+
+import model.InventoryStore;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** This class is responsible for writing and loading compact snapshots of every part and product.
+ *  <p>A snapshot is named after the last journal sequence number it covers.  It is written to a temporary file,
+ *  forced to disk and then renamed into place, so a crash never leaves a half-written snapshot behind.  Loading
+ *  memory-maps the file and decodes the records straight out of the mapping.
+ */
+final class SnapshotFile {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int MAGIC = 0x494E5653;
+    // Snapshots of any other version are refused, so the version has to change whenever RecordCodec does.
+    private static final int VERSION = 3;
+    private static final int LOAD_BATCH = 8192;
+
+    private SnapshotFile() { }
+
+    /** This method writes a snapshot and deletes the older ones.
+     *  @param directory folder holding the snapshots
+     *  @param seq last journal sequence number the snapshot covers
+     *  @param parts parts to write
+     *  @param products products to write
+     *  @throws IOException If the snapshot could not be written
+     */
+    static void write(Path directory, long seq, List<Part> parts, List<Product> products) throws IOException {
+        Path target = directory.resolve(String.format("%s%019d%s", PREFIX, seq, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            RecordCodec.Encoder encoder = new RecordCodec.Encoder();
+            encoder.putInt(MAGIC);
+            encoder.putInt(VERSION);
+            encoder.putLong(seq);
+            encoder.putInt(parts.size());
+            for (Part part : parts) {
+                RecordCodec.writePart(encoder, part);
+                encoder = drain(encoder, out);
+            }
+            encoder.putInt(products.size());
+            for (Product product : products) {
+                RecordCodec.writeProduct(encoder, product);
+                encoder = drain(encoder, out);
+            }
+            drain(encoder, out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path file : snapshots(directory)) {
+            if (!file.equals(target)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /** This method loads the newest snapshot into the catalogs of InventoryStore, adding the records in batches.
+     *  @param directory folder holding the snapshots
+     *  @return last journal sequence number the snapshot covers, or 0 if there is no snapshot
+     *  @throws IOException If the snapshot could not be read
+     */
+    static long loadLatest(Path directory) throws IOException {
+        List<Path> files = snapshots(directory);
+        if (files.isEmpty()) {
+            return 0;
+        }
+        Path file = files.get(files.size() - 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Read into the heap rather than mapped: a mapping stays open until it is collected, and the next
+            // snapshot deletes this file, which fails on some platforms while the file is still mapped.
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to load");
+            }
+            ByteBuffer in = ByteBuffer.allocate((int) size);
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException(file + " ended while it was read");
+                }
+            }
+            in.flip();
+            int version = in.getInt(0) == MAGIC ? in.getInt(4) : -1;
+            if (version != VERSION) {
+                throw new IOException(file + " is not an inventory snapshot");
+            }
+            in.position(8);
+            long seq = in.getLong();
+            List<Part> parts = new ArrayList<>(LOAD_BATCH);
+            for (int i = in.getInt(); i > 0; i--) {
+                parts.add(RecordCodec.readPart(in));
+                if (parts.size() == LOAD_BATCH || i == 1) {
+                    InventoryStore.parts().addAll(parts);
+                    parts.clear();
+                }
+            }
+            List<Product> products = new ArrayList<>(LOAD_BATCH);
+            for (int i = in.getInt(); i > 0; i--) {
+                products.add(RecordCodec.readProduct(in));
+                if (products.size() == LOAD_BATCH || i == 1) {
+                    InventoryStore.products().addAll(products);
+                    products.clear();
+                }
+            }
+            return seq;
+        }
+    }
+
+    /** @param encoder encoder holding finished records
+     *  @param out stream to write them to
+     *  @return the same encoder, emptied
+     *  @throws IOException If the write failed
+     */
+    private static RecordCodec.Encoder drain(RecordCodec.Encoder encoder, OutputStream out) throws IOException {
+        out.write(encoder.array(), 0, encoder.size());
+        encoder.reset();
+        return encoder;
+    }
+
+    /** @param directory folder holding the snapshots
+     *  @return snapshot files, oldest first
+     *  @throws IOException If the folder could not be listed
+     */
+    private static List<Path> snapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>();
+            files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                    && file.getFileName().toString().endsWith(SUFFIX)).sorted().forEach(snapshots::add);
+            return snapshots;
+        }
+    }
+}
@@ -0,0 +1,798 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.BomCycleException;
+import model.InHouse;
+import model.InventoryStore;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import persistence.Persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/** This class is responsible for serving the inventory over HTTP without JavaFX.
+ *  <p>It works on InventoryStore directly, so the FX toolkit is never started, and its changes reach the saved
+ *  inventory through Persistence just as the forms' changes do.  Requests and replies are JSON:
+ *  <pre>
+ *  GET    /parts?name=brake or /parts?offset=0&amp;limit=100     GET /products the same way
+ *  POST   /parts                                                 POST /products
+ *  GET    /parts/{id}, PUT /parts/{id}, DELETE /parts/{id}       and the same for /products/{id}
+ *  GET    /parts/{id}/products          the products that use a part
+ *  GET    /products/{id}/parts          the associated parts of a product with their quantities
+ *  PUT    /products/{id}/parts/{partId} {"quantity": 2}, DELETE /products/{id}/parts/{partId}
+ *  GET    /stats                        requests served, requests per second and latency percentiles
+ *  </pre>
+ *  A PUT only changes the fields it names, in place, so it never undoes a stock movement made at the same time;
+ *  a part keeps its type.  The rules of the forms apply: min may not exceed max, stock must be between them, and
+ *  a part used by a product, a product with parts or components or a product that is a component of another can
+ *  not be deleted.
+ *  <p>Each request runs on a virtual thread when the JDK has them (21 and later), and on a fixed pool of
+ *  inventory.threads platform threads otherwise.  Idle connections do not hold a thread either way, so thousands
+ *  of clients can stay connected; handlers only touch the in-memory store and return quickly.  A request that
+ *  changed the inventory is only answered once its changes are on disk, so a reply never acknowledges a change
+ *  that a crash could still lose; requests that arrive together share one journal flush.
+ */
+public class InventoryServer {
+    private static final int MAX_BODY = 1 << 20;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10_000;
+    private static final int BACKLOG = 4096;
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final ServerStats stats = new ServerStats();
+
+    /** This constructor binds the server but does not start it.
+     *  @param address address and port to listen on; port 0 picks a free one
+     *  @throws IOException If the address can not be bound
+     */
+    public InventoryServer(InetSocketAddress address) throws IOException {
+        http = HttpServer.create(address, BACKLOG);
+        executor = newExecutor();
+        http.setExecutor(executor);
+        http.createContext("/", this::handle);
+    }
+
+    /** This method loads the saved inventory and serves it until the program is stopped.
+     *  The port is the first argument, or the inventory.port system property, or 8080.  The inventory is kept in
+     *  the folder named by the inventory.data system property, as it is for the forms.
+     *  @param args an array of String arguments
+     *  @throws IOException If the saved inventory could not be loaded or the port could not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("inventory.port", 8080);
+        Persistence.open(Paths.get(System.getProperty("inventory.data", "inventory-data")));
+        InventoryServer server = new InventoryServer(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "inventory-server-shutdown"));
+        server.start();
+        System.out.println("Serving the inventory on port " + server.getPort());
+    }
+
+    /** This method starts accepting requests. */
+    public void start() {
+        http.start();
+    }
+
+    /** This method stops accepting requests, waits a moment for the ones in progress and prints the figures. */
+    public void stop() {
+        http.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Inventory server stopped: " + stats.toJson());
+    }
+
+    /** @return int port the server listens on */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /** @return the executor requests run on: a virtual thread each if the JDK has them, a fixed pool if not */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger("inventory.threads",
+                    Math.max(16, Runtime.getRuntime().availableProcessors() * 8));
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "inventory-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** This method answers one request and counts it in the figures.
+     *  @param exchange the request and its reply
+     *  @throws IOException If the reply could not be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        String reply;
+        try {
+            reply = route(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath().split("/"),
+                    query(exchange), exchange);
+            awaitDurable();
+            status = "POST".equals(exchange.getRequestMethod()) ? 201 : 200;
+        } catch (HttpError e) {
+            status = e.status;
+            reply = error(e.getMessage());
+        } catch (BomCycleException e) {
+            status = 409;
+            reply = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            reply = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            reply = error(e.toString());
+        }
+        try {
+            byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+            stats.record(System.nanoTime() - start, status);
+        }
+    }
+
+    /** This method waits until the changes the request made are on disk.  It returns at once for a request that
+     *  changed nothing.
+     *  @throws HttpError 500 if they could not be written
+     */
+    private static void awaitDurable() {
+        try {
+            Persistence.awaitDurable();
+        } catch (IOException e) {
+            throw new HttpError(500, "The change could not be saved: " + e.getMessage());
+        }
+    }
+
+    /** @param method String HTTP method
+     *  @param path segments of the path; the first is always empty
+     *  @param query parameters of the query string
+     *  @param exchange the request, to read its body
+     *  @return the reply
+     *  @throws IOException If the body could not be read
+     */
+    private String route(String method, String[] path, Map<String, String> query, HttpExchange exchange)
+            throws IOException {
+        String resource = path.length > 1 ? path[1] : "";
+        int depth = path.length - 1;
+        if (resource.equals("stats") && depth == 1) {
+            requireMethod(method, "GET");
+            return stats.toJson();
+        }
+        if (resource.equals("parts")) {
+            if (depth == 1) {
+                if (method.equals("POST")) {
+                    return addPart(body(exchange));
+                }
+                requireMethod(method, "GET");
+                return listParts(query);
+            }
+            int id = id(path[2]);
+            if (depth == 2) {
+                switch (method) {
+                    case "GET":
+                        return partJson(new StringBuilder(), findPart(id)).toString();
+                    case "PUT":
+                        return updatePart(findPart(id), body(exchange));
+                    case "DELETE":
+                        return deletePart(findPart(id));
+                    default:
+                        throw new HttpError(405, "Method " + method + " is not allowed here");
+                }
+            }
+            if (depth == 3 && path[3].equals("products")) {
+                requireMethod(method, "GET");
+                findPart(id);
+                List<Product> users = InventoryStore.whereUsed().products(id);
+                return productsJson(users, users.size());
+            }
+        }
+        if (resource.equals("products")) {
+            if (depth == 1) {
+                if (method.equals("POST")) {
+                    return addProduct(body(exchange));
+                }
+                requireMethod(method, "GET");
+                return listProducts(query);
+            }
+            int id = id(path[2]);
+            if (depth == 2) {
+                switch (method) {
+                    case "GET":
+                        return productJson(new StringBuilder(), findProduct(id)).toString();
+                    case "PUT":
+                        return updateProduct(findProduct(id), body(exchange));
+                    case "DELETE":
+                        return deleteProduct(findProduct(id));
+                    default:
+                        throw new HttpError(405, "Method " + method + " is not allowed here");
+                }
+            }
+            if (depth == 3 && path[3].equals("parts")) {
+                requireMethod(method, "GET");
+                return associatedParts(findProduct(id));
+            }
+            if (depth == 4 && path[3].equals("parts")) {
+                Product product = findProduct(id);
+                Part part = findPart(id(path[4]));
+                if (method.equals("PUT")) {
+                    product.setAssociatedPartQuantity(part.getId(), integer(body(exchange), "quantity", null));
+                } else {
+                    requireMethod(method, "DELETE");
+                    product.setAssociatedPartQuantity(part.getId(), 0);
+                }
+                return associatedParts(product);
+            }
+        }
+        throw new HttpError(404, "Nothing is served at " + String.join("/", path));
+    }
+
+    /** @param query parameters: name to search by name, or offset and limit to page through every part
+     *  @return the parts asked for
+     */
+    private String listParts(Map<String, String> query) {
+        String name = query.get("name");
+        if (name != null) {
+            List<Part> found = InventoryStore.parts().lookup(name);
+            return partsJson(found, found.size());
+        }
+        int offset = intParameter(query, "offset", 0);
+        int limit = Math.min(intParameter(query, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        return partsJson(InventoryStore.parts().slice(offset, offset + limit), InventoryStore.parts().size());
+    }
+
+    /** @param query parameters: name to search by name, or offset and limit to page through every product
+     *  @return the products asked for
+     */
+    private String listProducts(Map<String, String> query) {
+        String name = query.get("name");
+        if (name != null) {
+            List<Product> found = InventoryStore.products().lookup(name);
+            return productsJson(found, found.size());
+        }
+        int offset = intParameter(query, "offset", 0);
+        int limit = Math.min(intParameter(query, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        return productsJson(InventoryStore.products().slice(offset, offset + limit),
+                InventoryStore.products().size());
+    }
+
+    /** @param body fields of the new part; type is "InHouse" or "Outsourced"
+     *  @return the part added, with its new id
+     */
+    private String addPart(Map<String, Object> body) {
+        int id = InventoryStore.partIds().next();
+        Part part;
+        try {
+            part = buildPart(id, body);
+        } catch (RuntimeException e) {
+            // A refused request must not use up an id.
+            InventoryStore.partIds().release(id);
+            throw e;
+        }
+        InventoryStore.parts().add(part);
+        return partJson(new StringBuilder(), part).toString();
+    }
+
+    /** This method changes the fields the body names in place, holding the lock of the part, so a stock movement
+     *  made at the same time is neither lost nor checked against limits that are about to change.
+     *  @param current part to change
+     *  @param body fields to change; the type of a part can not be changed
+     *  @return the part as it is now
+     */
+    private String updatePart(Part current, Map<String, Object> body) {
+        InventoryStore.edit(current, () -> {
+            if (InventoryStore.parts().lookup(current.getId()) != current) {
+                throw new HttpError(404, "There is no part with id " + current.getId());
+            }
+            String type = current instanceof Outsourced ? "Outsourced" : "InHouse";
+            String asked = string(body, "type", type);
+            if (!asked.equalsIgnoreCase("InHouse") && !asked.equalsIgnoreCase("Outsourced")) {
+                throw new IllegalArgumentException("Unknown part type \"" + asked + "\"");
+            }
+            if (!asked.equalsIgnoreCase(type)) {
+                throw new HttpError(409, "Part " + current.getId() + " is " + type + " and can not change its type");
+            }
+            String name = string(body, "name", current.getName());
+            double price = number(body, "price", current.getPrice());
+            int stock = integer(body, "stock", current.getStock());
+            int min = integer(body, "min", current.getMin());
+            int max = integer(body, "max", current.getMax());
+            checkFields(name, price, stock, min, max);
+            if (current instanceof InHouse) {
+                InHouse part = (InHouse) current;
+                part.setMachineId(integer(body, "machineId", part.getMachineId()));
+            } else {
+                Outsourced part = (Outsourced) current;
+                String company = string(body, "companyName", part.getCompanyName());
+                if (company.isBlank()) {
+                    throw new IllegalArgumentException("The company name is blank");
+                }
+                part.setCompanyName(company);
+            }
+            current.setName(name);
+            current.setPrice(price);
+            current.setMin(min);
+            current.setMax(max);
+            current.setStock(stock);
+        });
+        return partJson(new StringBuilder(), current).toString();
+    }
+
+    /** @param part part to delete
+     *  @return the part deleted
+     */
+    private String deletePart(Part part) {
+        if (!InventoryStore.whereUsed().deleteIfUnused(part)) {
+            if (InventoryStore.parts().lookup(part.getId()) != part) {
+                throw new HttpError(404, "There is no part with id " + part.getId());
+            }
+            throw new HttpError(409, "Part " + part.getId() + " is used by a product");
+        }
+        return partJson(new StringBuilder(), part).toString();
+    }
+
+    /** @param body fields of the new product, with optional parts and components lists of id and quantity
+     *  @return the product added, with its new id
+     */
+    private String addProduct(Map<String, Object> body) {
+        int id = InventoryStore.productIds().next();
+        Product product;
+        try {
+            product = buildProduct(id, body);
+        } catch (RuntimeException e) {
+            InventoryStore.productIds().release(id);
+            throw e;
+        }
+        InventoryStore.products().add(product);
+        return productJson(new StringBuilder(), product).toString();
+    }
+
+    /** This method changes the fields the body names in place, holding the lock of the product, so a stock
+     *  movement made at the same time is neither lost nor checked against limits that are about to change.
+     *  @param current product to change
+     *  @param body fields to change
+     *  @return the product as it is now
+     */
+    private String updateProduct(Product current, Map<String, Object> body) {
+        int[] parts = body.containsKey("parts") ? pairs(body.get("parts"), true) : null;
+        int[] components = body.containsKey("components") ? pairs(body.get("components"), false) : null;
+        InventoryStore.edit(current, () -> {
+            if (InventoryStore.products().lookup(current.getId()) != current) {
+                throw new HttpError(404, "There is no product with id " + current.getId());
+            }
+            String name = string(body, "name", current.getName());
+            double price = number(body, "price", current.getPrice());
+            int stock = integer(body, "stock", current.getStock());
+            int min = integer(body, "min", current.getMin());
+            int max = integer(body, "max", current.getMax());
+            checkFields(name, price, stock, min, max);
+            current.setName(name);
+            current.setPrice(price);
+            current.setMin(min);
+            current.setMax(max);
+            current.setStock(stock);
+            if (parts != null) {
+                current.setBillOfMaterials(parts);
+            }
+            if (components != null) {
+                current.setComponents(components);
+            }
+        });
+        return productJson(new StringBuilder(), current).toString();
+    }
+
+    /** @param product product to delete
+     *  @return the product deleted
+     */
+    private String deleteProduct(Product product) {
+        if (product.getAssociatedPartCount() > 0 || product.getComponentCount() > 0) {
+            throw new HttpError(409, "Product " + product.getId() + " still has associated parts or components");
+        }
+        if (!InventoryStore.whereUsed().deleteIfUnused(product)) {
+            if (InventoryStore.products().lookup(product.getId()) != product) {
+                throw new HttpError(404, "There is no product with id " + product.getId());
+            }
+            throw new HttpError(409, "Product " + product.getId() + " is a component of another product");
+        }
+        return productJson(new StringBuilder(), product).toString();
+    }
+
+    /** @param product product to list the parts of
+     *  @return the associated parts with their quantities
+     */
+    private static String associatedParts(Product product) {
+        int[] pairs = product.getBillOfMaterials();
+        StringBuilder out = new StringBuilder("{\"productId\":").append(product.getId()).append(",\"parts\":[");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"quantity\":").append(pairs[i + 1]).append(",\"part\":");
+            Part part = InventoryStore.parts().lookup(pairs[i]);
+            if (part == null) {
+                out.append("{\"id\":").append(pairs[i]).append('}');
+            } else {
+                partJson(out, part);
+            }
+            out.append('}');
+        }
+        return out.append("]}").toString();
+    }
+
+    /** @param id int id of the new part
+     *  @param body fields of the part, all of them required
+     *  @return the part, not yet in the inventory
+     */
+    private static Part buildPart(int id, Map<String, Object> body) {
+        String type = string(body, "type", null);
+        String name = string(body, "name", null);
+        double price = number(body, "price", null);
+        int stock = integer(body, "stock", null);
+        int min = integer(body, "min", null);
+        int max = integer(body, "max", null);
+        checkFields(name, price, stock, min, max);
+        if (type.equalsIgnoreCase("InHouse")) {
+            return new InHouse(id, name, price, stock, min, max, integer(body, "machineId", null));
+        }
+        if (type.equalsIgnoreCase("Outsourced")) {
+            String company = string(body, "companyName", null);
+            if (company.isBlank()) {
+                throw new IllegalArgumentException("The company name is blank");
+            }
+            return new Outsourced(id, name, price, stock, min, max, company);
+        }
+        throw new IllegalArgumentException("Unknown part type \"" + type + "\"");
+    }
+
+    /** @param id int id of the new product
+     *  @param body fields of the product, all of them required but the parts and components lists
+     *  @return the product, not yet in the inventory
+     */
+    private static Product buildProduct(int id, Map<String, Object> body) {
+        String name = string(body, "name", null);
+        double price = number(body, "price", null);
+        int stock = integer(body, "stock", null);
+        int min = integer(body, "min", null);
+        int max = integer(body, "max", null);
+        checkFields(name, price, stock, min, max);
+        Product product = new Product(id, name, price, stock, min, max);
+        product.setBillOfMaterials(body.containsKey("parts") ? pairs(body.get("parts"), true) : new int[0]);
+        product.setComponents(body.containsKey("components") ? pairs(body.get("components"), false) : new int[0]);
+        return product;
+    }
+
+    /** This method checks the fields of a part or product by the rules of the forms.
+     *  @param name String name
+     *  @param price double price
+     *  @param stock int stock
+     *  @param min int min
+     *  @param max int max
+     */
+    private static void checkFields(String name, double price, int stock, int min, int max) {
+        if (name.isBlank()) {
+            throw new IllegalArgumentException("The name is blank");
+        }
+        if (price < 0 || stock < 0 || min < 0 || max < 0 || !Double.isFinite(price)) {
+            throw new IllegalArgumentException("Negative values are not allowed");
+        }
+        if (min > max) {
+            throw new IllegalArgumentException("Min should be less than or equal to the Max");
+        }
+        if (stock < min || stock > max) {
+            throw new IllegalArgumentException("Inv should be between Min and Max values");
+        }
+    }
+
+    /** @param value list of objects with an id and a quantity
+     *  @param parts boolean value for whether the ids are parts rather than products
+     *  @return pairs of id and quantity
+     */
+    private static int[] pairs(Object value, boolean parts) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a list of {\"id\", \"quantity\"} objects");
+        }
+        List<?> lines = (List<?>) value;
+        int[] pairs = new int[lines.size() * 2];
+        for (int i = 0; i < lines.size(); i++) {
+            if (!(lines.get(i) instanceof Map)) {
+                throw new IllegalArgumentException("Expected a list of {\"id\", \"quantity\"} objects");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> line = (Map<String, Object>) lines.get(i);
+            int id = integer(line, "id", null);
+            if (parts ? InventoryStore.parts().lookup(id) == null : InventoryStore.products().lookup(id) == null) {
+                throw new HttpError(404, "There is no " + (parts ? "part" : "product") + " with id " + id);
+            }
+            pairs[i * 2] = id;
+            pairs[i * 2 + 1] = integer(line, "quantity", 1);
+        }
+        return pairs;
+    }
+
+    /** @param id int id
+     *  @return the part with the id
+     */
+    private static Part findPart(int id) {
+        Part part = InventoryStore.parts().lookup(id);
+        if (part == null) {
+            throw new HttpError(404, "There is no part with id " + id);
+        }
+        return part;
+    }
+
+    /** @param id int id
+     *  @return the product with the id
+     */
+    private static Product findProduct(int id) {
+        Product product = InventoryStore.products().lookup(id);
+        if (product == null) {
+            throw new HttpError(404, "There is no product with id " + id);
+        }
+        return product;
+    }
+
+    /** @param parts parts to write
+     *  @param total int number of parts there are in all
+     *  @return an object with the total and the parts
+     */
+    private static String partsJson(List<Part> parts, int total) {
+        StringBuilder out = new StringBuilder("{\"total\":").append(total).append(",\"items\":[");
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            partJson(out, parts.get(i));
+        }
+        return out.append("]}").toString();
+    }
+
+    /** @param products products to write
+     *  @param total int number of products there are in all
+     *  @return an object with the total and the products
+     */
+    private static String productsJson(List<Product> products, int total) {
+        StringBuilder out = new StringBuilder("{\"total\":").append(total).append(",\"items\":[");
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            productJson(out, products.get(i));
+        }
+        return out.append("]}").toString();
+    }
+
+    /** @param out StringBuilder to append to
+     *  @param part part to write
+     *  @return out
+     */
+    private static StringBuilder partJson(StringBuilder out, Part part) {
+        out.append("{\"id\":").append(part.getId())
+                .append(",\"type\":\"").append(part instanceof Outsourced ? "Outsourced" : "InHouse")
+                .append("\",\"name\":");
+        Json.string(out, part.getName())
+                .append(",\"price\":").append(part.getPrice())
+                .append(",\"stock\":").append(part.getStock())
+                .append(",\"min\":").append(part.getMin())
+                .append(",\"max\":").append(part.getMax());
+        if (part instanceof InHouse) {
+            out.append(",\"machineId\":").append(((InHouse) part).getMachineId());
+        } else if (part instanceof Outsourced) {
+            Json.string(out.append(",\"companyName\":"), ((Outsourced) part).getCompanyName());
+        }
+        return out.append('}');
+    }
+
+    /** @param out StringBuilder to append to
+     *  @param product product to write
+     *  @return out
+     */
+    private static StringBuilder productJson(StringBuilder out, Product product) {
+        out.append("{\"id\":").append(product.getId()).append(",\"name\":");
+        Json.string(out, product.getName())
+                .append(",\"price\":").append(product.getPrice())
+                .append(",\"stock\":").append(product.getStock())
+                .append(",\"min\":").append(product.getMin())
+                .append(",\"max\":").append(product.getMax())
+                .append(",\"parts\":");
+        pairsJson(out, product.getBillOfMaterials()).append(",\"components\":");
+        return pairsJson(out, product.getComponents()).append('}');
+    }
+
+    /** @param out StringBuilder to append to
+     *  @param pairs pairs of id and quantity
+     *  @return out
+     */
+    private static StringBuilder pairsJson(StringBuilder out, int[] pairs) {
+        out.append('[');
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"id\":").append(pairs[i]).append(",\"quantity\":").append(pairs[i + 1]).append('}');
+        }
+        return out.append(']');
+    }
+
+    /** @param message String what went wrong
+     *  @return an object holding the message
+     */
+    private static String error(String message) {
+        return Json.string(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    /** @param exchange the request
+     *  @return the JSON object in its body
+     *  @throws IOException If the body could not be read
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(MAX_BODY + 1);
+        }
+        if (bytes.length > MAX_BODY) {
+            throw new HttpError(413, "The request body is larger than " + MAX_BODY + " bytes");
+        }
+        Object value = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("The request body must be a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /** @param exchange the request
+     *  @return the parameters of its query string, decoded
+     */
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /** @param method String method of the request
+     *  @param allowed String the only method allowed
+     */
+    private static void requireMethod(String method, String allowed) {
+        if (!method.equals(allowed)) {
+            throw new HttpError(405, "Method " + method + " is not allowed here");
+        }
+    }
+
+    /** @param segment String path segment holding an id
+     *  @return int id
+     */
+    private static int id(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "\"" + segment + "\" is not an id");
+        }
+    }
+
+    /** @param query parameters of the query string
+     *  @param name String name of the parameter
+     *  @param fallback int value if it is missing
+     *  @return int value of the parameter, at least 0
+     */
+    private static int intParameter(Map<String, String> query, String name, int fallback) {
+        String value = query.get(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + name + " \"" + value + "\" is not an integer");
+        }
+    }
+
+    /** @param body JSON object
+     *  @param field String name of the field
+     *  @param fallback value if the field is missing, or null if it is required
+     *  @return String value of the field
+     */
+    private static String string(Map<String, Object> body, String field, String fallback) {
+        Object value = present(body, field, fallback);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("The " + field + " must be a string");
+        }
+        return (String) value;
+    }
+
+    /** @param body JSON object
+     *  @param field String name of the field
+     *  @param fallback value if the field is missing, or null if it is required
+     *  @return double value of the field
+     */
+    private static double number(Map<String, Object> body, String field, Double fallback) {
+        Object value = present(body, field, fallback);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("The " + field + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    /** @param body JSON object
+     *  @param field String name of the field
+     *  @param fallback value if the field is missing, or null if it is required
+     *  @return int value of the field
+     */
+    private static int integer(Map<String, Object> body, String field, Integer fallback) {
+        Object value = present(body, field, fallback);
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("The " + field + " must be an integer");
+        }
+        double number = (Double) value;
+        if (number != Math.rint(number) || number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The " + field + " must be an integer");
+        }
+        return (int) number;
+    }
+
+    /** @param body JSON object
+     *  @param field String name of the field
+     *  @param fallback value if the field is missing, or null if it is required
+     *  @return the value of the field, or fallback
+     */
+    private static Object present(Map<String, Object> body, String field, Object fallback) {
+        Object value = body.containsKey(field) ? body.get(field) : fallback;
+        if (value == null) {
+            throw new IllegalArgumentException("The " + field + " is missing");
+        }
+        return value;
+    }
+
+    /** This class is responsible for a request that is answered with an HTTP error status. */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        /** @param status int HTTP status
+         *  @param message String what went wrong
+         */
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
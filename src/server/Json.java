@@ -0,0 +1,250 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** This class is responsible for the little JSON the server reads and writes.
+ *  <p>parse() reads objects, arrays, strings, numbers, true, false and null into LinkedHashMap, ArrayList, String,
+ *  Double, Boolean and null.  The writing side only appends escaped strings, since the server builds its replies
+ *  field by field.
+ */
+final class Json {
+    private final String text;
+    private int at;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /** @param text String JSON text
+     *  @return the value it holds
+     *  @throws IllegalArgumentException If the text is not valid JSON
+     */
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpace();
+        if (json.at < text.length()) {
+            throw json.error("unexpected text after the value");
+        }
+        return value;
+    }
+
+    /** @param out StringBuilder to append to
+     *  @param value String to append as a JSON string, or null
+     *  @return out
+     */
+    static StringBuilder string(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    /** @return the value starting at the current position */
+    private Object value() {
+        skipSpace();
+        if (at >= text.length()) {
+            throw error("a value is missing");
+        }
+        char c = text.charAt(at);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+
+    /** @return the object starting at the current position */
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        at++;
+        skipSpace();
+        if (peek() == '}') {
+            at++;
+            return object;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') {
+                throw error("a field name is missing");
+            }
+            String name = string();
+            skipSpace();
+            expect(':');
+            object.put(name, value());
+            skipSpace();
+            if (peek() == ',') {
+                at++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    /** @return the array starting at the current position */
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        at++;
+        skipSpace();
+        if (peek() == ']') {
+            at++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                at++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    /** @return the string starting at the current position, without its quotes */
+    private String string() {
+        StringBuilder out = new StringBuilder();
+        at++;
+        while (true) {
+            if (at >= text.length()) {
+                throw error("a string is not closed");
+            }
+            char c = text.charAt(at++);
+            if (c == '"') {
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (at >= text.length()) {
+                throw error("a string is not closed");
+            }
+            char escaped = text.charAt(at++);
+            switch (escaped) {
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'u':
+                    if (at + 4 > text.length()) {
+                        throw error("a \\u escape is cut short");
+                    }
+                    try {
+                        out.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("a \\u escape is not hexadecimal");
+                    }
+                    at += 4;
+                    break;
+                default:
+                    out.append(escaped);
+            }
+        }
+    }
+
+    /** @return the number starting at the current position */
+    private Double number() {
+        int start = at;
+        while (at < text.length() && "+-.eE0123456789".indexOf(text.charAt(at)) >= 0) {
+            at++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, at));
+        } catch (NumberFormatException e) {
+            throw error("a value is not valid");
+        }
+    }
+
+    /** @param word String literal expected
+     *  @param value value of the literal
+     *  @return value
+     */
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, at)) {
+            throw error("a value is not valid");
+        }
+        at += word.length();
+        return value;
+    }
+
+    /** @param c char that must come next */
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("'" + c + "' is missing");
+        }
+        at++;
+    }
+
+    /** @return char at the current position, or 0 at the end */
+    private char peek() {
+        return at < text.length() ? text.charAt(at) : 0;
+    }
+
+    private void skipSpace() {
+        while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+            at++;
+        }
+    }
+
+    /** @param message String what is wrong
+     *  @return exception naming the position
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at character " + at + ": " + message);
+    }
+}
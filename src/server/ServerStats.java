@@ -0,0 +1,102 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** This class is responsible for the throughput and latency figures of the server.
+ *  <p>Every request adds to a LongAdder and to one bucket of a latency histogram, so handler threads never wait
+ *  on one another to be counted.  Bucket b holds the latencies from 2^b to 2^(b+1) microseconds, split into
+ *  SUB_BUCKETS equal steps, which keeps every percentile within about 12% of the true figure.
+ */
+final class ServerStats {
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final long started = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /** @param nanos long time the request took
+     *  @param status int HTTP status of the reply
+     */
+    void record(long nanos, int status) {
+        requests.increment();
+        if (status >= 500) {
+            errors.increment();
+        }
+        long micros = Math.max(1, nanos / 1000);
+        histogram.incrementAndGet(bucket(micros));
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // Another request set a new max first; try again against it.
+        }
+    }
+
+    /** @return the figures as a JSON object */
+    String toJson() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long served = requests.sum();
+        long max = maxMicros.get();
+        return new StringBuilder()
+                .append("{\"requests\":").append(served)
+                .append(",\"serverErrors\":").append(errors.sum())
+                .append(",\"uptimeSeconds\":").append(Math.round(seconds))
+                .append(",\"requestsPerSecond\":").append(Math.round(served / Math.max(seconds, 1e-3)))
+                .append(",\"latencyMicros\":{\"p50\":").append(percentile(counts, total, 0.50, max))
+                .append(",\"p90\":").append(percentile(counts, total, 0.90, max))
+                .append(",\"p99\":").append(percentile(counts, total, 0.99, max))
+                .append(",\"p999\":").append(percentile(counts, total, 0.999, max))
+                .append(",\"max\":").append(max)
+                .append("}}").toString();
+    }
+
+    /** @param counts requests in each bucket
+     *  @param total long requests in every bucket
+     *  @param fraction double share of requests that must be at or below the answer
+     *  @param max long slowest request seen, in microseconds
+     *  @return long upper edge of the bucket the percentile falls in, but no more than max, in microseconds
+     */
+    private static long percentile(long[] counts, long total, double fraction, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperEdge(i), max);
+            }
+        }
+        return Math.min(upperEdge(BUCKETS - 1), max);
+    }
+
+    /** @param micros long latency, at least 1
+     *  @return int bucket it is counted in
+     */
+    private static int bucket(long micros) {
+        int power = 63 - Long.numberOfLeadingZeros(micros);
+        long step = Math.max(1, (1L << power) / SUB_BUCKETS);
+        int sub = (int) Math.min(SUB_BUCKETS - 1, (micros - (1L << power)) / step);
+        return Math.min(BUCKETS - 1, power * SUB_BUCKETS + sub);
+    }
+
+    /** @param bucket int bucket
+     *  @return long highest latency counted in it, in microseconds
+     */
+    private static long upperEdge(int bucket) {
+        int power = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        long step = Math.max(1, (1L << power) / SUB_BUCKETS);
+        return Math.min((1L << (power + 1)) - 1, (1L << power) + (sub + 1) * step - 1);
+    }
+}
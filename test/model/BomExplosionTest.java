@@ -0,0 +1,151 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** This class is responsible for testing that BomExplosion multiplies the quantities down the components, adds up
+ *  parts met more than once, counts missing components as nothing and refuses a product that contains itself.
+ *  <p>The products live in a catalog of the test's own, and the large trees are checked against a plain recursive
+ *  explosion, so the split into fork/join tasks is checked too.
+ */
+class BomExplosionTest {
+    private final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+
+    @Test
+    void quantitiesAreMultipliedDownTheComponents() {
+        Product wheel = product(1000, new int[] {1, 4, 2, 4});
+        Product axle = product(1001, new int[] {3, 1});
+        axle.setComponentQuantity(wheel.getId(), 2);
+        Product car = product(1002, new int[] {4, 1});
+        car.setComponentQuantity(axle.getId(), 2);
+        // The car also carries a spare wheel of its own, so the wheel is reached twice.
+        car.setComponentQuantity(wheel.getId(), 1);
+
+        BomExplosion.Requirements needed = new BomExplosion(products).explode(car.getId(), 3);
+        assertEquals(4, needed.size());
+        assertEquals(1, needed.getPartId(0));
+        assertEquals(3 * 5 * 4L, needed.getQuantity(0));
+        assertEquals(3 * 5 * 4L, needed.quantityOf(2));
+        assertEquals(3 * 2L, needed.quantityOf(3));
+        assertEquals(3L, needed.quantityOf(4));
+        assertEquals(0L, needed.quantityOf(5));
+        assertArrayEquals(new int[0], needed.getMissingProductIds());
+    }
+
+    @Test
+    void missingComponentsCountAsNothing() {
+        Product kit = product(1000, new int[] {1, 2});
+        kit.setComponentQuantity(1999, 3);
+        BomExplosion.Requirements needed = new BomExplosion(products).explode(kit.getId(), 5);
+        assertEquals(1, needed.size());
+        assertEquals(10L, needed.quantityOf(1));
+        assertArrayEquals(new int[] {1999}, needed.getMissingProductIds());
+        assertEquals(0, new BomExplosion(products).explode(kit.getId(), 0).quantityOf(1));
+    }
+
+    @Test
+    void unknownProductsAndNegativeUnitsAreRefused() {
+        product(1000, new int[] {1, 1});
+        BomExplosion explosion = new BomExplosion(products);
+        assertThrows(IllegalArgumentException.class, () -> explosion.explode(1999, 1));
+        assertThrows(IllegalArgumentException.class, () -> explosion.explode(1000, -1));
+    }
+
+    @Test
+    void aProductThatContainsItselfIsRefused() {
+        Product a = product(1000, new int[] {1, 1});
+        Product b = product(1001, new int[0]);
+        Product c = product(1002, new int[0]);
+        Product top = product(1003, new int[0]);
+        top.setComponentQuantity(a.getId(), 1);
+        a.setComponentQuantity(b.getId(), 1);
+        b.setComponentQuantity(c.getId(), 1);
+        c.setComponentQuantity(a.getId(), 1);
+
+        BomCycleException cycle = assertThrows(BomCycleException.class,
+                () -> new BomExplosion(products).explode(top.getId(), 1));
+        int[] ids = cycle.getCycle();
+        assertEquals(4, ids.length);
+        assertEquals(ids[0], ids[3]);
+        assertArrayEquals(new int[] {1000, 1001, 1002}, IntStream.of(ids).limit(3).sorted().toArray());
+    }
+
+    @Test
+    void wideAndDeepTreesMatchARecursiveExplosion() {
+        Random random = new Random(14);
+        int count = 400;
+        for (int i = 0; i < count; i++) {
+            int[] lines = new int[2 * (1 + random.nextInt(3))];
+            for (int j = 0; j < lines.length; j += 2) {
+                lines[j] = 1 + random.nextInt(50);
+                lines[j + 1] = 1 + random.nextInt(3);
+            }
+            Product product = product(1000 + i, lines);
+            // Components only point at lower ids, so there is no cycle; some products are very wide.
+            int components = i == 0 ? 0
+                    : i % 50 == 0 ? Math.min(i, 3 * BomExplosion.SPLIT_COMPONENTS) : random.nextInt(4);
+            for (int j = 0; j < components; j++) {
+                product.setComponentQuantity(1000 + random.nextInt(i), 1 + random.nextInt(2));
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BomExplosion explosion = new BomExplosion(products, pool);
+            Map<Integer, Map<Integer, Long>> memo = new HashMap<>();
+            for (int id = 1000 + count - 20; id < 1000 + count; id++) {
+                Map<Integer, Long> expected = recursive(id, memo);
+                BomExplosion.Requirements needed = explosion.explode(id, 2);
+                assertEquals(expected.size(), needed.size());
+                for (int i = 0; i < needed.size(); i++) {
+                    assertEquals(2 * expected.get(needed.getPartId(i)), needed.getQuantity(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** @param id int id of the product
+     *  @param lines pairs of part id and quantity on its bill of materials
+     *  @return the product, already in the catalog
+     */
+    private Product product(int id, int[] lines) {
+        Product product = new Product(id, "Product " + id, 1, 0, 0, 10);
+        product.setBillOfMaterials(lines);
+        products.add(product);
+        return product;
+    }
+
+    /** @param id int id of a product
+     *  @param memo parts of the products already worked out
+     *  @return quantity of each part needed for one unit of the product
+     */
+    private Map<Integer, Long> recursive(int id, Map<Integer, Map<Integer, Long>> memo) {
+        Map<Integer, Long> known = memo.get(id);
+        if (known != null) {
+            return known;
+        }
+        Product product = products.lookup(id);
+        Map<Integer, Long> needed = new HashMap<>();
+        int[] lines = product.getBillOfMaterials();
+        for (int i = 0; i < lines.length; i += 2) {
+            needed.merge(lines[i], (long) lines[i + 1], Long::sum);
+        }
+        int[] components = product.getComponents();
+        for (int i = 0; i < components.length; i += 2) {
+            long quantity = components[i + 1];
+            recursive(components[i], memo).forEach((part, n) -> needed.merge(part, n * quantity, Long::sum));
+        }
+        memo.put(id, needed);
+        return needed;
+    }
+}
@@ -0,0 +1,156 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that Buildability works out the units the parts in stock can build, and
+ *  follows stock, bill of materials and catalog changes, including changes deep in the components of a product.
+ *  <p>Each test works on catalogs of its own, with the figures listening the way InventoryStore wires them.
+ */
+class BuildabilityTest {
+    private final Catalog<Part> parts = new Catalog<>(Part::getId, Part::getName);
+    private final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+    private final Buildability buildability = new Buildability(parts, products, new BomExplosion(products));
+    private final AssociationListener associationListener = buildability.associationListener();
+    private final StockListener stockListener = buildability.stockListener();
+    private final Set<Integer> told = new TreeSet<>();
+
+    private Part bolt;
+    private Part nut;
+    private Product wheel;
+    private Product car;
+
+    @BeforeEach
+    void wire() {
+        parts.subscribe(buildability.partListener());
+        products.subscribe(buildability.productListener());
+        Product.addAssociationListener(associationListener);
+        Part.addStockListener(stockListener);
+        buildability.addListener(productIds -> {
+            synchronized (told) {
+                for (int productId : productIds) {
+                    told.add(productId);
+                }
+            }
+        });
+
+        bolt = new InHouse(1, "Bolt", 1, 10, 0, 1000, 1);
+        nut = new InHouse(2, "Nut", 1, 7, 0, 1000, 1);
+        parts.addAll(List.of(bolt, nut));
+        wheel = new Product(1000, "Wheel", 1, 0, 0, 10);
+        wheel.setBillOfMaterials(new int[] {1, 4, 2, 2});
+        car = new Product(1001, "Car", 1, 0, 0, 10);
+        car.setAssociatedPartQuantity(2, 1);
+        car.setComponentQuantity(1000, 2);
+        products.addAll(List.of(wheel, car));
+    }
+
+    @AfterEach
+    void unwire() {
+        Product.removeAssociationListener(associationListener);
+        Part.removeStockListener(stockListener);
+    }
+
+    @Test
+    void unitsAreSetByTheScarcestPart() throws InterruptedException {
+        buildability.sync();
+        // Wheel: 10 / 4 bolts and 7 / 2 nuts.  Car: 10 / 8 bolts and 7 / 5 nuts.
+        assertEquals(2, buildability.getBuildableUnits(1000));
+        assertEquals(1, buildability.getBuildableUnits(1001));
+        assertEquals(0, buildability.getBuildableUnits(1999));
+
+        products.add(new Product(1002, "Empty", 1, 0, 0, 10));
+        buildability.sync();
+        assertEquals(0, buildability.getBuildableUnits(1002));
+    }
+
+    @Test
+    void stockChangesReachTheProductsThatNeedThePart() throws InterruptedException {
+        buildability.sync();
+        clearTold();
+        bolt.setStock(40);
+        buildability.sync();
+        assertEquals(3, buildability.getBuildableUnits(1000));
+        assertEquals(1, buildability.getBuildableUnits(1001));
+        assertEquals(Set.of(1000), toldSoFar());
+
+        nut.setStock(100);
+        buildability.sync();
+        assertEquals(10, buildability.getBuildableUnits(1000));
+        assertEquals(5, buildability.getBuildableUnits(1001));
+
+        // A part that leaves the catalog counts as none in stock.
+        parts.delete(bolt);
+        buildability.sync();
+        assertEquals(0, buildability.getBuildableUnits(1000));
+        assertEquals(0, buildability.getBuildableUnits(1001));
+    }
+
+    @Test
+    void componentChangesReachEveryProductThatContainsThem() throws InterruptedException {
+        Product truck = new Product(1002, "Truck", 1, 0, 0, 10);
+        truck.setComponentQuantity(1001, 1);
+        products.add(truck);
+        buildability.sync();
+        assertEquals(1, buildability.getBuildableUnits(1002));
+
+        clearTold();
+        wheel.setAssociatedPartQuantity(1, 1);
+        buildability.sync();
+        // Wheel: 10 / 1 bolts and 7 / 2 nuts.  Car and truck: 10 / 2 bolts and 7 / 5 nuts.
+        assertEquals(3, buildability.getBuildableUnits(1000));
+        assertEquals(1, buildability.getBuildableUnits(1001));
+        assertTrue(toldSoFar().contains(1000));
+
+        car.setComponentQuantity(1000, 0);
+        buildability.sync();
+        assertEquals(7, buildability.getBuildableUnits(1001));
+        assertEquals(7, buildability.getBuildableUnits(1002));
+
+        // A product that contains itself can not be built.
+        car.setComponentQuantity(1002, 1);
+        buildability.sync();
+        assertEquals(0, buildability.getBuildableUnits(1001));
+        assertEquals(0, buildability.getBuildableUnits(1002));
+        assertEquals(3, buildability.getBuildableUnits(1000));
+
+        car.setComponentQuantity(1002, 0);
+        products.delete(truck);
+        buildability.sync();
+        assertEquals(7, buildability.getBuildableUnits(1001));
+        assertEquals(0, buildability.getBuildableUnits(1002));
+    }
+
+    @Test
+    void manyStockChangesEndOnTheLastStock() throws InterruptedException {
+        for (int stock = 0; stock <= 400; stock++) {
+            bolt.setStock(stock);
+        }
+        nut.setStock(1000);
+        buildability.sync();
+        assertEquals(100, buildability.getBuildableUnits(1000));
+        assertEquals(50, buildability.getBuildableUnits(1001));
+    }
+
+    /** This method forgets the products the listener was told about so far. */
+    private void clearTold() {
+        synchronized (told) {
+            told.clear();
+        }
+    }
+
+    /** @return the products the listener was told about since the last clear */
+    private Set<Integer> toldSoFar() {
+        synchronized (told) {
+            return new TreeSet<>(told);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that Catalog finds its items by id, by name and by slot after any mix of
+ *  adds, replacements and deletes, and that a listener replaying the changes it is told ends up with the same
+ *  items in the same order.
+ *  <p>The catalogs hold small items of the test's own, so nothing here touches PartTable or InventoryStore.
+ */
+class CatalogTest {
+    private final Catalog<Item> catalog = new Catalog<>(item -> item.id, item -> item.name);
+
+    @Test
+    void findsItemsByIdAndRefusesDuplicateIds() {
+        catalog.add(new Item(1, "Bolt"));
+        catalog.addAll(List.of(new Item(2, "Nut"), new Item(3, "Washer")));
+        assertEquals("Nut", catalog.lookup(2).name);
+        assertNull(catalog.lookup(4));
+        assertEquals(3, catalog.size());
+
+        assertThrows(IllegalArgumentException.class, () -> catalog.add(new Item(2, "Other nut")));
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.addAll(List.of(new Item(4, "Pin"), new Item(4, "Pin again"))));
+        assertNull(catalog.lookup(4));
+        assertEquals(3, catalog.size());
+    }
+
+    @Test
+    void deletesKeepTheSlotsOfTheOtherItems() {
+        List<Item> items = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            items.add(new Item(id, "Item " + id));
+        }
+        catalog.addAll(items);
+        assertTrue(catalog.delete(items.get(2)));
+        assertFalse(catalog.delete(items.get(2)));
+        assertEquals(2, catalog.removeAll(List.of(items.get(0), items.get(7))));
+
+        assertEquals(List.of(2, 4, 5, 6, 7, 9, 10), ids(catalog.snapshot()));
+        assertEquals(0, catalog.indexOf(items.get(1)));
+        assertEquals(6, catalog.indexOf(items.get(9)));
+        assertEquals(-1, catalog.indexOf(items.get(7)));
+        assertEquals(List.of(5, 6), ids(catalog.slice(2, 4)));
+        assertEquals(List.of(10), ids(catalog.slice(6, 100)));
+    }
+
+    @Test
+    void aReplacementMustBeTheItemInTheCatalogToBeDeleted() {
+        Item first = new Item(1, "Bolt");
+        catalog.add(first);
+        Item second = new Item(1, "Bolt, long");
+        assertTrue(catalog.update(1, second));
+        assertFalse(catalog.update(2, new Item(2, "Nut")));
+        assertFalse(catalog.delete(first));
+        assertTrue(catalog.deleteIf(second, item -> true));
+        assertEquals(0, catalog.size());
+    }
+
+    @Test
+    void namesAreFoundIgnoringCaseInCatalogOrder() {
+        catalog.addAll(List.of(new Item(3, "Brake pad"), new Item(1, "Wiper"), new Item(2, "BRAKE disc")));
+        assertEquals(List.of(3, 2), ids(catalog.lookup("brake")));
+        assertEquals(List.of(3, 1, 2), ids(catalog.lookup("e")));
+        assertTrue(catalog.lookup("clutch").isEmpty());
+
+        catalog.update(1, new Item(1, "Brake cable"));
+        assertEquals(List.of(3, 1, 2), ids(catalog.lookup("brake")));
+
+        Item disc = catalog.lookup(2);
+        String oldName = disc.name;
+        disc.name = "Rotor";
+        assertTrue(catalog.renamed(disc, oldName));
+        assertEquals(List.of(3, 1), ids(catalog.lookup("brake")));
+        assertEquals(List.of(2), ids(catalog.lookup("rotor")));
+        assertTrue(catalog.nameContains(disc, "oto"));
+
+        catalog.delete(catalog.lookup(3));
+        assertEquals(List.of(1), ids(catalog.lookup("brake")));
+    }
+
+    @Test
+    void upsertAddsNewIdsAndReplacesKnownOnes() {
+        catalog.add(new Item(1, "Bolt"));
+        assertEquals(2, catalog.upsertAll(List.of(new Item(2, "Nut"), new Item(1, "Bolt, long"),
+                new Item(3, "Washer"), new Item(3, "Washer, wide"))));
+        assertEquals(List.of(1, 2, 3), ids(catalog.snapshot()));
+        assertEquals("Bolt, long", catalog.lookup(1).name);
+        assertEquals("Washer, wide", catalog.lookup(3).name);
+        assertFalse(catalog.upsert(new Item(2, "Nut, square")));
+        assertEquals(List.of(2), ids(catalog.lookup("square")));
+    }
+
+    @Test
+    void snapshotsAreNotChangedByLaterWrites() {
+        catalog.add(new Item(1, "Bolt"));
+        List<Item> before = catalog.snapshot();
+        catalog.add(new Item(2, "Nut"));
+        catalog.delete(catalog.lookup(1));
+        assertEquals(List.of(1), ids(before));
+        assertEquals(List.of(2), ids(catalog.snapshot()));
+        assertThrows(UnsupportedOperationException.class, () -> before.add(new Item(3, "Washer")));
+    }
+
+    @Test
+    void listenersThatReplayTheChangesMatchTheCatalog() {
+        catalog.addAll(List.of(new Item(1, "Bolt"), new Item(2, "Nut")));
+        Mirror mirror = new Mirror();
+        mirror.items.addAll(catalog.subscribe(mirror));
+        Random random = new Random(5);
+        int nextId = 3;
+        for (int step = 0; step < 5_000; step++) {
+            List<Item> current = catalog.snapshot();
+            int choice = random.nextInt(6);
+            if (choice == 0 || current.isEmpty()) {
+                catalog.add(new Item(nextId++, "Item " + step));
+            } else if (choice == 1) {
+                List<Item> batch = new ArrayList<>();
+                for (int i = random.nextInt(5); i >= 0; i--) {
+                    batch.add(new Item(nextId++, "Item " + step));
+                }
+                catalog.addAll(batch);
+            } else if (choice == 2) {
+                Item old = current.get(random.nextInt(current.size()));
+                catalog.update(old.id, new Item(old.id, "Renamed " + step));
+            } else if (choice == 3) {
+                catalog.delete(current.get(random.nextInt(current.size())));
+            } else if (choice == 4) {
+                List<Item> batch = new ArrayList<>();
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    batch.add(current.get(random.nextInt(current.size())));
+                }
+                catalog.removeAll(batch);
+            } else {
+                Item old = current.get(random.nextInt(current.size()));
+                catalog.upsertAll(List.of(new Item(old.id, "Upserted " + step), new Item(nextId++, "New " + step)));
+            }
+            if (step % 500 == 0) {
+                assertEquals(catalog.snapshot(), mirror.items);
+            }
+        }
+        assertEquals(catalog.snapshot(), mirror.items);
+        for (Item item : mirror.items) {
+            assertEquals(item, catalog.lookup(item.id));
+            assertEquals(mirror.items.indexOf(item), catalog.indexOf(item));
+            assertTrue(catalog.lookup(item.name).contains(item));
+        }
+        assertEquals(mirror.items.stream().filter(item -> item.name.startsWith("Item ")).count(),
+                catalog.lookup("item").size());
+    }
+
+    /** @param items items in order
+     *  @return their ids, in the same order
+     */
+    private static List<Integer> ids(List<Item> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.id);
+        }
+        return ids;
+    }
+
+    /** This class is responsible for an item with nothing but an id and a name. */
+    private static final class Item {
+        final int id;
+        String name;
+
+        /** @param id int id of the item
+         *  @param name String name of the item
+         */
+        Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /** This class is responsible for keeping a copy of a catalog from nothing but the changes it is told. */
+    private static final class Mirror implements CatalogListener<Item> {
+        final List<Item> items = new ArrayList<>();
+
+        @Override
+        public void added(int slot, Item item) {
+            assertEquals(items.size(), slot);
+            items.add(item);
+        }
+
+        @Override
+        public void replaced(int slot, Item oldItem, Item newItem) {
+            assertEquals(oldItem, items.set(slot, newItem));
+        }
+
+        @Override
+        public void removed(int slot, Item item) {
+            assertEquals(item, items.remove(slot));
+        }
+    }
+}
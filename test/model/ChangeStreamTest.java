@@ -0,0 +1,188 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that ChangeStream hands a subscriber only as many batches as it asked for,
+ *  no larger than its batch size and in sequence order, and that a subscriber whose buffer fills up gets what fit
+ *  and then a ChangeOverflowException, without the thread making the changes ever waiting for it.
+ *  <p>The stream follows a products catalog of its own, so the tests do not see the changes made to InventoryStore.
+ */
+class ChangeStreamTest {
+    private static final long TIMEOUT = 5;
+
+    private final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+    private final ChangeStream stream = new ChangeStream(new Catalog<>(Part::getId, Part::getName), products);
+    private final StockListener stockListener = stream.stockListener();
+    private final Product product = new Product(1000, "Kit", 5, 0, 0, 1_000_000);
+
+    @BeforeEach
+    void follow() {
+        products.subscribe(stream.productListener());
+        Product.addStockListener(stockListener);
+        products.add(product);
+    }
+
+    @AfterEach
+    void stop() {
+        Product.removeStockListener(stockListener);
+    }
+
+    @Test
+    void nothingIsHandedOverWithoutDemand() throws InterruptedException {
+        Recorder recorder = subscribe(0, 1000, 100);
+        changeStock(250);
+        assertNull(recorder.batches.poll(200, TimeUnit.MILLISECONDS));
+
+        recorder.subscription.request(1);
+        assertEquals(100, recorder.next().size());
+        assertNull(recorder.batches.poll(200, TimeUnit.MILLISECONDS));
+
+        recorder.subscription.request(5);
+        assertEquals(100, recorder.next().size());
+        assertEquals(50, recorder.next().size());
+        assertEquals(250, recorder.events.size());
+        assertInOrder(recorder.events);
+    }
+
+    @Test
+    void batchesAreNeverLargerThanAsked() throws InterruptedException {
+        Recorder recorder = subscribe(Long.MAX_VALUE, 10_000, 7);
+        changeStock(100);
+        int seen = 0;
+        while (seen < 100) {
+            List<ChangeEvent> batch = recorder.next();
+            assertTrue(batch.size() >= 1 && batch.size() <= 7);
+            seen += batch.size();
+        }
+        assertEquals(100, seen);
+        assertInOrder(recorder.events);
+        assertEquals(ChangeEvent.Type.STOCK_CHANGED, recorder.events.get(0).getType());
+        assertEquals(product.getId(), recorder.events.get(0).getId());
+    }
+
+    @Test
+    void overflowHandsOverWhatFitThenFails() throws InterruptedException {
+        Recorder recorder = subscribe(0, 50, 10);
+        long start = System.nanoTime();
+        changeStock(10_000);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(TIMEOUT), "the writer waited");
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertTrue(recorder.failed.await(TIMEOUT, TimeUnit.SECONDS));
+        ChangeOverflowException overflow = assertInstanceOf(ChangeOverflowException.class, recorder.error);
+        assertEquals(50, recorder.events.size());
+        assertInOrder(recorder.events);
+        assertEquals(recorder.events.get(49).getSequence(), overflow.getLastSequence());
+        assertEquals(0, stream.getSubscriberCount());
+    }
+
+    @Test
+    void requestingNothingIsAnError() throws InterruptedException {
+        Recorder recorder = subscribe(0, 10, 10);
+        recorder.subscription.request(0);
+        assertTrue(recorder.failed.await(TIMEOUT, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, recorder.error);
+        assertEquals(0, stream.getSubscriberCount());
+    }
+
+    @Test
+    void badSizesAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> stream.subscribe(new Recorder(0), 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> stream.subscribe(new Recorder(0), 1, 0));
+    }
+
+    /** @param initial long batches to request as soon as subscribed
+     *  @param bufferSize int most events that may wait
+     *  @param maxBatch int most events in one batch
+     *  @return the subscriber, once onSubscribe has been called
+     *  @throws InterruptedException if the thread was interrupted while waiting
+     */
+    private Recorder subscribe(long initial, int bufferSize, int maxBatch) throws InterruptedException {
+        Recorder recorder = new Recorder(initial);
+        stream.subscribe(recorder, bufferSize, maxBatch);
+        assertTrue(recorder.subscribed.await(TIMEOUT, TimeUnit.SECONDS));
+        return recorder;
+    }
+
+    /** @param changes int number of stock changes to make to the product, each one event */
+    private void changeStock(int changes) {
+        for (int i = 0; i < changes; i++) {
+            product.setStock(product.getStock() + 1);
+        }
+    }
+
+    /** @param events events in the order they were handed over, which must be the order of their sequence */
+    private static void assertInOrder(List<ChangeEvent> events) {
+        for (int i = 1; i < events.size(); i++) {
+            assertEquals(events.get(i - 1).getSequence() + 1, events.get(i).getSequence());
+        }
+    }
+
+    /** This class is responsible for keeping what a subscriber was handed, for the tests to wait for. */
+    private static final class Recorder implements Flow.Subscriber<List<ChangeEvent>> {
+        final BlockingQueue<List<ChangeEvent>> batches = new LinkedBlockingQueue<>();
+        final List<ChangeEvent> events = new ArrayList<>();
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        private final long initial;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        /** @param initial long batches to request in onSubscribe, 0 for none */
+        Recorder(long initial) {
+            this.initial = initial;
+        }
+
+        /** @return the next batch handed over
+         *  @throws InterruptedException if the thread was interrupted while waiting
+         */
+        List<ChangeEvent> next() throws InterruptedException {
+            List<ChangeEvent> batch = batches.poll(TIMEOUT, TimeUnit.SECONDS);
+            assertTrue(batch != null, "no batch was handed over");
+            return batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initial > 0) {
+                subscription.request(initial);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(List<ChangeEvent> batch) {
+            synchronized (events) {
+                events.addAll(batch);
+            }
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
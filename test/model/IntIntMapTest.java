@@ -0,0 +1,84 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** This class is responsible for testing IntIntMap against a HashMap, including keys whose values are 0, which
+ *  must still count as present.
+ */
+class IntIntMapTest {
+
+    @Test
+    void missingKeysGiveNoValue() {
+        IntIntMap map = new IntIntMap();
+        assertEquals(IntIntMap.NO_VALUE, map.get(1));
+        assertEquals(IntIntMap.NO_VALUE, map.remove(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void zeroKeysAndValuesAreStored() {
+        IntIntMap map = new IntIntMap();
+        assertEquals(IntIntMap.NO_VALUE, map.put(0, 0));
+        assertEquals(0, map.get(0));
+        assertEquals(0, map.put(0, 5));
+        assertEquals(5, map.remove(0));
+        assertEquals(IntIntMap.NO_VALUE, map.get(0));
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 10; i++) {
+            map.put(i * 1024, i);
+        }
+        map.remove(5 * 1024);
+        map.remove(9 * 1024);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i == 5 || i == 9 ? IntIntMap.NO_VALUE : i, map.get(i * 1024));
+        }
+        assertEquals(8, map.size());
+    }
+
+    @Test
+    void matchesHashMapThroughGrowthAndRemovals() {
+        IntIntMap map = new IntIntMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, IntIntMap.NO_VALUE).intValue(), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, IntIntMap.NO_VALUE).intValue(), map.put(key, step));
+                expected.put(key, step);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(IntIntMap.NO_VALUE, map.get(50));
+    }
+}
@@ -0,0 +1,95 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing IntMap against a HashMap, through growth and removals that have to shift
+ *  the entries after them back into place.
+ */
+class IntMapTest {
+
+    @Test
+    void putGetAndReplace() {
+        IntMap<String> map = new IntMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+        assertEquals("b", map.get(7));
+        assertTrue(map.containsKey(7));
+        assertFalse(map.containsKey(8));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void negativeAndZeroKeys() {
+        IntMap<String> map = new IntMap<>();
+        map.put(0, "zero");
+        map.put(-1, "minus one");
+        map.put(Integer.MIN_VALUE, "min");
+        assertEquals("zero", map.get(0));
+        assertEquals("minus one", map.get(-1));
+        assertEquals("min", map.get(Integer.MIN_VALUE));
+        assertEquals("zero", map.remove(0));
+        assertNull(map.get(0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() {
+        // Keys that are multiples of the capacity land in runs, so a removal has to shift the rest of the run back.
+        IntMap<Integer> map = new IntMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i * 1024, i);
+        }
+        map.remove(3 * 1024);
+        map.remove(0);
+        for (int i = 1; i < 10; i++) {
+            assertEquals(i == 3 ? null : Integer.valueOf(i), map.get(i * 1024));
+        }
+        assertEquals(8, map.size());
+    }
+
+    @Test
+    void matchesHashMapThroughGrowthAndRemovals() {
+        IntMap<Integer> map = new IntMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, step), map.put(key, step));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntMap<String> map = new IntMap<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "v" + i);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(500));
+        assertEquals(0, map.keys().length);
+    }
+}
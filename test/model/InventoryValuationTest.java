@@ -0,0 +1,115 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/** This class is responsible for testing that InventoryValuation keeps the value of the parts and products, in
+ *  total and by kind, machine and company, equal to price times stock through every change.
+ *  <p>Products are valued from a catalog of the test's own.  Parts are valued by the table that holds the parts of
+ *  InventoryStore, so those tests add their parts there, on machine ids and a company no other test uses, compare
+ *  the values before and after, and take the parts out again.
+ */
+class InventoryValuationTest {
+    private static final int MACHINE = 914_017;
+    private static final String COMPANY = "Valuation Test Supply";
+
+    private final List<Part> added = new ArrayList<>();
+
+    @AfterEach
+    void empty() {
+        InventoryStore.whereUsed().removeUnusedParts(added);
+    }
+
+    @Test
+    void productsAreValuedAtPriceTimesStock() {
+        Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+        InventoryValuation valuation = new InventoryValuation();
+        StockListener listener = valuation.stockListener();
+        products.subscribe(valuation.productListener());
+        Product.addStockListener(listener);
+        try {
+            Product wheel = new Product(1000, "Wheel", 2.5, 4, 0, 100);
+            Product axle = new Product(1001, "Axle", 0.333, 3, 0, 100);
+            products.addAll(List.of(wheel, axle));
+            // Each item is valued at its price rounded to the cent.
+            assertEquals(1099L, cents(valuation.getProductsValue()));
+
+            wheel.setStock(10);
+            axle.setPrice(1.005);
+            assertEquals(2500L + 3 * Math.round(1.005 * 100), cents(valuation.getProductsValue()));
+
+            products.update(1000, new Product(1000, "Wheel", 1, 1, 0, 100));
+            // The product that was replaced is no longer counted.
+            wheel.setStock(50);
+            assertEquals(100L + 3 * Math.round(1.005 * 100), cents(valuation.getProductsValue()));
+
+            products.delete(axle);
+            assertEquals(100L, cents(valuation.getProductsValue()));
+            Product loose = new Product(1002, "Loose", 5, 5, 0, 100);
+            loose.setStock(6);
+            assertEquals(100L, cents(valuation.getProductsValue()));
+        } finally {
+            Product.removeStockListener(listener);
+        }
+    }
+
+    @Test
+    void partsAreValuedByKindMachineAndCompany() {
+        InventoryValuation valuation = InventoryStore.valuation();
+        long total = cents(valuation.getPartsValue());
+        long inHouse = cents(valuation.getInHouseValue());
+        long outsourced = cents(valuation.getOutsourcedValue());
+
+        Part bolt = add(new InHouse(InventoryStore.partIds().next(), "Bolt", 0.25, 40, 0, 100, MACHINE));
+        Part nut = add(new InHouse(InventoryStore.partIds().next(), "Nut", 0.1, 30, 0, 100, MACHINE + 1));
+        Part pad = add(new Outsourced(InventoryStore.partIds().next(), "Pad", 4.75, 2, 0, 100, COMPANY));
+        assertEquals(1000L, cents(valuation.getMachineValue(MACHINE)));
+        assertEquals(300L, cents(valuation.getMachineValue(MACHINE + 1)));
+        assertEquals(950L, cents(valuation.getCompanyValue(COMPANY)));
+        assertEquals(inHouse + 1300, cents(valuation.getInHouseValue()));
+        assertEquals(outsourced + 950, cents(valuation.getOutsourcedValue()));
+        assertEquals(total + 2250, cents(valuation.getPartsValue()));
+        assertEquals(950L, cents(valuation.getValueByCompany().get(COMPANY)));
+
+        // Moving a part to another machine or company moves its value with it.
+        ((InHouse) nut).setMachineId(MACHINE);
+        assertEquals(1300L, cents(valuation.getMachineValue(MACHINE)));
+        assertFalse(valuation.getValueByMachine().containsKey(MACHINE + 1));
+        ((Outsourced) pad).setCompanyName(COMPANY + " Two");
+        assertFalse(valuation.getValueByCompany().containsKey(COMPANY));
+        assertEquals(950L, cents(valuation.getCompanyValue(COMPANY + " Two")));
+
+        bolt.setPrice(0.5);
+        InventoryStore.ledger().issue(bolt, 10);
+        assertEquals(1800L, cents(valuation.getMachineValue(MACHINE)));
+        assertEquals(total + 2750, cents(valuation.getPartsValue()));
+
+        assertEquals(3, InventoryStore.whereUsed().removeUnusedParts(added));
+        added.clear();
+        assertEquals(total, cents(valuation.getPartsValue()));
+        assertEquals(inHouse, cents(valuation.getInHouseValue()));
+        assertFalse(valuation.getValueByMachine().containsKey(MACHINE));
+    }
+
+    /** @param part part to add to the parts catalog of InventoryStore
+     *  @return the part
+     */
+    private Part add(Part part) {
+        InventoryStore.parts().add(part);
+        added.add(part);
+        return part;
+    }
+
+    /** @param dollars double amount in dollars
+     *  @return long the amount in whole cents
+     */
+    private static long cents(double dollars) {
+        return Math.round(dollars * 100);
+    }
+}
@@ -0,0 +1,176 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that a part keeps its fields as PartTable moves it in and out of its
+ *  columns, that readers never see the fields of another row while rows are reused, and that the setters of a
+ *  part in the inventory keep the parts catalog of InventoryStore up to date.
+ *  <p>The table only holds the parts of InventoryStore, so the parts are added there and deleted again after each
+ *  test.
+ */
+class PartTableTest {
+    private final List<Part> added = new ArrayList<>();
+
+    @AfterEach
+    void empty() {
+        InventoryStore.whereUsed().removeUnusedParts(added);
+    }
+
+    @Test
+    void fieldsSurviveMovesInAndOutOfTheTable() {
+        int rows = PartTable.get().size();
+        InHouse bolt = new InHouse(InventoryStore.partIds().next(), "Bolt", 0.25, 10, 1, 50, 7);
+        Outsourced pad = new Outsourced(InventoryStore.partIds().next(), "Pad", 4.75, 5, 2, 35, "Huffy");
+        assertEquals(PartTable.DETACHED, bolt.row);
+
+        add(bolt);
+        add(pad);
+        assertTrue(bolt.row != PartTable.DETACHED);
+        assertEquals(rows + 2, PartTable.get().size());
+        assertFields(bolt, "Bolt", 0.25, 10, 1, 50);
+        assertEquals(7, bolt.getMachineId());
+        assertFields(pad, "Pad", 4.75, 5, 2, 35);
+        assertEquals("Huffy", pad.getCompanyName());
+
+        bolt.setStock(12);
+        bolt.setPrice(0.3);
+        pad.setCompanyName("Acme");
+        assertTrue(InventoryStore.parts().delete(bolt));
+        assertEquals(PartTable.DETACHED, bolt.row);
+        assertEquals(rows + 1, PartTable.get().size());
+        assertFields(bolt, "Bolt", 0.3, 12, 1, 50);
+
+        // A detached part keeps its own fields, and takes them back into the table.
+        bolt.setMachineId(8);
+        bolt.setName("Long bolt");
+        add(bolt);
+        assertFields(bolt, "Long bolt", 0.3, 12, 1, 50);
+        assertEquals(8, bolt.getMachineId());
+        assertEquals("Acme", pad.getCompanyName());
+    }
+
+    @Test
+    void settersOfACataloguedPartReachTheCatalog() {
+        InHouse bolt = add(new InHouse(InventoryStore.partIds().next(), "Parttabletest bolt", 0.25, 10, 1, 50, 7));
+        List<Part> replaced = new ArrayList<>();
+        CatalogListener<Part> listener = new CatalogListener<Part>() {
+            @Override
+            public void added(int slot, Part item) { }
+
+            @Override
+            public void replaced(int slot, Part oldItem, Part newItem) {
+                assertTrue(oldItem == newItem);
+                replaced.add(newItem);
+            }
+
+            @Override
+            public void removed(int slot, Part item) { }
+        };
+        InventoryStore.parts().subscribe(listener);
+        try {
+            bolt.setName("Parttabletest screw");
+            assertTrue(InventoryStore.parts().lookup("parttabletest bolt").isEmpty());
+            assertEquals(List.of(bolt), InventoryStore.parts().lookup("parttabletest screw"));
+            bolt.setMachineId(9);
+            // An unchanged value tells nobody.
+            bolt.setName("Parttabletest screw");
+            assertEquals(List.of(bolt, bolt), replaced);
+        } finally {
+            InventoryStore.parts().unsubscribe(listener);
+        }
+
+        int id = bolt.getId();
+        assertThrows(IllegalStateException.class, () -> bolt.setId(id + 1));
+        bolt.setId(id);
+        assertEquals(bolt, InventoryStore.parts().lookup(id));
+        InventoryStore.parts().delete(bolt);
+        bolt.setId(id + 1);
+        assertEquals(id + 1, bolt.getId());
+    }
+
+    @Test
+    void readersNeverSeeTheFieldsOfAReusedRow() throws Exception {
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int id = InventoryStore.partIds().next();
+            parts.add(new InHouse(id, "Part " + id, id / 100.0, 1 + i % 50, 0, 100, id));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            done.add(pool.submit(() -> {
+                go.await();
+                while (running.get()) {
+                    for (Part part : parts) {
+                        int id = part.getId();
+                        String name = part.getName();
+                        assertEquals("Part " + id, name);
+                        assertEquals(id / 100.0, part.getPrice());
+                        assertEquals(id, ((InHouse) part).getMachineId());
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        try {
+            // Every round frees the rows of half the parts and hands them to the other half.
+            for (int round = 0; round < 300; round++) {
+                List<Part> half = parts.subList(round % 2 * 100, round % 2 * 100 + 100);
+                InventoryStore.parts().addAll(half);
+                added.addAll(half);
+                assertEquals(100, InventoryStore.parts().removeAll(half));
+                added.clear();
+            }
+        } finally {
+            running.set(false);
+            pool.shutdown();
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        for (Part part : parts) {
+            assertEquals(PartTable.DETACHED, part.row);
+        }
+    }
+
+    /** @param part part to add to the parts catalog of InventoryStore
+     *  @param <P> type of the part
+     *  @return the part
+     */
+    private <P extends Part> P add(P part) {
+        InventoryStore.parts().add(part);
+        added.add(part);
+        return part;
+    }
+
+    /** @param part part to check
+     *  @param name String expected name
+     *  @param price double expected price
+     *  @param stock int expected stock
+     *  @param min int expected min
+     *  @param max int expected max
+     */
+    private static void assertFields(Part part, String name, double price, int stock, int min, int max) {
+        assertEquals(name, part.getName());
+        assertEquals(price, part.getPrice());
+        assertEquals(stock, part.getStock());
+        assertEquals(min, part.getMin());
+        assertEquals(max, part.getMax());
+    }
+}
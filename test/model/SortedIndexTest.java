@@ -0,0 +1,128 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that SortedIndex keeps the items of its catalog in key order, then id
+ *  order, through catalog and key changes, and that ranges, windows and positions read from it agree with a sort of
+ *  the catalog.
+ *  <p>Each test indexes a products catalog of its own by stock, and tells the index about stock changes itself, as
+ *  the StockListener of InventoryIndexes would.
+ */
+class SortedIndexTest {
+    private static final Comparator<Product> BY_STOCK =
+            Comparator.comparingInt(Product::getStock).thenComparingInt(Product::getId);
+
+    private final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+    private final SortedIndex<Product, Integer> byStock =
+            new SortedIndex<>(products, Product::getId, Product::getStock);
+
+    @Test
+    void itemsAreInKeyOrderThenIdOrder() {
+        products.addAll(List.of(product(1003, 5), product(1001, 9), product(1002, 5), product(1000, 1)));
+        assertEquals(List.of(1000, 1002, 1003, 1001), ids(byStock.ascending()));
+        assertEquals(List.of(1001, 1003, 1002, 1000), ids(byStock.descending()));
+        assertEquals(4, byStock.size());
+    }
+
+    @Test
+    void rangesHonourTheirBoundsAndFilter() {
+        for (int i = 0; i < 10; i++) {
+            products.add(product(1000 + i, i));
+        }
+        assertEquals(List.of(1003, 1004, 1005), ids(byStock.range(3, true, 5, true)));
+        assertEquals(List.of(1004), ids(byStock.range(3, false, 5, false)));
+        assertEquals(List.of(1000, 1001), ids(byStock.range(null, false, 2, false)));
+        assertEquals(List.of(1008, 1009), ids(byStock.range(8, true, null, false)));
+        assertEquals(List.of(1002, 1004, 1006), ids(byStock.range(2, true, 7, false,
+                product -> product.getId() % 2 == 0)));
+        assertTrue(byStock.range(20, true, 30, true).isEmpty());
+    }
+
+    @Test
+    void catalogAndKeyChangesMoveTheItems() {
+        Product low = product(1000, 1);
+        Product high = product(1001, 9);
+        products.addAll(List.of(low, high));
+        // Built on this first read, from the catalog as it is now.
+        assertEquals(List.of(1000, 1001), ids(byStock.ascending()));
+        AtomicInteger told = new AtomicInteger();
+        byStock.listen(told::incrementAndGet);
+
+        low.setStock(20);
+        byStock.changed(low);
+        assertEquals(List.of(1001, 1000), ids(byStock.ascending()));
+        assertEquals(1, told.get());
+
+        // A change to an item that is not the one in the index is ignored.
+        Product stranger = product(1001, 50);
+        byStock.changed(stranger);
+        assertEquals(List.of(1001, 1000), ids(byStock.ascending()));
+        assertEquals(-1, byStock.indexOf(stranger, false));
+
+        products.update(1001, stranger);
+        products.add(product(1002, 0));
+        assertEquals(List.of(1002, 1000, 1001), ids(byStock.ascending()));
+        products.delete(low);
+        assertEquals(List.of(1002, 1001), ids(byStock.ascending()));
+        assertEquals(2, byStock.size());
+        assertEquals(4, told.get());
+    }
+
+    @Test
+    void windowsAndPositionsMatchASortThroughRandomChanges() {
+        Random random = new Random(18);
+        List<Product> list = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            list.add(product(1000 + i, random.nextInt(300)));
+        }
+        products.addAll(list);
+        byStock.size();
+        for (int step = 0; step < 300; step++) {
+            Product product = list.get(random.nextInt(list.size()));
+            product.setStock(random.nextInt(300));
+            byStock.changed(product);
+
+            List<Product> sorted = new ArrayList<>(list);
+            sorted.sort(BY_STOCK);
+            // Pages read one after another, as FxListPager does while scrolling, and some far apart.
+            int from = random.nextInt(sorted.size());
+            for (int page = 0; page < 4; page++, from += 50) {
+                boolean descending = random.nextBoolean();
+                List<Product> expected = new ArrayList<>(sorted);
+                if (descending) {
+                    expected.sort(BY_STOCK.reversed());
+                }
+                expected = expected.subList(Math.min(from, expected.size()), Math.min(from + 50, expected.size()));
+                assertEquals(ids(expected), ids(byStock.slice(from, from + 50, descending)));
+            }
+            Product probe = list.get(random.nextInt(list.size()));
+            assertEquals(sorted.indexOf(probe), byStock.indexOf(probe, false));
+            assertEquals(sorted.size() - 1 - sorted.indexOf(probe), byStock.indexOf(probe, true));
+        }
+    }
+
+    /** @param id int id of the product
+     *  @param stock int stock of the product
+     *  @return a new product, not yet in the catalog
+     */
+    private static Product product(int id, int stock) {
+        return new Product(id, "Product " + id, 1, stock, 0, 1000);
+    }
+
+    /** @param items products in order
+     *  @return their ids, in the same order
+     */
+    private static List<Integer> ids(List<Product> items) {
+        return items.stream().map(Product::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,171 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that StockAlerts holds exactly the parts and products outside their min
+ *  and max, most urgent first, through stock, limit and catalog changes, and that its listeners are told each
+ *  change once.
+ *  <p>Each test works on catalogs of its own, with the alerts listening the way InventoryStore wires them.
+ */
+class StockAlertsTest {
+    private final Catalog<Part> parts = new Catalog<>(Part::getId, Part::getName);
+    private final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+    private final StockAlerts alerts = new StockAlerts();
+    private final StockListener stockListener = alerts.stockListener();
+    private final Map<Integer, StockAlert> told = new HashMap<>();
+
+    @BeforeEach
+    void wire() {
+        parts.subscribe(alerts.partListener());
+        products.subscribe(alerts.productListener());
+        Part.addStockListener(stockListener);
+        Product.addStockListener(stockListener);
+        // Replays the changes it is told, keyed by part id and by product id plus a million.
+        alerts.addListener((oldAlert, newAlert) -> {
+            StockAlert alert = newAlert != null ? newAlert : oldAlert;
+            int key = alert.getSource() == StockAlert.Source.PART ? alert.getId() : 1_000_000 + alert.getId();
+            assertEquals(oldAlert, newAlert == null ? told.remove(key) : told.put(key, newAlert));
+        });
+    }
+
+    @AfterEach
+    void unwire() {
+        Part.removeStockListener(stockListener);
+        Product.removeStockListener(stockListener);
+    }
+
+    @Test
+    void itemsOutsideTheirLimitsRaiseAlerts() {
+        Part bolt = new InHouse(1, "Bolt", 1, 4, 5, 50, 1);
+        Part nut = new InHouse(2, "Nut", 1, 20, 5, 50, 1);
+        Product wheel = new Product(1000, "Wheel", 1, 0, 3, 10);
+        parts.addAll(List.of(bolt, nut));
+        products.add(wheel);
+
+        assertEquals(2, alerts.shortageCount());
+        StockAlert urgent = alerts.mostUrgent();
+        assertEquals(StockAlert.Source.PRODUCT, urgent.getSource());
+        assertEquals(1000, urgent.getId());
+        assertEquals(3L, urgent.getGap());
+        assertEquals(StockAlert.Level.SHORTAGE, alerts.alertFor(StockAlert.Source.PART, 1).getLevel());
+        assertNull(alerts.alertFor(StockAlert.Source.PART, 2));
+        // Product 1000 and part 1000 are different items.
+        assertNull(alerts.alertFor(StockAlert.Source.PART, 1000));
+
+        nut.setMax(10);
+        assertEquals(1, alerts.overstockCount());
+        assertEquals(10L, alerts.overstocked().get(0).getGap());
+        nut.setStock(10);
+        assertEquals(0, alerts.overstockCount());
+
+        wheel.setStock(5);
+        assertEquals(1, alerts.shortageCount());
+        assertEquals(1, alerts.reorderNeeded().get(0).getId());
+        parts.delete(bolt);
+        assertNull(alerts.mostUrgent());
+        assertTrue(told.isEmpty());
+    }
+
+    @Test
+    void itemsOutsideTheCatalogsRaiseNothing() {
+        Part bolt = new InHouse(1, "Bolt", 1, 2, 5, 50, 1);
+        bolt.setStock(1);
+        assertEquals(0, alerts.shortageCount());
+
+        parts.add(bolt);
+        assertEquals(1, alerts.shortageCount());
+        Part replacement = new InHouse(1, "Bolt", 1, 5, 5, 50, 1);
+        parts.update(1, replacement);
+        assertEquals(0, alerts.shortageCount());
+
+        // The part that was replaced is no longer followed.
+        bolt.setStock(0);
+        assertEquals(0, alerts.shortageCount());
+    }
+
+    @Test
+    void alertsMatchAScanThroughRandomChanges() {
+        Random random = new Random(16);
+        List<Part> partList = new ArrayList<>();
+        List<Product> productList = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            partList.add(new InHouse(id, "Part " + id, 1, random.nextInt(100), 20, 80, 1));
+            productList.add(new Product(1000 + id, "Product " + id, 1, random.nextInt(100), 20, 80));
+        }
+        parts.addAll(partList);
+        products.addAll(productList);
+        for (int step = 0; step < 5_000; step++) {
+            int i = random.nextInt(100);
+            int value = random.nextInt(100);
+            switch (random.nextInt(4)) {
+                case 0:
+                    partList.get(i).setStock(value);
+                    break;
+                case 1:
+                    productList.get(i).setStock(value);
+                    break;
+                case 2:
+                    partList.get(i).setMin(Math.min(value, partList.get(i).getMax()));
+                    break;
+                default:
+                    productList.get(i).setMax(Math.max(value, productList.get(i).getMin()));
+                    break;
+            }
+        }
+
+        int inAlert = 0;
+        for (int i = 0; i < 100; i++) {
+            inAlert += check(StockAlert.Source.PART, partList.get(i).getId(), partList.get(i).getStock(),
+                    partList.get(i).getMin(), partList.get(i).getMax());
+            inAlert += check(StockAlert.Source.PRODUCT, productList.get(i).getId(), productList.get(i).getStock(),
+                    productList.get(i).getMin(), productList.get(i).getMax());
+        }
+        assertTrue(inAlert > 0);
+        assertEquals(inAlert, alerts.shortageCount() + alerts.overstockCount());
+        assertEquals(inAlert, told.size());
+        assertGapsFall(alerts.reorderNeeded());
+        assertGapsFall(alerts.overstocked());
+        assertEquals(alerts.reorderNeeded().get(0).getGap(), alerts.mostUrgent().getGap());
+    }
+
+    /** This method checks the alert of one item against its stock and limits.
+     *  @param source catalog of the item
+     *  @param id int id of the item
+     *  @param stock int stock of the item
+     *  @param min int min of the item
+     *  @param max int max of the item
+     *  @return int 1 if the item should be in alert, else 0
+     */
+    private int check(StockAlert.Source source, int id, int stock, int min, int max) {
+        StockAlert alert = alerts.alertFor(source, id);
+        if (stock >= min && stock <= max) {
+            assertNull(alert);
+            return 0;
+        }
+        assertEquals(stock < min ? StockAlert.Level.SHORTAGE : StockAlert.Level.OVERSTOCK, alert.getLevel());
+        assertEquals(stock < min ? (long) min - stock : (long) stock - max, alert.getGap());
+        assertEquals(alert, told.get(source == StockAlert.Source.PART ? id : 1_000_000 + id));
+        return 1;
+    }
+
+    /** @param list alerts as handed out by StockAlerts
+     *  @throws AssertionError if a gap is larger than the one before it
+     */
+    private static void assertGapsFall(List<StockAlert> list) {
+        for (int i = 1; i < list.size(); i++) {
+            assertTrue(list.get(i).getGap() <= list.get(i - 1).getGap());
+        }
+    }
+}
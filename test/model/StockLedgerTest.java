@@ -0,0 +1,151 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing the invariants of StockLedger: no movement is lost when many threads move
+ *  the same items, the stock never leaves the min and max, a refused movement changes nothing, and the ledger holds
+ *  every movement once, numbered without gaps.
+ */
+class StockLedgerTest {
+    private static final int ITEMS = 10;
+    private static final int START = 500;
+
+    private final StockLedger ledger = InventoryStore.ledger();
+    private final List<Part> parts = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void fill() {
+        for (int i = 0; i < ITEMS; i++) {
+            Part part = new InHouse(InventoryStore.partIds().next(), "Part " + i, 1.25, START, 0, 1000, 1);
+            Product product = new Product(InventoryStore.productIds().next(), "Product " + i, 2.5, START, 0, 1000);
+            InventoryStore.parts().add(part);
+            InventoryStore.products().add(product);
+            parts.add(part);
+            products.add(product);
+        }
+    }
+
+    @AfterEach
+    void empty() {
+        // Through the where-used checks, as the forms delete, so nothing a product still uses is dropped.
+        assertEquals(ITEMS, InventoryStore.whereUsed().removeUnusedProducts(products));
+        assertEquals(ITEMS, InventoryStore.whereUsed().removeUnusedParts(parts));
+    }
+
+    @Test
+    void concurrentMovementsAreNeitherLostNorOutOfLimits() throws Exception {
+        long before = ledger.getLastSequence();
+        AtomicLong[] partNet = counters();
+        AtomicLong[] productNet = counters();
+        AtomicLong refused = new AtomicLong();
+        int threads = 8;
+        int moves = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            done.add(pool.submit(() -> {
+                go.await();
+                Random random = new Random(seed);
+                for (int k = 0; k < moves; k++) {
+                    int i = random.nextInt(ITEMS);
+                    int quantity = 1 + random.nextInt(60);
+                    try {
+                        StockMovement movement;
+                        if (random.nextBoolean()) {
+                            Part part = parts.get(i);
+                            movement = random.nextBoolean() ? ledger.receive(part, quantity)
+                                    : ledger.issue(part, quantity);
+                            partNet[i].addAndGet(movement.getQuantity());
+                        } else {
+                            Product product = products.get(i);
+                            movement = random.nextBoolean() ? ledger.receive(product, quantity)
+                                    : ledger.adjust(product, -quantity);
+                            productNet[i].addAndGet(movement.getQuantity());
+                        }
+                        assertEquals(movement.getNewStock() - movement.getOldStock(), movement.getQuantity());
+                    } catch (StockLimitException e) {
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> future : done) {
+            future.get();
+        }
+        pool.shutdown();
+
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals(START + partNet[i].get(), parts.get(i).getStock());
+            assertEquals(START + productNet[i].get(), products.get(i).getStock());
+            assertTrue(parts.get(i).getStock() >= 0 && parts.get(i).getStock() <= 1000);
+            assertTrue(products.get(i).getStock() >= 0 && products.get(i).getStock() <= 1000);
+        }
+
+        List<StockMovement> movements = ledger.since(before);
+        assertEquals(threads * moves - refused.get(), movements.size());
+        assertEquals(before + movements.size(), ledger.getLastSequence());
+        long expected = before;
+        for (StockMovement movement : movements) {
+            assertEquals(++expected, movement.getSequence());
+        }
+    }
+
+    @Test
+    void refusedMovementChangesNothing() {
+        Part part = parts.get(0);
+        long before = ledger.getLastSequence();
+        StockLimitException refused = assertThrows(StockLimitException.class, () -> ledger.issue(part, START + 1));
+        assertTrue(refused.getMessage().contains(String.valueOf(part.getId())));
+        assertThrows(StockLimitException.class, () -> ledger.receive(products.get(0), 1000));
+        assertEquals(START, part.getStock());
+        assertEquals(START, products.get(0).getStock());
+        assertEquals(before, ledger.getLastSequence());
+    }
+
+    @Test
+    void quantitiesMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> ledger.receive(parts.get(0), 0));
+        assertThrows(IllegalArgumentException.class, () -> ledger.issue(products.get(0), -1));
+    }
+
+    @Test
+    void readersFollowTheLedgerFromWhereTheyLeftOff() {
+        long before = ledger.getLastSequence();
+        StockMovement first = ledger.receive(parts.get(1), 5);
+        StockMovement second = ledger.issue(products.get(1), 3);
+        assertEquals(List.of(first, second), ledger.since(before));
+        assertEquals(List.of(second), ledger.since(first.getSequence()));
+        assertTrue(ledger.since(second.getSequence()).isEmpty());
+        assertEquals(StockMovement.Type.ISSUE, second.getType());
+        assertEquals(-3, second.getQuantity());
+    }
+
+    /** @return one counter per item, all 0 */
+    private static AtomicLong[] counters() {
+        AtomicLong[] counters = new AtomicLong[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            counters[i] = new AtomicLong();
+        }
+        return counters;
+    }
+}
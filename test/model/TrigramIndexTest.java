@@ -0,0 +1,115 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that TrigramIndex finds exactly the ids whose names contain a query, as a
+ *  scan of every name would, through renames and removals.
+ *  <p>The names live in a map of the test's own, which the index reads as it would read a catalog.
+ */
+class TrigramIndexTest {
+    private final Map<Integer, String> names = new HashMap<>();
+    private final TrigramIndex index = new TrigramIndex(names::get);
+
+    @Test
+    void findsNamesContainingTheQueryIgnoringCase() {
+        add(1, "Brake pad");
+        add(2, "BRAKE disc");
+        add(3, "Wiper blade");
+        assertArrayEquals(new int[] {1, 2}, index.search(TrigramIndex.normalize("Brake")));
+        assertArrayEquals(new int[] {3}, index.search("blade"));
+        assertArrayEquals(new int[0], index.search("clutch"));
+        assertNull(index.search("br"));
+        assertTrue(index.matches(2, "disc"));
+        assertFalse(index.matches(4, "disc"));
+    }
+
+    @Test
+    void trigramsThatAreNotNextToEachOtherDoNotMatch() {
+        // Has abc and bcd, but not abcd.
+        add(1, "abc-bcd");
+        add(2, "xabcdx");
+        assertArrayEquals(new int[] {2}, index.search("abcd"));
+    }
+
+    @Test
+    void renamesAndRemovalsMoveTheIdsBetweenTrigrams() {
+        add(1, "Brake pad");
+        add(2, "Brake disc");
+        rename(1, "Clutch plate");
+        assertArrayEquals(new int[] {2}, index.search("brake"));
+        assertArrayEquals(new int[] {1}, index.search("clutch"));
+
+        // A rename that only changes case leaves the postings alone.
+        rename(2, "BRAKE DISC");
+        assertArrayEquals(new int[] {2}, index.search("brake"));
+
+        index.remove(2, names.remove(2));
+        assertArrayEquals(new int[0], index.search("brake"));
+    }
+
+    @Test
+    void matchesAScanThroughRandomChanges() {
+        Random random = new Random(11);
+        String[] words = {"bolt", "nut", "washer", "brake", "pad", "disc", "wiper", "blade", "gear", "shaft"};
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(500);
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            if (!names.containsKey(id)) {
+                add(id, name);
+            } else if (random.nextBoolean()) {
+                rename(id, name);
+            } else if (random.nextBoolean()) {
+                index.remove(id, names.remove(id));
+            } else {
+                List<Integer> doomed = new ArrayList<>(names.keySet()).subList(0, Math.min(5, names.size()));
+                int[] ids = new int[doomed.size()];
+                String[] oldNames = new String[doomed.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[ids.length - 1 - i] = doomed.get(i);
+                    oldNames[ids.length - 1 - i] = names.get(doomed.get(i));
+                }
+                for (int doomedId : ids) {
+                    names.remove(doomedId);
+                }
+                index.removeAll(ids, oldNames);
+            }
+        }
+        for (String query : new String[] {"bolt", "sher", "brake pad", "t w", "ade", "shaft shaft", "disk"}) {
+            assertArrayEquals(scan(query), index.search(query));
+        }
+    }
+
+    /** @param id int id to add
+     *  @param name String its name
+     */
+    private void add(int id, String name) {
+        names.put(id, name);
+        index.add(id, name);
+    }
+
+    /** @param id int id to rename
+     *  @param name String its new name
+     */
+    private void rename(int id, String name) {
+        index.update(id, names.put(id, name), name);
+    }
+
+    /** @param query lower-case query
+     *  @return sorted ids whose names contain the query, found by looking at every name
+     */
+    private int[] scan(String query) {
+        return names.entrySet().stream().filter(entry -> TrigramIndex.normalize(entry.getValue()).contains(query))
+                .mapToInt(Map.Entry::getKey).sorted().toArray();
+    }
+}
@@ -0,0 +1,153 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that WhereUsedIndex follows the products catalog and the bills of
+ *  materials, refuses to delete parts and products that are still used, and does not deadlock when products are
+ *  added and deleted at the same time.
+ *  <p>Each test works on catalogs of its own, with the index listening the way InventoryStore wires it.
+ */
+class WhereUsedIndexTest {
+    private static final long TIMEOUT = 30;
+
+    private final Catalog<Part> parts = new Catalog<>(Part::getId, Part::getName);
+    private final Catalog<Product> products = new Catalog<>(Product::getId, Product::getName);
+    private final WhereUsedIndex index = new WhereUsedIndex(parts, products);
+
+    WhereUsedIndexTest() {
+        products.subscribe(index.catalogListener());
+    }
+
+    @Test
+    void followsBillsOfMaterialsOfCataloguedProducts() {
+        AssociationListener listener = index.associationListener();
+        Product.addAssociationListener(listener);
+        try {
+            Product kit = new Product(1000, "Kit", 1, 0, 0, 10);
+            kit.setAssociatedPartQuantity(1, 2);
+            products.add(kit);
+            Product box = new Product(1001, "Box", 1, 0, 0, 10);
+            products.add(box);
+            box.setAssociatedPartQuantity(1, 1);
+            box.setAssociatedPartQuantity(2, 3);
+            box.addComponent(kit);
+
+            assertEquals(2, index.useCount(1));
+            assertArrayEquals(new int[] {1000, 1001}, index.productIds(1));
+            assertTrue(index.isComponent(1000));
+            assertFalse(index.isComponent(1001));
+
+            box.setAssociatedPartQuantity(1, 0);
+            box.deleteComponent(kit);
+            assertArrayEquals(new int[] {1000}, index.productIds(1));
+            assertFalse(index.isComponent(1000));
+
+            products.delete(kit);
+            assertFalse(index.isUsed(1));
+            assertTrue(index.isUsed(2));
+        } finally {
+            Product.removeAssociationListener(listener);
+        }
+    }
+
+    @Test
+    void usedPartsAndProductsAreNotDeleted() {
+        Part bolt = new InHouse(1, "Bolt", 1, 0, 0, 10, 1);
+        Part nut = new InHouse(2, "Nut", 1, 0, 0, 10, 1);
+        parts.add(bolt);
+        parts.add(nut);
+        Product wheel = new Product(1000, "Wheel", 1, 0, 0, 10);
+        wheel.setAssociatedPartQuantity(bolt.getId(), 4);
+        Product car = new Product(1001, "Car", 1, 0, 0, 10);
+        car.setComponentQuantity(wheel.getId(), 4);
+        products.add(wheel);
+        products.add(car);
+
+        assertFalse(index.deleteIfUnused(bolt));
+        assertTrue(index.deleteIfUnused(nut));
+        assertFalse(index.deleteIfUnused(nut));
+        assertFalse(index.deleteIfUnused(wheel));
+        assertTrue(index.deleteIfUnused(car));
+        assertTrue(index.deleteIfUnused(wheel));
+        assertTrue(index.deleteIfUnused(bolt));
+        assertEquals(0, parts.size());
+        assertEquals(0, products.size());
+    }
+
+    @Test
+    void batchDeletesSkipUsedParts() {
+        Part bolt = new InHouse(1, "Bolt", 1, 0, 0, 10, 1);
+        Part nut = new InHouse(2, "Nut", 1, 0, 0, 10, 1);
+        Part washer = new InHouse(3, "Washer", 1, 0, 0, 10, 1);
+        parts.addAll(List.of(bolt, nut, washer));
+        Product wheel = new Product(1000, "Wheel", 1, 0, 0, 10);
+        wheel.setAssociatedPartQuantity(nut.getId(), 4);
+        products.add(wheel);
+
+        assertEquals(2, index.removeUnusedParts(List.of(bolt, nut, washer)));
+        assertEquals(List.of(nut), parts.snapshot());
+    }
+
+    @Test
+    void batchDeletesSkipComponents() {
+        Product wheel = new Product(1000, "Wheel", 1, 0, 0, 10);
+        Product car = new Product(1001, "Car", 1, 0, 0, 10);
+        Product spare = new Product(1002, "Spare", 1, 0, 0, 10);
+        car.setComponentQuantity(wheel.getId(), 4);
+        products.addAll(List.of(wheel, car, spare));
+
+        assertEquals(2, index.removeUnusedProducts(List.of(wheel, car, spare)));
+        assertEquals(List.of(wheel), products.snapshot());
+        assertEquals(1, index.removeUnusedProducts(List.of(wheel)));
+    }
+
+    @Test
+    void productsAddedAndDeletedAtOnceDoNotDeadlock() throws Exception {
+        int threads = 4;
+        int rounds = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads * 2);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = 1000 + t * rounds;
+            done.add(pool.submit(() -> {
+                go.await();
+                for (int id = first; id < first + rounds; id++) {
+                    products.add(new Product(id, "P" + id, 1, 0, 0, 10));
+                }
+                return null;
+            }));
+            done.add(pool.submit(() -> {
+                go.await();
+                for (int id = first; id < first + rounds; id++) {
+                    Product product;
+                    while ((product = products.lookup(id)) == null) {
+                        Thread.yield();
+                    }
+                    assertTrue(index.deleteIfUnused(product));
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(TIMEOUT, TimeUnit.SECONDS), "adds and deletes deadlocked");
+        for (Future<?> future : done) {
+            future.get();
+        }
+        assertEquals(0, products.size());
+    }
+}
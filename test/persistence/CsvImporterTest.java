@@ -0,0 +1,145 @@
+package persistence;
+
+import model.InHouse;
+import model.InventoryStore;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing that CsvImporter adds every good line to InventoryStore in file order,
+ *  replaces the items whose ids it already holds, and skips and reports the bad lines, however the file is split
+ *  into chunks.
+ *  <p>The importer always fills InventoryStore, so every name here contains a word no other test uses, and what
+ *  was imported is found by that word and deleted again after each test.
+ */
+class CsvImporterTest {
+    private static final String WORD = "Csvtest";
+
+    @AfterEach
+    void empty() {
+        InventoryStore.whereUsed().removeUnusedProducts(InventoryStore.products().lookup(WORD.toLowerCase()));
+        InventoryStore.whereUsed().removeUnusedParts(InventoryStore.parts().lookup(WORD.toLowerCase()));
+    }
+
+    @Test
+    void fieldsAreSplitOnCommasOutsideQuotes() {
+        assertEquals(List.of("Outsourced", "", "Pad, \"large\"", "1.5"),
+                CsvImporter.split("Outsourced,,\"Pad, \"\"large\"\"\",1.5"));
+        assertEquals(List.of("", ""), CsvImporter.split(","));
+        assertThrows(IllegalArgumentException.class, () -> CsvImporter.split("InHouse,\"Bolt"));
+    }
+
+    @Test
+    void everyKindOfLineIsImported() throws IOException {
+        int bolt = InventoryStore.partIds().next();
+        int pad = InventoryStore.partIds().next();
+        String csv = "type,id,name,price,stock,min,max,extra\n"
+                + "InHouse," + bolt + "," + WORD + " bolt,0.25,10,1,50,111\n"
+                + "Outsourced," + pad + ",\"" + WORD + " pad, large\",4.75,5,1,35,Huffy\n"
+                + "\n"
+                + "Product,," + WORD + " brake,29.99,3,1,10," + bolt + ";" + pad + ";" + bolt + "\n";
+        CsvImporter.Result result = new CsvImporter(2).importFrom(new StringReader(csv));
+        assertEquals(2L, result.getPartsAdded());
+        assertEquals(1L, result.getProductsAdded());
+        assertEquals(0L, result.getSkipped());
+
+        assertEquals(111, assertInstanceOf(InHouse.class, InventoryStore.parts().lookup(bolt)).getMachineId());
+        Outsourced large = assertInstanceOf(Outsourced.class, InventoryStore.parts().lookup(pad));
+        assertEquals(WORD + " pad, large", large.getName());
+        assertEquals("Huffy", large.getCompanyName());
+        Product brake = InventoryStore.products().lookup(WORD.toLowerCase() + " brake").get(0);
+        assertEquals(2, brake.getAssociatedPartQuantity(bolt));
+        assertEquals(1, brake.getAssociatedPartQuantity(pad));
+        assertEquals(29.99, brake.getPrice());
+        // An id the file gave out is never handed out again.
+        assertTrue(InventoryStore.partIds().next() > pad);
+    }
+
+    @Test
+    void badLinesAreSkippedAndReported() throws IOException {
+        int bolt = InventoryStore.partIds().next();
+        int missing = InventoryStore.partIds().next();
+        String csv = "InHouse," + bolt + "," + WORD + " bolt,0.25,10,1,50,111\n"
+                + "InHouse,," + WORD + " nut,0.25,100,1,50,111\n"
+                + "InHouse,," + WORD + " pin,cheap,10,1,50,111\n"
+                + "Widget,," + WORD + " widget,1,1,1,1,1\n"
+                + "Outsourced,," + WORD + " pad,1,1,1,1,\n"
+                + "InHouse,," + WORD + " short,1,1,1\n"
+                + "Product,," + WORD + " kit,1,1,1,1," + bolt + ";" + missing + "\n";
+        CsvImporter.Result result = new CsvImporter(1).importFrom(new StringReader(csv));
+        assertEquals(1L, result.getPartsAdded());
+        assertEquals(0L, result.getProductsAdded());
+        assertEquals(6L, result.getSkipped());
+        assertEquals(List.of(
+                "line 2: stock is not between min and max",
+                "line 3: the price \"cheap\" is not a number",
+                "line 4: unknown type \"Widget\"",
+                "line 5: the company name is blank",
+                "line 6: expected 8 fields but found 6",
+                "line 7: an associated part does not exist"), result.getErrors());
+    }
+
+    @Test
+    void knownIdsAreReplacedInPlace() throws IOException {
+        int bolt = InventoryStore.partIds().next();
+        new CsvImporter(1).importFrom(new StringReader("InHouse," + bolt + "," + WORD + " bolt,0.25,10,1,50,1\n"));
+        Part before = InventoryStore.parts().lookup(bolt);
+        int slot = InventoryStore.parts().indexOf(before);
+
+        CsvImporter.Result result = new CsvImporter(1).importFrom(new StringReader(
+                "Outsourced," + bolt + "," + WORD + " bolt,0.30,20,1,50,Acme\n"));
+        assertEquals(0L, result.getPartsAdded());
+        assertEquals(1L, result.getReplaced());
+        Part after = InventoryStore.parts().lookup(bolt);
+        assertInstanceOf(Outsourced.class, after);
+        assertEquals(20, after.getStock());
+        assertEquals(slot, InventoryStore.parts().indexOf(after));
+    }
+
+    @Test
+    void largeFilesKeepTheirOrderAcrossChunks() throws IOException {
+        int lines = 20_000;
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 997 == 0) {
+                csv.append("InHouse,,").append(WORD).append(" broken ").append(i).append(",x,1,1,1,1\n");
+            } else {
+                csv.append("InHouse,,").append(WORD).append(" part ").append(i).append(",1,1,1,1,").append(i)
+                        .append('\n');
+            }
+        }
+        CsvImporter.Result result = new CsvImporter(3).importFrom(new StringReader(csv.toString()));
+        long broken = (lines + 996) / 997;
+        assertEquals(lines - broken, result.getPartsAdded());
+        assertEquals(broken, result.getSkipped());
+        assertEquals("line 1: the price \"x\" is not a number", result.getErrors().get(0));
+        assertEquals("line 998: the price \"x\" is not a number", result.getErrors().get(1));
+
+        List<Part> imported = InventoryStore.parts().lookup(WORD.toLowerCase() + " part ");
+        assertEquals(lines - broken, imported.size());
+        Set<Integer> ids = new HashSet<>();
+        List<Integer> machines = new ArrayList<>();
+        for (Part part : imported) {
+            ids.add(part.getId());
+            machines.add(((InHouse) part).getMachineId());
+        }
+        assertEquals(imported.size(), ids.size());
+        for (int i = 1; i < machines.size(); i++) {
+            assertTrue(machines.get(i - 1) < machines.get(i), "parts out of file order");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** This class is responsible for testing that Journal replays what it wrote, in order, and that a record torn or
+ *  damaged by a crash ends the replay and is cut off so that later records follow the last good one.
+ */
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryRecordInOrder() throws IOException {
+        write(0, 100);
+        List<Long> seen = new ArrayList<>();
+        long last = Journal.replay(directory, 0, (seq, type, body) -> {
+            assertEquals((byte) seq, type);
+            assertEquals(seq * 3, body.getLong());
+            seen.add(seq);
+        });
+        assertEquals(100, last);
+        assertEquals(100, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i + 1, seen.get(i).longValue());
+        }
+    }
+
+    @Test
+    void skipsRecordsUpToTheSnapshot() throws IOException {
+        write(0, 10);
+        List<Long> seen = new ArrayList<>();
+        assertEquals(10, Journal.replay(directory, 7, (seq, type, body) -> seen.add(seq)));
+        assertEquals(List.of(8L, 9L, 10L), seen);
+    }
+
+    @Test
+    void tornTailIsCutOff() throws IOException {
+        write(0, 5);
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        assertEquals(4, Journal.replay(directory, 0, (seq, type, body) -> { }));
+        assertEquals(size - recordSize(), Files.size(segment));
+
+        // The next run carries on after the last good record, and nothing of the torn one is read back.
+        write(4, 2);
+        List<Long> seen = new ArrayList<>();
+        assertEquals(6, Journal.replay(directory, 0, (seq, type, body) -> seen.add(seq)));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), seen);
+    }
+
+    @Test
+    void damagedRecordEndsTheReplay() throws IOException {
+        write(0, 5);
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // The last byte of the body of the third record.
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), 3 * recordSize() - 1);
+        }
+        List<Long> seen = new ArrayList<>();
+        assertEquals(2, Journal.replay(directory, 0, (seq, type, body) -> seen.add(seq)));
+        assertEquals(List.of(1L, 2L), seen);
+        assertEquals(2 * recordSize(), Files.size(segment));
+    }
+
+    /** This method runs a journal that appends records and closes it.
+     *  @param lastSeq sequence number of the last record already written
+     *  @param count int number of records to append; record seq has type (byte) seq and the long seq * 3
+     *  @throws IOException If the journal could not be written
+     */
+    private void write(long lastSeq, int count) throws IOException {
+        try (Journal journal = new Journal(directory, lastSeq)) {
+            CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+            for (long seq = lastSeq + 1; seq <= lastSeq + count; seq++) {
+                last = journal.append(ByteBuffer.allocate(9).put((byte) seq).putLong(seq * 3).array());
+            }
+            Journal.await(last);
+        }
+    }
+
+    /** @return the one segment file with records in it
+     *  @throws IOException If the directory can not be listed
+     */
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.collect(Collectors.toList());
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    /** @return int bytes one record of the test takes on disk: length, CRC, sequence number and body */
+    private static int recordSize() {
+        return 4 + 4 + 8 + 9;
+    }
+}
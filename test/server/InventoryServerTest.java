@@ -0,0 +1,216 @@
+package server;
+
+import model.InventoryStore;
+import model.Part;
+import model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** This class is responsible for testing the replies of InventoryServer: what each route answers, that refused
+ *  requests change nothing, and that a PUT made while stock moves never undoes a movement.
+ *  <p>The server is bound to a free port of the loopback address and serves InventoryStore, without Persistence, so
+ *  the parts and products a test makes are deleted from the store again after it.
+ */
+class InventoryServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Integer> partIds = new ArrayList<>();
+    private final List<Integer> productIds = new ArrayList<>();
+    private InventoryServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new InventoryServer(new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        List<Product> products = new ArrayList<>();
+        for (int id : productIds) {
+            Product product = InventoryStore.products().lookup(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        InventoryStore.whereUsed().removeUnusedProducts(products);
+        List<Part> parts = new ArrayList<>();
+        for (int id : partIds) {
+            Part part = InventoryStore.parts().lookup(id);
+            if (part != null) {
+                parts.add(part);
+            }
+        }
+        InventoryStore.whereUsed().removeUnusedParts(parts);
+    }
+
+    @Test
+    void aPartCanBeAddedFoundChangedAndDeleted() throws Exception {
+        Map<String, Object> bolt = addPart("{\"type\":\"InHouse\",\"name\":\"Servertest bolt\",\"price\":0.25,"
+                + "\"stock\":10,\"min\":1,\"max\":50,\"machineId\":7}");
+        int id = number(bolt, "id");
+        assertEquals("InHouse", bolt.get("type"));
+        assertEquals(10, number(bolt, "stock"));
+
+        // A PUT changes only the fields it names.
+        Map<String, Object> changed = reply(200, "PUT", "/parts/" + id, "{\"name\":\"Servertest screw\",\"stock\":7}");
+        assertEquals("Servertest screw", changed.get("name"));
+        assertEquals(7, number(changed, "stock"));
+        assertEquals(7, number(changed, "machineId"));
+        assertEquals(0.25, changed.get("price"));
+        assertEquals(1, number(reply(200, "GET", "/parts?name=servertest%20screw", null), "total"));
+        assertEquals(0, number(reply(200, "GET", "/parts?name=servertest%20bolt", null), "total"));
+
+        reply(409, "PUT", "/parts/" + id, "{\"type\":\"Outsourced\",\"companyName\":\"Acme\"}");
+        reply(400, "PUT", "/parts/" + id, "{\"type\":\"Gadget\"}");
+        reply(400, "PUT", "/parts/" + id, "{\"name\":\"Servertest nail\",\"stock\":51}");
+        Map<String, Object> unchanged = reply(200, "GET", "/parts/" + id, null);
+        assertEquals("Servertest screw", unchanged.get("name"));
+        assertEquals(7, number(unchanged, "stock"));
+
+        reply(200, "DELETE", "/parts/" + id, null);
+        reply(404, "GET", "/parts/" + id, null);
+        reply(404, "DELETE", "/parts/" + id, null);
+    }
+
+    @Test
+    void aRefusedPostDoesNotUseUpAnId() throws Exception {
+        String part = "{\"type\":\"Outsourced\",\"name\":\"Servertest pad\",\"price\":4.75,\"stock\":5,\"min\":1,"
+                + "\"max\":35,\"companyName\":\"Huffy\"}";
+        int first = number(addPart(part), "id");
+        reply(400, "POST", "/parts", part.replace("\"stock\":5", "\"stock\":99"));
+        reply(400, "POST", "/parts", part.replace("Huffy", " "));
+        reply(400, "POST", "/parts", "{\"type\":\"InHouse\"}");
+        reply(400, "POST", "/parts", "not json");
+        assertEquals(first + 1, number(addPart(part), "id"));
+    }
+
+    @Test
+    void productsAreTiedToTheirParts() throws Exception {
+        int bolt = number(addPart("{\"type\":\"InHouse\",\"name\":\"Servertest bolt\",\"price\":0.25,\"stock\":10,"
+                + "\"min\":1,\"max\":50,\"machineId\":7}"), "id");
+        Map<String, Object> wheel = reply(201, "POST", "/products", "{\"name\":\"Servertest wheel\",\"price\":20,"
+                + "\"stock\":1,\"min\":0,\"max\":5,\"parts\":[{\"id\":" + bolt + ",\"quantity\":4}]}");
+        int id = number(wheel, "id");
+        productIds.add(id);
+        reply(404, "POST", "/products", "{\"name\":\"Servertest axle\",\"price\":20,\"stock\":1,\"min\":0,"
+                + "\"max\":5,\"parts\":[{\"id\":-5,\"quantity\":1}]}");
+
+        List<?> lines = (List<?>) reply(200, "GET", "/products/" + id + "/parts", null).get("parts");
+        assertEquals(1, lines.size());
+        assertEquals(4, number((Map<?, ?>) lines.get(0), "quantity"));
+        assertEquals(1, number(reply(200, "GET", "/parts/" + bolt + "/products", null), "total"));
+
+        reply(409, "DELETE", "/parts/" + bolt, null);
+        reply(409, "DELETE", "/products/" + id, null);
+        reply(200, "PUT", "/products/" + id + "/parts/" + bolt, "{\"quantity\":2}");
+        assertEquals(2, InventoryStore.products().lookup(id).getAssociatedPartQuantity(bolt));
+        reply(200, "DELETE", "/products/" + id + "/parts/" + bolt, null);
+        assertEquals(0, number(reply(200, "GET", "/parts/" + bolt + "/products", null), "total"));
+        reply(200, "DELETE", "/products/" + id, null);
+        reply(200, "DELETE", "/parts/" + bolt, null);
+    }
+
+    @Test
+    void unknownRoutesAndMethodsAreRefused() throws Exception {
+        reply(404, "GET", "/nothing", null);
+        reply(404, "GET", "/parts/bolt", null);
+        reply(405, "PATCH", "/parts", null);
+        reply(405, "POST", "/stats", null);
+        Map<String, Object> stats = reply(200, "GET", "/stats", null);
+        assertEquals(4, number(stats, "requests"));
+        Map<?, ?> latency = (Map<?, ?>) stats.get("latencyMicros");
+        assertTrue(number(latency, "p999") <= number(latency, "max"));
+    }
+
+    @Test
+    void putsDoNotUndoStockMovedAtTheSameTime() throws Exception {
+        int id = number(addPart("{\"type\":\"InHouse\",\"name\":\"Servertest gear\",\"price\":1,\"stock\":0,"
+                + "\"min\":0,\"max\":100000,\"machineId\":7}"), "id");
+        Part gear = InventoryStore.parts().lookup(id);
+        int receipts = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int thread = t;
+            done.add(pool.submit(() -> {
+                go.await();
+                for (int i = 0; i < 50; i++) {
+                    reply(200, "PUT", "/parts/" + id, "{\"price\":" + (thread * 100 + i) + "}");
+                }
+                return null;
+            }));
+        }
+        done.add(pool.submit(() -> {
+            go.await();
+            for (int i = 0; i < receipts; i++) {
+                InventoryStore.ledger().receive(gear, 1);
+            }
+            return null;
+        }));
+        go.countDown();
+        for (Future<?> future : done) {
+            future.get();
+        }
+        pool.shutdown();
+        assertEquals(receipts, gear.getStock());
+        assertEquals(receipts, number(reply(200, "GET", "/parts/" + id, null), "stock"));
+    }
+
+    /** @param body JSON of the part
+     *  @return the part added, which the test will delete
+     *  @throws Exception If the request failed or was refused
+     */
+    private Map<String, Object> addPart(String body) throws Exception {
+        Map<String, Object> part = reply(201, "POST", "/parts", body);
+        partIds.add(number(part, "id"));
+        return part;
+    }
+
+    /** This method sends a request and checks its status.
+     *  @param status int status the reply must have
+     *  @param method String HTTP method
+     *  @param path String path and query
+     *  @param body JSON body, or null for none
+     *  @return the JSON object of the reply
+     *  @throws Exception If the request failed
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> reply(int status, String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.statusCode() == status,
+                method + " " + path + " answered " + response.statusCode() + ": " + response.body());
+        return (Map<String, Object>) Json.parse(response.body());
+    }
+
+    /** @param json JSON object
+     *  @param field String name of a number field
+     *  @return int value of the field
+     */
+    private static int number(Map<?, ?> json, String field) {
+        return ((Double) json.get(field)).intValue();
+    }
+}